@@ -0,0 +1,60 @@
+package com.todo.benchmark;
+
+import com.todo.dao.BatchResult;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Batch insert of 'rows' todos into an empty table
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BulkLoadBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    private EmbeddedDatabase database;
+    private TodoappDAOImpl dao;
+    private List<Todo> todos;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = EmbeddedDatabase.start("bulk_" + rows);
+        dao = new TodoappDAOImpl();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() throws SQLException {
+        database.truncate();
+        todos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Todo todo = new Todo("Bulk todo #" + i, "Inserted by BulkLoadBenchmark");
+            todo.setCompleted(i % 2 == 0);
+            todos.add(todo);
+        }
+    }
+
+    @Benchmark
+    public BatchResult bulkLoad() throws SQLException {
+        return dao.addTodos(todos);
+    }
+}
@@ -0,0 +1,47 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoExporter;
+import com.todo.dao.TodoFileFormat;
+import com.todo.dao.TodoImporter;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.dao.TransferListener;
+import com.todo.dao.TransferResult;
+import com.todo.util.DatabaseConnection;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Export and import throughput of every file format against the in-memory database:
+// each format is exported from the seeded table, the table is truncated and the file
+// imported back. The import uses batched inserts (LOAD DATA needs a real MySQL server).
+// Not a JMH benchmark; one pass over a large table is the realistic case:
+//   java -Xmx2g -cp benchmarks.jar com.todo.benchmark.BulkTransfer [rows]
+public class BulkTransfer {
+    private static final int DEFAULT_ROWS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        EmbeddedDatabase database = EmbeddedDatabase.start("bulk-transfer");
+        database.seed(rows);
+        System.out.println("Rows: " + rows);
+
+        TodoappDAOImpl dao = new TodoappDAOImpl();
+        Path directory = Files.createTempDirectory("todo-transfer");
+        try {
+            for (TodoFileFormat format : TodoFileFormat.values()) {
+                Path file = directory.resolve("todos" + format.getExtension());
+                TransferResult exported = new TodoExporter(dao).export(TodoQuery.all(), file, format,
+                        TransferListener.NONE);
+                database.truncate();
+                TransferResult imported = new TodoImporter(dao).importFile(file, format, TransferListener.NONE);
+                System.out.printf("%-10s export %s%n", format, exported.summary());
+                System.out.printf("%-10s import %s%n", format, imported.summary());
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+            DatabaseConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// TodoappDAOImpl operations against a table of 'rows' todos
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DaoBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    private TodoappDAOImpl dao;
+    private Todo existing;
+    private Todo middleOfTable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase database = EmbeddedDatabase.start("dao_" + rows);
+        database.seed(rows);
+        dao = new TodoappDAOImpl();
+
+        existing = dao.getTodosPage((String) null, null, 1).get(0);
+        List<Todo> skip = dao.getTodosPage((String) null, null, Math.max(1, rows / 2));
+        middleOfTable = skip.get(skip.size() - 1);
+    }
+
+    // ===== SINGLE ROW =====
+    @Benchmark
+    public Todo getById() throws SQLException {
+        return dao.getTodoById(existing.getId());
+    }
+
+    @Benchmark
+    public void updateOne() throws SQLException {
+        existing.setUpdated_at(LocalDateTime.now());
+        dao.updateTodo(existing);
+    }
+
+    // Insert + read back + update + delete, leaving the table size unchanged
+    @Benchmark
+    public Todo crudRoundTrip() throws SQLException {
+        Todo todo = new Todo("Benchmark todo", "Inserted by DaoBenchmark");
+        dao.addTodo(todo);
+        Todo stored = dao.getTodoById(todo.getId());
+        stored.setCompleted(true);
+        stored.setUpdated_at(LocalDateTime.now());
+        dao.updateTodo(stored);
+        dao.deleteTodo(stored.getId());
+        return stored;
+    }
+
+    // ===== LOADS =====
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Todo> loadAll() throws SQLException {
+        return dao.getAllTodos();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Todo> loadFiltered() throws SQLException {
+        return dao.getTodosByFilter("Completed");
+    }
+
+    @Benchmark
+    public List<Todo> firstPage() throws SQLException {
+        return dao.getTodosPage((String) null, null, TodoappDAOImpl.DEFAULT_PAGE_SIZE);
+    }
+
+    // Keyset seek from the middle of the table; should cost the same as the first page
+    @Benchmark
+    public List<Todo> deepPage() throws SQLException {
+        return dao.getTodosPage((String) null, middleOfTable, TodoappDAOImpl.DEFAULT_PAGE_SIZE);
+    }
+}
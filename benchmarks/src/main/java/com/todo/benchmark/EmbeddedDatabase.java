@@ -0,0 +1,114 @@
+package com.todo.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// In-memory H2 database in MySQL mode standing in for the real server. Points
+// DatabaseConnection at it through the todo.db.* system properties, so this must run
+// before the DAO is first used in the (forked) benchmark JVM.
+public final class EmbeddedDatabase {
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+    private static final int SEED_BATCH = 10_000;
+
+    private static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS todos ("
+            + "id INT AUTO_INCREMENT PRIMARY KEY, "
+            + "title VARCHAR(255) NOT NULL, "
+            + "description TEXT, "
+            + "completed BOOLEAN NOT NULL DEFAULT FALSE, "
+            + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "version INT NOT NULL DEFAULT 0, "
+            + "parent_id INT NULL, "
+            + "due_at TIMESTAMP NULL, "
+            + "recurrence VARCHAR(64) NULL)";
+    // Filled by triggers on MySQL; here it only has to exist for the DAO's cascading deletes
+    private static final String SQL_CREATE_TREE = "CREATE TABLE IF NOT EXISTS todo_tree ("
+            + "ancestor_id INT NOT NULL, "
+            + "descendant_id INT NOT NULL, "
+            + "depth INT NOT NULL, "
+            + "PRIMARY KEY (ancestor_id, descendant_id))";
+    private static final String[] SQL_CREATE_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_todos_created ON todos (created_at, id)",
+            "CREATE INDEX IF NOT EXISTS idx_todos_completed_created ON todos (completed, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS idx_todos_updated ON todos (updated_at)",
+            "CREATE INDEX IF NOT EXISTS idx_todos_parent_created ON todos (parent_id, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS idx_todos_due ON todos (completed, due_at, id)",
+    };
+    private static final String SQL_SEED = "INSERT INTO todos (title, description, completed, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    static {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final String url;
+
+    private EmbeddedDatabase(String url) {
+        this.url = url;
+    }
+
+    // Creates (or reuses) the named in-memory database and routes the application to it
+    public static EmbeddedDatabase start(String name) throws SQLException {
+        String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        System.setProperty("todo.db.url", url);
+        System.setProperty("todo.db.user", USER);
+        System.setProperty("todo.db.password", PASSWORD);
+        System.setProperty("todo.pool.leakDetectionThresholdMs", "0");
+
+        EmbeddedDatabase database = new EmbeddedDatabase(url);
+        try (Connection conn = database.connect();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute(SQL_CREATE_TABLE);
+            stmt.execute(SQL_CREATE_TREE);
+            for (String index : SQL_CREATE_INDEXES) {
+                stmt.execute(index);
+            }
+        }
+        return database;
+    }
+
+    // Inserts rows with distinct created_at values (one second apart, newest last), a third of them completed
+    public void seed(int rows) throws SQLException {
+        LocalDateTime start = LocalDateTime.now().minusSeconds(rows);
+        try (Connection conn = connect();
+                PreparedStatement stmt = conn.prepareStatement(SQL_SEED)) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                Timestamp time = Timestamp.valueOf(start.plusSeconds(i));
+                stmt.setString(1, "Todo #" + i);
+                stmt.setString(2, "Generated description for todo number " + i);
+                stmt.setBoolean(3, i % 3 == 0);
+                stmt.setTimestamp(4, time);
+                stmt.setTimestamp(5, time);
+                stmt.addBatch();
+                if ((i + 1) % SEED_BATCH == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    public void truncate() throws SQLException {
+        try (Connection conn = connect();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE todos");
+        }
+    }
+
+    public Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, USER, PASSWORD);
+    }
+}
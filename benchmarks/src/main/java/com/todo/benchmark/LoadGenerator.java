@@ -0,0 +1,608 @@
+package com.todo.benchmark;
+
+import com.todo.dao.BatchResult;
+import com.todo.dao.EmbeddedTodoRepository;
+import com.todo.dao.TodoConflictException;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.TodoRepository;
+import com.todo.dao.TodoSchema;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.model.Todo;
+import com.todo.util.ConnectionPool;
+import com.todo.util.DatabaseConnection;
+import com.todo.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Load generator and soak test for the storage layer. Drives a TodoRepository with a
+// weighted mix of operations from a number of worker threads and reports throughput,
+// error rates and latency percentiles per operation.
+//
+//   java -cp benchmarks.jar com.todo.benchmark.LoadGenerator [key=value ...]
+//     target=h2|embedded|mysql   h2 (default) is the in-memory MySQL stand-in; mysql uses -Dtodo.db.*
+//     rows=100000                dataset size, seeded before the run (mysql: only with seed=true)
+//     threads=16                 concurrency
+//     rate=0                     0 = closed loop (each thread sends its next call as soon as the last returns);
+//                                N = open loop, N calls/s in total on a fixed schedule
+//     mix=get:40,page:15,filter:10,search:5,insert:10,update:15,delete:5
+//     warmup=10s duration=60s    also m and h, e.g. duration=8h for a soak
+//     report=10s                 interval lines: throughput, p99, errors, heap after GC, threads, pool, fds
+//     csv=file                   interval lines as CSV as well
+//
+// Latency: "service" is measured from when the call actually started. "corrected" accounts
+// for coordinated omission: in open loop it is measured from when the call was scheduled,
+// so a stall also counts against every call queued behind it; in closed loop every sample
+// longer than the warm-up mean is back-filled with the samples a steady sender would have
+// seen during the stall (HdrHistogram's expected-interval correction).
+//
+// Soak: at the end, heap after GC, thread count, open files and pool connections are
+// compared between the first and last quarter of the run; steady growth is flagged as a
+// possible leak, as are connections still borrowed once the load has stopped.
+public class LoadGenerator {
+    enum Op { GET, PAGE, FILTER, SEARCH, INSERT, UPDATE, DELETE }
+
+    private static final int PAGE_SIZE = 50;
+    private static final int SEED_BATCH = 1_000;
+    // Back-filled samples per call at most, so one pathological stall cannot stall the generator
+    private static final int MAX_BACKFILL = 100_000;
+
+    // ===== SETTINGS =====
+    private String target = "h2";
+    private int rows = 100_000;
+    private int threads = 16;
+    private double rate;
+    private final Map<Op, Integer> mix = new EnumMap<>(Op.class);
+    private long warmupNanos = TimeUnit.SECONDS.toNanos(10);
+    private long durationNanos = TimeUnit.SECONDS.toNanos(60);
+    private long reportNanos = TimeUnit.SECONDS.toNanos(10);
+    private boolean seed;
+    private Path csv;
+
+    // ===== STATE =====
+    private TodoRepository repository;
+    private Path embeddedDirectory;
+    private final Map<Op, OpStats> stats = new EnumMap<>(Op.class);
+    private final AtomicReference<Interval> interval = new AtomicReference<>(new Interval());
+    private final List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong minId = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxId = new AtomicLong();
+    private volatile boolean recording;
+    private volatile long expectedIntervalNanos;
+    private final AtomicLong heapAfterGc = new AtomicLong();
+    private Op[] wheel;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parse(args);
+        generator.run();
+    }
+
+    private void parse(String[] args) {
+        String mixSpec = "get:40,page:15,filter:10,search:5,insert:10,update:15,delete:5";
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            String key = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            switch (key) {
+                case "target":
+                    target = value;
+                    break;
+                case "rows":
+                    rows = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "mix":
+                    mixSpec = value;
+                    break;
+                case "warmup":
+                    warmupNanos = parseDuration(value);
+                    break;
+                case "duration":
+                    durationNanos = parseDuration(value);
+                    break;
+                case "report":
+                    reportNanos = parseDuration(value);
+                    break;
+                case "seed":
+                    seed = Boolean.parseBoolean(value);
+                    break;
+                case "csv":
+                    csv = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + key);
+            }
+        }
+        for (String part : mixSpec.split(",")) {
+            String[] weight = part.split(":");
+            mix.put(Op.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1].trim()));
+        }
+        // 100 slots, each op in proportion to its weight; workers pick a random slot
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        List<Op> slots = new ArrayList<>();
+        for (Map.Entry<Op, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < Math.round(100.0 * entry.getValue() / total); i++) {
+                slots.add(entry.getKey());
+            }
+        }
+        wheel = slots.toArray(new Op[0]);
+        for (Op op : Op.values()) {
+            stats.put(op, new OpStats());
+        }
+    }
+
+    private static long parseDuration(String value) {
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return TimeUnit.SECONDS.toNanos(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toNanos(amount);
+            case 'h':
+                return TimeUnit.HOURS.toNanos(amount);
+            default:
+                throw new IllegalArgumentException("Durations end in s, m or h: " + value);
+        }
+    }
+
+    // ===== RUN =====
+    private void run() throws Exception {
+        open();
+        watchCollections();
+        System.out.printf("Target %s, %,d rows (ids %d..%d), %d threads, %s, mix %s%n", target, rows, minId.get(),
+                maxId.get(), threads, rate > 0 ? String.format("open loop at %.0f calls/s", rate) : "closed loop", mix);
+        System.out.printf("Warm-up %d s, measured %d s, reporting every %d s%n", TimeUnit.NANOSECONDS.toSeconds(warmupNanos),
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(reportNanos));
+
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> work(index, start, end), "load-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        try (PrintWriter csvOut = csv == null ? null : new PrintWriter(Files.newBufferedWriter(csv))) {
+            if (csvOut != null) {
+                csvOut.println("seconds,ops_per_sec,p99_ms,errors,heap_after_gc_mb,threads,pool_active,pool_total,open_fds");
+            }
+            sleepUntil(measureStart);
+            expectedIntervalNanos = warmupMeanNanos();
+            resetStats();
+            recording = true;
+            long nextReport = measureStart + reportNanos;
+            while (nextReport <= end) {
+                sleepUntil(nextReport);
+                report(nextReport - measureStart, csvOut);
+                nextReport += reportNanos;
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            recording = false;
+        }
+        long measuredNanos = Math.min(System.nanoTime(), end) - measureStart;
+
+        summarize(measuredNanos);
+        checkForLeaks();
+        close();
+    }
+
+    private void work(int index, long start, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Open loop: this worker owns every threads-th slot of the global schedule
+        long period = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+        long intended = start + (rate > 0 ? (long) (1e9 * index / rate) : 0);
+        while (true) {
+            if (period > 0) {
+                sleepUntil(intended);
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                return;
+            }
+            Op op = wheel[random.nextInt(wheel.length)];
+            long callStart = System.nanoTime();
+            String outcome = call(op, random);
+            long callEnd = System.nanoTime();
+            record(op, outcome, callStart, callEnd, intended);
+            if (period > 0) {
+                intended += period;
+            }
+        }
+    }
+
+    // Returns null on success, "miss" / "conflict" for expected races, else the error
+    private String call(Op op, ThreadLocalRandom random) {
+        try {
+            switch (op) {
+                case GET:
+                    return repository.getTodoById(randomId(random)) == null ? "miss" : null;
+                case PAGE:
+                    repository.getTodosPage(TodoQuery.all(), null, PAGE_SIZE);
+                    return null;
+                case FILTER:
+                    repository.getTodosPage(TodoQuery.fromFilter(random.nextBoolean() ? "Completed" : "Incomplete"),
+                            null, PAGE_SIZE);
+                    return null;
+                case SEARCH:
+                    // H2 has no FULLTEXT index, so there only short terms, which take the LIKE path
+                    String term = target.equals("h2") ? String.valueOf(random.nextInt(10, 100))
+                            : "number " + random.nextInt(1_000);
+                    repository.getTodosPage(TodoQuery.all().search(term), null, PAGE_SIZE);
+                    return null;
+                case INSERT:
+                    Todo todo = new Todo("Load todo " + random.nextInt(1_000_000), "Inserted by the load generator");
+                    repository.addTodo(todo);
+                    maxId.accumulateAndGet(Long.parseLong(todo.getId()), Math::max);
+                    return null;
+                case UPDATE:
+                    Todo current = repository.getTodoById(randomId(random));
+                    if (current == null) {
+                        return "miss";
+                    }
+                    current.setCompleted(!current.isCompleted());
+                    current.setUpdated_at(LocalDateTime.now());
+                    repository.updateTodo(current);
+                    return null;
+                case DELETE:
+                    BatchResult result = repository.deleteTodos(Collections.singletonList(randomId(random)));
+                    return result.isOk(0) ? null : "miss";
+                default:
+                    throw new IllegalStateException(op.toString());
+            }
+        } catch (TodoConflictException e) {
+            return "conflict";
+        } catch (SQLException | RuntimeException e) {
+            return e.toString();
+        }
+    }
+
+    private String randomId(ThreadLocalRandom random) {
+        return String.valueOf(random.nextLong(minId.get(), maxId.get() + 1));
+    }
+
+    // ===== RECORDING =====
+    private void record(Op op, String outcome, long callStart, long callEnd, long intended) {
+        OpStats op1 = stats.get(op);
+        long service = callEnd - callStart;
+        if (!recording) {
+            // Warm-up: only the mean, for the closed-loop correction
+            op1.warmupCount.incrementAndGet();
+            op1.warmupNanos.addAndGet(service);
+            return;
+        }
+        op1.service.record(service);
+        long corrected;
+        if (rate > 0) {
+            corrected = callEnd - intended;
+            op1.corrected.record(corrected);
+        } else {
+            corrected = service;
+            op1.corrected.record(service);
+            long expected = expectedIntervalNanos;
+            if (expected > 0) {
+                int backfilled = 0;
+                for (long missed = service - expected; missed >= expected && backfilled < MAX_BACKFILL;
+                        missed -= expected, backfilled++) {
+                    op1.corrected.record(missed);
+                }
+            }
+        }
+        Interval current = interval.get();
+        current.latency.record(corrected);
+        if (outcome == null) {
+            op1.ok.incrementAndGet();
+        } else if (outcome.equals("miss")) {
+            op1.misses.incrementAndGet();
+        } else if (outcome.equals("conflict")) {
+            op1.conflicts.incrementAndGet();
+        } else {
+            op1.errors.incrementAndGet();
+            current.errors.incrementAndGet();
+            op1.firstError.compareAndSet(null, outcome);
+        }
+    }
+
+    private long warmupMeanNanos() {
+        long count = 0;
+        long nanos = 0;
+        for (OpStats op : stats.values()) {
+            count += op.warmupCount.get();
+            nanos += op.warmupNanos.get();
+        }
+        return count == 0 ? 0 : nanos / count;
+    }
+
+    private void resetStats() {
+        for (Op op : Op.values()) {
+            stats.put(op, new OpStats());
+        }
+        interval.set(new Interval());
+    }
+
+    // ===== REPORTING =====
+    private void report(long elapsedNanos, PrintWriter csvOut) {
+        Interval finished = interval.getAndSet(new Interval());
+        double seconds = reportNanos / 1e9;
+        Sample sample = new Sample(TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), heapAfterGcMb(),
+                ManagementFactory.getThreadMXBean().getThreadCount(), openFileDescriptors());
+        samples.add(sample);
+        ConnectionPool pool = usesPool() ? DatabaseConnection.getPool() : null;
+        double p99 = LatencyHistogram.toMillis(finished.latency.getPercentileNanos(99));
+        System.out.printf("[%6d s] %8.0f ops/s  p99 %8.2f ms  errors %d  heap after GC %d MB  threads %d%s%s%n",
+                sample.seconds, finished.latency.getCount() / seconds, p99, finished.errors.get(), sample.heapMb,
+                sample.threads, pool == null ? "" : "  pool " + pool.getActiveCount() + "/" + pool.getTotalCount(),
+                sample.openFds < 0 ? "" : "  fds " + sample.openFds);
+        if (csvOut != null) {
+            csvOut.printf(Locale.ROOT, "%d,%.1f,%.3f,%d,%d,%d,%d,%d,%d%n", sample.seconds,
+                    finished.latency.getCount() / seconds, p99, finished.errors.get(), sample.heapMb, sample.threads,
+                    pool == null ? 0 : pool.getActiveCount(), pool == null ? 0 : pool.getTotalCount(), sample.openFds);
+            csvOut.flush();
+        }
+    }
+
+    private void summarize(long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        long total = 0;
+        long errors = 0;
+        System.out.println();
+        System.out.printf("%-7s %10s %9s %7s %7s %7s  %-34s  %-34s%n", "op", "calls", "calls/s", "errors", "misses",
+                "confl.", "service p50/p99/p999/max ms", "corrected p50/p99/p999/max ms");
+        for (Map.Entry<Op, OpStats> entry : stats.entrySet()) {
+            OpStats op = entry.getValue();
+            long calls = op.service.getCount();
+            if (calls == 0) {
+                continue;
+            }
+            total += calls;
+            errors += op.errors.get();
+            System.out.printf("%-7s %10d %9.0f %7d %7d %7d  %-34s  %-34s%n", entry.getKey().name().toLowerCase(Locale.ROOT),
+                    calls, calls / seconds, op.errors.get(), op.misses.get(), op.conflicts.get(),
+                    percentiles(op.service), percentiles(op.corrected));
+        }
+        System.out.printf("Total   %10d %9.0f calls/s, error rate %.3f%%%s%n", total, total / seconds,
+                total == 0 ? 0 : 100.0 * errors / total,
+                rate > 0 ? String.format(" (target %.0f calls/s)", rate) : "");
+        for (Map.Entry<Op, OpStats> entry : stats.entrySet()) {
+            if (entry.getValue().firstError.get() != null) {
+                System.out.println("First " + entry.getKey() + " error: " + entry.getValue().firstError.get());
+            }
+        }
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format("%.2f/%.2f/%.2f/%.2f", LatencyHistogram.toMillis(histogram.getPercentileNanos(50)),
+                LatencyHistogram.toMillis(histogram.getPercentileNanos(99)),
+                LatencyHistogram.toMillis(histogram.getPercentileNanos(99.9)),
+                LatencyHistogram.toMillis(histogram.getMaxNanos()));
+    }
+
+    // ===== SOAK CHECKS =====
+    private void checkForLeaks() {
+        List<String> findings = new ArrayList<>();
+        if (usesPool()) {
+            ConnectionPool pool = DatabaseConnection.getPool();
+            if (pool.getActiveCount() > 0) {
+                findings.add(pool.getActiveCount() + " connections still borrowed after the load stopped");
+            }
+            if (pool.getMetrics().getLeakCount() > 0) {
+                findings.add("pool leak detection fired " + pool.getMetrics().getLeakCount() + " times");
+            }
+        }
+        if (samples.size() >= 8) {
+            int quarter = samples.size() / 4;
+            List<Sample> first = samples.subList(0, quarter);
+            List<Sample> last = samples.subList(samples.size() - quarter, samples.size());
+            // Minimum of each quarter: the live set, not where the collector happened to be
+            long heapBefore = first.stream().mapToLong(s -> s.heapMb).min().orElse(0);
+            long heapAfter = last.stream().mapToLong(s -> s.heapMb).min().orElse(0);
+            if (heapAfter > heapBefore + 16 && heapAfter > heapBefore * 1.2) {
+                findings.add("heap after GC grew from " + heapBefore + " MB to " + heapAfter + " MB");
+            }
+            long threadsBefore = first.stream().mapToLong(s -> s.threads).max().orElse(0);
+            long threadsAfter = last.stream().mapToLong(s -> s.threads).min().orElse(0);
+            if (threadsAfter > threadsBefore) {
+                findings.add("thread count grew from " + threadsBefore + " to " + threadsAfter);
+            }
+            long fdsBefore = first.stream().mapToLong(s -> s.openFds).max().orElse(0);
+            long fdsAfter = last.stream().mapToLong(s -> s.openFds).min().orElse(0);
+            if (fdsBefore >= 0 && fdsAfter > fdsBefore + 8) {
+                findings.add("open files grew from " + fdsBefore + " to " + fdsAfter);
+            }
+        } else {
+            System.out.println("Leak check needs at least 8 report intervals; run longer or report more often");
+        }
+        for (String finding : findings) {
+            System.out.println("Possible leak: " + finding);
+        }
+        if (findings.isEmpty() && samples.size() >= 8) {
+            System.out.println("Leak check: heap, threads, open files and pool connections stayed flat");
+        }
+    }
+
+    // Heap in use right after the most recent collection of any kind. The pools' own
+    // collection usage is not enough: G1 only updates the old generation's on old collections.
+    private void watchCollections() {
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData());
+                long used = 0;
+                for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if (heapPools.contains(pool.getKey())) {
+                        used += pool.getValue().getUsed();
+                    }
+                }
+                heapAfterGc.set(used);
+            }, null, null);
+        }
+    }
+
+    private long heapAfterGcMb() {
+        return heapAfterGc.get() / (1024 * 1024);
+    }
+
+    // -1 where the platform does not report it
+    private static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    // ===== TARGETS =====
+    private boolean usesPool() {
+        return !target.equals("embedded");
+    }
+
+    private void open() throws SQLException, IOException {
+        switch (target) {
+            case "h2":
+                EmbeddedDatabase.start("load").seed(rows);
+                repository = new TodoappDAOImpl();
+                break;
+            case "mysql":
+                new TodoSchema().migrate();
+                repository = new TodoappDAOImpl();
+                if (seed) {
+                    seedRepository();
+                }
+                break;
+            case "embedded":
+                embeddedDirectory = Files.createTempDirectory("todo-load");
+                repository = new EmbeddedTodoRepository(embeddedDirectory);
+                seedRepository();
+                break;
+            default:
+                throw new IllegalArgumentException("target must be h2, embedded or mysql");
+        }
+        // Ids are numeric in every engine; gaps (deleted rows) just count as misses
+        repository.streamTodos(TodoQuery.all(), todo -> {
+            long id = Long.parseLong(todo.getId());
+            minId.accumulateAndGet(id, Math::min);
+            maxId.accumulateAndGet(id, Math::max);
+        });
+        if (maxId.get() == 0) {
+            throw new IllegalStateException("The target holds no todos; seed it first (seed=true)");
+        }
+    }
+
+    private void seedRepository() throws SQLException {
+        List<Todo> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < rows; i++) {
+            Todo todo = new Todo("Todo #" + i, "Generated description for todo number " + i);
+            todo.setCompleted(i % 3 == 0);
+            batch.add(todo);
+            if (batch.size() == SEED_BATCH || i == rows - 1) {
+                repository.addTodos(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void close() throws SQLException, IOException {
+        repository.close();
+        if (usesPool()) {
+            DatabaseConnection.shutdown();
+        }
+        if (embeddedDirectory != null) {
+            try (java.util.stream.Stream<Path> files = Files.walk(embeddedDirectory)) {
+                files.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        for (long remaining; (remaining = deadline - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // ===== RECORDS =====
+    private static final class OpStats {
+        final LatencyHistogram service = new LatencyHistogram();
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong conflicts = new AtomicLong();
+        final AtomicLong warmupCount = new AtomicLong();
+        final AtomicLong warmupNanos = new AtomicLong();
+        final AtomicReference<String> firstError = new AtomicReference<>();
+    }
+
+    private static final class Interval {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    private static final class Sample {
+        final long seconds;
+        final long heapMb;
+        final long threads;
+        final long openFds;
+
+        Sample(long seconds, long heapMb, long threads, long openFds) {
+            this.seconds = seconds;
+            this.heapMb = heapMb;
+            this.threads = threads;
+            this.openFds = openFds;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.todo.benchmark;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoStore;
+
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Retained heap per loaded row: List<Todo> versus the columnar TodoStore.
+// Not a JMH benchmark (JMH measures time); run it directly, ideally with a fixed heap:
+//   java -Xms2g -Xmx2g -cp benchmarks.jar com.todo.benchmark.MemoryFootprint [rows]
+public class MemoryFootprint {
+    private static final int DEFAULT_ROWS = 1_000_000;
+    // Titles repeat the way real lists do (recurring chores); most descriptions are empty
+    private static final int DISTINCT_TITLES = 5_000;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        System.out.println("Rows: " + rows);
+
+        long todoBytes = retainedBytes(() -> generate(rows));
+        report("List<Todo>", todoBytes, rows);
+        long storeBytes = retainedBytes(() -> toStore(generate(rows)));
+        report("TodoStore", storeBytes, rows);
+
+        System.out.printf("Reduction: %.1fx%n", (double) todoBytes / Math.max(1, storeBytes));
+    }
+
+    // Heap still in use after building the value and collecting the garbage
+    private static long retainedBytes(Supplier<Object> build) {
+        long baseline = usedHeap();
+        Object value = build.get();
+        long bytes = usedHeap() - baseline;
+        Reference.reachabilityFence(value);
+        return bytes;
+    }
+
+    // The source list becomes garbage when this returns
+    private static TodoStore toStore(List<Todo> todos) {
+        TodoStore store = new TodoStore(todos.size());
+        for (Todo todo : todos) {
+            store.add(todo);
+        }
+        return store;
+    }
+
+    // Rows shaped the way TodoRowMapper.toTodo builds them: fresh strings per row, a
+    // version, a parent id String for sub-tasks, and a due date and recurrence on some
+    private static List<Todo> generate(int rows) {
+        List<Todo> todos = new ArrayList<>(rows);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < rows; i++) {
+            LocalDateTime created = start.plusSeconds(i);
+            String title = new String("Follow up on item " + (i % DISTINCT_TITLES));
+            String description = i % 4 == 0 ? "Details for todo " + i : "";
+            Todo todo = new Todo(String.valueOf(i + 1), title, description, i % 3 == 0, created, created.plusMinutes(5));
+            todo.setVersion(i % 5);
+            if (i % 10 == 9) {
+                todo.setParent_id(String.valueOf(i - 8));
+            }
+            if (i % 8 == 0) {
+                todo.setDue_at(created.plusDays(7));
+                todo.setRecurrence(i % 16 == 0 ? new String("weekly") : null);
+            }
+            todos.add(todo);
+        }
+        return todos;
+    }
+
+    private static void report(String label, long bytes, int rows) {
+        System.out.printf("%-12s %,d bytes total, %,.1f bytes/row%n", label, bytes, (double) bytes / rows);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,41 @@
+package com.todo.benchmark;
+
+import com.todo.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Cost of building Todo objects, independent of any database
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ModelBenchmark {
+    private int id = 1;
+    private final String title = "Benchmark title";
+    private final String description = "Benchmark description";
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    // The shape used when mapping a row: id converted from int, timestamps supplied
+    @Benchmark
+    public Todo constructFromRow() {
+        return new Todo(String.valueOf(id++), title, description, false, createdAt, createdAt);
+    }
+
+    // The shape used by the GUI form: timestamps taken from the clock
+    @Benchmark
+    public Todo constructNew() {
+        return new Todo(title, description);
+    }
+}
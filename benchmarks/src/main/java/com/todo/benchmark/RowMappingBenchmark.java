@@ -0,0 +1,109 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoRowMapper;
+import com.todo.model.Todo;
+import com.todo.model.TodoStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+// Full-table scan of a million todos, in rows per second (one operation = one row), with
+// each way of mapping the rows: by column name through java.sql.Timestamp (how the DAO
+// mapped rows before TodoRowMapper), TodoRowMapper to Todo objects, and TodoRowMapper
+// straight into a columnar TodoStore. Every invocation runs the same query, so the
+// differences are the mapping.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RowMappingBenchmark {
+    private static final String SQL_SCAN = "SELECT id, title, description, completed, created_at, updated_at,"
+            + " version, parent_id, due_at, recurrence FROM todos";
+
+    private static final int ROWS = 1_000_000;
+
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase database = EmbeddedDatabase.start("mapping");
+        database.seed(ROWS);
+        connection = database.connect();
+        statement = connection.prepareStatement(SQL_SCAN, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(1_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    // ===== MAPPINGS =====
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byColumnName(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(mapByName(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapperToTodos(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            TodoRowMapper.of(rs).readAll(row -> blackhole.consume(row.toTodo()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public TodoStore mapperToStore() throws SQLException {
+        TodoStore store = new TodoStore(ROWS);
+        try (ResultSet rs = statement.executeQuery()) {
+            TodoRowMapper.of(rs).readAll(TodoRowMapper.into(store));
+        }
+        return store;
+    }
+
+    // The name-based mapping the DAO used before TodoRowMapper, kept as the baseline
+    private static Todo mapByName(ResultSet rs) throws SQLException {
+        Todo todo = new Todo(
+                String.valueOf(rs.getInt("id")),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getBoolean("completed"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getTimestamp("updated_at").toLocalDateTime());
+        todo.setVersion(rs.getInt("version"));
+        int parentId = rs.getInt("parent_id");
+        todo.setParent_id(rs.wasNull() ? null : String.valueOf(parentId));
+        Timestamp dueAt = rs.getTimestamp("due_at");
+        todo.setDue_at(dueAt == null ? null : dueAt.toLocalDateTime());
+        todo.setRecurrence(rs.getString("recurrence"));
+        return todo;
+    }
+}
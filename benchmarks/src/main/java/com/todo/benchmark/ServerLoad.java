@@ -0,0 +1,172 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.server.TodoServer;
+import com.todo.util.DatabaseConnection;
+import com.todo.util.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load test of the --server API: each client thread sends its next request
+// as soon as the previous answers. The mix is what a polling front end does: mostly
+// conditional list and row reads (revalidated with If-None-Match), some creates and
+// versioned updates. Prints requests/s plus mean and tail latency per request type.
+// Not a JMH benchmark. Without a URL it serves the in-memory database on a random port
+// in this JVM; with one it loads an already running server:
+//   java -cp benchmarks.jar com.todo.benchmark.ServerLoad [clients] [seconds] [url]
+public class ServerLoad {
+    private static final int DEFAULT_CLIENTS = 32;
+    private static final int DEFAULT_SECONDS = 20;
+    private static final int SEED_ROWS = 10_000;
+    private static final int WARMUP_SECONDS = 5;
+    private static final Pattern ID = Pattern.compile("\"id\":\"(\\d+)\"");
+    private static final Pattern VERSION = Pattern.compile("\"version\":(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+    private volatile boolean recording;
+
+    private ServerLoad(String baseUrl) {
+        this.baseUrl = baseUrl;
+        for (String type : new String[] { "list", "get", "create", "update" }) {
+            latencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        TodoServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            EmbeddedDatabase.start("server-load").seed(SEED_ROWS);
+            server = new TodoServer(new TodoappDAOImpl(), 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        try {
+            new ServerLoad(url).run(clients, seconds);
+        } finally {
+            if (server != null) {
+                server.close();
+                DatabaseConnection.shutdown();
+            }
+        }
+    }
+
+    private void run(int clients, int seconds) throws InterruptedException {
+        System.out.println("Clients: " + clients + ", warm-up " + WARMUP_SECONDS + " s, measured " + seconds + " s");
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS + seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> clientLoop(end), "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(WARMUP_SECONDS));
+        recording = true;
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (LatencyHistogram histogram : latencies.values()) {
+            total += histogram.getCount();
+        }
+        System.out.printf("Throughput: %.0f requests/s (%d requests, %d not modified, %d errors)%n",
+                total / elapsed, total, notModified.get(), errors.get());
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            System.out.printf("%-7s %s%n", entry.getKey(), entry.getValue());
+        }
+        if (firstError.get() != null) {
+            System.out.println("First error: " + firstError.get());
+        }
+    }
+
+    // Each client keeps its own ETags and ids, like a separate front end would
+    private void clientLoop(long end) {
+        String listTag = null;
+        String rowTag = null;
+        String rowId = null;
+        while (System.nanoTime() < end) {
+            int dice = ThreadLocalRandom.current().nextInt(100);
+            try {
+                if (dice < 60 || rowId == null) {
+                    HttpResponse<String> response = send("list",
+                            conditional(HttpRequest.newBuilder(URI.create(baseUrl + "/todos?limit=50")), listTag).GET());
+                    listTag = response.headers().firstValue("ETag").orElse(listTag);
+                    Matcher id = ID.matcher(response.body());
+                    if (response.statusCode() == 200 && id.find()) {
+                        rowId = id.group(1);
+                        rowTag = null;
+                    }
+                } else if (dice < 80) {
+                    HttpResponse<String> response = send("get",
+                            conditional(HttpRequest.newBuilder(URI.create(baseUrl + "/todos/" + rowId)), rowTag).GET());
+                    rowTag = response.headers().firstValue("ETag").orElse(rowTag);
+                } else if (dice < 90) {
+                    send("create", HttpRequest.newBuilder(URI.create(baseUrl + "/todos"))
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Load test todo\","
+                                    + "\"description\":\"Created by ServerLoad\"}")));
+                } else {
+                    String current = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/todos/" + rowId)).build(),
+                            HttpResponse.BodyHandlers.ofString()).body();
+                    Matcher version = VERSION.matcher(current);
+                    if (version.find()) {
+                        send("update", HttpRequest.newBuilder(URI.create(baseUrl + "/todos/" + rowId))
+                                .PUT(HttpRequest.BodyPublishers.ofString("{\"title\":\"Updated by ServerLoad\","
+                                        + "\"completed\":true,\"version\":" + version.group(1) + "}")));
+                    }
+                }
+            } catch (Exception e) {
+                error(e.toString());
+            }
+        }
+    }
+
+    private void error(String message) {
+        errors.incrementAndGet();
+        firstError.compareAndSet(null, message);
+    }
+
+    private static HttpRequest.Builder conditional(HttpRequest.Builder request, String etag) {
+        return etag == null ? request : request.header("If-None-Match", etag);
+    }
+
+    // 409 is a lost race between clients updating the same row, not an error
+    private HttpResponse<String> send(String type, HttpRequest.Builder request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (recording) {
+            latencies.get(type).record(System.nanoTime() - start);
+            if (response.statusCode() == 304) {
+                notModified.incrementAndGet();
+            } else if (response.statusCode() >= 400 && response.statusCode() != 409) {
+                error(response.statusCode() + " " + response.body());
+            }
+        }
+        return response;
+    }
+}
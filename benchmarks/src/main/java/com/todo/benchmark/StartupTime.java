@@ -0,0 +1,142 @@
+package com.todo.benchmark;
+
+import com.todo.dao.EmbeddedTodoRepository;
+import com.todo.model.Todo;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Cold start time of the application jar, each run in a fresh JVM:
+//   default      sequential start (connect, schema, build the whole frame, then load)
+//   fastStart    -Dtodo.fastStart=true (frame first, storage opened in parallel)
+//   fastStart+cds  the same with the archive from the cds profile
+// Every run uses the embedded store, seeded here, and exits as soon as the first page is
+// on screen (-Dtodo.startup.exitAfterLoad), so it needs a display. The class loading
+// part alone (the CDS training run, no display needed) is timed with and without the archive.
+// Not a JMH benchmark; build the app with mvn -Pcds install first, then:
+//   java -cp benchmarks.jar com.todo.benchmark.StartupTime [runs] [appJar] [archive]
+public class StartupTime {
+    private static final int DEFAULT_RUNS = 10;
+    private static final int SEED_ROWS = 10_000;
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+    private static final Pattern MILESTONE = Pattern.compile("Startup: (.+) at (\\d+) ms");
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        Path appJar = Paths.get(args.length > 1 ? args[1] : "target/todo-application-1.0.0.jar").toAbsolutePath();
+        Path archive = Paths.get(args.length > 2 ? args[2] : "target/todo-app.jsa").toAbsolutePath();
+        if (!Files.exists(appJar)) {
+            System.out.println("Application jar not found: " + appJar + " (run mvn -Pcds install in the project root)");
+            return;
+        }
+        boolean haveArchive = Files.exists(archive);
+        if (!haveArchive) {
+            System.out.println("No CDS archive at " + archive + "; the cds configurations are skipped");
+        }
+
+        Path store = Files.createTempDirectory("todo-startup");
+        seed(store);
+        System.out.println("Runs per configuration: " + runs + ", rows: " + SEED_ROWS);
+
+        List<String> app = Arrays.asList("-Dtodo.storage=embedded", "-Dtodo.embedded.dir=" + store,
+                "-Dtodo.metrics.enabled=false", "-Dtodo.startup.exitAfterLoad=true", "-jar", appJar.toString());
+        List<String> training = Arrays.asList("-cp", appJar.toString(), "com.todo.CdsTraining");
+        String useArchive = "-XX:SharedArchiveFile=" + archive;
+
+        measure("training", runs, training);
+        if (haveArchive) {
+            measure("training+cds", runs, prepend(training, useArchive));
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("Headless environment: application start-up runs need a display and were skipped");
+            return;
+        }
+        measure("default", runs, app);
+        measure("fastStart", runs, prepend(app, "-Dtodo.fastStart=true"));
+        if (haveArchive) {
+            measure("fastStart+cds", runs, prepend(app, "-Dtodo.fastStart=true", useArchive));
+        }
+    }
+
+    // Prints the median wall time to exit and the median of every milestone the app reported
+    private static void measure(String name, int runs, List<String> jvmArgs) throws IOException, InterruptedException {
+        List<Long> totals = new ArrayList<>();
+        Map<String, List<Long>> milestones = new LinkedHashMap<>();
+        for (int i = 0; i < runs; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmArgs);
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            long start = System.nanoTime();
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    Matcher matcher = MILESTONE.matcher(line);
+                    if (matcher.find()) {
+                        milestones.computeIfAbsent(matcher.group(1), k -> new ArrayList<>())
+                                .add(Long.parseLong(matcher.group(2)));
+                    }
+                }
+            }
+            if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                System.out.println(name + ": run " + (i + 1) + " did not finish in " + RUN_TIMEOUT_SECONDS + " s");
+                return;
+            }
+            totals.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        StringBuilder line = new StringBuilder(String.format("%-14s exit %5d ms", name, median(totals)));
+        for (Map.Entry<String, List<Long>> milestone : milestones.entrySet()) {
+            line.append(String.format(", %s %d ms", milestone.getKey(), median(milestone.getValue())));
+        }
+        System.out.println(line);
+    }
+
+    private static void seed(Path directory) throws Exception {
+        try (EmbeddedTodoRepository repository = new EmbeddedTodoRepository(directory)) {
+            List<Todo> batch = new ArrayList<>();
+            for (int i = 0; i < SEED_ROWS; i++) {
+                batch.add(new Todo("Startup todo " + i, i % 4 == 0 ? "Details for todo " + i : ""));
+                if (batch.size() == 1_000) {
+                    repository.addTodos(batch);
+                    batch.clear();
+                }
+            }
+            repository.addTodos(batch);
+        }
+        directory.toFile().deleteOnExit();
+        for (File file : directory.toFile().listFiles()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static List<String> prepend(List<String> args, String... first) {
+        List<String> all = new ArrayList<>(Arrays.asList(first));
+        all.addAll(args);
+        return all;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
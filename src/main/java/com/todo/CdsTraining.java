@@ -0,0 +1,96 @@
+package com.todo;
+
+import com.todo.dao.EmbeddedTodoRepository;
+import com.todo.dao.TodoCache;
+import com.todo.dao.TodoQuery;
+import com.todo.gui.TodoTableModel;
+import com.todo.gui.TodoappGUI;
+import com.todo.model.Todo;
+import com.todo.util.Metrics;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Training run for the class data sharing archive built by the cds profile in pom.xml.
+// Touches what a normal start loads (Swing, the MySQL driver, the storage and cache
+// code) without needing a database or, on a headless build machine, a display; the JVM
+// dumps every class loaded here into the archive on exit.
+public class CdsTraining {
+    public static void main(String[] args) throws Exception {
+        long start = System.currentTimeMillis();
+        warmUpDriver();
+        warmUpStorage();
+        warmUpSwing();
+        System.out.println("CDS training run finished in " + (System.currentTimeMillis() - start) + " ms");
+        System.exit(0);
+    }
+
+    // Loads the driver and its connection code; nothing listens on port 1, so this fails fast
+    private static void warmUpDriver() {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            DriverManager.getConnection("jdbc:mysql://127.0.0.1:1/todo?connectTimeout=500", "todo", "").close();
+        } catch (ClassNotFoundException | SQLException e) {
+            // Expected
+        }
+    }
+
+    private static void warmUpStorage() throws IOException, SQLException {
+        Path directory = Files.createTempDirectory("todo-cds");
+        try (EmbeddedTodoRepository repository = new EmbeddedTodoRepository(directory, false, 60_000)) {
+            for (int i = 0; i < 100; i++) {
+                repository.addTodo(new Todo("Training todo " + i, "Created by the CDS training run"));
+            }
+            TodoCache cache = new TodoCache(repository);
+            List<Todo> page = cache.getTodosPage(TodoQuery.all(), null, 50);
+            Todo first = page.get(0);
+            first.setCompleted(true);
+            cache.updateTodo(first);
+            cache.getTodosPage(TodoQuery.fromFilter("Completed").search("training"), null, 50);
+            cache.deleteTodo(first);
+            cache.refresh();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        Metrics.snapshot();
+    }
+
+    private static void warmUpSwing() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            UIManager.getLookAndFeel();
+            if (!GraphicsEnvironment.isHeadless()) {
+                // Builds the real frame without showing it
+                new TodoappGUI("Training").dispose();
+            }
+            TodoTableModel model = new TodoTableModel(() -> {
+            }, 50);
+            JPanel panel = new JPanel();
+            panel.add(new JScrollPane(new JTable(model)));
+            panel.add(new JTextField(20));
+            panel.add(new JTextArea(3, 20));
+            panel.add(new JCheckBox("Completed"));
+            panel.add(new JButton("Add Todo"));
+            panel.add(new JComboBox<>(new String[] { "All", "Completed", "Incomplete" }));
+            panel.doLayout();
+        });
+    }
+}
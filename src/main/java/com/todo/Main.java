@@ -1,30 +1,358 @@
 package com.todo;
 
+import com.todo.dao.ChangeFeed;
+import com.todo.dao.QueryPlanCheck;
+import com.todo.dao.ReminderScheduler;
+import com.todo.dao.RepositoryFactory;
+import com.todo.dao.TodoCache;
+import com.todo.dao.TodoExporter;
+import com.todo.dao.TodoFileFormat;
+import com.todo.dao.TodoImporter;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.TodoRepository;
+import com.todo.dao.TodoSchema;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.dao.TransferListener;
+import com.todo.dao.TransferResult;
+import com.todo.gui.EdtMonitor;
 import com.todo.gui.TodoappGUI;
+import com.todo.server.TodoServer;
+import com.todo.model.Todo;
 import com.todo.util.DatabaseConnection;
+import com.todo.util.Metrics;
+import com.todo.util.MetricsReporter;
+import com.todo.util.StartupTrace;
 
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+// -Dtodo.fastStart=true shows the window at once and opens storage behind it: the
+// connection check, schema checks and first page load run on background threads while
+// Swing initializes on the EDT. See the cds profile in pom.xml for a class data sharing
+// archive that cuts class loading time further.
+// --export <file> / --import <file> run a bulk transfer without the GUI and exit; the
+// format follows the extension (.csv, .jsonl, .todos), see TodoFileFormat.
+// --server [port] serves the JSON API of TodoServer instead of opening the GUI.
+// With -Dtodo.storage=replica nothing waits on MySQL at startup: the window opens on the
+// local copy and the schema is prepared by the first sync round that gets through.
+// Reminders for due todos pop up while the window is open (ReminderScheduler); turn
+// them off with -Dtodo.reminders.enabled=false.
+// -Dtodo.tree.prune=true also sweeps tree links of todos deleted outside this app at startup.
 public class Main {
+    private static final boolean FAST_START = Boolean.getBoolean("todo.fastStart");
+
     public static void main(String[] args) {
-        // Test database connection
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            System.out.println("Connected to the database");
-        } catch (SQLException e) {
+        StartupTrace.mark("main");
+        if (args.length == 2 && (args[0].equals("--export") || args[0].equals("--import"))) {
+            System.exit(transfer(args[0].equals("--export"), Paths.get(args[1])));
+        }
+        if (args.length >= 1 && args[0].equals("--server")) {
+            Integer port = args.length > 1 ? parsePort(args[1]) : Integer.valueOf(TodoServer.DEFAULT_PORT);
+            if (port == null) {
+                System.out.println("Usage: --server [port]  (port 1-65535, default " + TodoServer.DEFAULT_PORT + ")");
+                System.exit(2);
+            }
+            serve(port);
+            return;
+        }
+        if (FAST_START) {
+            fastStart();
+            return;
+        }
+
+        if (RepositoryFactory.usesMySql()) {
+            if (checkConnection() != null || prepareSchema() != null) {
+                return;
+            }
+            checkQueryPlans();
+        }
+
+        // Publish operation metrics over JMX and start the optional log/CSV reporter
+        Metrics.registerJmx();
+        MetricsReporter reporter = MetricsReporter.fromSystemProperties();
+
+        // Open the configured storage engine
+        TodoRepository repository;
+        try {
+            repository = openRepository(reporter);
+        } catch (SQLException | IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
-            System.out.println("Please ensure MySQL is running and the database 'todo' exists");
             return;
         }
+        ChangeFeed feed = startChangeFeed(repository);
+        ReminderScheduler reminders = startReminders(repository);
+
+        // Track EDT dispatch times so blocking handlers show up as stalls
+        EdtMonitor.install();
 
         // Launch GUI on Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             try {
-                new TodoappGUI().setVisible(true);
+                TodoappGUI gui = new TodoappGUI(repository, feed);
+                if (reminders != null) {
+                    gui.showReminders(reminders);
+                    reminders.start();
+                }
+                gui.setVisible(true);
+                StartupTrace.mark("frame shown");
             } catch (Exception e) {
                 System.out.println("Error: " + e.getMessage());
             }
         });
     }
+
+    // ===== FAST START =====
+    // Steps that share no state run side by side: the frame on the EDT, JMX registration
+    // on a pool thread, pruning and the query plan check after the migration. The storage
+    // chain itself stays in order: migrate before opening storage (a write-behind journal
+    // starts replaying into the tables at once), the change feed before the preload (so
+    // no change between the two is missed).
+    private static void fastStart() {
+        EdtMonitor.install();
+        CompletableFuture<MetricsReporter> metrics = CompletableFuture.supplyAsync(() -> {
+            Metrics.registerJmx();
+            return MetricsReporter.fromSystemProperties();
+        });
+
+        // The frame is only a status line at first; building it loads the AWT toolkit and
+        // look and feel on the EDT while this thread gets storage ready
+        CompletableFuture<TodoappGUI> frame = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                TodoappGUI gui = new TodoappGUI("Opening storage...");
+                gui.setVisible(true);
+                StartupTrace.mark("frame shown");
+                frame.complete(gui);
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+                frame.completeExceptionally(e);
+            }
+        });
+
+        if (RepositoryFactory.usesMySql()) {
+            String error = checkConnection();
+            if (error == null) {
+                error = migrateSchema();
+            }
+            if (error != null) {
+                String status = error;
+                frame.thenAccept(gui -> SwingUtilities.invokeLater(() -> gui.setStatus(status)));
+                return;
+            }
+            // Nothing below waits for these
+            CompletableFuture.runAsync(Main::pruneSchema);
+            CompletableFuture.runAsync(Main::checkQueryPlans);
+        }
+
+        MetricsReporter reporter = metrics.join();
+        TodoRepository repository;
+        try {
+            repository = openRepository(reporter);
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            frame.thenAccept(gui -> SwingUtilities.invokeLater(() -> gui.setStatus("Error: " + e.getMessage())));
+            return;
+        }
+        ChangeFeed feed = startChangeFeed(repository);
+
+        // Preload the first page through the cache the GUI will use; on failure the GUI
+        // loads it again itself and reports the error
+        TodoCache cache = new TodoCache(repository);
+        List<Todo> firstPage;
+        try {
+            firstPage = cache.getTodosPage(TodoQuery.all(), null, TodoappDAOImpl.DEFAULT_PAGE_SIZE);
+            StartupTrace.mark("first page read");
+        } catch (SQLException e) {
+            firstPage = null;
+        }
+        List<Todo> page = firstPage;
+        ReminderScheduler reminders = startReminders(repository);
+        frame.thenAccept(gui -> SwingUtilities.invokeLater(() -> {
+            gui.open(cache, feed, page);
+            if (reminders != null) {
+                gui.showReminders(reminders);
+                reminders.start();
+            }
+        }));
+    }
+
+    // ===== SERVER =====
+    // The server's threads keep the JVM running after main returns
+    private static void serve(int port) {
+        if (RepositoryFactory.usesMySql()) {
+            if (checkConnection() != null || prepareSchema() != null) {
+                System.exit(1);
+            }
+            checkQueryPlans();
+        }
+        Metrics.registerJmx();
+        MetricsReporter reporter = MetricsReporter.fromSystemProperties();
+        try {
+            TodoServer server = new TodoServer(openRepository(reporter), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "todo-server-shutdown"));
+            server.start();
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // ===== BULK TRANSFER =====
+    // Returns the process exit status
+    private static int transfer(boolean export, Path file) {
+        TodoFileFormat format = TodoFileFormat.forFile(file);
+        if (format == null) {
+            System.out.println("Error: unknown file type " + file + " (use .csv, .jsonl or .todos)");
+            return 2;
+        }
+        if (RepositoryFactory.usesMySql() && (checkConnection() != null || prepareSchema() != null)) {
+            return 1;
+        }
+
+        TransferListener progress = new TransferListener() {
+            private long lastPrint;
+
+            @Override
+            public synchronized void onProgress(long rows, long bytes) {
+                long now = System.currentTimeMillis();
+                if (now - lastPrint >= 1000) {
+                    lastPrint = now;
+                    System.out.printf("%,d rows, %.1f MB%n", rows, bytes / (1024.0 * 1024.0));
+                }
+            }
+        };
+        try (TodoRepository repository = RepositoryFactory.create()) {
+            TransferResult result = export
+                    ? new TodoExporter(repository).export(TodoQuery.all(), file, format, progress)
+                    : new TodoImporter(repository).importFile(file, format, progress);
+            System.out.println((export ? "Exported " : "Imported ") + result.summary());
+            return result.getFailedRows() == 0 ? 0 : 1;
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // ===== STARTUP STEPS =====
+    // Returns null if MySQL is reachable, else the message to show. The probe connection
+    // goes back to the pool on close, so the schema checks and first page reuse it.
+    private static String checkConnection() {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            System.out.println("Connected to the database");
+            StartupTrace.mark("connected");
+            return null;
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.out.println("Please ensure MySQL is running and the database 'todo' exists");
+            System.out.println("(or start with -Dtodo.storage=embedded to use a local store)");
+            return "Cannot connect to the database: " + e.getMessage();
+        }
+    }
+
+    // Applies pending schema migrations (see TodoSchema) and prunes the change log.
+    // Returns null on success, else the message to show.
+    private static String prepareSchema() {
+        String error = migrateSchema();
+        if (error == null) {
+            pruneSchema();
+        }
+        return error;
+    }
+
+    private static String migrateSchema() {
+        try {
+            new TodoSchema().migrate();
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+            return e.getMessage();
+        }
+        StartupTrace.mark("schema migrated");
+        return null;
+    }
+
+    private static void pruneSchema() {
+        TodoSchema schema = new TodoSchema();
+        // Old change feed entries are pruned on startup
+        try {
+            schema.pruneChangeLog(Integer.getInteger("todo.changefeed.retentionHours", 168));
+        } catch (SQLException e) {
+            System.out.println("Warning: could not prune the change log: " + e.getMessage());
+        }
+        // The DAO drops a deleted todo's tree links itself; the full sweep for links left by
+        // other writers scans the whole tree, so it only runs when asked for
+        if (Boolean.getBoolean("todo.tree.prune")) {
+            try {
+                schema.pruneTree();
+            } catch (SQLException e) {
+                System.out.println("Warning: could not prune the todo tree: " + e.getMessage());
+            }
+        }
+    }
+
+    // Warn when the hot queries stop using their indexes
+    private static void checkQueryPlans() {
+        try {
+            for (String warning : new QueryPlanCheck().check()) {
+                System.out.println("Warning: slow query plan for " + warning);
+            }
+        } catch (SQLException e) {
+            System.out.println("Warning: could not check query plans: " + e.getMessage());
+        }
+    }
+
+    // Null unless a valid TCP port
+    private static Integer parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text);
+            return port >= 1 && port <= 65535 ? port : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static TodoRepository openRepository(MetricsReporter reporter) throws SQLException {
+        TodoRepository repository = RepositoryFactory.create();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                repository.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing storage: " + e.getMessage());
+            }
+            reporter.close();
+        }, "todo-storage-shutdown"));
+        StartupTrace.mark("storage open");
+        return repository;
+    }
+
+    // Follow other clients' writes; started before the first load so nothing is missed
+    private static ChangeFeed startChangeFeed(TodoRepository repository) {
+        if (!repository.supportsChangeFeed() || ChangeFeed.DEFAULT_POLL_INTERVAL_MS <= 0) {
+            return null;
+        }
+        ChangeFeed changeFeed = new ChangeFeed(repository);
+        try {
+            changeFeed.start();
+            return changeFeed;
+        } catch (SQLException e) {
+            System.out.println("Warning: change feed not started: " + e.getMessage());
+            changeFeed.close();
+            return null;
+        }
+    }
+
+    // Started once the GUI listens, so reminders missed while the app was closed are shown
+    private static ReminderScheduler startReminders(TodoRepository repository) {
+        if (!Boolean.parseBoolean(System.getProperty("todo.reminders.enabled", "true"))) {
+            return null;
+        }
+        ReminderScheduler reminders = new ReminderScheduler(repository, RepositoryFactory.reminderState());
+        Runtime.getRuntime().addShutdownHook(new Thread(reminders::close, "todo-reminders-shutdown"));
+        return reminders;
+    }
 }
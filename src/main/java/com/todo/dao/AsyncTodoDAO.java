@@ -0,0 +1,144 @@
+package com.todo.dao;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs TodoRepository calls on a background executor so callers (the Swing EDT)
+// never block on JDBC. Results come back as CompletableFutures; callers are
+// responsible for hopping back onto their own thread.
+public class AsyncTodoDAO implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final TodoRepository dao;
+    private final ExecutorService executor;
+    // Caps concurrent DAO calls at what the engine can serve (pool size for MySQL), whatever the executor
+    private final Semaphore inFlight;
+    // Latest request per key; submitting a new one cancels the previous
+    private final Map<String, CompletableFuture<?>> latestByKey = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    public AsyncTodoDAO(TodoRepository dao) {
+        this(dao, dao.getMaxConcurrency());
+    }
+
+    public AsyncTodoDAO(TodoRepository dao, int maxConcurrency) {
+        this.dao = dao;
+        this.inFlight = new Semaphore(maxConcurrency);
+        this.executor = createExecutor(maxConcurrency);
+    }
+
+    public TodoRepository getDao() {
+        return dao;
+    }
+
+    // ===== EXECUTION =====
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            Future<?> task = executor.submit(() -> run(call, result));
+            // Cancelling the returned future also drops the task if it has not started yet
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    task.cancel(true);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // Like submit, but cancels whatever was previously submitted under the same key,
+    // e.g. a new filter choice superseding an in-flight page load
+    public <T> CompletableFuture<T> submitLatest(String key, SqlCall<T> call) {
+        CompletableFuture<T> future = submit(call);
+        CompletableFuture<?> previous = latestByKey.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        future.whenComplete((value, error) -> latestByKey.remove(key, future));
+        return future;
+    }
+
+    private <T> void run(SqlCall<T> call, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return; // Cancelled while queued
+        }
+        boolean acquired = false;
+        try {
+            inFlight.acquire();
+            acquired = true;
+            if (!result.isDone()) {
+                result.complete(call.call());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+        } catch (SQLException | RuntimeException e) {
+            result.completeExceptionally(e);
+        } finally {
+            if (acquired) {
+                inFlight.release();
+            }
+        }
+    }
+
+    // Unwraps the CompletionException layer added by CompletableFuture chaining
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // Takes no new calls and gives the ones already submitted (a save the user just made)
+    // a few seconds to finish before the process goes away
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("Storage calls still running at exit were abandoned");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Virtual threads when the runtime has them (JDK 21+), otherwise a bounded platform pool
+    private static ExecutorService createExecutor(int maxConcurrency) {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    maxConcurrency, maxConcurrency,
+                    60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                    r -> {
+                        Thread thread = new Thread(r, "todo-dao-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.todo.dao;
+
+// Per-row outcome of a batch insert/update/delete, in the order rows were given
+public class BatchResult {
+    public enum Status {
+        OK,
+        // The statement ran but matched no row (already deleted, unknown id)
+        NOT_FOUND,
+        // The row exists but another client changed it since it was read (version mismatch)
+        CONFLICT,
+        // The row's chunk failed and was rolled back
+        FAILED
+    }
+
+    private final Status[] statuses;
+    private final String[] errors;
+
+    public BatchResult(int size) {
+        this.statuses = new Status[size];
+        this.errors = new String[size];
+    }
+
+    void set(int index, Status status, String error) {
+        statuses[index] = status;
+        errors[index] = error;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    // Null unless the row failed
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    public boolean isOk(int index) {
+        return statuses[index] == Status.OK;
+    }
+
+    public int getSucceededCount() {
+        return count(Status.OK);
+    }
+
+    public int getNotFoundCount() {
+        return count(Status.NOT_FOUND);
+    }
+
+    public int getConflictCount() {
+        return count(Status.CONFLICT);
+    }
+
+    public int getFailedCount() {
+        return count(Status.FAILED);
+    }
+
+    public boolean isAllSucceeded() {
+        return getSucceededCount() == size();
+    }
+
+    // First error message, if any row failed
+    public String getFirstError() {
+        for (String error : errors) {
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    public String summary() {
+        String summary = getSucceededCount() + " of " + size() + " succeeded";
+        if (getNotFoundCount() > 0) {
+            summary += ", " + getNotFoundCount() + " not found";
+        }
+        if (getConflictCount() > 0) {
+            summary += ", " + getConflictCount() + " changed by someone else";
+        }
+        if (getFailedCount() > 0) {
+            summary += ", " + getFailedCount() + " failed (" + getFirstError() + ")";
+        }
+        return summary;
+    }
+
+    private int count(Status status) {
+        int count = 0;
+        for (Status s : statuses) {
+            if (s == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
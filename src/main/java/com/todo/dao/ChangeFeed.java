@@ -0,0 +1,150 @@
+package com.todo.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Follows the repository's change log and hands new changes to subscribers, so clients
+// sharing one database see each other's writes without re-reading the table.
+// MySQL has no server push, so this tails todo_changes by primary key: each poll is an
+// index range read of only the rows added since the last one, whatever the table size.
+// Listeners run on the feed thread and must hop to their own thread (e.g. the EDT).
+public class ChangeFeed implements AutoCloseable {
+    public static final long DEFAULT_POLL_INTERVAL_MS = Long.getLong("todo.changefeed.pollMs", 1_000);
+    private static final int DEFAULT_BATCH_LIMIT = 500;
+    private static final long GAP_TIMEOUT_MS = Long.getLong("todo.changefeed.gapTimeoutMs", 30_000);
+
+    public interface Listener {
+        // Changes in sequence order; the same todo may appear more than once
+        void onChanges(List<TodoChange> changes);
+
+        // Changes may have been missed (the feed lost the database for a while);
+        // the listener should reload its view from scratch
+        default void onResync() {
+        }
+    }
+
+    private final TodoRepository repository;
+    private final long pollIntervalMs;
+    private final int batchLimit;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    // Every change up to and including 'cursor' has been delivered. Sequence numbers are
+    // handed out at insert time but become visible at commit, so a batch transaction can
+    // leave a temporary hole below changes we have already seen. Those are kept in
+    // 'deliveredAbove' and the hole is re-read until it fills or GAP_TIMEOUT_MS passes
+    // (rolled-back inserts leave holes that never fill).
+    private volatile long cursor = -1;
+    private final NavigableSet<Long> deliveredAbove = new TreeSet<>();
+    private long gapSeenAt;
+    private boolean failing;
+
+    public ChangeFeed(TodoRepository repository) {
+        this(repository, DEFAULT_POLL_INTERVAL_MS, DEFAULT_BATCH_LIMIT);
+    }
+
+    public ChangeFeed(TodoRepository repository, long pollIntervalMs, int batchLimit) {
+        this.repository = repository;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchLimit = batchLimit;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts following from the current end of the log. Call before the first load so no
+    // change can fall between the load and the feed; replaying one twice is harmless.
+    public void start() throws SQLException {
+        cursor = repository.getLatestChangeSequence();
+        deliveredAbove.clear();
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    private void poll() {
+        try {
+            if (failing) {
+                // Changes made while we were cut off may already be pruned; start over
+                cursor = repository.getLatestChangeSequence();
+                deliveredAbove.clear();
+                gapSeenAt = 0;
+                failing = false;
+                System.out.println("Change feed reconnected");
+                for (Listener listener : listeners) {
+                    listener.onResync();
+                }
+                return;
+            }
+
+            List<TodoChange> fetched = repository.getChangesSince(cursor, batchLimit + deliveredAbove.size());
+            List<TodoChange> fresh = new ArrayList<>(fetched.size());
+            for (TodoChange change : fetched) {
+                if (deliveredAbove.add(change.getSequence())) {
+                    fresh.add(change);
+                }
+            }
+            advanceCursor();
+            if (!fresh.isEmpty()) {
+                for (Listener listener : listeners) {
+                    listener.onChanges(fresh);
+                }
+            }
+        } catch (SQLException e) {
+            if (!failing) {
+                System.out.println("Change feed: " + e.getMessage());
+                failing = true;
+            }
+        } catch (RuntimeException e) {
+            // A failing listener must not cancel the schedule
+            e.printStackTrace();
+        }
+    }
+
+    private void advanceCursor() {
+        while (!deliveredAbove.isEmpty()) {
+            while (!deliveredAbove.isEmpty() && deliveredAbove.first() == cursor + 1) {
+                cursor = deliveredAbove.pollFirst();
+            }
+            if (deliveredAbove.isEmpty()) {
+                gapSeenAt = 0;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (gapSeenAt == 0) {
+                gapSeenAt = now;
+                return;
+            }
+            if (now - gapSeenAt < GAP_TIMEOUT_MS) {
+                return;
+            }
+            // Give up on the hole: jump to the next delivered change
+            cursor = deliveredAbove.first() - 1;
+            gapSeenAt = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
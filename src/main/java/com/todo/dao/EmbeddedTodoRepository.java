@@ -0,0 +1,1122 @@
+package com.todo.dao;
+
+import com.todo.model.EpochMillis;
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Embedded, file-backed storage engine for single-user desktop deployments.
+//
+// todos.log is an append-only log of PUT/DELETE records. todos.idx is a memory-mapped
+// array of fixed-size slots indexed by todo id, holding the offset of the row's latest
+// record plus the columns needed to filter and order (timestamps, completed flag).
+// Opening the store scans only the index; titles and descriptions are read from the
+// log on demand. Dead records left behind by updates and deletes are reclaimed by
+// periodic compaction, which rewrites the live records into a fresh log.
+//
+// Sub-tasks: PUT records carry the parent id and each index slot repeats it. Children
+// of every parent are kept in memory in listing order, so a level of the tree, a
+// subtree and roll-up counts are walks over the index without reading the log.
+//
+// Due dates: slots hold the due time too, and open todos with one are kept in memory in
+// due order, so the reminder scheduler's window reads touch only the rows they return.
+//
+// Crash safety: a record is appended before its index slot is updated, and the index
+// header remembers how much of the log it covers. On open, records past that point are
+// replayed; a torn record at the tail is truncated. Writes are not fsynced unless
+// todo.embedded.syncWrites is set, so a process crash loses nothing but an OS crash may
+// lose the last writes.
+public class EmbeddedTodoRepository implements TodoRepository {
+    private static final String LOG_FILE = "todos.log";
+    private static final String INDEX_FILE = "todos.idx";
+
+    private static final int MAGIC = 0x544F444F; // "TODO"
+    // 2: index slots carry the parent id; 3: and the due time. Older indexes are rebuilt from the log.
+    private static final int FORMAT_VERSION = 3;
+
+    // Log file: [int magic][int version][long generation], then records
+    private static final int LOG_HEADER_SIZE = 16;
+    // Record: [int bodyLength][int crc32(body)][body]
+    private static final int RECORD_HEADER_SIZE = 8;
+    // PUT records written before row versions existed; read as version 0
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    // PUT with an int row version after the completed flag
+    private static final byte RECORD_PUT_VERSIONED = 3;
+    // RECORD_PUT_VERSIONED plus an int parent id (0 = top level) after the version
+    private static final byte RECORD_PUT_TREE = 4;
+    // RECORD_PUT_TREE plus a long due time after the parent id and the recurrence after the description
+    private static final byte RECORD_PUT_DUE = 5;
+
+    // Index file: header, then one slot per id
+    private static final int INDEX_HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_NEXT_ID = 8;
+    private static final int H_GENERATION = 16;
+    private static final int H_LOG_LENGTH = 24;
+    // Slot: [long offset + 1 (0 = empty)][long createdMillis][long updatedMillis][int recordLength][int flags]
+    //       [int parentId (0 = top level)][int unused][long dueMillis (NO_DUE = none)]
+    private static final int SLOT_SIZE = 48;
+    private static final int S_OFFSET = 0;
+    private static final int S_CREATED = 8;
+    private static final int S_UPDATED = 16;
+    private static final int S_LENGTH = 24;
+    private static final int S_FLAGS = 28;
+    private static final int S_PARENT = 32;
+    private static final int S_DUE = 40;
+    private static final long NO_DUE = EpochMillis.NULL;
+    private static final int FLAG_COMPLETED = 1;
+    private static final int INITIAL_SLOTS = 1 << 16;
+
+    private static final NavigableSet<Key> EMPTY_LEVEL = Collections.emptyNavigableSet();
+
+    // Compact once dead bytes exceed both this floor and the live bytes
+    private static final long COMPACTION_MIN_DEAD_BYTES = 1 << 20;
+
+    private final Path logPath;
+    private final Path indexPath;
+    private final boolean syncWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor;
+
+    private FileChannel log;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCapacity;
+    private long generation;
+    private long logLength;
+    private int nextId;
+    private long liveBytes;
+    private long maxUpdatedMillis = Long.MIN_VALUE;
+
+    // Live ids in listing order (created_at DESC, id DESC)
+    private final NavigableSet<Key> ordered = new TreeSet<>();
+    // parent id -> its live children in listing order; top-level todos are not in here
+    private final Map<Integer, NavigableSet<Key>> children = new HashMap<>();
+    // Open todos with a due time, in (due, id) order
+    private final NavigableSet<DueKey> dueOrder = new TreeSet<>();
+
+    public EmbeddedTodoRepository(Path directory) throws SQLException {
+        this(directory, Boolean.getBoolean("todo.embedded.syncWrites"),
+                Long.getLong("todo.embedded.compactionIntervalMs", 60_000));
+    }
+
+    public EmbeddedTodoRepository(Path directory, boolean syncWrites, long compactionIntervalMs) throws SQLException {
+        this.logPath = directory.resolve(LOG_FILE);
+        this.indexPath = directory.resolve(INDEX_FILE);
+        this.syncWrites = syncWrites;
+        try {
+            Files.createDirectories(directory);
+            open();
+        } catch (IOException e) {
+            throw new SQLException("Failed to open embedded store in " + directory + ": " + e.getMessage(), e);
+        }
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-embedded-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfWorthwhile,
+                compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // ===== SINGLE ROW =====
+    @Override
+    public void addTodo(Todo todo) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            // Like the MySQL table, id and both timestamps are assigned by the store
+            int id = nextId;
+            long now = EpochMillis.toMillis(LocalDateTime.now());
+            put(id, now, now, todo.isCompleted(), 0, parentOf(todo), todo.getTitle(), todo.getDescription(),
+                    toDueMillis(todo.getDue_at()), todo.getRecurrence());
+            nextId = id + 1;
+            index.putInt(H_NEXT_ID, nextId);
+            todo.setId(String.valueOf(id));
+            todo.setVersion(0);
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to add todo: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateTodo(Todo todo) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            BatchResult.Status status = update(todo);
+            if (status != BatchResult.Status.OK) {
+                throw conflict(todo.getId(), status);
+            }
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to update todo: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTodo(String id) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to delete todo: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTodo(Todo todo) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            // Already gone counts as deleted
+            if (deleteIfUnchanged(todo) == BatchResult.Status.CONFLICT) {
+                throw conflict(todo.getId(), BatchResult.Status.CONFLICT);
+            }
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to delete todo: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Todo getTodoById(String id) throws SQLException {
+        int numericId = parseId(id);
+        lock.readLock().lock();
+        try {
+            return isLive(numericId) ? readTodo(numericId) : null;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todo " + id + ": " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== LISTING =====
+    @Override
+    public List<Todo> getAllTodos() throws SQLException {
+        return findTodos(TodoQuery.all());
+    }
+
+    @Override
+    public List<Todo> findTodos(TodoQuery query) throws SQLException {
+        List<Todo> todos = new ArrayList<>();
+        streamTodos(query, todos::add);
+        return todos;
+    }
+
+    @Override
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        List<Todo> page = new ArrayList<>(pageSize);
+        lock.readLock().lock();
+        try {
+            NavigableSet<Key> level = candidates(query);
+            NavigableSet<Key> keys = after == null
+                    ? level
+                    : level.tailSet(new Key(EpochMillis.toMillis(after.getCreated_at()), parseId(after.getId())), false);
+            for (Key key : keys) {
+                if (page.size() >= pageSize) {
+                    break;
+                }
+                Todo todo = matchingTodo(key.id, query);
+                if (todo != null) {
+                    page.add(todo);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return page;
+    }
+
+    @Override
+    public void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException {
+        lock.readLock().lock();
+        try {
+            for (Key key : candidates(query)) {
+                Todo todo = matchingTodo(key.id, query);
+                if (todo != null) {
+                    consumer.accept(todo);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== HIERARCHY =====
+    @Override
+    public List<Todo> getSubtree(String id) throws SQLException {
+        int root = parseId(id);
+        List<Todo> subtree = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!isLive(root)) {
+                return subtree;
+            }
+            // Breadth first: every level before the next, each level newest first
+            List<Integer> level = Collections.singletonList(root);
+            while (!level.isEmpty()) {
+                List<Integer> next = new ArrayList<>();
+                for (int node : level) {
+                    subtree.add(readTodo(node));
+                    for (Key child : children.getOrDefault(node, EMPTY_LEVEL)) {
+                        next.add(child.id);
+                    }
+                }
+                level = next;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return subtree;
+    }
+
+    @Override
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        int id = parseId(todo.getId());
+        lock.writeLock().lock();
+        try {
+            if (!isLive(id) || readTodo(id).getVersion() != todo.getVersion()) {
+                throw conflict(todo.getId(), isLive(id) ? BatchResult.Status.CONFLICT : BatchResult.Status.NOT_FOUND);
+            }
+            int parent = newParentId == null ? 0 : parseId(newParentId);
+            requireParent(parent);
+            for (int ancestor = parent; ancestor != 0; ancestor = index.getInt(slot(ancestor) + S_PARENT)) {
+                if (ancestor == id) {
+                    throw new SQLException("A todo cannot be moved under its own sub-task");
+                }
+            }
+            Todo current = readTodo(id);
+            long now = EpochMillis.toMillis(LocalDateTime.now());
+            put(id, index.getLong(slot(id) + S_CREATED), now, current.isCompleted(), current.getVersion() + 1, parent,
+                    current.getTitle(), current.getDescription(), toDueMillis(current.getDue_at()),
+                    current.getRecurrence());
+            todo.setParent_id(newParentId);
+            todo.setUpdated_at(EpochMillis.fromMillis(now));
+            todo.setVersion(current.getVersion() + 1);
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to move todo: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Counts from the index slots alone
+    @Override
+    public Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException {
+        Map<String, TodoProgress> progress = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String id : ids) {
+                int[] counts = new int[2];
+                countDescendants(parseId(id), counts);
+                if (counts[0] > 0) {
+                    progress.put(id, new TodoProgress(counts[0], counts[1]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return progress;
+    }
+
+    // counts[0] += descendants, counts[1] += completed ones
+    private void countDescendants(int id, int[] counts) {
+        for (Key child : children.getOrDefault(id, EMPTY_LEVEL)) {
+            counts[0]++;
+            if ((index.getInt(slot(child.id) + S_FLAGS) & FLAG_COMPLETED) != 0) {
+                counts[1]++;
+            }
+            countDescendants(child.id, counts);
+        }
+    }
+
+    // Only one level of the tree needs scanning for a children query
+    private NavigableSet<Key> candidates(TodoQuery query) throws SQLException {
+        return query.getParentId() == null ? ordered
+                : children.getOrDefault(parseId(query.getParentId()), EMPTY_LEVEL);
+    }
+
+    // ===== CHANGE TRACKING =====
+    @Override
+    public List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException {
+        long sinceMillis = EpochMillis.toMillis(since);
+        List<Todo> todos = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Key key : ordered) {
+                if (index.getLong(slot(key.id) + S_UPDATED) >= sinceMillis) {
+                    todos.add(readTodo(key.id));
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return todos;
+    }
+
+    // Picks the keys from the index slots and reads only the rows returned
+    @Override
+    public List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException {
+        long fromMillis = EpochMillis.toMillis(updatedAt);
+        int after = afterId == null ? -1 : parseId(afterId);
+        // (updated, id) pairs past the key; the greatest is evicted once there are more than 'limit'
+        PriorityQueue<long[]> newest = new PriorityQueue<>(
+                (a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(b[1], a[1]));
+        List<Todo> todos = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Key key : ordered) {
+                long updated = index.getLong(slot(key.id) + S_UPDATED);
+                if (updated > fromMillis || (updated == fromMillis && key.id > after)) {
+                    newest.add(new long[] { updated, key.id });
+                    if (newest.size() > limit) {
+                        newest.poll();
+                    }
+                }
+            }
+            List<long[]> keys = new ArrayList<>(newest);
+            keys.sort(newest.comparator().reversed());
+            for (long[] key : keys) {
+                todos.add(readTodo((int) key[1]));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return todos;
+    }
+
+    @Override
+    public List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException {
+        DueKey from = new DueKey(EpochMillis.toMillis(dueAt), afterId == null ? Integer.MIN_VALUE : parseId(afterId));
+        List<Todo> todos = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (DueKey key : dueOrder.tailSet(from, afterId == null)) {
+                if (todos.size() >= limit) {
+                    break;
+                }
+                todos.add(readTodo(key.id));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read todos: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return todos;
+    }
+
+    @Override
+    public LocalDateTime getLatestUpdatedAt() {
+        lock.readLock().lock();
+        try {
+            return maxUpdatedMillis == Long.MIN_VALUE ? null : EpochMillis.fromMillis(maxUpdatedMillis);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== BATCH =====
+    // Rows are applied one by one under a single lock and synced once at the end
+    @Override
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        return insertAll(todos, false);
+    }
+
+    @Override
+    public BatchResult importTodos(List<Todo> todos) throws SQLException {
+        return insertAll(todos, true);
+    }
+
+    private BatchResult insertAll(List<Todo> todos, boolean keepTimestamps) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        lock.writeLock().lock();
+        try {
+            long now = EpochMillis.toMillis(LocalDateTime.now());
+            for (int i = 0; i < todos.size(); i++) {
+                Todo todo = todos.get(i);
+                try {
+                    int id = nextId;
+                    long created = keepTimestamps && todo.getCreated_at() != null ? EpochMillis.toMillis(todo.getCreated_at()) : now;
+                    long updated = keepTimestamps && todo.getUpdated_at() != null ? EpochMillis.toMillis(todo.getUpdated_at()) : now;
+                    put(id, created, updated, todo.isCompleted(), 0, parentOf(todo), todo.getTitle(),
+                            todo.getDescription(), toDueMillis(todo.getDue_at()), todo.getRecurrence());
+                    nextId = id + 1;
+                    todo.setId(String.valueOf(id));
+                    todo.setVersion(0);
+                    result.set(i, BatchResult.Status.OK, null);
+                } catch (IOException | SQLException e) {
+                    result.set(i, BatchResult.Status.FAILED, e.getMessage());
+                }
+            }
+            index.putInt(H_NEXT_ID, nextId);
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to sync embedded store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < todos.size(); i++) {
+                try {
+                    result.set(i, update(todos.get(i)), null);
+                } catch (IOException | SQLException e) {
+                    result.set(i, BatchResult.Status.FAILED, e.getMessage());
+                }
+            }
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to sync embedded store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        BatchResult result = new BatchResult(ids.size());
+        lock.writeLock().lock();
+        try {
+            int i = 0;
+            for (String id : ids) {
+                try {
+                    boolean found = delete(id);
+                    result.set(i, found ? BatchResult.Status.OK : BatchResult.Status.NOT_FOUND, null);
+                } catch (IOException | SQLException e) {
+                    result.set(i, BatchResult.Status.FAILED, e.getMessage());
+                }
+                i++;
+            }
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to sync embedded store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < todos.size(); i++) {
+                try {
+                    result.set(i, deleteIfUnchanged(todos.get(i)), null);
+                } catch (IOException | SQLException e) {
+                    result.set(i, BatchResult.Status.FAILED, e.getMessage());
+                }
+            }
+            sync();
+        } catch (IOException e) {
+            throw new SQLException("Failed to sync embedded store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    // ===== COMPACTION =====
+    public void compact() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            rewriteLog();
+        } catch (IOException e) {
+            throw new SQLException("Compaction failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        long dead;
+        lock.readLock().lock();
+        try {
+            dead = logLength - LOG_HEADER_SIZE - liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (dead > COMPACTION_MIN_DEAD_BYTES && dead > liveBytes) {
+            try {
+                compact();
+            } catch (SQLException e) {
+                System.out.println("Embedded store " + e.getMessage());
+            }
+        }
+    }
+
+    // Copies live records into a new log with the next generation number, swaps it in,
+    // then repoints the index. If we crash before the index is updated, the generation
+    // mismatch makes the next open rebuild the index from the (complete) new log.
+    private void rewriteLog() throws IOException {
+        Path compacted = logPath.resolveSibling(LOG_FILE + ".compact");
+        long newGeneration = generation + 1;
+        long[] newOffsets = new long[nextId];
+        long position;
+
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, logHeader(newGeneration), 0);
+            position = LOG_HEADER_SIZE;
+            for (int id = 1; id < nextId; id++) {
+                if (!isLive(id)) {
+                    continue;
+                }
+                int slot = slot(id);
+                ByteBuffer record = readFully(log, index.getLong(slot + S_OFFSET) - 1, index.getInt(slot + S_LENGTH));
+                newOffsets[id] = position;
+                position += writeFully(out, record, position);
+            }
+            out.force(true);
+        }
+
+        log.close();
+        Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        for (int id = 1; id < nextId; id++) {
+            if (isLive(id)) {
+                index.putLong(slot(id) + S_OFFSET, newOffsets[id] + 1);
+            }
+        }
+        generation = newGeneration;
+        logLength = position;
+        index.putLong(H_GENERATION, generation);
+        index.putLong(H_LOG_LENGTH, logLength);
+        index.force();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            log.force(true);
+            index.force();
+            log.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            throw new SQLException("Failed to close embedded store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===== WRITE PATH =====
+    private void put(int id, long created, long updated, boolean completed, int version, int parent, String title,
+            String description, long due, String recurrence) throws IOException {
+        ByteBuffer body = encodePut(id, created, updated, completed, version, parent, title, description, due,
+                recurrence);
+        long offset = append(body);
+        indexRecord(id, offset, RECORD_HEADER_SIZE + body.limit(), created, updated, completed, parent, due);
+        index.putLong(H_LOG_LENGTH, logLength);
+    }
+
+    // Optimistic update: NOT_FOUND when there is no such todo, CONFLICT when its version
+    // moved since the caller read it. On success the todo gets the new version.
+    private BatchResult.Status update(Todo todo) throws IOException, SQLException {
+        int id = parseId(todo.getId());
+        if (!isLive(id)) {
+            return BatchResult.Status.NOT_FOUND;
+        }
+        int version = readTodo(id).getVersion();
+        if (version != todo.getVersion()) {
+            return BatchResult.Status.CONFLICT;
+        }
+        // Updates never move a todo; that is moveTodo's job
+        long created = index.getLong(slot(id) + S_CREATED);
+        put(id, created, EpochMillis.toMillis(todo.getUpdated_at()), todo.isCompleted(), version + 1,
+                index.getInt(slot(id) + S_PARENT), todo.getTitle(), todo.getDescription(),
+                toDueMillis(todo.getDue_at()), todo.getRecurrence());
+        todo.setVersion(version + 1);
+        return BatchResult.Status.OK;
+    }
+
+    private BatchResult.Status deleteIfUnchanged(Todo todo) throws IOException, SQLException {
+        int id = parseId(todo.getId());
+        if (!isLive(id)) {
+            return BatchResult.Status.NOT_FOUND;
+        }
+        if (readTodo(id).getVersion() != todo.getVersion()) {
+            return BatchResult.Status.CONFLICT;
+        }
+        delete(todo.getId());
+        return BatchResult.Status.OK;
+    }
+
+    private TodoConflictException conflict(String id, BatchResult.Status status) throws IOException {
+        int numericId = Integer.parseInt(id);
+        Todo current = status == BatchResult.Status.CONFLICT && isLive(numericId) ? readTodo(numericId) : null;
+        return new TodoConflictException(id, current);
+    }
+
+    // Deletes the todo and its sub-tasks
+    private boolean delete(String id) throws IOException, SQLException {
+        int numericId = parseId(id);
+        if (!isLive(numericId)) {
+            return false;
+        }
+        deleteSubtree(numericId);
+        index.putLong(H_LOG_LENGTH, logLength);
+        return true;
+    }
+
+    // Children first, so a crash part way leaves no orphans behind
+    private void deleteSubtree(int id) throws IOException {
+        NavigableSet<Key> below = children.get(id);
+        if (below != null) {
+            for (Key child : new ArrayList<>(below)) {
+                deleteSubtree(child.id);
+            }
+        }
+        ByteBuffer body = ByteBuffer.allocate(5);
+        body.put(RECORD_DELETE).putInt(id).flip();
+        append(body);
+        clearSlot(id);
+    }
+
+    private void clearSlot(int id) {
+        int slot = slot(id);
+        liveBytes -= index.getInt(slot + S_LENGTH);
+        ordered.remove(new Key(index.getLong(slot + S_CREATED), id));
+        unlinkChild(id, index.getInt(slot + S_PARENT), index.getLong(slot + S_CREATED));
+        dueOrder.remove(new DueKey(index.getLong(slot + S_DUE), id));
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+            index.putLong(slot + i, 0);
+        }
+    }
+
+    private long append(ByteBuffer body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.putInt(body.limit()).putInt((int) crc.getValue()).flip();
+
+        long offset = logLength;
+        long written = writeFully(log, header, offset);
+        written += writeFully(log, body, offset + written);
+        logLength = offset + written;
+        return offset;
+    }
+
+    private void sync() throws IOException {
+        if (syncWrites) {
+            log.force(false);
+            index.force();
+        }
+    }
+
+    // ===== READ PATH =====
+    // Filters on the indexed columns first and only reads the record body when needed
+    private Todo matchingTodo(int id, TodoQuery query) throws IOException {
+        Todo todo;
+        if (query.getSearchTerms().isEmpty()) {
+            if (!query.matches(readIndexedColumns(id))) {
+                return null;
+            }
+            todo = readTodo(id);
+        } else {
+            todo = readTodo(id);
+            if (!query.matches(todo)) {
+                return null;
+            }
+        }
+        return todo;
+    }
+
+    private Todo readIndexedColumns(int id) {
+        int slot = slot(id);
+        Todo todo = new Todo(String.valueOf(id), null, null,
+                (index.getInt(slot + S_FLAGS) & FLAG_COMPLETED) != 0,
+                EpochMillis.fromMillis(index.getLong(slot + S_CREATED)),
+                EpochMillis.fromMillis(index.getLong(slot + S_UPDATED)));
+        int parent = index.getInt(slot + S_PARENT);
+        todo.setParent_id(parent == 0 ? null : String.valueOf(parent));
+        todo.setDue_at(fromDueMillis(index.getLong(slot + S_DUE)));
+        return todo;
+    }
+
+    private Todo readTodo(int id) throws IOException {
+        int slot = slot(id);
+        ByteBuffer record = readFully(log, index.getLong(slot + S_OFFSET) - 1, index.getInt(slot + S_LENGTH));
+        record.position(RECORD_HEADER_SIZE);
+        byte type = record.get();
+        int recordId = record.getInt();
+        long created = record.getLong();
+        long updated = record.getLong();
+        boolean completed = record.get() != 0;
+        int version = type == RECORD_PUT ? 0 : record.getInt();
+        int parent = type == RECORD_PUT_TREE || type == RECORD_PUT_DUE ? record.getInt() : 0;
+        long due = type == RECORD_PUT_DUE ? record.getLong() : NO_DUE;
+        String title = readString(record);
+        String description = readString(record);
+        Todo todo = new Todo(String.valueOf(recordId), title, description, completed,
+                EpochMillis.fromMillis(created), EpochMillis.fromMillis(updated));
+        todo.setVersion(version);
+        todo.setParent_id(parent == 0 ? null : String.valueOf(parent));
+        todo.setDue_at(fromDueMillis(due));
+        todo.setRecurrence(type == RECORD_PUT_DUE ? readString(record) : null);
+        return todo;
+    }
+
+    private boolean isLive(int id) {
+        return id > 0 && id < slotCapacity && index.getLong(slot(id) + S_OFFSET) != 0;
+    }
+
+    // ===== OPEN / RECOVERY =====
+    private void open() throws IOException {
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        if (log.size() < LOG_HEADER_SIZE) {
+            log.truncate(0);
+            writeFully(log, logHeader(1), 0);
+        }
+        ByteBuffer logHeader = readFully(log, 0, LOG_HEADER_SIZE);
+        if (logHeader.getInt(0) != MAGIC) {
+            throw new IOException(logPath + " is not a todo log");
+        }
+        generation = logHeader.getLong(8);
+
+        boolean indexUsable = indexChannel.size() >= INDEX_HEADER_SIZE;
+        long slots = indexUsable ? (indexChannel.size() - INDEX_HEADER_SIZE) / SLOT_SIZE : INITIAL_SLOTS;
+        mapIndex((int) Math.max(INITIAL_SLOTS, slots));
+        indexUsable = indexUsable
+                && index.getInt(H_MAGIC) == MAGIC
+                && index.getInt(H_VERSION) == FORMAT_VERSION
+                && index.getLong(H_GENERATION) == generation
+                && index.getLong(H_LOG_LENGTH) <= log.size();
+
+        long replayFrom;
+        if (indexUsable) {
+            nextId = index.getInt(H_NEXT_ID);
+            replayFrom = index.getLong(H_LOG_LENGTH);
+        } else {
+            // Missing, stale or foreign index: rebuild it from the whole log
+            for (int i = 0; i < index.capacity(); i += 8) {
+                index.putLong(i, 0);
+            }
+            index.putInt(H_MAGIC, MAGIC);
+            index.putInt(H_VERSION, FORMAT_VERSION);
+            index.putLong(H_GENERATION, generation);
+            nextId = 1;
+            replayFrom = LOG_HEADER_SIZE;
+        }
+        loadOrderFromIndex();
+        replay(replayFrom);
+        index.putInt(H_NEXT_ID, nextId);
+        index.putLong(H_LOG_LENGTH, logLength);
+    }
+
+    private void loadOrderFromIndex() {
+        for (int id = 1; id < nextId && id < slotCapacity; id++) {
+            int slot = slot(id);
+            if (index.getLong(slot + S_OFFSET) != 0) {
+                ordered.add(new Key(index.getLong(slot + S_CREATED), id));
+                linkChild(id, index.getInt(slot + S_PARENT), index.getLong(slot + S_CREATED));
+                if (index.getLong(slot + S_DUE) != NO_DUE && (index.getInt(slot + S_FLAGS) & FLAG_COMPLETED) == 0) {
+                    dueOrder.add(new DueKey(index.getLong(slot + S_DUE), id));
+                }
+                liveBytes += index.getInt(slot + S_LENGTH);
+                maxUpdatedMillis = Math.max(maxUpdatedMillis, index.getLong(slot + S_UPDATED));
+            }
+        }
+    }
+
+    // Re-applies records the index does not cover yet; stops at (and truncates) a torn tail
+    private void replay(long from) throws IOException {
+        long position = from;
+        long size = log.size();
+        while (position + RECORD_HEADER_SIZE <= size) {
+            ByteBuffer header = readFully(log, position, RECORD_HEADER_SIZE);
+            int bodyLength = header.getInt(0);
+            int expectedCrc = header.getInt(4);
+            if (bodyLength <= 0 || position + RECORD_HEADER_SIZE + bodyLength > size) {
+                break;
+            }
+            ByteBuffer body = readFully(log, position + RECORD_HEADER_SIZE, bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+
+            byte type = body.get();
+            int id = body.getInt();
+            if (type == RECORD_PUT || type == RECORD_PUT_VERSIONED || type == RECORD_PUT_TREE
+                    || type == RECORD_PUT_DUE) {
+                long created = body.getLong();
+                long updated = body.getLong();
+                boolean completed = body.get() != 0;
+                int parent = 0;
+                long due = NO_DUE;
+                if (type == RECORD_PUT_TREE || type == RECORD_PUT_DUE) {
+                    body.getInt();
+                    parent = body.getInt();
+                }
+                if (type == RECORD_PUT_DUE) {
+                    due = body.getLong();
+                }
+                // The record is already in the log; only its slot needs updating
+                indexRecord(id, position, RECORD_HEADER_SIZE + bodyLength, created, updated, completed, parent, due);
+            } else if (type == RECORD_DELETE && isLive(id)) {
+                clearSlot(id);
+            }
+            nextId = Math.max(nextId, id + 1);
+            position += RECORD_HEADER_SIZE + bodyLength;
+        }
+        if (position < size) {
+            System.out.println("Embedded store: discarding " + (size - position) + " bytes of incomplete log tail");
+            log.truncate(position);
+        }
+        logLength = position;
+    }
+
+    // Points the id's slot at the record at 'offset'
+    private void indexRecord(int id, long offset, int length, long created, long updated, boolean completed,
+            int parent, long due) throws IOException {
+        ensureSlot(id);
+        int slot = slot(id);
+        if (index.getLong(slot + S_OFFSET) != 0) {
+            liveBytes -= index.getInt(slot + S_LENGTH);
+            ordered.remove(new Key(index.getLong(slot + S_CREATED), id));
+            unlinkChild(id, index.getInt(slot + S_PARENT), index.getLong(slot + S_CREATED));
+            dueOrder.remove(new DueKey(index.getLong(slot + S_DUE), id));
+        }
+        index.putLong(slot + S_OFFSET, offset + 1);
+        index.putLong(slot + S_CREATED, created);
+        index.putLong(slot + S_UPDATED, updated);
+        index.putInt(slot + S_LENGTH, length);
+        index.putInt(slot + S_FLAGS, completed ? FLAG_COMPLETED : 0);
+        index.putInt(slot + S_PARENT, parent);
+        index.putLong(slot + S_DUE, due);
+        liveBytes += length;
+        ordered.add(new Key(created, id));
+        linkChild(id, parent, created);
+        if (due != NO_DUE && !completed) {
+            dueOrder.add(new DueKey(due, id));
+        }
+        maxUpdatedMillis = Math.max(maxUpdatedMillis, updated);
+    }
+
+    private void linkChild(int id, int parent, long created) {
+        if (parent != 0) {
+            children.computeIfAbsent(parent, p -> new TreeSet<>()).add(new Key(created, id));
+        }
+    }
+
+    private void unlinkChild(int id, int parent, long created) {
+        NavigableSet<Key> siblings = parent == 0 ? null : children.get(parent);
+        if (siblings != null) {
+            siblings.remove(new Key(created, id));
+            if (siblings.isEmpty()) {
+                children.remove(parent);
+            }
+        }
+    }
+
+    // Like the MySQL triggers: a sub-task needs a live parent
+    private void requireParent(int parent) throws SQLException {
+        if (parent != 0 && !isLive(parent)) {
+            throw new SQLException("The parent todo does not exist");
+        }
+    }
+
+    private int parentOf(Todo todo) throws SQLException {
+        int parent = todo.getParent_id() == null ? 0 : parseId(todo.getParent_id());
+        requireParent(parent);
+        return parent;
+    }
+
+    private void ensureSlot(int id) throws IOException {
+        if (id >= slotCapacity) {
+            int capacity = slotCapacity;
+            while (id >= capacity) {
+                capacity *= 2;
+            }
+            mapIndex(capacity);
+        }
+    }
+
+    private void mapIndex(int slots) throws IOException {
+        slotCapacity = slots;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE);
+    }
+
+    private static int slot(int id) {
+        return INDEX_HEADER_SIZE + id * SLOT_SIZE;
+    }
+
+    // ===== ENCODING =====
+    private static ByteBuffer logHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    private static ByteBuffer encodePut(int id, long created, long updated, boolean completed, int version,
+            int parent, String title, String description, long due, String recurrence) {
+        byte[] titleBytes = title == null ? null : title.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        byte[] recurrenceBytes = recurrence == null ? null : recurrence.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + 4 + 8 + 8 + 1 + 4 + 4 + 8
+                + 4 + (titleBytes == null ? 0 : titleBytes.length)
+                + 4 + (descriptionBytes == null ? 0 : descriptionBytes.length)
+                + 4 + (recurrenceBytes == null ? 0 : recurrenceBytes.length);
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.put(RECORD_PUT_DUE).putInt(id).putLong(created).putLong(updated)
+                .put((byte) (completed ? 1 : 0)).putInt(version).putInt(parent).putLong(due);
+        writeString(body, titleBytes);
+        writeString(body, descriptionBytes);
+        writeString(body, recurrenceBytes);
+        body.flip();
+        return body;
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + LOG_FILE);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static int parseId(String id) throws SQLException {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid todo id: " + id);
+        }
+    }
+
+    private static long toDueMillis(LocalDateTime due) {
+        return due == null ? NO_DUE : EpochMillis.toMillis(due);
+    }
+
+    private static LocalDateTime fromDueMillis(long millis) {
+        return millis == NO_DUE ? null : EpochMillis.fromMillis(millis);
+    }
+
+    // Ordering key: created_at DESC, id DESC
+    private static final class Key implements Comparable<Key> {
+        final long created;
+        final int id;
+
+        Key(long created, int id) {
+            this.created = created;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byCreated = Long.compare(other.created, created);
+            return byCreated != 0 ? byCreated : Integer.compare(other.id, id);
+        }
+    }
+
+    // Reminder order: due ASC, id ASC
+    private static final class DueKey implements Comparable<DueKey> {
+        final long due;
+        final int id;
+
+        DueKey(long due, int id) {
+            this.due = due;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(DueKey other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Integer.compare(id, other.id);
+        }
+    }
+}
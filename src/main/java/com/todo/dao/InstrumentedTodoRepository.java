@@ -0,0 +1,293 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Decorator that records latency, errors, rows and bytes returned for every repository
+// call under "dao.<method>" in Metrics. Works the same for every storage engine.
+// Bytes are an estimate of the row payload (fixed columns plus string lengths), not
+// what went over the wire.
+public class InstrumentedTodoRepository implements TodoRepository {
+    // id + two timestamps + completed
+    private static final int FIXED_ROW_BYTES = 4 + 8 + 8 + 1;
+
+    private final TodoRepository delegate;
+
+    private final OperationStats addTodo = Metrics.operation("dao.addTodo");
+    private final OperationStats updateTodo = Metrics.operation("dao.updateTodo");
+    private final OperationStats deleteTodo = Metrics.operation("dao.deleteTodo");
+    private final OperationStats getTodoById = Metrics.operation("dao.getTodoById");
+    private final OperationStats getAllTodos = Metrics.operation("dao.getAllTodos");
+    private final OperationStats findTodos = Metrics.operation("dao.findTodos");
+    private final OperationStats getTodosPage = Metrics.operation("dao.getTodosPage");
+    private final OperationStats streamTodos = Metrics.operation("dao.streamTodos");
+    private final OperationStats getTodosUpdatedSince = Metrics.operation("dao.getTodosUpdatedSince");
+    private final OperationStats getTodosUpdatedAfter = Metrics.operation("dao.getTodosUpdatedAfter");
+    private final OperationStats getLatestUpdatedAt = Metrics.operation("dao.getLatestUpdatedAt");
+    private final OperationStats getTodosDueAfter = Metrics.operation("dao.getTodosDueAfter");
+    private final OperationStats addTodos = Metrics.operation("dao.addTodos");
+    private final OperationStats updateTodos = Metrics.operation("dao.updateTodos");
+    private final OperationStats deleteTodos = Metrics.operation("dao.deleteTodos");
+    private final OperationStats importTodos = Metrics.operation("dao.importTodos");
+    private final OperationStats conflicts = Metrics.operation("dao.conflicts");
+    private final OperationStats getLatestChangeSequence = Metrics.operation("dao.getLatestChangeSequence");
+    private final OperationStats getChangesSince = Metrics.operation("dao.getChangesSince");
+    private final OperationStats getSubtree = Metrics.operation("dao.getSubtree");
+    private final OperationStats moveTodo = Metrics.operation("dao.moveTodo");
+    private final OperationStats getProgress = Metrics.operation("dao.getProgress");
+
+    @FunctionalInterface
+    private interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    public InstrumentedTodoRepository(TodoRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    public TodoRepository getDelegate() {
+        return delegate;
+    }
+
+    // ===== SINGLE ROW =====
+    @Override
+    public void addTodo(Todo todo) throws SQLException {
+        timed(addTodo, () -> {
+            delegate.addTodo(todo);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateTodo(Todo todo) throws SQLException {
+        timed(updateTodo, () -> {
+            delegate.updateTodo(todo);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTodo(String id) throws SQLException {
+        timed(deleteTodo, () -> {
+            delegate.deleteTodo(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTodo(Todo todo) throws SQLException {
+        timed(deleteTodo, () -> {
+            delegate.deleteTodo(todo);
+            return null;
+        });
+    }
+
+    @Override
+    public Todo getTodoById(String id) throws SQLException {
+        return timed(getTodoById, () -> delegate.getTodoById(id));
+    }
+
+    // ===== LISTING =====
+    @Override
+    public List<Todo> getAllTodos() throws SQLException {
+        return timed(getAllTodos, delegate::getAllTodos);
+    }
+
+    @Override
+    public List<Todo> findTodos(TodoQuery query) throws SQLException {
+        return timed(findTodos, () -> delegate.findTodos(query));
+    }
+
+    @Override
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        return timed(getTodosPage, () -> delegate.getTodosPage(query, after, pageSize));
+    }
+
+    @Override
+    public void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException {
+        long[] rowsAndBytes = new long[2];
+        long start = System.nanoTime();
+        try {
+            delegate.streamTodos(query, todo -> {
+                rowsAndBytes[0]++;
+                rowsAndBytes[1] += estimateBytes(todo);
+                consumer.accept(todo);
+            });
+        } catch (SQLException | RuntimeException e) {
+            streamTodos.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        streamTodos.record(System.nanoTime() - start, rowsAndBytes[0], rowsAndBytes[1]);
+    }
+
+    // ===== HIERARCHY =====
+    @Override
+    public List<Todo> getSubtree(String id) throws SQLException {
+        return timed(getSubtree, () -> delegate.getSubtree(id));
+    }
+
+    @Override
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        timed(moveTodo, () -> {
+            delegate.moveTodo(todo, newParentId);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException {
+        return timed(getProgress, () -> delegate.getProgress(ids));
+    }
+
+    // ===== CHANGE TRACKING =====
+    @Override
+    public List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException {
+        return timed(getTodosUpdatedSince, () -> delegate.getTodosUpdatedSince(since));
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException {
+        return timed(getTodosUpdatedAfter, () -> delegate.getTodosUpdatedAfter(updatedAt, afterId, limit));
+    }
+
+    @Override
+    public List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException {
+        return timed(getTodosDueAfter, () -> delegate.getTodosDueAfter(dueAt, afterId, limit));
+    }
+
+    @Override
+    public LocalDateTime getLatestUpdatedAt() throws SQLException {
+        return timed(getLatestUpdatedAt, delegate::getLatestUpdatedAt);
+    }
+
+    // ===== CHANGE FEED =====
+    @Override
+    public boolean supportsChangeFeed() {
+        return delegate.supportsChangeFeed();
+    }
+
+    @Override
+    public long getLatestChangeSequence() throws SQLException {
+        return timed(getLatestChangeSequence, delegate::getLatestChangeSequence);
+    }
+
+    // Rows and bytes count the current rows that came back with the changes
+    @Override
+    public List<TodoChange> getChangesSince(long sequence, int limit) throws SQLException {
+        long start = System.nanoTime();
+        List<TodoChange> changes;
+        try {
+            changes = delegate.getChangesSince(sequence, limit);
+        } catch (SQLException | RuntimeException e) {
+            getChangesSince.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        long bytes = 0;
+        for (TodoChange change : changes) {
+            bytes += change.getRow() != null ? estimateBytes(change.getRow()) : 0;
+        }
+        getChangesSince.record(System.nanoTime() - start, changes.size(), bytes);
+        return changes;
+    }
+
+    // ===== BATCH =====
+    // Row counts for batches are the rows submitted
+    @Override
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        return timedBatch(addTodos, todos.size(), () -> delegate.addTodos(todos));
+    }
+
+    @Override
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        return timedBatch(updateTodos, todos.size(), () -> delegate.updateTodos(todos));
+    }
+
+    @Override
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        return timedBatch(deleteTodos, ids.size(), () -> delegate.deleteTodos(ids));
+    }
+
+    @Override
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        return timedBatch(deleteTodos, todos.size(), () -> delegate.deleteTodos(todos));
+    }
+
+    @Override
+    public BatchResult importTodos(List<Todo> todos) throws SQLException {
+        return timedBatch(importTodos, todos.size(), () -> delegate.importTodos(todos));
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return delegate.getMaxConcurrency();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate.close();
+    }
+
+    // ===== HELPERS =====
+    // Conflicts are an expected outcome, not an error: they are counted under
+    // dao.conflicts and the call's latency is still recorded as a success
+    private <T> T timed(OperationStats stats, SqlCall<T> call) throws SQLException {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (TodoConflictException e) {
+            stats.record(System.nanoTime() - start);
+            conflicts.record(0, 1, 0);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (result instanceof List) {
+            long bytes = 0;
+            for (Object row : (List<?>) result) {
+                bytes += estimateBytes((Todo) row);
+            }
+            stats.record(elapsed, ((List<?>) result).size(), bytes);
+        } else if (result instanceof Todo) {
+            stats.record(elapsed, 1, estimateBytes((Todo) result));
+        } else {
+            stats.record(elapsed);
+        }
+        return result;
+    }
+
+    private BatchResult timedBatch(OperationStats stats, int rows, SqlCall<BatchResult> call)
+            throws SQLException {
+        long start = System.nanoTime();
+        try {
+            BatchResult result = call.call();
+            stats.record(System.nanoTime() - start, rows, 0);
+            if (result.getConflictCount() > 0) {
+                conflicts.record(0, result.getConflictCount(), 0);
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    static long estimateBytes(Todo todo) {
+        return FIXED_ROW_BYTES + length(todo.getTitle()) + length(todo.getDescription());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,106 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Runs EXPLAIN on the statements the app issues most (built by the DAO itself, so they
+// cannot drift apart) and reports plans that scan the whole table or sort it instead of
+// reading an index in order. Catches dropped or renamed indexes and optimizer changes
+// after a server upgrade. Tables below MIN_ROWS are skipped: MySQL rightly prefers a
+// scan there, whatever the indexes.
+public class QueryPlanCheck {
+    private static final long MIN_ROWS = 1_000;
+    private static final String SQL_TABLE_ROWS = "SELECT table_rows FROM information_schema.tables "
+            + "WHERE table_schema = DATABASE() AND table_name = 'todos'";
+
+    // Returns one line per suspicious plan; empty when every hot query uses an index
+    public List<String> check() throws SQLException {
+        List<String> warnings = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_TABLE_ROWS);
+                    ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getLong(1) < MIN_ROWS) {
+                    return warnings;
+                }
+            }
+            for (HotQuery query : hotQueries()) {
+                String problem = explain(conn, query);
+                if (problem != null) {
+                    warnings.add(query.name + ": " + problem);
+                }
+            }
+        }
+        return warnings;
+    }
+
+    private static List<HotQuery> hotQueries() {
+        List<HotQuery> queries = new ArrayList<>();
+        Todo after = new Todo("1", "", "", false, LocalDateTime.now(), LocalDateTime.now());
+        int pageSize = TodoappDAOImpl.DEFAULT_PAGE_SIZE;
+
+        addPage(queries, "first page", TodoQuery.all(), null, pageSize);
+        addPage(queries, "next page", TodoQuery.all(), after, pageSize);
+        addPage(queries, "completed filter", TodoQuery.all().completed(Boolean.TRUE), null, pageSize);
+        addPage(queries, "completed filter, next page", TodoQuery.all().completed(Boolean.FALSE), after, pageSize);
+        queries.add(new HotQuery("get by id", TodoappDAOImpl.byIdSql(), Collections.singletonList(1)));
+        queries.add(new HotQuery("delta refresh", TodoappDAOImpl.updatedSinceSql(),
+                Collections.singletonList(Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)))));
+        Timestamp due = Timestamp.valueOf(LocalDateTime.now());
+        queries.add(new HotQuery("reminder window", TodoappDAOImpl.dueAfterSql(true),
+                Arrays.asList(due, due, 1, pageSize)));
+        return queries;
+    }
+
+    private static void addPage(List<HotQuery> queries, String name, TodoQuery query, Todo after,
+            int pageSize) {
+        List<Object> params = new ArrayList<>();
+        String sql = TodoappDAOImpl.pageSql(query, after, pageSize, params);
+        queries.add(new HotQuery(name, sql, params));
+    }
+
+    // null if the plan is fine, else what is wrong with it
+    private static String explain(Connection conn, HotQuery query) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+            TodoQuery.bind(stmt, query.params, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = rs.getString("type");
+                    String key = rs.getString("key");
+                    String extra = rs.getString("Extra");
+                    long rows = rs.getLong("rows");
+                    if ("ALL".equals(type)) {
+                        return "full table scan of ~" + rows + " rows (no usable index)";
+                    }
+                    if (extra != null && extra.contains("Using filesort") && rows >= MIN_ROWS) {
+                        return "sorts ~" + rows + " rows instead of reading " + (key == null ? "an index" : key)
+                                + " in order";
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class HotQuery {
+        final String name;
+        final String sql;
+        final List<Object> params;
+
+        HotQuery(String name, String sql, List<Object> params) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.todo.dao;
+
+import com.todo.model.Recurrence;
+import com.todo.model.Todo;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+import com.todo.util.TimingWheel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Fires reminders for due todos from one thread and one timing wheel, however many are
+// pending. Only a window of the future is held in memory: open todos are read in
+// (due_at, id) order a batch at a time (an index range read, see getTodosDueAfter)
+// until the window (todo.reminders.windowMs ahead) is covered, and read further as time
+// moves on. Edits are picked up by polling getTodosUpdatedAfter; each reminder reads
+// its todo once more before firing, so deleted, completed or re-dated todos stay quiet.
+// An edit noticed only after its new due date passed still fires, late.
+//
+// A recurring todo's due date moves to its next occurrence when it fires (a versioned
+// update, so with several clients only one moves it). One-off reminders fire once.
+//
+// Progress survives restarts: the state file holds the time up to which every reminder
+// has fired, so the next start reads only from there on, and reminders that came due
+// while the app was closed fire right away. Due dates set in the past never fire.
+public class ReminderScheduler implements AutoCloseable {
+    public static final long DEFAULT_TICK_MS = Long.getLong("todo.reminders.tickMs", 1_000);
+    public static final long DEFAULT_WINDOW_MS = Long.getLong("todo.reminders.windowMs", 3_600_000);
+    private static final long REFRESH_INTERVAL_MS = Long.getLong("todo.reminders.refreshMs", 5_000);
+    // Edits are re-read from this far back, for writers whose clocks lag ours
+    private static final long REFRESH_OVERLAP_MS = 5_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int WHEEL_SIZE = 64;
+    // The window shrinks rather than hold more than this many reminders at once
+    private static final int MAX_LOADED = Integer.getInteger("todo.reminders.maxLoaded", 100_000);
+    // Progress is written at least this often while reminders fire
+    private static final long SAVE_INTERVAL_MS = 30_000;
+    private static final long RETRY_DELAY_MS = 30_000;
+
+    public interface Listener {
+        // Called on the scheduler thread with the todo as it is now
+        void onReminder(Todo todo);
+    }
+
+    private final TodoRepository repository;
+    private final Path stateFile;
+    private final long windowMs;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private final OperationStats loadStats = Metrics.operation("reminders.load");
+    private final OperationStats firedStats = Metrics.operation("reminders.fired");
+
+    // Scheduler thread only
+    private final TimingWheel<Todo> wheel;
+    private final Map<String, TimingWheel.Timeout<Todo>> scheduled = new HashMap<>();
+    // Fired todos that refresh() may still read again, as they were when they fired
+    private final Map<String, Fired> recentlyFired = new HashMap<>();
+    // Every open todo with a (due, id) key up to here is in the wheel or has fired
+    private long loadedDue;
+    private String loadedId;
+    // Every reminder due before this has fired
+    private long firedThrough;
+    private long savedFiredThrough;
+    private long lastSave;
+    private LocalDateTime refreshedUpdatedAt;
+    private long lastRefresh;
+    private long retryAt;
+
+    private volatile boolean closing;
+
+    public ReminderScheduler(TodoRepository repository, Path stateFile) {
+        this(repository, stateFile, DEFAULT_TICK_MS, DEFAULT_WINDOW_MS);
+    }
+
+    public ReminderScheduler(TodoRepository repository, Path stateFile, long tickMs, long windowMs) {
+        this.repository = repository;
+        this.stateFile = stateFile;
+        this.windowMs = windowMs;
+
+        long now = System.currentTimeMillis();
+        long saved = readState();
+        // First start: nothing in the past is reminded of
+        this.firedThrough = saved == Long.MIN_VALUE ? now : saved;
+        this.savedFiredThrough = firedThrough;
+        this.loadedDue = firedThrough;
+        this.loadedId = null;
+        this.refreshedUpdatedAt = toLocal(now - REFRESH_OVERLAP_MS);
+        this.wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, Math.min(now, firedThrough));
+
+        this.thread = new Thread(this::run, "todo-reminders");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Saves progress; a reminder being delivered is let finish
+    @Override
+    public void close() {
+        closing = true;
+        thread.interrupt();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== LOOP =====
+    private void run() {
+        while (!closing) {
+            long now = System.currentTimeMillis();
+            if (now >= retryAt) {
+                try {
+                    if (now - lastRefresh >= REFRESH_INTERVAL_MS) {
+                        refresh();
+                        lastRefresh = now;
+                    }
+                    load(now + windowMs);
+                } catch (SQLException | RuntimeException e) {
+                    System.out.println("Reminders: could not read due todos, retrying: " + e.getMessage());
+                    retryAt = now + RETRY_DELAY_MS;
+                }
+            }
+
+            List<Todo> due = new ArrayList<>();
+            wheel.advanceTo(now, due::add);
+            for (Todo todo : due) {
+                scheduled.remove(todo.getId());
+                fire(todo, now);
+            }
+            // Only once the window has been read up to 'now' is everything before it accounted for
+            if (compareKey(loadedDue, loadedId, now) >= 0) {
+                firedThrough = Math.max(firedThrough, wheel.getCurrentTime() + wheel.getTickMs());
+            }
+            if (firedThrough != savedFiredThrough && (!due.isEmpty() || now - lastSave >= SAVE_INTERVAL_MS)) {
+                saveState();
+            }
+
+            try {
+                Thread.sleep(wheel.getTickMs() - Math.floorMod(System.currentTimeMillis(), wheel.getTickMs()));
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        saveState();
+    }
+
+    // Reads open todos in due order until the window is covered or the wheel is full
+    private void load(long until) throws SQLException {
+        while (loadedDue < until && wheel.size() < MAX_LOADED) {
+            long start = System.nanoTime();
+            List<Todo> page = repository.getTodosDueAfter(toLocal(loadedDue), loadedId, BATCH_SIZE);
+            loadStats.record(System.nanoTime() - start, page.size(), 0);
+            for (Todo todo : page) {
+                schedule(todo);
+            }
+            if (page.size() < BATCH_SIZE) {
+                // Read to the end: anything due later than that arrives through refresh()
+                loadedDue = Math.max(loadedDue, until);
+                loadedId = String.valueOf(Integer.MAX_VALUE);
+                return;
+            }
+            Todo last = page.get(page.size() - 1);
+            loadedDue = toMillis(last.getDue_at());
+            loadedId = last.getId();
+        }
+    }
+
+    // Rows changed since the last look: new, re-dated, completed or reopened todos
+    private void refresh() throws SQLException {
+        LocalDateTime from = refreshedUpdatedAt;
+        String afterId = null;
+        LocalDateTime latest = null;
+        while (true) {
+            List<Todo> page = repository.getTodosUpdatedAfter(from, afterId, BATCH_SIZE);
+            for (Todo todo : page) {
+                reschedule(todo);
+                if (latest == null || todo.getUpdated_at().isAfter(latest)) {
+                    latest = todo.getUpdated_at();
+                }
+            }
+            if (page.size() < BATCH_SIZE) {
+                break;
+            }
+            Todo last = page.get(page.size() - 1);
+            from = last.getUpdated_at();
+            afterId = last.getId();
+        }
+        if (latest != null) {
+            LocalDateTime next = latest.minusNanos(REFRESH_OVERLAP_MS * 1_000_000);
+            if (next.isAfter(refreshedUpdatedAt)) {
+                refreshedUpdatedAt = next;
+            }
+        }
+        recentlyFired.values().removeIf(fired -> fired.updatedAt.isBefore(refreshedUpdatedAt));
+    }
+
+    private void reschedule(Todo todo) {
+        TimingWheel.Timeout<Todo> existing = scheduled.get(todo.getId());
+        boolean wanted = !todo.isCompleted() && todo.getDue_at() != null
+                && compareKey(loadedDue, loadedId, toMillis(todo.getDue_at()), todo.getId()) >= 0
+                && (toMillis(todo.getDue_at()) >= firedThrough || isLateEdit(todo));
+        if (existing != null && wanted && existing.getDeadline() == toMillis(todo.getDue_at())) {
+            return;
+        }
+        if (existing != null) {
+            wheel.cancel(existing);
+            scheduled.remove(todo.getId());
+        }
+        if (wanted) {
+            schedule(todo);
+        }
+    }
+
+    // Dated into the future but only seen once that time had passed: fires now, unless
+    // this very due date fired already
+    private boolean isLateEdit(Todo todo) {
+        Fired fired = recentlyFired.get(todo.getId());
+        return todo.getDue_at().isAfter(todo.getUpdated_at())
+                && (fired == null || !fired.dueAt.equals(todo.getDue_at()));
+    }
+
+    private void schedule(Todo todo) {
+        TimingWheel.Timeout<Todo> previous = scheduled.put(todo.getId(),
+                wheel.schedule(toMillis(todo.getDue_at()), todo));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    // ===== FIRING =====
+    private void fire(Todo scheduledTodo, long now) {
+        Todo todo;
+        try {
+            todo = repository.getTodoById(scheduledTodo.getId());
+        } catch (SQLException e) {
+            System.out.println("Reminders: could not read todo " + scheduledTodo.getId() + ": " + e.getMessage());
+            return;
+        }
+        // Deleted, done or re-dated since it was scheduled
+        if (todo == null || todo.isCompleted() || !scheduledTodo.getDue_at().equals(todo.getDue_at())) {
+            return;
+        }
+        recentlyFired.put(todo.getId(), new Fired(todo.getDue_at(), todo.getUpdated_at()));
+        firedStats.record(0, 1, 0);
+        for (Listener listener : listeners) {
+            try {
+                listener.onReminder(todo);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        if (todo.getRecurrence() != null) {
+            advance(todo, now);
+        }
+    }
+
+    // Moves a recurring todo on to its next occurrence
+    private void advance(Todo todo, long now) {
+        LocalDateTime next;
+        try {
+            next = Recurrence.parse(todo.getRecurrence()).nextAfter(todo.getDue_at(), toLocal(now));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Reminders: todo " + todo.getId() + " has " + e.getMessage());
+            return;
+        }
+        todo.setDue_at(next);
+        todo.setUpdated_at(LocalDateTime.now());
+        try {
+            repository.updateTodo(todo);
+        } catch (TodoConflictException e) {
+            // Another client moved it on (or it was edited); refresh() sees the result
+            return;
+        } catch (SQLException e) {
+            System.out.println("Reminders: could not move todo " + todo.getId() + " to its next date: "
+                    + e.getMessage());
+            return;
+        }
+        reschedule(todo);
+    }
+
+    // ===== STATE =====
+    // Long.MIN_VALUE when there is no usable state yet
+    private long readState() {
+        try {
+            if (!Files.exists(stateFile)) {
+                return Long.MIN_VALUE;
+            }
+            byte[] bytes = Files.readAllBytes(stateFile);
+            return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : Long.MIN_VALUE;
+        } catch (IOException e) {
+            System.out.println("Reminders: ignoring unreadable " + stateFile + ": " + e.getMessage());
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Written beside and renamed over, so a crash leaves the old or the new value
+    private void saveState() {
+        try {
+            Files.createDirectories(stateFile.toAbsolutePath().getParent());
+            Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            Files.write(temp, ByteBuffer.allocate(Long.BYTES).putLong(firedThrough).array());
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedFiredThrough = firedThrough;
+            lastSave = System.currentTimeMillis();
+        } catch (IOException e) {
+            System.out.println("Reminders: could not save progress: " + e.getMessage());
+        }
+    }
+
+    // ===== HELPERS =====
+    private static final class Fired {
+        final LocalDateTime dueAt;
+        final LocalDateTime updatedAt;
+
+        Fired(LocalDateTime dueAt, LocalDateTime updatedAt) {
+            this.dueAt = dueAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    // Compares the key (due, id) with (otherDue, otherId); a null id sorts before every id
+    private static int compareKey(long due, String id, long otherDue, String otherId) {
+        if (due != otherDue) {
+            return Long.compare(due, otherDue);
+        }
+        return Long.compare(id == null ? Long.MIN_VALUE : Long.parseLong(id),
+                otherId == null ? Long.MIN_VALUE : Long.parseLong(otherId));
+    }
+
+    // Whether the loaded key has reached the start of 'millis'
+    private static int compareKey(long due, String id, long millis) {
+        return compareKey(due, id, millis, null);
+    }
+
+    // Due dates are wall-clock times in the system zone
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,306 @@
+package com.todo.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Sync bookkeeping of a ReplicaTodoRepository, kept next to the local store:
+// - links: local id -> central id, with the versions (and parent) both sides had when
+//   they were last in sync. A local row whose version moved past its link has local edits.
+// - dirty: local ids written since the last push, in the order they were written
+// - the pull cursors into the central table
+// Every change is appended as a record; the file is rewritten to a snapshot once the
+// appended records outgrow it. Same record framing as WriteBehindJournal, and like
+// there a torn record at the tail is dropped. Not thread-safe; the owner locks.
+final class ReplicaState implements AutoCloseable {
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte RECORD_LINK = 1;
+    private static final byte RECORD_UNLINK = 2;
+    private static final byte RECORD_DIRTY = 3;
+    private static final byte RECORD_CLEAN = 4;
+    private static final byte RECORD_CURSOR = 5;
+    private static final int MIN_RECORDS_BEFORE_REWRITE = 10_000;
+
+    static final class Link {
+        final int remoteId;
+        final int remoteVersion;
+        final int localVersion;
+        // Local id of the parent when last in sync, 0 at the top level
+        final int localParent;
+
+        Link(int remoteId, int remoteVersion, int localVersion, int localParent) {
+            this.remoteId = remoteId;
+            this.remoteVersion = remoteVersion;
+            this.localVersion = localVersion;
+            this.localParent = localParent;
+        }
+    }
+
+    private final Path path;
+    private final boolean syncWrites;
+    private FileChannel channel;
+    private int appendedRecords;
+
+    private final Map<Integer, Link> links = new HashMap<>();
+    private final Map<Integer, Integer> localIds = new HashMap<>();
+    // local id -> how often it was marked; a push only clears the mark it saw
+    private final LinkedHashMap<Integer, Integer> dirty = new LinkedHashMap<>();
+    // Delta pull position: last (updated_at, id) read, and last change sequence read
+    // (-1 until the first full pull has finished)
+    private long pulledUpdatedMillis = Long.MIN_VALUE;
+    private int pulledId = -1;
+    private long pulledSequence = -1;
+
+    ReplicaState(Path path, boolean syncWrites) throws IOException {
+        this.path = path;
+        this.syncWrites = syncWrites;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        load();
+    }
+
+    // ===== LINKS =====
+    Link link(int localId) {
+        return links.get(localId);
+    }
+
+    // 0 when the central row has no local copy
+    int localId(int remoteId) {
+        Integer localId = localIds.get(remoteId);
+        return localId == null ? 0 : localId;
+    }
+
+    void putLink(int localId, Link link) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(21);
+        body.put(RECORD_LINK).putInt(localId).putInt(link.remoteId).putInt(link.remoteVersion)
+                .putInt(link.localVersion).putInt(link.localParent).flip();
+        append(body);
+        applyLink(localId, link);
+    }
+
+    void removeLink(int localId) throws IOException {
+        if (!links.containsKey(localId)) {
+            return;
+        }
+        append(idRecord(RECORD_UNLINK, localId));
+        applyUnlink(localId);
+    }
+
+    int getLinkCount() {
+        return links.size();
+    }
+
+    // ===== DIRTY =====
+    void markDirty(int localId) throws IOException {
+        append(idRecord(RECORD_DIRTY, localId));
+        dirty.merge(localId, 1, Integer::sum);
+    }
+
+    // Oldest first, with the mark count to hand back to clean()
+    List<int[]> dirtyIds(int limit) {
+        List<int[]> ids = new ArrayList<>(Math.min(limit, dirty.size()));
+        for (Map.Entry<Integer, Integer> entry : dirty.entrySet()) {
+            if (ids.size() == limit) {
+                break;
+            }
+            ids.add(new int[] { entry.getKey(), entry.getValue() });
+        }
+        return ids;
+    }
+
+    // False (and still dirty) if the id was marked again since 'marks' was read
+    boolean clean(int localId, int marks) throws IOException {
+        if (!dirty.remove(localId, marks)) {
+            return false;
+        }
+        append(idRecord(RECORD_CLEAN, localId));
+        return true;
+    }
+
+    boolean isDirty(int localId) {
+        return dirty.containsKey(localId);
+    }
+
+    int getDirtyCount() {
+        return dirty.size();
+    }
+
+    // ===== CURSORS =====
+    long getPulledUpdatedMillis() {
+        return pulledUpdatedMillis;
+    }
+
+    int getPulledId() {
+        return pulledId;
+    }
+
+    long getPulledSequence() {
+        return pulledSequence;
+    }
+
+    void setCursor(long updatedMillis, int id, long sequence) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(21);
+        body.put(RECORD_CURSOR).putLong(updatedMillis).putInt(id).putLong(sequence).flip();
+        append(body);
+        pulledUpdatedMillis = updatedMillis;
+        pulledId = id;
+        pulledSequence = sequence;
+    }
+
+    // ===== FILE =====
+    // Rewrites the file as a snapshot when appended records dominate it
+    void compactIfWorthwhile() throws IOException {
+        if (appendedRecords < Math.max(MIN_RECORDS_BEFORE_REWRITE, links.size() + dirty.size())) {
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<Integer, Link> entry : links.entrySet()) {
+                Link link = entry.getValue();
+                ByteBuffer body = ByteBuffer.allocate(21);
+                body.put(RECORD_LINK).putInt(entry.getKey()).putInt(link.remoteId).putInt(link.remoteVersion)
+                        .putInt(link.localVersion).putInt(link.localParent).flip();
+                writeFully(out, frame(body));
+            }
+            for (Integer localId : dirty.keySet()) {
+                writeFully(out, frame(idRecord(RECORD_DIRTY, localId)));
+            }
+            ByteBuffer cursor = ByteBuffer.allocate(21);
+            cursor.put(RECORD_CURSOR).putLong(pulledUpdatedMillis).putInt(pulledId).putLong(pulledSequence).flip();
+            writeFully(out, frame(cursor));
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        appendedRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + RECORD_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            replay(body);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < size) {
+            System.out.println("Replica state: ignoring " + (size - position) + " torn bytes at the end");
+            channel.truncate(position);
+        }
+        // Only records beyond what a snapshot would hold count towards the next rewrite
+        appendedRecords = Math.max(0, appendedRecords - links.size() - dirty.size() - 1);
+    }
+
+    private void replay(ByteBuffer body) throws IOException {
+        byte type = body.get();
+        switch (type) {
+            case RECORD_LINK:
+                applyLink(body.getInt(), new Link(body.getInt(), body.getInt(), body.getInt(), body.getInt()));
+                break;
+            case RECORD_UNLINK:
+                applyUnlink(body.getInt());
+                break;
+            case RECORD_DIRTY:
+                dirty.merge(body.getInt(), 1, Integer::sum);
+                break;
+            case RECORD_CLEAN:
+                dirty.remove(body.getInt());
+                break;
+            case RECORD_CURSOR:
+                pulledUpdatedMillis = body.getLong();
+                pulledId = body.getInt();
+                pulledSequence = body.getLong();
+                break;
+            default:
+                throw new IOException("Unknown replica state record " + type);
+        }
+        appendedRecords++;
+    }
+
+    private void applyLink(int localId, Link link) {
+        Link previous = links.put(localId, link);
+        if (previous != null && previous.remoteId != link.remoteId) {
+            localIds.remove(previous.remoteId);
+        }
+        localIds.put(link.remoteId, localId);
+    }
+
+    private void applyUnlink(int localId) {
+        Link previous = links.remove(localId);
+        if (previous != null) {
+            localIds.remove(previous.remoteId);
+        }
+    }
+
+    private void append(ByteBuffer body) throws IOException {
+        ByteBuffer record = frame(body);
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (syncWrites) {
+            channel.force(false);
+        }
+        appendedRecords++;
+    }
+
+    private static ByteBuffer idRecord(byte type, int localId) {
+        ByteBuffer body = ByteBuffer.allocate(5);
+        body.put(type).putInt(localId).flip();
+        return body;
+    }
+
+    private static ByteBuffer frame(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, body.limit());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.limit());
+        record.putInt(body.limit()).putInt((int) crc.getValue()).put(body).flip();
+        return record;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+        buffer.flip();
+    }
+}
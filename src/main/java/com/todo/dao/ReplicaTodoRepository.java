@@ -0,0 +1,1004 @@
+package com.todo.dao;
+
+import com.todo.model.EpochMillis;
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Offline-first storage: every read and write goes to a local store (the embedded
+// engine), so no click waits on the network or fails because MySQL is down. A
+// background thread reconciles the local copy with the central table in batches.
+//
+// Ids: both sides assign their own, and ReplicaState links each local id to its central
+// id. Callers only ever see local ids.
+//
+// Push: local writes mark the todo dirty (before writing, except inserts, whose id only
+// exists afterwards). A sync round compares each dirty row with its link: no link is an
+// insert (addTodos), a version past the link an update (updateTodos, versioned on the
+// central version of the link, preceded by moveTodo if the parent changed), a missing
+// row a versioned delete (deleteTodos). Sub-tasks are inserted after their parents.
+//
+// Pull: central rows changed since the last round, read in (updated_at, id) keyset
+// batches. Once a first full pull has finished, rounds follow the central change log
+// instead when there is one, which also carries deletes. Rows whose central version
+// matches the link (including our own pushes coming back) are skipped.
+//
+// Conflicts, where both sides changed a todo since the last sync, are settled per row
+// and reported to listeners: for two edits the later updated_at wins, an edit loses to
+// a delete on the central side, and a local delete loses to a central edit (the row
+// comes back). Changes pulled into the local store are offered through the change
+// feed API (kept in memory), so a ChangeFeed on this repository updates the GUI.
+//
+// Enable with -Dtodo.storage=replica. Tuning: todo.replica.syncMs (round interval),
+// batchSize, and pullOverlapMs (how far back a log-less pull re-reads, for clock skew
+// between clients).
+public class ReplicaTodoRepository implements TodoRepository {
+    public static final long DEFAULT_SYNC_INTERVAL_MS = Long.getLong("todo.replica.syncMs", 2_000);
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("todo.replica.batchSize", 500);
+    private static final long PULL_OVERLAP_MS = Long.getLong("todo.replica.pullOverlapMs", 60_000);
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+    // Pushes failing on their own (not because MySQL is down) are given up after this
+    private static final int MAX_ATTEMPTS = 3;
+    // Change log sequences commit out of order; a hole is re-read for this long
+    private static final long GAP_TIMEOUT_MS = 30_000;
+    // Pulled changes kept for getChangesSince
+    private static final int APPLIED_CHANGES_KEPT = 10_000;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public interface Listener {
+        // Both sides changed the todo since the last sync; 'discarded' is the side that
+        // lost, as it was. Called on the sync thread.
+        void onConflict(Todo discarded, String resolution);
+
+        // After every sync round; online is false while the central store cannot be reached
+        default void onSyncStatus(boolean online, int unsyncedChanges) {
+        }
+    }
+
+    private final TodoRepository local;
+    private final TodoRepository central;
+    private final AsyncTodoDAO.SqlCall<?> prepareCentral;
+    private final long syncIntervalMs;
+    private final int batchSize;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread syncer;
+
+    private final OperationStats pushStats = Metrics.operation("replica.push");
+    private final OperationStats pullStats = Metrics.operation("replica.pull");
+    private final OperationStats conflictStats = Metrics.operation("replica.conflicts");
+
+    // All guarded by 'state'; waiting for the next round uses its monitor
+    private final ReplicaState state;
+    private final ArrayDeque<TodoChange> appliedChanges = new ArrayDeque<>();
+    private long appliedSequence;
+    private boolean syncRequested;
+    private boolean closing;
+
+    // Sync thread only
+    private final Map<Integer, Integer> failedAttempts = new HashMap<>();
+    private boolean prepared;
+    private boolean online = true;
+    private long gapSeenAt;
+
+    public ReplicaTodoRepository(TodoRepository local, TodoRepository central, Path stateFile,
+            AsyncTodoDAO.SqlCall<?> prepareCentral) throws SQLException {
+        this(local, central, stateFile, prepareCentral, Boolean.getBoolean("todo.embedded.syncWrites"),
+                DEFAULT_SYNC_INTERVAL_MS, DEFAULT_BATCH_SIZE);
+    }
+
+    // prepareCentral runs once before the first round that reaches the central store (schema migrations)
+    public ReplicaTodoRepository(TodoRepository local, TodoRepository central, Path stateFile,
+            AsyncTodoDAO.SqlCall<?> prepareCentral, boolean syncState, long syncIntervalMs, int batchSize)
+            throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.local = local;
+        this.central = central;
+        this.prepareCentral = prepareCentral;
+        this.syncIntervalMs = syncIntervalMs;
+        this.batchSize = batchSize;
+        try {
+            this.state = new ReplicaState(stateFile, syncState);
+        } catch (IOException e) {
+            throw new SQLException("Failed to open replica state " + stateFile + ": " + e.getMessage(), e);
+        }
+        if (state.getDirtyCount() > 0) {
+            System.out.println("Replica: " + state.getDirtyCount() + " local changes not yet synced");
+        }
+
+        this.syncer = new Thread(this::runSync, "todo-replica-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Local changes not yet pushed
+    public int getUnsyncedCount() {
+        synchronized (state) {
+            return state.getDirtyCount();
+        }
+    }
+
+    // Starts a round now instead of at the next interval
+    public void syncNow() {
+        synchronized (state) {
+            syncRequested = true;
+            state.notifyAll();
+        }
+    }
+
+    // ===== WRITES =====
+    @Override
+    public void addTodo(Todo todo) throws SQLException {
+        local.addTodo(todo);
+        markDirty(Collections.singletonList(todo.getId()));
+    }
+
+    @Override
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        return markAdded(todos, local.addTodos(todos));
+    }
+
+    @Override
+    public BatchResult importTodos(List<Todo> todos) throws SQLException {
+        return markAdded(todos, local.importTodos(todos));
+    }
+
+    @Override
+    public void updateTodo(Todo todo) throws SQLException {
+        markDirty(Collections.singletonList(todo.getId()));
+        local.updateTodo(todo);
+    }
+
+    @Override
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        markDirty(ids(todos));
+        return local.updateTodos(todos);
+    }
+
+    @Override
+    public void deleteTodo(String id) throws SQLException {
+        markSubtrees(Collections.singletonList(id));
+        local.deleteTodo(id);
+    }
+
+    @Override
+    public void deleteTodo(Todo todo) throws SQLException {
+        markSubtrees(Collections.singletonList(todo.getId()));
+        local.deleteTodo(todo);
+    }
+
+    @Override
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        markSubtrees(ids);
+        return local.deleteTodos(ids);
+    }
+
+    @Override
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        markSubtrees(ids(todos));
+        return local.deleteTodos(todos);
+    }
+
+    @Override
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        markDirty(Collections.singletonList(todo.getId()));
+        local.moveTodo(todo, newParentId);
+    }
+
+    // ===== READS =====
+    @Override
+    public Todo getTodoById(String id) throws SQLException {
+        return local.getTodoById(id);
+    }
+
+    @Override
+    public List<Todo> getAllTodos() throws SQLException {
+        return local.getAllTodos();
+    }
+
+    @Override
+    public List<Todo> findTodos(TodoQuery query) throws SQLException {
+        return local.findTodos(query);
+    }
+
+    @Override
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        return local.getTodosPage(query, after, pageSize);
+    }
+
+    @Override
+    public void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException {
+        local.streamTodos(query, consumer);
+    }
+
+    @Override
+    public List<Todo> getSubtree(String id) throws SQLException {
+        return local.getSubtree(id);
+    }
+
+    @Override
+    public Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException {
+        return local.getProgress(ids);
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException {
+        return local.getTodosUpdatedSince(since);
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException {
+        return local.getTodosUpdatedAfter(updatedAt, afterId, limit);
+    }
+
+    @Override
+    public List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException {
+        return local.getTodosDueAfter(dueAt, afterId, limit);
+    }
+
+    @Override
+    public LocalDateTime getLatestUpdatedAt() throws SQLException {
+        return local.getLatestUpdatedAt();
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return local.getMaxConcurrency();
+    }
+
+    // ===== CHANGE FEED =====
+    // Only what sync rounds applied locally; callers already know their own writes
+    @Override
+    public boolean supportsChangeFeed() {
+        return true;
+    }
+
+    @Override
+    public long getLatestChangeSequence() {
+        synchronized (state) {
+            return appliedSequence;
+        }
+    }
+
+    @Override
+    public List<TodoChange> getChangesSince(long sequence, int limit) {
+        List<TodoChange> changes = new ArrayList<>();
+        synchronized (state) {
+            for (TodoChange change : appliedChanges) {
+                if (changes.size() == limit) {
+                    break;
+                }
+                if (change.getSequence() > sequence) {
+                    changes.add(change);
+                }
+            }
+        }
+        return changes;
+    }
+
+    // Local changes stay in the local store and the state file; a running round is let finish
+    @Override
+    public void close() throws SQLException {
+        synchronized (state) {
+            closing = true;
+            state.notifyAll();
+        }
+        try {
+            syncer.join(syncIntervalMs + 5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (state) {
+            try {
+                state.close();
+            } catch (IOException e) {
+                System.out.println("Error closing replica state: " + e.getMessage());
+            }
+        }
+        local.close();
+        central.close();
+    }
+
+    // ===== SYNC LOOP =====
+    private void runSync() {
+        long delayMs = syncIntervalMs;
+        while (true) {
+            synchronized (state) {
+                try {
+                    if (!syncRequested && !closing && state.getDirtyCount() < batchSize) {
+                        state.wait(delayMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closing) {
+                    return;
+                }
+                syncRequested = false;
+            }
+
+            try {
+                syncRound();
+                if (!online) {
+                    System.out.println("Replica: central store reachable again");
+                }
+                online = true;
+                delayMs = syncIntervalMs;
+            } catch (SQLException | RuntimeException e) {
+                if (online) {
+                    System.out.println("Replica: working offline, sync failed: " + e.getMessage());
+                }
+                online = false;
+                delayMs = Math.min(MAX_RETRY_DELAY_MS, delayMs * 2);
+            }
+            int unsynced = getUnsyncedCount();
+            for (Listener listener : listeners) {
+                try {
+                    listener.onSyncStatus(online, unsynced);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void syncRound() throws SQLException {
+        if (!prepared) {
+            prepareCentral.call();
+            prepared = true;
+        }
+        // Pushing first means pulled rows never overwrite edits that were ready to go
+        while (pushBatch() > 0) {
+            // Until only deferred or failing rows are left
+        }
+        pull();
+        synchronized (state) {
+            try {
+                state.compactIfWorthwhile();
+            } catch (IOException e) {
+                System.out.println("Replica: could not compact state file: " + e.getMessage());
+            }
+        }
+    }
+
+    // ===== PUSH =====
+    private static final class Dirty {
+        final int localId;
+        final int marks;
+        final Todo row;
+        final ReplicaState.Link link;
+
+        Dirty(int localId, int marks, Todo row, ReplicaState.Link link) {
+            this.localId = localId;
+            this.marks = marks;
+            this.row = row;
+            this.link = link;
+        }
+    }
+
+    // Pushes the oldest dirty rows; returns how many were settled
+    private int pushBatch() throws SQLException {
+        List<int[]> marked;
+        synchronized (state) {
+            marked = state.dirtyIds(batchSize);
+        }
+        if (marked.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+
+        LinkedHashMap<Integer, Dirty> batch = new LinkedHashMap<>();
+        for (int[] entry : marked) {
+            addToBatch(batch, entry[0], entry[1]);
+        }
+        // New sub-tasks of new todos: the parent goes along in this batch
+        for (Dirty dirty : new ArrayList<>(batch.values())) {
+            int parent = localParent(dirty.row);
+            while (parent != 0 && !batch.containsKey(parent) && link(parent) == null && isDirty(parent)) {
+                Dirty added = addToBatch(batch, parent, dirtyMarks(parent));
+                parent = localParent(added.row);
+            }
+        }
+
+        List<Dirty> inserts = new ArrayList<>();
+        List<Dirty> updates = new ArrayList<>();
+        List<Dirty> deletes = new ArrayList<>();
+        int settled = 0;
+        for (Dirty dirty : batch.values()) {
+            if (dirty.row != null && dirty.link == null) {
+                inserts.add(dirty);
+            } else if (dirty.row != null && (dirty.row.getVersion() != dirty.link.localVersion
+                    || localParent(dirty.row) != dirty.link.localParent)) {
+                updates.add(dirty);
+            } else if (dirty.row == null && dirty.link != null) {
+                deletes.add(dirty);
+            } else {
+                // Unchanged after all, or created and deleted between two rounds
+                settled += clean(dirty) ? 1 : 0;
+            }
+        }
+
+        settled += pushInserts(inserts);
+        settled += pushUpdates(updates);
+        settled += pushDeletes(deletes);
+        pushStats.record(System.nanoTime() - start, settled, 0);
+        return settled;
+    }
+
+    private Dirty addToBatch(Map<Integer, Dirty> batch, int localId, int marks) throws SQLException {
+        Dirty dirty = new Dirty(localId, marks, local.getTodoById(String.valueOf(localId)), link(localId));
+        batch.put(localId, dirty);
+        return dirty;
+    }
+
+    // Parents before children: each pass inserts the rows whose parent already has a central id
+    private int pushInserts(List<Dirty> inserts) throws SQLException {
+        int settled = 0;
+        List<Dirty> waiting = new ArrayList<>(inserts);
+        while (!waiting.isEmpty()) {
+            List<Dirty> ready = new ArrayList<>();
+            List<Todo> rows = new ArrayList<>();
+            for (Dirty dirty : waiting) {
+                int parent = localParent(dirty.row);
+                ReplicaState.Link parentLink = parent == 0 ? null : link(parent);
+                if (parent != 0 && parentLink == null) {
+                    continue;
+                }
+                Todo row = copy(dirty.row, null, 0);
+                row.setParent_id(parentLink == null ? null : String.valueOf(parentLink.remoteId));
+                ready.add(dirty);
+                rows.add(row);
+            }
+            if (ready.isEmpty()) {
+                // Parent not pushed yet (or gone); these wait for a later round
+                break;
+            }
+            waiting.removeAll(ready);
+
+            BatchResult result = central.addTodos(rows);
+            for (int i = 0; i < ready.size(); i++) {
+                Dirty dirty = ready.get(i);
+                if (result.isOk(i) && rows.get(i).getId() != null) {
+                    putLink(dirty.localId, new ReplicaState.Link(Integer.parseInt(rows.get(i).getId()), 0,
+                            dirty.row.getVersion(), localParent(dirty.row)));
+                    settled += clean(dirty) ? 1 : 0;
+                } else {
+                    settled += giveUpIfFailing(dirty, result.getError(i)) ? 1 : 0;
+                }
+            }
+        }
+        return settled;
+    }
+
+    private int pushUpdates(List<Dirty> updates) throws SQLException {
+        int settled = 0;
+        List<Dirty> ready = new ArrayList<>();
+        List<Todo> rows = new ArrayList<>();
+        for (Dirty dirty : updates) {
+            int remoteVersion = dirty.link.remoteVersion;
+            int parent = localParent(dirty.row);
+            if (parent != dirty.link.localParent) {
+                ReplicaState.Link parentLink = parent == 0 ? null : link(parent);
+                if (parent != 0 && parentLink == null) {
+                    continue;
+                }
+                Todo moved = copy(dirty.row, String.valueOf(dirty.link.remoteId), remoteVersion);
+                try {
+                    central.moveTodo(moved, parentLink == null ? null : String.valueOf(parentLink.remoteId));
+                    remoteVersion = moved.getVersion();
+                } catch (TodoConflictException e) {
+                    settled += resolveConflict(dirty, e.getCurrent()) ? 1 : 0;
+                    continue;
+                }
+            }
+            ready.add(dirty);
+            rows.add(copy(dirty.row, String.valueOf(dirty.link.remoteId), remoteVersion));
+        }
+        if (ready.isEmpty()) {
+            return settled;
+        }
+
+        BatchResult result = central.updateTodos(rows);
+        for (int i = 0; i < ready.size(); i++) {
+            Dirty dirty = ready.get(i);
+            BatchResult.Status status = result.getStatus(i);
+            if (status == BatchResult.Status.OK) {
+                putLink(dirty.localId, new ReplicaState.Link(dirty.link.remoteId, rows.get(i).getVersion(),
+                        dirty.row.getVersion(), localParent(dirty.row)));
+                settled += clean(dirty) ? 1 : 0;
+            } else if (status == BatchResult.Status.CONFLICT) {
+                settled += resolveConflict(dirty, central.getTodoById(String.valueOf(dirty.link.remoteId))) ? 1 : 0;
+            } else if (status == BatchResult.Status.NOT_FOUND) {
+                settled += resolveConflict(dirty, null) ? 1 : 0;
+            } else {
+                settled += giveUpIfFailing(dirty, result.getError(i)) ? 1 : 0;
+            }
+        }
+        return settled;
+    }
+
+    private int pushDeletes(List<Dirty> deletes) throws SQLException {
+        int settled = 0;
+        List<Dirty> ready = new ArrayList<>();
+        List<Todo> rows = new ArrayList<>();
+        for (Dirty dirty : deletes) {
+            // Sub-tasks of a todo deleted here go with it on the central side too
+            int parent = dirty.link.localParent;
+            if (parent != 0 && link(parent) != null && local.getTodoById(String.valueOf(parent)) == null) {
+                removeLink(dirty.localId);
+                settled += clean(dirty) ? 1 : 0;
+                continue;
+            }
+            ready.add(dirty);
+            rows.add(new Todo(String.valueOf(dirty.link.remoteId), null, false));
+            rows.get(rows.size() - 1).setVersion(dirty.link.remoteVersion);
+        }
+        if (ready.isEmpty()) {
+            return settled;
+        }
+
+        BatchResult result = central.deleteTodos(rows);
+        for (int i = 0; i < ready.size(); i++) {
+            Dirty dirty = ready.get(i);
+            BatchResult.Status status = result.getStatus(i);
+            if (status == BatchResult.Status.OK || status == BatchResult.Status.NOT_FOUND) {
+                removeLink(dirty.localId);
+                settled += clean(dirty) ? 1 : 0;
+            } else if (status == BatchResult.Status.CONFLICT) {
+                settled += resolveConflict(dirty, central.getTodoById(String.valueOf(dirty.link.remoteId))) ? 1 : 0;
+            } else {
+                settled += giveUpIfFailing(dirty, result.getError(i)) ? 1 : 0;
+            }
+        }
+        return settled;
+    }
+
+    // 'theirs' is the central row now, or null if it was deleted there. Returns whether settled.
+    private boolean resolveConflict(Dirty dirty, Todo theirs) throws SQLException {
+        conflictStats.record(0, 1, 0);
+        String remoteId = String.valueOf(dirty.link.remoteId);
+        if (theirs == null) {
+            // Edited here, deleted there: the delete wins
+            if (dirty.row != null) {
+                deleteLocally(dirty.localId);
+                report(dirty.row, "deleted by someone else; local changes discarded");
+            } else {
+                removeLink(dirty.localId);
+            }
+            return clean(dirty);
+        }
+        if (dirty.row == null) {
+            // Deleted here, edited there: the edit wins and the todo comes back with its sub-tasks
+            removeLink(dirty.localId);
+            for (Todo row : central.getSubtree(remoteId)) {
+                applyPulled(row);
+            }
+            report(theirs, "changed by someone else; it was restored");
+            return clean(dirty);
+        }
+        if (dirty.row.getUpdated_at().isAfter(theirs.getUpdated_at())) {
+            // Ours is newer: write it over theirs (the parent stays as it is centrally)
+            Todo ours = copy(dirty.row, remoteId, theirs.getVersion());
+            try {
+                central.updateTodo(ours);
+            } catch (TodoConflictException e) {
+                // Changed yet again; next round
+                return false;
+            }
+            putLink(dirty.localId, new ReplicaState.Link(dirty.link.remoteId, ours.getVersion(),
+                    dirty.row.getVersion(), dirty.link.localParent));
+            report(theirs, "overwritten by a newer local edit");
+        } else {
+            // Theirs is newer: take it
+            if (!overwriteLocal(dirty.localId, dirty.row, theirs)) {
+                return false;
+            }
+            report(dirty.row, "local edit replaced by a newer one from someone else");
+        }
+        return clean(dirty);
+    }
+
+    private boolean giveUpIfFailing(Dirty dirty, String error) throws SQLException {
+        int attempts = failedAttempts.merge(dirty.localId, 1, Integer::sum);
+        if (attempts < MAX_ATTEMPTS) {
+            return false;
+        }
+        failedAttempts.remove(dirty.localId);
+        report(dirty.row != null ? dirty.row : new Todo(String.valueOf(dirty.localId), null, false),
+                "could not be synced: " + error);
+        return clean(dirty);
+    }
+
+    // ===== PULL =====
+    private void pull() throws SQLException {
+        long start = System.nanoTime();
+        long sequence;
+        long updatedMillis;
+        int id;
+        synchronized (state) {
+            sequence = state.getPulledSequence();
+            updatedMillis = state.getPulledUpdatedMillis();
+            id = state.getPulledId();
+        }
+        int pulled = sequence >= 0 ? pullChanges(sequence, updatedMillis, id) : pullRows(updatedMillis, id);
+        pullStats.record(System.nanoTime() - start, pulled, 0);
+    }
+
+    // Keyset walk over (updated_at, id) from the last position, less PULL_OVERLAP_MS after the first pull
+    private int pullRows(long updatedMillis, int id) throws SQLException {
+        long sequence = latestChangeSequence();
+        boolean first = updatedMillis == Long.MIN_VALUE;
+        LocalDateTime from = first ? EPOCH : EpochMillis.fromMillis(updatedMillis - PULL_OVERLAP_MS);
+        String afterId = null;
+        int pulled = 0;
+        while (true) {
+            List<Todo> rows = central.getTodosUpdatedAfter(from, afterId, batchSize);
+            for (Todo row : rows) {
+                applyPulled(row);
+            }
+            pulled += rows.size();
+            if (!rows.isEmpty()) {
+                Todo last = rows.get(rows.size() - 1);
+                from = last.getUpdated_at();
+                afterId = last.getId();
+                if (first || EpochMillis.toMillis(from) > updatedMillis) {
+                    updatedMillis = EpochMillis.toMillis(from);
+                    id = Integer.parseInt(afterId);
+                }
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        setCursor(updatedMillis == Long.MIN_VALUE ? EpochMillis.toMillis(EPOCH) : updatedMillis, id, sequence);
+        return pulled;
+    }
+
+    // Follows the change log from the last sequence read
+    private int pullChanges(long sequence, long updatedMillis, int id) throws SQLException {
+        int pulled = 0;
+        long cursor = sequence;
+        while (true) {
+            List<TodoChange> changes = central.getChangesSince(cursor, batchSize);
+            long contiguous = cursor;
+            long highest = cursor;
+            for (TodoChange change : changes) {
+                if (change.isDeleted()) {
+                    applyPulledDelete(Integer.parseInt(change.getTodoId()));
+                } else {
+                    applyPulled(change.getRow());
+                }
+                if (change.getSequence() == contiguous + 1) {
+                    contiguous = change.getSequence();
+                }
+                highest = Math.max(highest, change.getSequence());
+            }
+            pulled += changes.size();
+            if (contiguous < highest) {
+                // A hole: re-read from it next round (applying a change twice is a no-op),
+                // unless it has stayed open too long to be an uncommitted transaction
+                long now = System.currentTimeMillis();
+                if (gapSeenAt == 0) {
+                    gapSeenAt = now;
+                } else if (now - gapSeenAt >= GAP_TIMEOUT_MS) {
+                    contiguous = highest;
+                    gapSeenAt = 0;
+                }
+                cursor = contiguous;
+                break;
+            }
+            gapSeenAt = 0;
+            cursor = contiguous;
+            if (changes.size() < batchSize) {
+                break;
+            }
+        }
+        if (cursor != sequence) {
+            setCursor(updatedMillis, id, cursor);
+        }
+        return pulled;
+    }
+
+    // -1 when the central store keeps no change log, so pulls stay on updated_at
+    private long latestChangeSequence() {
+        if (!central.supportsChangeFeed()) {
+            return -1;
+        }
+        try {
+            return central.getLatestChangeSequence();
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    // Inserts or updates the local copy of a central row, unless it has local edits (the
+    // next push settles those) or the local copy already has this version
+    private void applyPulled(Todo theirs) throws SQLException {
+        int remoteId = Integer.parseInt(theirs.getId());
+        int localId = localId(remoteId);
+        if (localId != 0) {
+            ReplicaState.Link link = link(localId);
+            if (link.remoteVersion == theirs.getVersion() || isDirty(localId)) {
+                return;
+            }
+            Todo mine = local.getTodoById(String.valueOf(localId));
+            if (mine != null) {
+                if (overwriteLocal(localId, mine, theirs)) {
+                    recordApplied(localId, TodoChange.Type.UPDATE);
+                }
+                return;
+            }
+            removeLink(localId);
+        }
+
+        Integer parent = pulledParent(theirs, 0);
+        if (parent == null) {
+            // Its parent is gone centrally, so this row is about to go as well
+            return;
+        }
+        Todo copy = copy(theirs, null, 0);
+        copy.setParent_id(parent == 0 ? null : String.valueOf(parent));
+        BatchResult result = local.importTodos(Collections.singletonList(copy));
+        if (!result.isOk(0)) {
+            throw new SQLException("Failed to store pulled todo " + remoteId + ": " + result.getError(0));
+        }
+        int newId = Integer.parseInt(copy.getId());
+        putLink(newId, new ReplicaState.Link(remoteId, theirs.getVersion(), copy.getVersion(), parent));
+        recordApplied(newId, TodoChange.Type.INSERT);
+    }
+
+    private void applyPulledDelete(int remoteId) throws SQLException {
+        int localId = localId(remoteId);
+        if (localId == 0) {
+            return;
+        }
+        Todo mine = local.getTodoById(String.valueOf(localId));
+        if (mine != null && isDirty(localId)) {
+            conflictStats.record(0, 1, 0);
+            report(mine, "deleted by someone else; local changes discarded");
+        }
+        deleteLocally(localId);
+    }
+
+    // Local id of the pulled row's parent, 0 at the top level, null if the parent no longer
+    // exists. A parent not pulled yet is fetched first.
+    private Integer pulledParent(Todo theirs, int depth) throws SQLException {
+        if (theirs.getParent_id() == null) {
+            return 0;
+        }
+        int remoteParent = Integer.parseInt(theirs.getParent_id());
+        int localParent = localId(remoteParent);
+        if (localParent != 0 && local.getTodoById(String.valueOf(localParent)) != null) {
+            return localParent;
+        }
+        if (depth > 1_000) {
+            return null;
+        }
+        Todo parent = central.getTodoById(theirs.getParent_id());
+        if (parent == null || pulledParent(parent, depth + 1) == null) {
+            return null;
+        }
+        applyPulled(parent);
+        localParent = localId(remoteParent);
+        return localParent != 0 ? localParent : null;
+    }
+
+    // Makes the local row match the central one. False if it was edited locally meanwhile.
+    private boolean overwriteLocal(int localId, Todo mine, Todo theirs) throws SQLException {
+        Integer parent = pulledParent(theirs, 0);
+        if (parent == null) {
+            return false;
+        }
+        Todo updated = copy(theirs, String.valueOf(localId), mine.getVersion());
+        try {
+            if (parent != localParent(mine)) {
+                Todo moved = copy(mine, String.valueOf(localId), mine.getVersion());
+                local.moveTodo(moved, parent == 0 ? null : String.valueOf(parent));
+                updated.setVersion(moved.getVersion());
+            }
+            local.updateTodo(updated);
+        } catch (TodoConflictException e) {
+            return false;
+        }
+        putLink(localId, new ReplicaState.Link(Integer.parseInt(theirs.getId()), theirs.getVersion(),
+                updated.getVersion(), parent));
+        return true;
+    }
+
+    // Removes the local row and its sub-tasks, and their links
+    private void deleteLocally(int localId) throws SQLException {
+        List<Todo> subtree = local.getSubtree(String.valueOf(localId));
+        local.deleteTodo(String.valueOf(localId));
+        removeLink(localId);
+        recordApplied(localId, TodoChange.Type.DELETE);
+        for (Todo todo : subtree) {
+            int id = Integer.parseInt(todo.getId());
+            if (id != localId) {
+                removeLink(id);
+                recordApplied(id, TodoChange.Type.DELETE);
+            }
+        }
+    }
+
+    // ===== HELPERS =====
+    private void recordApplied(int localId, TodoChange.Type type) throws SQLException {
+        Todo row = type == TodoChange.Type.DELETE ? null : local.getTodoById(String.valueOf(localId));
+        synchronized (state) {
+            appliedChanges.addLast(new TodoChange(++appliedSequence, String.valueOf(localId), type, row));
+            if (appliedChanges.size() > APPLIED_CHANGES_KEPT) {
+                appliedChanges.removeFirst();
+            }
+        }
+    }
+
+    private void report(Todo discarded, String resolution) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onConflict(discarded, resolution);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private BatchResult markAdded(List<Todo> todos, BatchResult result) throws SQLException {
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < todos.size(); i++) {
+            if (result.isOk(i) && todos.get(i).getId() != null) {
+                added.add(todos.get(i).getId());
+            }
+        }
+        markDirty(added);
+        return result;
+    }
+
+    // A deleted todo takes its sub-tasks along; their links must go too
+    private void markSubtrees(Collection<String> ids) throws SQLException {
+        List<String> all = new ArrayList<>(ids);
+        for (String id : ids) {
+            for (Todo todo : local.getSubtree(id)) {
+                if (!todo.getId().equals(id)) {
+                    all.add(todo.getId());
+                }
+            }
+        }
+        markDirty(all);
+    }
+
+    private void markDirty(Collection<String> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (state) {
+            try {
+                for (String id : ids) {
+                    state.markDirty(Integer.parseInt(id));
+                }
+            } catch (NumberFormatException e) {
+                throw new SQLException("Invalid todo id: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new SQLException("Failed to record local change: " + e.getMessage(), e);
+            }
+            if (state.getDirtyCount() >= batchSize) {
+                state.notifyAll();
+            }
+        }
+    }
+
+    private boolean clean(Dirty dirty) throws SQLException {
+        synchronized (state) {
+            try {
+                return state.clean(dirty.localId, dirty.marks);
+            } catch (IOException e) {
+                throw new SQLException("Failed to update replica state: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean isDirty(int localId) {
+        synchronized (state) {
+            return state.isDirty(localId);
+        }
+    }
+
+    private int dirtyMarks(int localId) {
+        synchronized (state) {
+            for (int[] entry : state.dirtyIds(Integer.MAX_VALUE)) {
+                if (entry[0] == localId) {
+                    return entry[1];
+                }
+            }
+            return 0;
+        }
+    }
+
+    private ReplicaState.Link link(int localId) {
+        synchronized (state) {
+            return state.link(localId);
+        }
+    }
+
+    private int localId(int remoteId) {
+        synchronized (state) {
+            return state.localId(remoteId);
+        }
+    }
+
+    private void putLink(int localId, ReplicaState.Link link) throws SQLException {
+        synchronized (state) {
+            try {
+                state.putLink(localId, link);
+            } catch (IOException e) {
+                throw new SQLException("Failed to update replica state: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void removeLink(int localId) throws SQLException {
+        synchronized (state) {
+            try {
+                state.removeLink(localId);
+            } catch (IOException e) {
+                throw new SQLException("Failed to update replica state: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void setCursor(long updatedMillis, int id, long sequence) throws SQLException {
+        synchronized (state) {
+            try {
+                state.setCursor(updatedMillis, id, sequence);
+            } catch (IOException e) {
+                throw new SQLException("Failed to update replica state: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static int localParent(Todo row) {
+        return row == null || row.getParent_id() == null ? 0 : Integer.parseInt(row.getParent_id());
+    }
+
+    private static List<String> ids(List<Todo> todos) {
+        List<String> ids = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            ids.add(todo.getId());
+        }
+        return ids;
+    }
+
+    // The row's fields under another id and version; the parent is left to the caller
+    private static Todo copy(Todo todo, String id, int version) {
+        Todo copy = new Todo(id, todo.getTitle(), todo.getDescription(), todo.isCompleted(),
+                todo.getCreated_at(), todo.getUpdated_at());
+        copy.setVersion(version);
+        copy.setParent_id(todo.getParent_id());
+        copy.setDue_at(todo.getDue_at());
+        copy.setRecurrence(todo.getRecurrence());
+        return copy;
+    }
+}
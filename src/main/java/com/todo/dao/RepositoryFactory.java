@@ -0,0 +1,83 @@
+package com.todo.dao;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+// Picks the storage engine at startup: -Dtodo.storage=mysql (default), embedded, or
+// replica (an embedded copy synced with MySQL in the background, see ReplicaTodoRepository).
+// The embedded store lives in -Dtodo.embedded.dir, ~/.todo-app by default; a replica
+// keeps its copy in the replica directory under it.
+// Calls are timed through InstrumentedTodoRepository unless -Dtodo.metrics.enabled=false.
+// -Dtodo.writeBehind=true puts a WriteBehindTodoRepository in front, journaling to
+// -Dtodo.writeBehind.journal (a file next to the embedded store by default).
+public class RepositoryFactory {
+    public static final String STORAGE_MYSQL = "mysql";
+    public static final String STORAGE_EMBEDDED = "embedded";
+    public static final String STORAGE_REPLICA = "replica";
+
+    public static String configuredStorage() {
+        return System.getProperty("todo.storage", STORAGE_MYSQL).trim().toLowerCase();
+    }
+
+    public static boolean usesMySql() {
+        return STORAGE_MYSQL.equals(configuredStorage());
+    }
+
+    public static Path embeddedDirectory() {
+        return Paths.get(System.getProperty("todo.embedded.dir",
+                Paths.get(System.getProperty("user.home"), ".todo-app").toString()));
+    }
+
+    public static TodoRepository create() throws SQLException {
+        if (STORAGE_REPLICA.equals(configuredStorage())) {
+            // Local writes are already deferred, so no write-behind; the replica stays
+            // outermost so the GUI can subscribe to its sync status. Central calls show up
+            // as replica.push / replica.pull rather than mixed into the dao.* stats.
+            Path directory = embeddedDirectory().resolve("replica");
+            return new ReplicaTodoRepository(instrumented(new EmbeddedTodoRepository(directory)),
+                    new TodoappDAOImpl(), directory.resolve("replica.state"), () -> {
+                        new TodoSchema().migrate();
+                        return null;
+                    });
+        }
+        // Inside write-behind, so the metrics show the writes that actually reach storage
+        TodoRepository repository = instrumented(createEngine());
+        if (Boolean.getBoolean("todo.writeBehind")) {
+            repository = new WriteBehindTodoRepository(repository, writeBehindJournal());
+        }
+        return repository;
+    }
+
+    private static TodoRepository instrumented(TodoRepository repository) {
+        boolean instrumented = Boolean.parseBoolean(System.getProperty("todo.metrics.enabled", "true"));
+        return instrumented ? new InstrumentedTodoRepository(repository) : repository;
+    }
+
+    // One journal per storage engine, so switching engines never replays one's changes into the other
+    public static Path writeBehindJournal() {
+        String journal = System.getProperty("todo.writeBehind.journal");
+        if (journal != null) {
+            return Paths.get(journal);
+        }
+        return embeddedDirectory().resolve("write-behind-" + configuredStorage() + ".journal");
+    }
+
+    // Reminder progress of each storage engine, like the write-behind journal
+    public static Path reminderState() {
+        return embeddedDirectory().resolve("reminders-" + configuredStorage() + ".state");
+    }
+
+    private static TodoRepository createEngine() throws SQLException {
+        String storage = configuredStorage();
+        switch (storage) {
+            case STORAGE_MYSQL:
+                return new TodoappDAOImpl();
+            case STORAGE_EMBEDDED:
+                return new EmbeddedTodoRepository(embeddedDirectory());
+            default:
+                throw new IllegalArgumentException("Unknown todo.storage: " + storage
+                        + " (expected " + STORAGE_MYSQL + ", " + STORAGE_EMBEDDED + " or " + STORAGE_REPLICA + ")");
+        }
+    }
+}
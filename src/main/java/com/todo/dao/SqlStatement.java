@@ -0,0 +1,153 @@
+package com.todo.dao;
+
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Registry of the statements TodoappDAOImpl runs, one entry per query shape. A shape's
+// SQL text never varies, so with server-side prepared statements (useServerPrepStmts +
+// cachePrepStmts, see ConnectionPool) each pooled connection has MySQL parse it once and
+// keeps the handle: later calls only send the statement id and the parameters. Shapes
+// that depend on a TodoQuery or an IN list are registered the first time they occur,
+// named after what varies. Every execution is timed as sql.<name> in Metrics, with the
+// rows it read or changed.
+final class SqlStatement {
+    private static final ConcurrentMap<String, SqlStatement> SHAPES = new ConcurrentHashMap<>();
+    // IN lists are padded up to a power of two, so a handful of shapes covers every size
+    private static final int MIN_IN_LIST = 4;
+
+    // Reads a result set; the statement's timing covers the reading too
+    interface ResultReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private final String name;
+    private final String sql;
+    private final OperationStats stats;
+
+    private SqlStatement(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+        this.stats = Metrics.operation("sql." + name);
+    }
+
+    // The shape with this name, registered with 'sql' on first use. Names are JMX-safe
+    // words joined by '.' and '-'; one name always stands for one SQL text.
+    static SqlStatement named(String name, String sql) {
+        SqlStatement statement = SHAPES.computeIfAbsent(name, key -> new SqlStatement(key, sql));
+        if (!statement.sql.equals(sql)) {
+            throw new IllegalStateException("Statement " + name + " registered with different SQL");
+        }
+        return statement;
+    }
+
+    // Placeholders for an IN list of 'count' values, see bindInList
+    static int inListSize(int count) {
+        return Math.max(MIN_IN_LIST, Integer.highestOneBit(Math.max(1, count - 1)) << 1);
+    }
+
+    // "(?, ?, ...)" with inListSize(count) placeholders
+    static String inList(int count) {
+        int size = inListSize(count);
+        StringBuilder sql = new StringBuilder(size * 3).append('(');
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    // Binds the ids from 'firstIndex' on, repeating the last one into the padding
+    // (a repeated IN value matches nothing extra); returns the next free index
+    static int bindInList(PreparedStatement stmt, int firstIndex, List<String> ids) throws SQLException {
+        int size = inListSize(ids.size());
+        for (int i = 0; i < size; i++) {
+            stmt.setInt(firstIndex + i, Integer.parseInt(ids.get(Math.min(i, ids.size() - 1))));
+        }
+        return firstIndex + size;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    // ===== EXECUTION =====
+    PreparedStatement prepare(Connection conn) throws SQLException {
+        return conn.prepareStatement(sql);
+    }
+
+    PreparedStatement prepareReturningKeys(Connection conn) throws SQLException {
+        return conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    // Forward-only and read-only, for streaming large results
+    PreparedStatement prepareForStreaming(Connection conn) throws SQLException {
+        return conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    <T> T query(PreparedStatement stmt, ResultReader<T> reader) throws SQLException {
+        long start = System.nanoTime();
+        try (ResultSet rs = stmt.executeQuery()) {
+            T result = reader.read(rs);
+            stats.record(System.nanoTime() - start, 0, 0);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    // Hands each row to 'target'; returns the row count
+    int readTodos(PreparedStatement stmt, TodoRowMapper.Target target) throws SQLException {
+        long start = System.nanoTime();
+        try (ResultSet rs = stmt.executeQuery()) {
+            int rows = TodoRowMapper.of(rs).readAll(target);
+            stats.record(System.nanoTime() - start, rows, 0);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    int update(PreparedStatement stmt) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int rows = stmt.executeUpdate();
+            stats.record(System.nanoTime() - start, rows, 0);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    // One record per batch, with the number of statements in it as the row count
+    int[] batch(PreparedStatement stmt, int size) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int[] counts = stmt.executeBatch();
+            stats.record(System.nanoTime() - start, size, 0);
+            return counts;
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,361 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-memory, write-through cache of todos in front of a TodoRepository.
+// Writes go to MySQL first and are then applied locally, so a single change never
+// costs a full reload. refresh() pulls only rows whose updated_at moved past the
+// last sync watermark; applyChanges() takes pushed changes from a ChangeFeed instead.
+// Thread-safe; DAO calls are made outside the lock.
+public class TodoCache {
+    // Told about every row the cache takes in and every todo deleted, whatever the source
+    // (own writes, reads, refreshes, the feed); not about LRU evictions, which say nothing
+    // about the database. Called with the cache locked, so keep it short.
+    public interface Listener {
+        void onStored(Todo todo);
+
+        void onDeleted(String id);
+    }
+
+    public static final int DEFAULT_MAX_SIZE = Integer.getInteger("todo.cache.maxSize", 10_000);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final TodoRepository dao;
+    private final int maxSize;
+
+    // id -> todo in access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, Todo> byId;
+    // Same todos in listing order (created_at DESC, id DESC)
+    private final TreeSet<Todo> ordered = new TreeSet<>(Todo.NEWEST_FIRST);
+    // Locally deleted ids -> refresh sequence at delete time. Keeps a read that raced
+    // with the delete from resurrecting the row (auto-increment ids are never reused).
+    private final Map<String, Long> tombstones = new HashMap<>();
+    // Only one delta refresh runs at a time so tombstones can be pruned safely
+    private final Object refreshLock = new Object();
+    private long refreshSequence;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private LocalDateTime watermark;
+
+    public TodoCache(TodoRepository dao) {
+        this(dao, DEFAULT_MAX_SIZE);
+    }
+
+    public TodoCache(TodoRepository dao, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.dao = dao;
+        this.maxSize = maxSize;
+        this.byId = new LinkedHashMap<String, Todo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Todo> eldest) {
+                if (size() > TodoCache.this.maxSize) {
+                    ordered.remove(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public TodoRepository getRepository() {
+        return dao;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ===== READS =====
+    // Pages always come from the database (the cache cannot know whether it holds a
+    // complete range) but every row read is cached for later lookups
+    public List<Todo> getTodosPage(String filter, Todo after, int pageSize) throws SQLException {
+        return getTodosPage(TodoQuery.fromFilter(filter), after, pageSize);
+    }
+
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        LocalDateTime syncStart = getWatermark() == null ? dao.getLatestUpdatedAt() : null;
+        List<Todo> page = dao.getTodosPage(query, after, pageSize);
+        synchronized (this) {
+            if (watermark == null) {
+                watermark = syncStart != null ? syncStart : EPOCH;
+            }
+            for (Todo todo : page) {
+                if (!tombstones.containsKey(todo.getId())) {
+                    put(todo);
+                }
+            }
+        }
+        return page;
+    }
+
+    public synchronized Todo get(String id) {
+        return byId.get(id);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    // Cached todos in listing order
+    public synchronized List<Todo> snapshot() {
+        return new ArrayList<>(ordered);
+    }
+
+    // ===== WRITE-THROUGH =====
+    // Inserts the todo and returns the stored row, with the id and timestamps assigned by the database
+    public Todo addTodo(Todo todo) throws SQLException {
+        dao.addTodo(todo);
+        Todo stored = dao.getTodoById(todo.getId());
+        if (stored == null) {
+            stored = todo;
+        }
+        synchronized (this) {
+            put(stored);
+        }
+        return stored;
+    }
+
+    // On a version conflict the cache takes the row as it is now before rethrowing,
+    // so the caller can offer a merge against fresh data
+    public void updateTodo(Todo todo) throws SQLException {
+        try {
+            dao.updateTodo(todo);
+        } catch (TodoConflictException e) {
+            synchronized (this) {
+                if (e.isDeleted()) {
+                    remove(e.getTodoId());
+                } else {
+                    put(e.getCurrent());
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            put(todo);
+        }
+    }
+
+    public void deleteTodo(String id) throws SQLException {
+        dao.deleteTodo(id);
+        synchronized (this) {
+            forget(id);
+        }
+    }
+
+    // Deletes only if nobody changed the todo since it was read
+    public void deleteTodo(Todo todo) throws SQLException {
+        try {
+            dao.deleteTodo(todo);
+        } catch (TodoConflictException e) {
+            synchronized (this) {
+                put(e.getCurrent());
+            }
+            throw e;
+        }
+        synchronized (this) {
+            forget(todo.getId());
+        }
+    }
+
+    // Takes the moved row as stored, so the cached parent (and with it delete cascades) stays right
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        dao.moveTodo(todo, newParentId);
+        Todo stored = dao.getTodoById(todo.getId());
+        if (stored != null) {
+            synchronized (this) {
+                if (!tombstones.containsKey(stored.getId())) {
+                    put(stored);
+                }
+            }
+        }
+    }
+
+    // Batch variants apply only the rows the database accepted. Inserted rows keep their
+    // client-side timestamps until the next refresh picks up the stored values.
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = dao.addTodos(todos);
+        synchronized (this) {
+            for (int i = 0; i < todos.size(); i++) {
+                if (result.isOk(i) && todos.get(i).getId() != null) {
+                    put(todos.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = dao.updateTodos(todos);
+        synchronized (this) {
+            for (int i = 0; i < todos.size(); i++) {
+                if (result.isOk(i)) {
+                    put(todos.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        List<String> idList = new ArrayList<>(ids);
+        BatchResult result = dao.deleteTodos(idList);
+        synchronized (this) {
+            for (int i = 0; i < idList.size(); i++) {
+                if (result.getStatus(i) != BatchResult.Status.FAILED) {
+                    forget(idList.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Versioned delete; CONFLICT rows stay cached until a refresh or the feed brings them up to date
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = dao.deleteTodos(todos);
+        synchronized (this) {
+            for (int i = 0; i < todos.size(); i++) {
+                BatchResult.Status status = result.getStatus(i);
+                if (status == BatchResult.Status.OK || status == BatchResult.Status.NOT_FOUND) {
+                    forget(todos.get(i).getId());
+                }
+            }
+        }
+        return result;
+    }
+
+    // ===== DELTA REFRESH =====
+    // Pulls rows changed since the last sync and applies them. Returns the changed rows
+    // in listing order so the caller can patch its view. Rows deleted by other clients
+    // are not visible here; the change feed (applyChanges) or the next full load drops them.
+    public List<Todo> refresh() throws SQLException {
+        synchronized (refreshLock) {
+            LocalDateTime since;
+            long sequence;
+            synchronized (this) {
+                since = watermark;
+                sequence = ++refreshSequence;
+            }
+            if (since == null) {
+                // Nothing loaded yet: just start tracking from now
+                LocalDateTime latest = dao.getLatestUpdatedAt();
+                synchronized (this) {
+                    watermark = latest != null ? latest : EPOCH;
+                }
+                return new ArrayList<>();
+            }
+
+            // >= rather than > so rows sharing the watermark timestamp are not missed; re-applying is harmless
+            List<Todo> changed = dao.getTodosUpdatedSince(since);
+
+            List<Todo> applied = new ArrayList<>(changed.size());
+            synchronized (this) {
+                for (Todo todo : changed) {
+                    if (todo.getUpdated_at().isAfter(watermark)) {
+                        watermark = todo.getUpdated_at();
+                    }
+                    if (tombstones.containsKey(todo.getId())) {
+                        continue;
+                    }
+                    put(todo);
+                    applied.add(todo);
+                }
+                // Deletes that happened before this refresh started are already invisible to the database
+                tombstones.values().removeIf(deletedAt -> deletedAt < sequence);
+            }
+            return applied;
+        }
+    }
+
+    // Applies changes from a ChangeFeed. Each change carries the row as it is now, so
+    // applying an older change after a newer one still ends at the current state.
+    // Returns the changes that affected the cache, for the caller to patch its view.
+    public synchronized List<TodoChange> applyChanges(List<TodoChange> changes) {
+        List<TodoChange> applied = new ArrayList<>(changes.size());
+        for (TodoChange change : changes) {
+            if (change.isDeleted()) {
+                remove(change.getTodoId());
+                applied.add(change);
+            } else if (!tombstones.containsKey(change.getTodoId())) {
+                // The watermark stays put: the feed may still be waiting on earlier changes
+                put(change.getRow());
+                applied.add(change);
+            }
+        }
+        return applied;
+    }
+
+    public synchronized LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    // Drops everything, e.g. after a reconnect
+    public synchronized void clear() {
+        byId.clear();
+        ordered.clear();
+        tombstones.clear();
+        watermark = null;
+    }
+
+    // ===== INTERNALS =====
+    private void put(Todo todo) {
+        Todo previous = byId.put(todo.getId(), todo);
+        if (previous != null) {
+            ordered.remove(previous);
+        }
+        ordered.add(todo);
+        for (Listener listener : listeners) {
+            listener.onStored(todo);
+        }
+    }
+
+    private void remove(String id) {
+        Todo previous = byId.remove(id);
+        if (previous != null) {
+            ordered.remove(previous);
+        }
+        for (Listener listener : listeners) {
+            listener.onDeleted(id);
+        }
+    }
+
+    // Local delete: the database removed the todo's sub-tasks with it, so cached ones go too
+    private void forget(String id) {
+        Set<String> deleted = new HashSet<>();
+        deleted.add(id);
+        List<String> level = Collections.singletonList(id);
+        while (!level.isEmpty()) {
+            for (String deletedId : level) {
+                remove(deletedId);
+                tombstones.put(deletedId, refreshSequence);
+            }
+            List<String> next = new ArrayList<>();
+            for (Todo cached : byId.values()) {
+                if (cached.getParent_id() != null && deleted.contains(cached.getParent_id())) {
+                    next.add(cached.getId());
+                }
+            }
+            deleted.addAll(next);
+            level = next;
+        }
+    }
+}
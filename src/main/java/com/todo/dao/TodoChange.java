@@ -0,0 +1,57 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+
+// One entry of the change feed: what happened to which todo, and at which position
+// (sequence) in the feed. 'row' is the todo as it is now, or null once it is deleted.
+public class TodoChange {
+    public enum Type {
+        INSERT, UPDATE, DELETE;
+
+        static Type fromCode(String code) {
+            switch (code) {
+                case "I":
+                    return INSERT;
+                case "U":
+                    return UPDATE;
+                case "D":
+                    return DELETE;
+                default:
+                    throw new IllegalArgumentException("Unknown change type: " + code);
+            }
+        }
+    }
+
+    private final long sequence;
+    private final String todoId;
+    private final Type type;
+    private final Todo row;
+
+    public TodoChange(long sequence, String todoId, Type type, Todo row) {
+        this.sequence = sequence;
+        this.todoId = todoId;
+        this.type = type;
+        this.row = row;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getTodoId() {
+        return todoId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Todo getRow() {
+        return row;
+    }
+
+    // A row that no longer exists counts as deleted, whatever the recorded type
+    public boolean isDeleted() {
+        return type == Type.DELETE || row == null;
+    }
+}
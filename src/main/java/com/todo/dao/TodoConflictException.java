@@ -0,0 +1,33 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+
+import java.sql.SQLException;
+
+// A versioned write found the row changed (or deleted) by another client since it was read.
+// Carries the row as it is now so the caller can merge or retry without another query.
+public class TodoConflictException extends SQLException {
+    private final String todoId;
+    private final Todo current;
+
+    public TodoConflictException(String todoId, Todo current) {
+        super(current == null
+                ? "Todo " + todoId + " was deleted by someone else"
+                : "Todo " + todoId + " was changed by someone else");
+        this.todoId = todoId;
+        this.current = current;
+    }
+
+    public String getTodoId() {
+        return todoId;
+    }
+
+    // Null when the todo no longer exists
+    public Todo getCurrent() {
+        return current;
+    }
+
+    public boolean isDeleted() {
+        return current == null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+
+// Streams todos to a file without materializing them: rows come off the repository's
+// forward-only cursor (streamTodos), are encoded into a direct buffer and written with
+// one FileChannel write per buffer. A cancelled or failed export deletes the partial file.
+public class TodoExporter {
+    public static final int BUFFER_SIZE = Integer.getInteger("todo.export.bufferBytes", 1 << 20);
+    // Progress is reported at most this often
+    private static final long PROGRESS_INTERVAL_NANOS = 200_000_000L;
+
+    private final TodoRepository repository;
+    private final OperationStats stats = Metrics.operation("export");
+
+    public TodoExporter(TodoRepository repository) {
+        this.repository = repository;
+    }
+
+    public TransferResult export(TodoQuery query, Path file, TodoFileFormat format, TransferListener listener)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        Writer writer = null;
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer = new Writer(channel, format, listener, start);
+            writer.write(format.header());
+            Writer rows = writer;
+            try {
+                repository.streamTodos(query, rows::writeRow);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (CancellationException e) {
+                // Stopped by the listener
+            }
+            writer.flush();
+            complete = !writer.cancelled;
+        } catch (SQLException | IOException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        stats.record(elapsed, writer.rows, writer.bytes);
+        listener.onProgress(writer.rows, writer.bytes);
+        return new TransferResult(writer.rows, 0, writer.bytes, elapsed, writer.cancelled, null);
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final TodoFileFormat format;
+        private final TransferListener listener;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long rows;
+        private long bytes;
+        private long lastProgress;
+        private boolean cancelled;
+
+        Writer(FileChannel channel, TodoFileFormat format, TransferListener listener, long start) {
+            this.channel = channel;
+            this.format = format;
+            this.listener = listener;
+            this.lastProgress = start;
+        }
+
+        // Called from inside streamTodos, so failures leave as unchecked exceptions
+        void writeRow(Todo todo) {
+            try {
+                write(format.encode(todo));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                listener.onProgress(rows, bytes);
+                if (listener.isCancelled()) {
+                    cancelled = true;
+                    throw new CancellationException();
+                }
+            }
+        }
+
+        void write(byte[] data) throws IOException {
+            if (data.length > buffer.remaining()) {
+                flush();
+            }
+            if (data.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(data));
+            } else {
+                buffer.put(data);
+            }
+            bytes += data.length;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.todo.dao;
+
+import com.todo.model.EpochMillis;
+import com.todo.model.Recurrence;
+import com.todo.model.Todo;
+import com.todo.util.Json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// File formats for TodoExporter / TodoImporter. Every format is a sequence of
+// self-delimiting records, so the importer can cut a file into chunks at record
+// boundaries and parse the chunks in parallel.
+//   CSV         RFC 4180 with a header line; an empty unquoted field is null, "" is empty
+//   JSON_LINES  one flat JSON object per line
+//   BINARY      "TODO" + int format version, then [int bodyLength][body] per todo
+// Timestamps are ISO-8601 local date-times in the text formats and epoch millis (UTC)
+// in the binary one. Ids are exported for reference; imported rows always get new ids.
+// due_at and recurrence were added later: files written before them (CSV without the
+// two columns, binary format version 1) still import, with neither set.
+public enum TodoFileFormat {
+    CSV(".csv") {
+        @Override
+        byte[] header() {
+            return text(String.join(",", COLUMNS) + "\n");
+        }
+
+        @Override
+        int headerLength(byte[] data, int limit) throws IOException {
+            int end = recordEnd(data, 0, limit);
+            if (end < 0 || !new String(data, 0, end, StandardCharsets.UTF_8).trim().startsWith(COLUMNS[0] + ",")) {
+                throw new IOException("Not a todo CSV file: the first line must be the header "
+                        + String.join(",", COLUMNS));
+            }
+            return end;
+        }
+
+        @Override
+        byte[] encode(Todo todo) {
+            StringBuilder line = new StringBuilder(64);
+            csvField(line, todo.getId()).append(',');
+            csvField(line, todo.getTitle()).append(',');
+            csvField(line, todo.getDescription()).append(',');
+            line.append(todo.isCompleted()).append(',');
+            csvField(line, format(todo.getCreated_at())).append(',');
+            csvField(line, format(todo.getUpdated_at())).append(',');
+            csvField(line, format(todo.getDue_at())).append(',');
+            csvField(line, todo.getRecurrence()).append('\n');
+            return text(line);
+        }
+
+        // Line breaks inside quoted fields belong to the record
+        @Override
+        int recordEnd(byte[] data, int from, int limit) {
+            boolean quoted = false;
+            for (int i = from; i < limit; i++) {
+                byte b = data[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Todo decode(byte[] data, int from, int end) {
+            String line = trimLineEnd(new String(data, from, end - from, StandardCharsets.UTF_8));
+            if (line.isEmpty()) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(COLUMNS.length);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(wasQuoted || field.length() > 0 ? field.toString() : null);
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(wasQuoted || field.length() > 0 ? field.toString() : null);
+            if (fields.size() == LEGACY_COLUMNS) {
+                fields.add(null);
+                fields.add(null);
+            }
+            if (fields.size() != COLUMNS.length) {
+                throw new IllegalArgumentException("Expected " + COLUMNS.length + " fields but found " + fields.size());
+            }
+            return todo(fields.get(1), fields.get(2), fields.get(3), fields.get(4), fields.get(5), fields.get(6),
+                    fields.get(7));
+        }
+    },
+
+    JSON_LINES(".jsonl", ".ndjson") {
+        @Override
+        byte[] encode(Todo todo) {
+            StringBuilder line = new StringBuilder(96).append('{');
+            jsonField(line, COLUMNS[0], todo.getId()).append(',');
+            jsonField(line, COLUMNS[1], todo.getTitle()).append(',');
+            jsonField(line, COLUMNS[2], todo.getDescription()).append(',');
+            line.append('"').append(COLUMNS[3]).append("\":").append(todo.isCompleted()).append(',');
+            jsonField(line, COLUMNS[4], format(todo.getCreated_at())).append(',');
+            jsonField(line, COLUMNS[5], format(todo.getUpdated_at())).append(',');
+            jsonField(line, COLUMNS[6], format(todo.getDue_at())).append(',');
+            jsonField(line, COLUMNS[7], todo.getRecurrence()).append("}\n");
+            return text(line);
+        }
+
+        // JSON strings cannot hold a raw line break, so every newline ends a record
+        @Override
+        int recordEnd(byte[] data, int from, int limit) {
+            for (int i = from; i < limit; i++) {
+                if (data[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Todo decode(byte[] data, int from, int end) {
+            String line = trimLineEnd(new String(data, from, end - from, StandardCharsets.UTF_8)).trim();
+            if (line.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> json = Json.parseObject(line);
+            return todo(text(json, COLUMNS[1]), text(json, COLUMNS[2]), text(json, COLUMNS[3]),
+                    text(json, COLUMNS[4]), text(json, COLUMNS[5]), text(json, COLUMNS[6]), text(json, COLUMNS[7]));
+        }
+    },
+
+    BINARY(".todos") {
+        @Override
+        byte[] header() {
+            return ByteBuffer.allocate(BINARY_HEADER_SIZE).putInt(BINARY_MAGIC).putInt(BINARY_VERSION).array();
+        }
+
+        @Override
+        int headerLength(byte[] data, int limit) throws IOException {
+            ByteBuffer header = ByteBuffer.wrap(data, 0, limit);
+            if (limit < BINARY_HEADER_SIZE || header.getInt() != BINARY_MAGIC) {
+                throw new IOException("Not a binary todo export");
+            }
+            int version = header.getInt();
+            if (version != BINARY_VERSION && version != 1) {
+                throw new IOException("Unsupported binary todo export version " + version);
+            }
+            return BINARY_HEADER_SIZE;
+        }
+
+        // [str id][byte completed][long created][long updated][str title][str description]
+        // [long due][str recurrence], strings as [int length][UTF-8], length -1 for null;
+        // version 1 records end after the description
+        @Override
+        byte[] encode(Todo todo) {
+            byte[] id = bytes(todo.getId());
+            byte[] title = bytes(todo.getTitle());
+            byte[] description = bytes(todo.getDescription());
+            byte[] recurrence = bytes(todo.getRecurrence());
+            int bodyLength = length(id) + 1 + 8 + 8 + length(title) + length(description) + 8 + length(recurrence);
+            ByteBuffer record = ByteBuffer.allocate(4 + bodyLength).putInt(bodyLength);
+            putString(record, id);
+            record.put((byte) (todo.isCompleted() ? 1 : 0))
+                    .putLong(EpochMillis.toMillis(todo.getCreated_at()))
+                    .putLong(EpochMillis.toMillis(todo.getUpdated_at()));
+            putString(record, title);
+            putString(record, description);
+            record.putLong(EpochMillis.toMillis(todo.getDue_at()));
+            putString(record, recurrence);
+            return record.array();
+        }
+
+        @Override
+        int recordEnd(byte[] data, int from, int limit) {
+            if (limit - from < 4) {
+                return -1;
+            }
+            int length = ByteBuffer.wrap(data, from, 4).getInt();
+            if (length < 0 || length > MAX_BINARY_RECORD) {
+                // Corrupt length: give up on the rest of the data, decode() reports it
+                return limit;
+            }
+            long end = from + 4L + length;
+            return end <= limit ? (int) end : -1;
+        }
+
+        @Override
+        Todo decode(byte[] data, int from, int end) {
+            ByteBuffer record = ByteBuffer.wrap(data, from, end - from);
+            if (record.getInt() != end - from - 4) {
+                throw new IllegalArgumentException("Corrupt record length");
+            }
+            getString(record);
+            boolean completed = record.get() != 0;
+            LocalDateTime created = EpochMillis.fromMillis(record.getLong());
+            LocalDateTime updated = EpochMillis.fromMillis(record.getLong());
+            String title = getString(record);
+            String description = getString(record);
+            Todo todo = new Todo(null, title, description, completed, created, updated);
+            if (record.hasRemaining()) {
+                todo.setDue_at(EpochMillis.fromMillis(record.getLong()));
+                todo.setRecurrence(getString(record));
+            }
+            return todo;
+        }
+    };
+
+    static final String[] COLUMNS = { "id", "title", "description", "completed", "created_at", "updated_at",
+            "due_at", "recurrence" };
+    // CSV exports from before due_at and recurrence
+    private static final int LEGACY_COLUMNS = 6;
+
+    private static final int BINARY_MAGIC = 0x544F444F; // "TODO"
+    private static final int BINARY_VERSION = 2;
+    private static final int BINARY_HEADER_SIZE = 8;
+    private static final int MAX_BINARY_RECORD = 64 * 1024 * 1024;
+    private static final long NULL_TIME = EpochMillis.NULL;
+
+    private final String[] extensions;
+
+    TodoFileFormat(String... extensions) {
+        this.extensions = extensions;
+    }
+
+    public String getExtension() {
+        return extensions[0];
+    }
+
+    // By file extension; null if the extension is not one of ours
+    public static TodoFileFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (TodoFileFormat format : values()) {
+            for (String extension : format.extensions) {
+                if (name.endsWith(extension)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    // ===== CODEC =====
+    // Written once at the start of the file
+    byte[] header() {
+        return new byte[0];
+    }
+
+    // Bytes to skip before the first record; 'data' holds the first 'limit' bytes of the file
+    int headerLength(byte[] data, int limit) throws IOException {
+        return 0;
+    }
+
+    abstract byte[] encode(Todo todo);
+
+    // End (exclusive) of the record starting at 'from', or -1 if it is not complete before 'limit'
+    abstract int recordEnd(byte[] data, int from, int limit);
+
+    // The todo in data[from, end), or null for a blank line. Malformed records throw
+    // IllegalArgumentException (or DateTimeParseException, a subclass).
+    abstract Todo decode(byte[] data, int from, int end);
+
+    // ===== HELPERS =====
+    private static Todo todo(String title, String description, String completed, String created, String updated,
+            String due, String recurrence) {
+        if (title == null) {
+            throw new IllegalArgumentException("Missing title");
+        }
+        Todo todo = new Todo(null, title, description, parseBoolean(completed), parse(created), parse(updated));
+        todo.setDue_at(parse(due));
+        // Recurrence.parse throws IllegalArgumentException, so a bad rule fails only its row
+        todo.setRecurrence(recurrence == null || recurrence.isEmpty() ? null : Recurrence.parse(recurrence).toString());
+        return todo;
+    }
+
+    // JSON values as the strings the CSV reader would see
+    private static String text(Map<String, Object> json, String name) {
+        Object value = json.get(name);
+        return value == null ? null : value.toString();
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (value == null || value.equalsIgnoreCase("false") || value.equals("0")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true") || value.equals("1")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Not a boolean: " + value);
+    }
+
+    private static String format(LocalDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private static LocalDateTime parse(String time) {
+        return time == null || time.isEmpty() ? null : LocalDateTime.parse(time.trim().replace(' ', 'T'));
+    }
+
+    private static String trimLineEnd(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    private static byte[] text(CharSequence text) {
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder csvField(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static StringBuilder jsonField(StringBuilder out, String name, String value) {
+        out.append('"').append(name).append("\":");
+        return Json.appendString(out, value);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length " + length);
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,234 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Loads an export back in parallel. The calling thread reads the file sequentially in
+// chunks of about -Dtodo.import.chunkBytes (1 MiB), cut at record boundaries; worker
+// threads parse each chunk and store it with one repository.importTodos call (batched
+// inserts, or LOAD DATA LOCAL INFILE when enabled on MySQL). At most two chunks per
+// worker are in flight, so memory stays bounded however large the file is.
+// Rows that fail to parse or store are counted and skipped; an SQLException from the
+// repository stops the import, since every later chunk would most likely fail too.
+// Imported rows get new ids and keep their timestamps.
+public class TodoImporter {
+    public static final int CHUNK_SIZE = Integer.getInteger("todo.import.chunkBytes", 1 << 20);
+
+    private final TodoRepository repository;
+    private final int workers;
+    private final OperationStats stats = Metrics.operation("import");
+
+    // Half the engine's concurrency: the other half stays available to the GUI meanwhile
+    public TodoImporter(TodoRepository repository) {
+        this(repository, Integer.getInteger("todo.import.threads",
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), repository.getMaxConcurrency() / 2))));
+    }
+
+    public TodoImporter(TodoRepository repository, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1");
+        }
+        this.repository = repository;
+        this.workers = workers;
+    }
+
+    public TransferResult importFile(Path file, TodoFileFormat format, TransferListener listener)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress(listener);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, daemonThreads());
+        Semaphore inFlight = new Semaphore(workers * 2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int filled = 0;
+            int position = -1;
+            boolean eof = false;
+            while (!eof && !progress.stopped()) {
+                ByteBuffer target = ByteBuffer.wrap(buffer, filled, buffer.length - filled);
+                while (target.hasRemaining() && !eof) {
+                    eof = channel.read(target) < 0;
+                }
+                filled = target.position();
+                if (position < 0) {
+                    position = format.headerLength(buffer, filled);
+                }
+
+                int end = position;
+                for (int next; (next = format.recordEnd(buffer, end, filled)) >= 0; ) {
+                    end = next;
+                }
+                if (eof) {
+                    // Text formats may omit the final line break
+                    end = filled;
+                }
+                if (end > position) {
+                    byte[] chunk = Arrays.copyOfRange(buffer, position, end);
+                    acquire(inFlight);
+                    pool.execute(() -> {
+                        try {
+                            load(chunk, format, progress);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+
+                // Carry the incomplete record over; grow when one record fills the whole buffer
+                int remainder = filled - end;
+                if (remainder == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                } else {
+                    System.arraycopy(buffer, end, buffer, 0, remainder);
+                }
+                filled = remainder;
+                position = 0;
+            }
+        } catch (IOException | RuntimeException e) {
+            progress.stop();
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        } finally {
+            pool.shutdown();
+            awaitTermination(pool);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (progress.sqlError.get() != null) {
+            stats.recordError(elapsed);
+            throw progress.sqlError.get();
+        }
+        stats.record(elapsed, progress.rows.get(), progress.bytes.get());
+        listener.onProgress(progress.rows.get(), progress.bytes.get());
+        return new TransferResult(progress.rows.get(), progress.failed.get(), progress.bytes.get(), elapsed,
+                progress.cancelled.get(), progress.firstError.get());
+    }
+
+    // Runs on a worker: parse every record of the chunk, then store them in one call
+    private void load(byte[] chunk, TodoFileFormat format, Progress progress) {
+        if (progress.stopped()) {
+            return;
+        }
+        List<Todo> todos = new ArrayList<>();
+        int position = 0;
+        while (position < chunk.length) {
+            int end = format.recordEnd(chunk, position, chunk.length);
+            if (end < 0) {
+                end = chunk.length;
+            }
+            try {
+                Todo todo = format.decode(chunk, position, end);
+                if (todo != null) {
+                    todos.add(todo);
+                }
+            } catch (RuntimeException e) {
+                progress.fail(1, "Bad record: " + e.getMessage());
+            }
+            position = end;
+        }
+
+        if (todos.isEmpty()) {
+            progress.done(0, chunk.length);
+            return;
+        }
+        try {
+            BatchResult result = repository.importTodos(todos);
+            int failed = result.size() - result.getSucceededCount();
+            if (failed > 0) {
+                progress.fail(failed, result.getFirstError());
+            }
+            progress.done(result.getSucceededCount(), chunk.length);
+        } catch (SQLException e) {
+            progress.fail(todos.size(), e.getMessage());
+            progress.sqlError.compareAndSet(null, e);
+            progress.stop();
+        } catch (RuntimeException e) {
+            progress.fail(todos.size(), e.toString());
+            progress.sqlError.compareAndSet(null, new SQLException("Import failed: " + e, e));
+            progress.stop();
+        }
+    }
+
+    // Shared by the reader and the workers
+    private static final class Progress {
+        final TransferListener listener;
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicReference<String> firstError = new AtomicReference<>();
+        final AtomicReference<SQLException> sqlError = new AtomicReference<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicBoolean stopped = new AtomicBoolean();
+
+        Progress(TransferListener listener) {
+            this.listener = listener;
+        }
+
+        void done(long rowCount, long byteCount) {
+            listener.onProgress(rows.addAndGet(rowCount), bytes.addAndGet(byteCount));
+        }
+
+        void fail(long rowCount, String error) {
+            failed.addAndGet(rowCount);
+            firstError.compareAndSet(null, error);
+        }
+
+        void stop() {
+            stopped.set(true);
+        }
+
+        boolean stopped() {
+            if (!stopped.get() && listener.isCancelled()) {
+                cancelled.set(true);
+                stopped.set(true);
+            }
+            return stopped.get();
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) throws InterruptedIOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "todo-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
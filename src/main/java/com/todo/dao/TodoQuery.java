@@ -0,0 +1,275 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Composable todo filter. Each condition is pushed down to MySQL as parameterized SQL
+// shaped to hit the indexes created by TodoSchema; matches() evaluates the same
+// conditions in memory so changed rows can be placed without another query.
+public class TodoQuery {
+    // InnoDB ignores FULLTEXT tokens shorter than innodb_ft_min_token_size (3 by default)
+    private static final int MIN_FULLTEXT_TOKEN = 3;
+    // Splits text into words the way search terms are split
+    private static final String WORD_SEPARATORS = "[^\\p{L}\\p{N}]+";
+
+    private Boolean completed;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+    private LocalDateTime updatedFrom;
+    private LocalDateTime updatedTo;
+    private List<String> searchTerms = Collections.emptyList();
+    // Only direct children of parentId, or only top-level todos when rootsOnly
+    private String parentId;
+    private boolean rootsOnly;
+
+    public static TodoQuery all() {
+        return new TodoQuery();
+    }
+
+    // Maps the GUI filter names ("All", "Completed", "Incomplete")
+    public static TodoQuery fromFilter(String filter) {
+        TodoQuery query = new TodoQuery();
+        if ("Completed".equalsIgnoreCase(filter)) {
+            query.completed(true);
+        } else if ("Incomplete".equalsIgnoreCase(filter)) {
+            query.completed(false);
+        }
+        return query;
+    }
+
+    // ===== CONDITIONS =====
+    // null means either
+    public TodoQuery completed(Boolean completed) {
+        this.completed = completed;
+        return this;
+    }
+
+    // Inclusive lower bound, exclusive upper bound; either may be null
+    public TodoQuery createdBetween(LocalDateTime from, LocalDateTime to) {
+        this.createdFrom = from;
+        this.createdTo = to;
+        return this;
+    }
+
+    public TodoQuery updatedBetween(LocalDateTime from, LocalDateTime to) {
+        this.updatedFrom = from;
+        this.updatedTo = to;
+        return this;
+    }
+
+    // Direct sub-tasks of the given todo
+    public TodoQuery childrenOf(String parentId) {
+        this.parentId = parentId;
+        this.rootsOnly = false;
+        return this;
+    }
+
+    // Top-level todos only
+    public TodoQuery roots() {
+        this.parentId = null;
+        this.rootsOnly = true;
+        return this;
+    }
+
+    // Every word must appear in the title or description (prefix match)
+    public TodoQuery search(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text != null) {
+            for (String word : text.toLowerCase(Locale.ROOT).split(WORD_SEPARATORS)) {
+                if (!word.isEmpty()) {
+                    terms.add(word);
+                }
+            }
+        }
+        this.searchTerms = terms;
+        return this;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public boolean isRootsOnly() {
+        return rootsOnly;
+    }
+
+    public List<String> getSearchTerms() {
+        return Collections.unmodifiableList(searchTerms);
+    }
+
+    public boolean isUnfiltered() {
+        return completed == null && createdFrom == null && createdTo == null
+                && updatedFrom == null && updatedTo == null && searchTerms.isEmpty()
+                && parentId == null && !rootsOnly;
+    }
+
+    // ===== SQL =====
+    // Which conditions appendConditions writes, e.g. "completed-fulltext" ("all" for none);
+    // queries with the same shape produce the same SQL text
+    public String shapeName() {
+        StringBuilder name = new StringBuilder();
+        int likeTerms = 0;
+        boolean fulltext = false;
+        for (String term : searchTerms) {
+            if (term.length() >= MIN_FULLTEXT_TOKEN) {
+                fulltext = true;
+            } else {
+                likeTerms++;
+            }
+        }
+        appendShape(name, fulltext, "fulltext");
+        appendShape(name, parentId != null, "parent");
+        appendShape(name, parentId == null && rootsOnly, "roots");
+        appendShape(name, completed != null, "completed");
+        appendShape(name, createdFrom != null, "created-from");
+        appendShape(name, createdTo != null, "created-to");
+        appendShape(name, updatedFrom != null, "updated-from");
+        appendShape(name, updatedTo != null, "updated-to");
+        appendShape(name, likeTerms > 0, "like" + likeConditions(likeTerms));
+        return name.length() == 0 ? "all" : name.toString();
+    }
+
+    // Short terms each add a LIKE condition. Their count is padded up to a power of two
+    // (repeating the last term, which matches nothing extra), so however many terms a
+    // user types, only a handful of statement shapes are ever registered.
+    private static int likeConditions(int terms) {
+        return terms <= 1 ? terms : Integer.highestOneBit(terms - 1) << 1;
+    }
+
+    private static void appendShape(StringBuilder name, boolean present, String part) {
+        if (present) {
+            name.append(name.length() == 0 ? "" : "-").append(part);
+        }
+    }
+
+    // Appends "cond AND cond ..." (no WHERE) and collects parameters; returns false if there are no conditions
+    public boolean appendConditions(StringBuilder sql, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+
+        // Leading equality on parent_id lets (parent_id, created_at, id) serve one level of the tree
+        if (parentId != null) {
+            conditions.add("parent_id = ?");
+            params.add(Integer.parseInt(parentId));
+        } else if (rootsOnly) {
+            conditions.add("parent_id IS NULL");
+        }
+        // Leading equality on completed lets (completed, created_at, id) serve both filter and order
+        if (completed != null) {
+            conditions.add("completed = ?");
+            params.add(completed);
+        }
+        if (createdFrom != null) {
+            conditions.add("created_at >= ?");
+            params.add(Timestamp.valueOf(createdFrom));
+        }
+        if (createdTo != null) {
+            conditions.add("created_at < ?");
+            params.add(Timestamp.valueOf(createdTo));
+        }
+        if (updatedFrom != null) {
+            conditions.add("updated_at >= ?");
+            params.add(Timestamp.valueOf(updatedFrom));
+        }
+        if (updatedTo != null) {
+            conditions.add("updated_at < ?");
+            params.add(Timestamp.valueOf(updatedTo));
+        }
+
+        StringBuilder booleanQuery = new StringBuilder();
+        List<String> likeTerms = new ArrayList<>();
+        for (String term : searchTerms) {
+            if (term.length() >= MIN_FULLTEXT_TOKEN) {
+                booleanQuery.append(booleanQuery.length() == 0 ? "" : " ").append('+').append(term).append('*');
+            } else {
+                likeTerms.add(term);
+            }
+        }
+        // Too short for the FULLTEXT index; fall back to LIKE on top of the indexed terms
+        int likeCount = likeConditions(likeTerms.size());
+        for (int i = 0; i < likeCount; i++) {
+            String term = likeTerms.get(Math.min(i, likeTerms.size() - 1));
+            conditions.add("(title LIKE ? OR description LIKE ?)");
+            params.add("%" + term + "%");
+            params.add("%" + term + "%");
+        }
+        if (booleanQuery.length() > 0) {
+            conditions.add(0, "MATCH(title, description) AGAINST (? IN BOOLEAN MODE)");
+            params.add(0, booleanQuery.toString());
+        }
+
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0) {
+                sql.append(" AND ");
+            }
+            sql.append(conditions.get(i));
+        }
+        return !conditions.isEmpty();
+    }
+
+    public static int bind(PreparedStatement stmt, List<Object> params, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for (Object param : params) {
+            stmt.setObject(index++, param);
+        }
+        return index;
+    }
+
+    // ===== IN-MEMORY =====
+    public boolean matches(Todo todo) {
+        if (completed != null && todo.isCompleted() != completed) {
+            return false;
+        }
+        if (parentId != null ? !parentId.equals(todo.getParent_id()) : rootsOnly && todo.getParent_id() != null) {
+            return false;
+        }
+        if (!inRange(todo.getCreated_at(), createdFrom, createdTo)
+                || !inRange(todo.getUpdated_at(), updatedFrom, updatedTo)) {
+            return false;
+        }
+        if (!searchTerms.isEmpty()) {
+            String text = (nullToEmpty(todo.getTitle()) + " " + nullToEmpty(todo.getDescription()))
+                    .toLowerCase(Locale.ROOT);
+            String[] words = text.split(WORD_SEPARATORS);
+            for (String term : searchTerms) {
+                // Same rule as the SQL: FULLTEXT terms are word prefixes, LIKE terms substrings
+                boolean found = term.length() >= MIN_FULLTEXT_TOKEN ? startsAnyWord(words, term) : text.contains(term);
+                if (!found) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsAnyWord(String[] words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean inRange(LocalDateTime value, LocalDateTime from, LocalDateTime to) {
+        if (from != null && (value == null || value.isBefore(from))) {
+            return false;
+        }
+        return to == null || (value != null && value.isBefore(to));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,134 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Storage engine for todos. TodoappDAOImpl is the MySQL implementation and
+// EmbeddedTodoRepository the local, file-backed one; RepositoryFactory picks one at startup.
+// All engines report failures as SQLException so callers handle them the same way.
+public interface TodoRepository extends AutoCloseable {
+
+    // ===== SINGLE ROW =====
+    // Assigns the generated id to the todo
+    void addTodo(Todo todo) throws SQLException;
+
+    // Optimistic: applies only if the stored row still has todo.getVersion(), then bumps
+    // the todo's version. Otherwise throws TodoConflictException carrying the current row.
+    void updateTodo(Todo todo) throws SQLException;
+
+    // Unconditional delete by id. Every delete also removes the todo's sub-tasks.
+    void deleteTodo(String id) throws SQLException;
+
+    // Deletes only if the row still has todo.getVersion(); throws TodoConflictException
+    // if it was changed meanwhile. A row that is already gone counts as deleted.
+    void deleteTodo(Todo todo) throws SQLException;
+
+    // Returns null when no todo has this id
+    Todo getTodoById(String id) throws SQLException;
+
+    // ===== LISTING =====
+    List<Todo> getAllTodos() throws SQLException;
+
+    // All todos matching the query, newest first
+    List<Todo> findTodos(TodoQuery query) throws SQLException;
+
+    // The page of todos after 'after' (null for the first page) in created_at DESC, id DESC order
+    List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException;
+
+    // Every matching todo, newest first, without materializing the result
+    void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException;
+
+    default List<Todo> getTodosByFilter(String filter) throws SQLException {
+        return findTodos(TodoQuery.fromFilter(filter));
+    }
+
+    default List<Todo> getTodosPage(String filter, Todo after, int pageSize) throws SQLException {
+        return getTodosPage(TodoQuery.fromFilter(filter), after, pageSize);
+    }
+
+    default void streamTodos(String filter, Consumer<Todo> consumer) throws SQLException {
+        streamTodos(TodoQuery.fromFilter(filter), consumer);
+    }
+
+    // ===== HIERARCHY =====
+    // addTodo places a todo under todo.getParent_id(); updates never move it. One level
+    // of the tree is a page query: TodoQuery.roots() or TodoQuery.childrenOf(id).
+
+    // The todo and everything below it, each level before the next, siblings newest
+    // first. Empty when there is no such todo.
+    List<Todo> getSubtree(String id) throws SQLException;
+
+    // Moves the todo and its sub-tasks under newParentId, or to the top level when null.
+    // Optimistic like updateTodo. A move under the todo's own subtree is refused.
+    void moveTodo(Todo todo, String newParentId) throws SQLException;
+
+    // Sub-task counts over all levels for each id; ids without sub-tasks are left out
+    Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException;
+
+    // ===== CHANGE TRACKING =====
+    // Rows inserted or updated at or after the given time
+    List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException;
+
+    // Batched delta: up to 'limit' rows in (updated_at, id) order, strictly after the key
+    // (updatedAt, afterId) of the last row read, or at or after updatedAt when afterId is null
+    List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException;
+
+    // Open (not completed) todos with a due date, up to 'limit' in (due_at, id) order,
+    // strictly after the key (dueAt, afterId), or at or after dueAt when afterId is null
+    List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException;
+
+    // Latest updated_at in the store, or null when empty
+    LocalDateTime getLatestUpdatedAt() throws SQLException;
+
+    // ===== CHANGE FEED =====
+    // Engines shared by several clients record every insert, update and delete with a
+    // monotonic sequence number; see ChangeFeed. Single-client engines do not.
+    default boolean supportsChangeFeed() {
+        return false;
+    }
+
+    // Sequence of the newest change, or 0 when there is none
+    default long getLatestChangeSequence() throws SQLException {
+        throw new SQLFeatureNotSupportedException("This storage engine has no change feed");
+    }
+
+    // Up to 'limit' changes after the given sequence, oldest first
+    default List<TodoChange> getChangesSince(long sequence, int limit) throws SQLException {
+        throw new SQLFeatureNotSupportedException("This storage engine has no change feed");
+    }
+
+    // ===== BATCH =====
+    BatchResult addTodos(List<Todo> todos) throws SQLException;
+
+    // Versioned like updateTodo; stale rows come back as CONFLICT
+    BatchResult updateTodos(List<Todo> todos) throws SQLException;
+
+    BatchResult deleteTodos(Collection<String> ids) throws SQLException;
+
+    // Versioned like deleteTodo(Todo); stale rows come back as CONFLICT
+    BatchResult deleteTodos(List<Todo> todos) throws SQLException;
+
+    // Bulk insert for imports: rows keep their own created_at/updated_at and engines may
+    // skip reading generated ids back. Engines without a faster path insert as addTodos.
+    default BatchResult importTodos(List<Todo> todos) throws SQLException {
+        return addTodos(todos);
+    }
+
+    // How many calls this engine can usefully serve in parallel
+    default int getMaxConcurrency() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    default void close() throws SQLException {
+        // Nothing to release by default
+    }
+}
@@ -0,0 +1,189 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoStore;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Reads todo rows from a result set. Column positions are resolved once per result set
+// from its metadata, so rows are read by index rather than by name; timestamps come
+// straight back as LocalDateTime without a java.sql.Timestamp in between. What a row
+// becomes is up to the Target: Todo objects (into(List)), or columns appended to a
+// TodoStore (into(TodoStore)) with no Todo or id String built at all. Columns missing
+// from the select read as null / 0 / false. Bound to one result set; not thread-safe.
+public final class TodoRowMapper {
+    // Called once per row with the mapper positioned on it
+    public interface Target {
+        void row(TodoRowMapper row) throws SQLException;
+    }
+
+    private final ResultSet rs;
+    // 1-based column positions, 0 when the select does not have the column
+    private final int id;
+    private final int title;
+    private final int description;
+    private final int completed;
+    private final int createdAt;
+    private final int updatedAt;
+    private final int version;
+    private final int parentId;
+    private final int dueAt;
+    private final int recurrence;
+
+    private TodoRowMapper(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        ResultSetMetaData meta = rs.getMetaData();
+        int[] positions = new int[10];
+        for (int column = meta.getColumnCount(); column >= 1; column--) {
+            // Labels, so "t.title" and "title AS title" both resolve; the first of two equal labels wins
+            int slot = slot(meta.getColumnLabel(column).toLowerCase(Locale.ROOT));
+            if (slot >= 0) {
+                positions[slot] = column;
+            }
+        }
+        this.id = positions[0];
+        this.title = positions[1];
+        this.description = positions[2];
+        this.completed = positions[3];
+        this.createdAt = positions[4];
+        this.updatedAt = positions[5];
+        this.version = positions[6];
+        this.parentId = positions[7];
+        this.dueAt = positions[8];
+        this.recurrence = positions[9];
+    }
+
+    public static TodoRowMapper of(ResultSet rs) throws SQLException {
+        return new TodoRowMapper(rs);
+    }
+
+    // Hands every remaining row to 'target'; returns how many there were
+    public int readAll(Target target) throws SQLException {
+        int rows = 0;
+        while (rs.next()) {
+            target.row(this);
+            rows++;
+        }
+        return rows;
+    }
+
+    // Rows become Todo objects
+    public static Target into(List<Todo> todos) {
+        return row -> todos.add(row.toTodo());
+    }
+
+    // Rows are appended to the store column by column
+    public static Target into(TodoStore store) {
+        return row -> store.add(row.getId(), row.getVersion(), row.getParentId(), row.getTitle(), row.getDescription(),
+                row.isCompleted(), row.getCreatedAt(), row.getUpdatedAt(), row.getDueAt(), row.getRecurrence());
+    }
+
+    // ===== CURRENT ROW =====
+    // For columns of the select that are not the todo's
+    public ResultSet getResultSet() {
+        return rs;
+    }
+
+    // False when an outer join found no todo for the row
+    public boolean hasTodo() throws SQLException {
+        if (id == 0) {
+            return false;
+        }
+        rs.getInt(id);
+        return !rs.wasNull();
+    }
+
+    public Todo toTodo() throws SQLException {
+        Todo todo = new Todo(
+                String.valueOf(getId()),
+                getTitle(),
+                getDescription(),
+                isCompleted(),
+                getCreatedAt(),
+                getUpdatedAt());
+        todo.setVersion(getVersion());
+        int parent = getParentId();
+        todo.setParent_id(parent == 0 ? null : String.valueOf(parent));
+        todo.setDue_at(getDueAt());
+        todo.setRecurrence(getRecurrence());
+        return todo;
+    }
+
+    public int getId() throws SQLException {
+        return id == 0 ? 0 : rs.getInt(id);
+    }
+
+    public String getTitle() throws SQLException {
+        return title == 0 ? null : rs.getString(title);
+    }
+
+    public String getDescription() throws SQLException {
+        return description == 0 ? null : rs.getString(description);
+    }
+
+    public boolean isCompleted() throws SQLException {
+        return completed != 0 && rs.getBoolean(completed);
+    }
+
+    public LocalDateTime getCreatedAt() throws SQLException {
+        return time(createdAt);
+    }
+
+    public LocalDateTime getUpdatedAt() throws SQLException {
+        return time(updatedAt);
+    }
+
+    public int getVersion() throws SQLException {
+        return version == 0 ? 0 : rs.getInt(version);
+    }
+
+    // 0 at the top level (ids start at 1)
+    public int getParentId() throws SQLException {
+        return parentId == 0 ? 0 : rs.getInt(parentId);
+    }
+
+    public LocalDateTime getDueAt() throws SQLException {
+        return time(dueAt);
+    }
+
+    public String getRecurrence() throws SQLException {
+        return recurrence == 0 ? null : rs.getString(recurrence);
+    }
+
+    // ===== HELPERS =====
+    private LocalDateTime time(int column) throws SQLException {
+        return column == 0 ? null : rs.getObject(column, LocalDateTime.class);
+    }
+
+    private static int slot(String label) {
+        switch (label) {
+            case "id":
+                return 0;
+            case "title":
+                return 1;
+            case "description":
+                return 2;
+            case "completed":
+                return 3;
+            case "created_at":
+                return 4;
+            case "updated_at":
+                return 5;
+            case "version":
+                return 6;
+            case "parent_id":
+                return 7;
+            case "due_at":
+                return 8;
+            case "recurrence":
+                return 9;
+            default:
+                return -1;
+        }
+    }
+}
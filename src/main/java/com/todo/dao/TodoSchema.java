@@ -0,0 +1,454 @@
+package com.todo.dao;
+
+import com.todo.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Owns the MySQL schema: numbered migrations, applied in order at startup and recorded in
+// todo_schema_history. Each step checks information_schema before changing anything, so
+// databases set up by hand before migrations existed are brought in line rather than
+// failing on objects that are already there. Optional steps (indexes, change log) that
+// fail are reported and retried on the next start; a failed required step stops startup.
+// Steps that create triggers (versioning, change log, hierarchy) need the TRIGGER
+// privilege, which is probed once before any of them runs: without it startup stops
+// before anything changes if a required one is pending, optional ones are skipped.
+public class TodoSchema {
+    // ===== HISTORY =====
+    private static final String SQL_CREATE_HISTORY = "CREATE TABLE IF NOT EXISTS todo_schema_history ("
+            + " version INT NOT NULL PRIMARY KEY,"
+            + " description VARCHAR(200) NOT NULL,"
+            + " applied_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+            + " duration_ms BIGINT NOT NULL)";
+    private static final String SQL_APPLIED_VERSIONS = "SELECT version FROM todo_schema_history";
+    private static final String SQL_RECORD_VERSION =
+            "INSERT INTO todo_schema_history (version, description, duration_ms) VALUES (?, ?, ?)";
+
+    // Serializes migrations between app instances starting at the same time
+    private static final String SQL_LOCK = "SELECT GET_LOCK('todo_schema', ?)";
+    private static final String SQL_UNLOCK = "SELECT RELEASE_LOCK('todo_schema')";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    // Creating and dropping a no-op trigger is the only reliable test: grants can come from
+    // roles, wildcards or SUPER, and binary logging adds its own conditions
+    private static final String SQL_PROBE_TRIGGER = "CREATE TRIGGER trg_todo_schema_probe BEFORE INSERT"
+            + " ON todo_schema_history FOR EACH ROW SET NEW.duration_ms = NEW.duration_ms";
+    private static final String SQL_DROP_PROBE_TRIGGER = "DROP TRIGGER IF EXISTS trg_todo_schema_probe";
+
+    // ===== BASELINE =====
+    // The table as the original setup script created it, misspelled column included
+    private static final String SQL_CREATE_TODOS = "CREATE TABLE IF NOT EXISTS todos ("
+            + " id INT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+            + " tittle VARCHAR(255) NOT NULL,"
+            + " description TEXT,"
+            + " completed BOOLEAN NOT NULL DEFAULT FALSE,"
+            + " created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+            + " updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    private static final String SQL_EXISTING_COLUMNS = "SELECT column_name FROM information_schema.columns "
+            + "WHERE table_schema = DATABASE() AND table_name = 'todos'";
+
+    // ===== VERSIONING =====
+    // Every successful update bumps version; writers send the version they read and
+    // match no row if someone else got there first. The trigger keeps the column moving
+    // for older clients that update rows without knowing about it.
+    private static final String SQL_ADD_VERSION_COLUMN =
+            "ALTER TABLE todos ADD COLUMN version INT NOT NULL DEFAULT 0";
+    private static final String TRIGGER_VERSION = "trg_todos_version";
+    private static final String SQL_CREATE_VERSION_TRIGGER = "CREATE TRIGGER trg_todos_version BEFORE UPDATE ON todos"
+            + " FOR EACH ROW SET NEW.version = IF(NEW.version = OLD.version, OLD.version + 1, NEW.version)";
+
+    // ===== TITLE COLUMN =====
+    // Indexes and triggers follow a renamed column. Clients built before this migration
+    // still name tittle and fail once it has run, so upgrade them together.
+    private static final String SQL_RENAME_TITLE = "ALTER TABLE todos RENAME COLUMN tittle TO title";
+
+    // ===== INDEXES =====
+    // The listing, filter and keyset queries read at most a page per call in index order,
+    // then fetch those rows by primary key. They cannot be index-only: description is TEXT.
+    private static final String[][] INDEXES = {
+            // Listing order and keyset seek
+            { "idx_todos_created", "CREATE INDEX idx_todos_created ON todos (created_at, id)" },
+            // completed = ? filter with the same order
+            { "idx_todos_completed_created",
+                    "CREATE INDEX idx_todos_completed_created ON todos (completed, created_at, id)" },
+            // Delta refresh and updated_at ranges
+            { "idx_todos_updated", "CREATE INDEX idx_todos_updated ON todos (updated_at)" },
+    };
+    private static final String[][] SEARCH_INDEXES = {
+            { "ft_todos_text", "CREATE FULLTEXT INDEX ft_todos_text ON todos (title, description)" },
+    };
+
+    private static final String SQL_EXISTING_INDEXES = "SELECT DISTINCT index_name FROM information_schema.statistics "
+            + "WHERE table_schema = DATABASE() AND table_name = 'todos'";
+
+    // ===== HIERARCHY =====
+    // parent_id is the source of truth. todo_tree is its closure: one row per ancestor and
+    // descendant pair with the distance between them, each todo its own ancestor at depth
+    // 0, so a subtree, a move or a roll-up is a single indexed statement. Triggers keep it
+    // in step with parent_id for every writer and refuse cycles. There is no delete
+    // trigger: the DAO finds a deleted todo's sub-tasks through its rows, then drops them
+    // in the same transaction. pruneTree() sweeps up after writers that do not.
+    private static final String SQL_ADD_PARENT_COLUMN = "ALTER TABLE todos ADD COLUMN parent_id INT NULL";
+    private static final String[][] TREE_INDEXES = {
+            // One level of the tree in listing order
+            { "idx_todos_parent_created",
+                    "CREATE INDEX idx_todos_parent_created ON todos (parent_id, created_at, id)" },
+    };
+    private static final String SQL_CREATE_TREE = "CREATE TABLE IF NOT EXISTS todo_tree ("
+            + " ancestor_id INT NOT NULL,"
+            + " descendant_id INT NOT NULL,"
+            + " depth INT NOT NULL,"
+            + " PRIMARY KEY (ancestor_id, descendant_id),"
+            + " INDEX idx_todo_tree_descendant (descendant_id, depth))";
+
+    private static final String[][] TREE_TRIGGERS = {
+            { "trg_todos_tree_check_insert", "CREATE TRIGGER trg_todos_tree_check_insert BEFORE INSERT ON todos"
+                    + " FOR EACH ROW BEGIN"
+                    + " IF NEW.parent_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM todos WHERE id = NEW.parent_id) THEN"
+                    + " SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'The parent todo does not exist';"
+                    + " END IF;"
+                    + " END" },
+            { "trg_todos_tree_insert", "CREATE TRIGGER trg_todos_tree_insert AFTER INSERT ON todos"
+                    + " FOR EACH ROW INSERT INTO todo_tree (ancestor_id, descendant_id, depth)"
+                    + " SELECT ancestor_id, NEW.id, depth + 1 FROM todo_tree WHERE descendant_id = NEW.parent_id"
+                    + " UNION ALL SELECT NEW.id, NEW.id, 0" },
+            { "trg_todos_tree_check_update", "CREATE TRIGGER trg_todos_tree_check_update BEFORE UPDATE ON todos"
+                    + " FOR EACH ROW BEGIN"
+                    + " IF NOT (NEW.parent_id <=> OLD.parent_id) AND NEW.parent_id IS NOT NULL THEN"
+                    + " IF EXISTS (SELECT 1 FROM todo_tree WHERE ancestor_id = NEW.id AND descendant_id = NEW.parent_id)"
+                    + " THEN SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'A todo cannot be moved under its own sub-task';"
+                    + " END IF;"
+                    + " IF NOT EXISTS (SELECT 1 FROM todos WHERE id = NEW.parent_id) THEN"
+                    + " SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'The parent todo does not exist';"
+                    + " END IF;"
+                    + " END IF;"
+                    + " END" },
+            // Detach the subtree from its old ancestors, then hang it below the new parent's
+            { "trg_todos_tree_move", "CREATE TRIGGER trg_todos_tree_move AFTER UPDATE ON todos"
+                    + " FOR EACH ROW BEGIN"
+                    + " IF NOT (NEW.parent_id <=> OLD.parent_id) THEN"
+                    + " DELETE p FROM todo_tree p"
+                    + " JOIN todo_tree sub ON sub.descendant_id = p.descendant_id"
+                    + " LEFT JOIN todo_tree inside ON inside.ancestor_id = NEW.id AND inside.descendant_id = p.ancestor_id"
+                    + " WHERE sub.ancestor_id = NEW.id AND inside.ancestor_id IS NULL;"
+                    + " INSERT INTO todo_tree (ancestor_id, descendant_id, depth)"
+                    + " SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1"
+                    + " FROM todo_tree sup JOIN todo_tree sub ON sub.ancestor_id = NEW.id"
+                    + " WHERE sup.descendant_id = NEW.parent_id;"
+                    + " END IF;"
+                    + " END" },
+    };
+
+    // Closure of whatever parent_id already holds; INSERT IGNORE makes a rerun harmless
+    private static final String SQL_FILL_TREE = "INSERT IGNORE INTO todo_tree (ancestor_id, descendant_id, depth)"
+            + " WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS ("
+            + " SELECT id, id, 0 FROM todos"
+            + " UNION ALL"
+            + " SELECT t.parent_id, p.descendant_id, p.depth + 1 FROM paths p JOIN todos t ON t.id = p.ancestor_id"
+            + " WHERE t.parent_id IS NOT NULL AND p.depth < 100)"
+            + " SELECT ancestor_id, descendant_id, depth FROM paths";
+    private static final String SQL_PRUNE_TREE = "DELETE p FROM todo_tree p"
+            + " LEFT JOIN todos t ON t.id = p.descendant_id WHERE t.id IS NULL";
+
+    // ===== DUE DATES =====
+    // DATETIME rather than TIMESTAMP: due dates are wall-clock times like the rest of the
+    // app's LocalDateTime values, and recurring ones may run past 2038. The index serves
+    // the reminder scheduler, which reads open todos in (due_at, id) order a batch at a time.
+    private static final String SQL_ADD_DUE_COLUMN = "ALTER TABLE todos ADD COLUMN due_at DATETIME NULL";
+    private static final String SQL_ADD_RECURRENCE_COLUMN = "ALTER TABLE todos ADD COLUMN recurrence VARCHAR(64) NULL";
+    private static final String[][] DUE_INDEXES = {
+            { "idx_todos_due", "CREATE INDEX idx_todos_due ON todos (completed, due_at, id)" },
+    };
+
+    // ===== CHANGE LOG =====
+    // Triggers record every write, including ones from older clients that know nothing
+    // about the feed. seq is the feed position; changed_at only drives retention.
+    private static final String SQL_CREATE_CHANGE_LOG = "CREATE TABLE IF NOT EXISTS todo_changes ("
+            + " seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+            + " todo_id INT NOT NULL,"
+            + " op CHAR(1) NOT NULL,"
+            + " changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+            + " INDEX idx_todo_changes_changed (changed_at))";
+
+    private static final String[][] TRIGGERS = {
+            { "trg_todos_changes_insert", "CREATE TRIGGER trg_todos_changes_insert AFTER INSERT ON todos"
+                    + " FOR EACH ROW INSERT INTO todo_changes (todo_id, op) VALUES (NEW.id, 'I')" },
+            { "trg_todos_changes_update", "CREATE TRIGGER trg_todos_changes_update AFTER UPDATE ON todos"
+                    + " FOR EACH ROW INSERT INTO todo_changes (todo_id, op) VALUES (NEW.id, 'U')" },
+            { "trg_todos_changes_delete", "CREATE TRIGGER trg_todos_changes_delete AFTER DELETE ON todos"
+                    + " FOR EACH ROW INSERT INTO todo_changes (todo_id, op) VALUES (OLD.id, 'D')" },
+    };
+
+    private static final String SQL_EXISTING_TRIGGERS = "SELECT trigger_name FROM information_schema.triggers "
+            + "WHERE trigger_schema = DATABASE() AND event_object_table = 'todos'";
+    private static final String SQL_HAS_CHANGE_LOG = "SELECT COUNT(*) FROM information_schema.tables "
+            + "WHERE table_schema = DATABASE() AND table_name = 'todo_changes'";
+    private static final String SQL_PRUNE_CHANGE_LOG =
+            "DELETE FROM todo_changes WHERE changed_at < NOW(3) - INTERVAL ? HOUR";
+
+    // ===== MIGRATIONS =====
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final boolean required;
+        // Creates triggers, so needs the TRIGGER privilege
+        final boolean triggers;
+        final Step step;
+
+        Migration(int version, String description, boolean required, boolean triggers, Step step) {
+            this.version = version;
+            this.description = description;
+            this.required = required;
+            this.triggers = triggers;
+            this.step = step;
+        }
+    }
+
+    // Append only: a released version number must never change meaning
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "Create todos table", true, false, TodoSchema::createTodos),
+            new Migration(2, "Add row version column and trigger", true, true, TodoSchema::addVersioning),
+            new Migration(3, "Rename todos.tittle to title", true, false, TodoSchema::renameTitle),
+            new Migration(4, "Add listing and filter indexes", false, false, conn -> createIndexes(conn, INDEXES)),
+            new Migration(5, "Add full-text search index", false, false, conn -> createIndexes(conn, SEARCH_INDEXES)),
+            new Migration(6, "Add change log table and triggers", false, true, TodoSchema::createChangeLog),
+            new Migration(7, "Add sub-task hierarchy", true, true, TodoSchema::addHierarchy),
+            new Migration(8, "Add due dates and recurrence", true, false, TodoSchema::addDueDates));
+
+    // Applies every migration not yet recorded; returns how many were applied
+    public int migrate() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            lock(conn);
+            try {
+                return applyPending(conn);
+            } finally {
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_UNLOCK)) {
+                    stmt.executeQuery().close();
+                }
+            }
+        }
+    }
+
+    private int applyPending(Connection conn) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_HISTORY);
+            try (ResultSet rs = stmt.executeQuery(SQL_APPLIED_VERSIONS)) {
+                while (rs.next()) {
+                    applied.add(rs.getInt(1));
+                }
+            }
+        }
+
+        // Why triggers cannot be created, null if they can (or no pending step needs them)
+        String triggerError = null;
+        for (Migration migration : MIGRATIONS) {
+            if (!applied.contains(migration.version) && migration.triggers) {
+                triggerError = probeTriggers(conn);
+                break;
+            }
+        }
+        boolean canCreateTriggers = triggerError == null;
+        if (!canCreateTriggers) {
+            for (Migration migration : MIGRATIONS) {
+                if (!applied.contains(migration.version) && migration.triggers && migration.required) {
+                    throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                            + ") needs the TRIGGER privilege on this database; grant it and restart (" + triggerError
+                            + ")");
+                }
+            }
+        }
+
+        int count = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            if (migration.triggers && !canCreateTriggers) {
+                System.out.println("Warning: skipping schema migration " + migration.version + " ("
+                        + migration.description + ") without the TRIGGER privilege; retrying on next start");
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            try {
+                migration.step.apply(conn);
+            } catch (SQLException e) {
+                if (migration.required) {
+                    throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                            + ") failed: " + e.getMessage(), e.getSQLState(), e);
+                }
+                System.out.println("Warning: schema migration " + migration.version + " (" + migration.description
+                        + ") failed, retrying on next start: " + e.getMessage());
+                continue;
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_RECORD_VERSION)) {
+                stmt.setInt(1, migration.version);
+                stmt.setString(2, migration.description);
+                stmt.setLong(3, elapsed);
+                stmt.executeUpdate();
+            }
+            System.out.println("Applied schema migration " + migration.version + ": " + migration.description
+                    + " (" + elapsed + " ms)");
+            count++;
+        }
+        return count;
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_LOCK)) {
+            stmt.setInt(1, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish schema migrations");
+                }
+            }
+        }
+    }
+
+    private static String probeTriggers(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_DROP_PROBE_TRIGGER);
+            stmt.executeUpdate(SQL_PROBE_TRIGGER);
+            stmt.executeUpdate(SQL_DROP_PROBE_TRIGGER);
+            return null;
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    // ===== STEPS =====
+    private static void createTodos(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_TODOS);
+        }
+    }
+
+    private static void addVersioning(Connection conn) throws SQLException {
+        Set<String> columns = existingNames(conn, SQL_EXISTING_COLUMNS);
+        Set<String> triggers = existingNames(conn, SQL_EXISTING_TRIGGERS);
+        try (Statement stmt = conn.createStatement()) {
+            if (!columns.contains("version")) {
+                stmt.executeUpdate(SQL_ADD_VERSION_COLUMN);
+            }
+            if (!triggers.contains(TRIGGER_VERSION)) {
+                stmt.executeUpdate(SQL_CREATE_VERSION_TRIGGER);
+            }
+        }
+    }
+
+    private static void renameTitle(Connection conn) throws SQLException {
+        Set<String> columns = existingNames(conn, SQL_EXISTING_COLUMNS);
+        if (columns.contains("tittle") && !columns.contains("title")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(SQL_RENAME_TITLE);
+            }
+        }
+    }
+
+    private static void createIndexes(Connection conn, String[][] indexes) throws SQLException {
+        Set<String> existing = existingNames(conn, SQL_EXISTING_INDEXES);
+        try (Statement stmt = conn.createStatement()) {
+            for (String[] index : indexes) {
+                if (!existing.contains(index[0])) {
+                    System.out.println("Creating index " + index[0]);
+                    stmt.executeUpdate(index[1]);
+                }
+            }
+        }
+    }
+
+    // Triggers first, so rows inserted while the closure is filled get theirs too
+    private static void addHierarchy(Connection conn) throws SQLException {
+        if (!existingNames(conn, SQL_EXISTING_COLUMNS).contains("parent_id")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(SQL_ADD_PARENT_COLUMN);
+            }
+        }
+        createIndexes(conn, TREE_INDEXES);
+        Set<String> triggers = existingNames(conn, SQL_EXISTING_TRIGGERS);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_TREE);
+            for (String[] trigger : TREE_TRIGGERS) {
+                if (!triggers.contains(trigger[0])) {
+                    stmt.executeUpdate(trigger[1]);
+                }
+            }
+            stmt.executeUpdate(SQL_FILL_TREE);
+        }
+    }
+
+    private static void addDueDates(Connection conn) throws SQLException {
+        Set<String> columns = existingNames(conn, SQL_EXISTING_COLUMNS);
+        try (Statement stmt = conn.createStatement()) {
+            if (!columns.contains("due_at")) {
+                stmt.executeUpdate(SQL_ADD_DUE_COLUMN);
+            }
+            if (!columns.contains("recurrence")) {
+                stmt.executeUpdate(SQL_ADD_RECURRENCE_COLUMN);
+            }
+        }
+        createIndexes(conn, DUE_INDEXES);
+    }
+
+    private static void createChangeLog(Connection conn) throws SQLException {
+        Set<String> existing = existingNames(conn, SQL_EXISTING_TRIGGERS);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_CHANGE_LOG);
+            for (String[] trigger : TRIGGERS) {
+                if (!existing.contains(trigger[0])) {
+                    stmt.executeUpdate(trigger[1]);
+                }
+            }
+        }
+    }
+
+    // ===== MAINTENANCE =====
+    // Drops change log entries older than the retention period; returns how many
+    // (0 while the change log migration has not been applied)
+    public int pruneChangeLog(int retentionHours) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_HAS_CHANGE_LOG);
+                    ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return 0;
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_PRUNE_CHANGE_LOG)) {
+                stmt.setInt(1, retentionHours);
+                return stmt.executeUpdate();
+            }
+        }
+    }
+
+    // Drops todo_tree rows of deleted todos; returns how many
+    public int pruneTree() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(SQL_PRUNE_TREE);
+        }
+    }
+
+    private static Set<String> existingNames(Connection conn, String sql) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                existing.add(rs.getString(1).toLowerCase());
+            }
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,345 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Dashboard numbers (todos, completed, created per day, average time to complete) kept
+// up to date as todos change instead of counted on every refresh. load() reads every
+// todo once; after that each row the cache stores or drops (own writes, refreshes and
+// ChangeFeed changes alike) adjusts the counters, so getSnapshot() never touches the
+// todos table and costs the same whatever its size. Nothing is kept per todo beyond two
+// bits (counted, completed) in id-indexed bit sets, the created day of todos inside the
+// per-day window, and the parent of each sub-task, which deletes cascade along. There is
+// no completed_at column, so time to complete is now - created_at when a todo is seen
+// to become completed, and updated_at - created_at for todos that were already
+// completed when first seen; a todo that stops being completed takes the current
+// average out, since its own time was not kept. Thread-safe.
+public class TodoStatistics implements TodoCache.Listener {
+    // Days covered by Snapshot.getCreatedPerDay(), today included
+    public static final int DAYS = Integer.getInteger("todo.stats.days", 14);
+
+    public interface Listener {
+        // Called on the thread that made the change; read getSnapshot() from your own thread
+        void onStatisticsChanged();
+    }
+
+    // Counters as of one moment
+    public static final class Snapshot {
+        private final boolean loaded;
+        private final int total;
+        private final int completed;
+        private final LocalDate lastDay;
+        private final int[] createdPerDay;
+        private final Duration averageTimeToComplete;
+
+        Snapshot(boolean loaded, int total, int completed, LocalDate lastDay, int[] createdPerDay,
+                Duration averageTimeToComplete) {
+            this.loaded = loaded;
+            this.total = total;
+            this.completed = completed;
+            this.lastDay = lastDay;
+            this.createdPerDay = createdPerDay;
+            this.averageTimeToComplete = averageTimeToComplete;
+        }
+
+        // False until the first load() finished; the counters are meaningless before
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getOpen() {
+            return total - completed;
+        }
+
+        // Todos created on each of the DAYS days up to getLastDay(), oldest first
+        public int[] getCreatedPerDay() {
+            return createdPerDay.clone();
+        }
+
+        public LocalDate getLastDay() {
+            return lastDay;
+        }
+
+        // Null while nothing has been completed
+        public Duration getAverageTimeToComplete() {
+            return averageTimeToComplete;
+        }
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final OperationStats loadStats = Metrics.operation("stats.load");
+    // One load at a time, so two scans never interleave
+    private final Object loadLock = new Object();
+
+    // Guarded by this
+    // Bit n is set once todo n is counted, and in completedIds while it counts as completed
+    private final BitSet counted = new BitSet();
+    private final BitSet completedIds = new BitSet();
+    private int total;
+    // sub-task id -> parent id, and the reverse, for sub-tasks only
+    private final Map<String, String> parents = new HashMap<>();
+    private final Map<String, Set<String>> children = new HashMap<>();
+    // epoch day -> todos created that day, and id -> created day of those todos, both
+    // only for days from windowStart on
+    private final Map<Long, Integer> createdByDay = new HashMap<>();
+    private final Map<String, Long> createdInWindow = new HashMap<>();
+    private long windowStart = Long.MIN_VALUE;
+    private int completed;
+    private long completionSeconds;
+    private boolean loaded;
+    // Non-null while load() runs: ids deleted meanwhile, so the scan cannot bring them back
+    private Set<String> deletedWhileLoading;
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Drops everything and counts the repository from scratch: once at startup, and again
+    // when changes may have been missed (feed resync, bulk import). Changes reported while
+    // it runs are kept; a row the scan read before it changed is not counted over them.
+    public void load(TodoRepository repository) throws SQLException {
+        synchronized (loadLock) {
+            scan(repository);
+        }
+        fireChanged();
+    }
+
+    private void scan(TodoRepository repository) throws SQLException {
+        long start = System.nanoTime();
+        synchronized (this) {
+            counted.clear();
+            completedIds.clear();
+            total = 0;
+            parents.clear();
+            children.clear();
+            createdByDay.clear();
+            createdInWindow.clear();
+            completed = 0;
+            completionSeconds = 0;
+            loaded = false;
+            deletedWhileLoading = new HashSet<>();
+        }
+        int[] rows = new int[1];
+        try {
+            repository.streamTodos(TodoQuery.all(), todo -> {
+                synchronized (this) {
+                    // A todo already counted was reported by the cache meanwhile, newer than this read
+                    int bit = bit(todo.getId());
+                    if (bit >= 0 && !counted.get(bit) && !deletedWhileLoading.contains(todo.getId())) {
+                        store(todo, false);
+                    }
+                }
+                rows[0]++;
+            });
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                deletedWhileLoading = null;
+            }
+            loadStats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        synchronized (this) {
+            deletedWhileLoading = null;
+            loaded = true;
+        }
+        loadStats.record(System.nanoTime() - start, rows[0], 0);
+    }
+
+    // O(DAYS), whatever the number of todos
+    public synchronized Snapshot getSnapshot() {
+        LocalDate today = LocalDate.now();
+        moveWindow(today);
+        int[] perDay = new int[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            perDay[i] = createdByDay.getOrDefault(today.toEpochDay() - (DAYS - 1 - i), 0);
+        }
+        Duration average = completed == 0 ? null : Duration.ofSeconds(completionSeconds / completed);
+        return new Snapshot(loaded, total, completed, today, perDay, average);
+    }
+
+    // ===== CACHE EVENTS =====
+    @Override
+    public void onStored(Todo todo) {
+        boolean changed;
+        synchronized (this) {
+            changed = store(todo, true);
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    // The todo's sub-tasks were deleted with it, whether or not the cache held them
+    @Override
+    public void onDeleted(String id) {
+        boolean changed;
+        synchronized (this) {
+            changed = delete(id);
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    // ===== INTERNALS =====
+    // Returns whether anything shown by a snapshot moved
+    private boolean store(Todo todo, boolean live) {
+        String id = todo.getId();
+        int bit = bit(id);
+        if (bit < 0 || todo.getCreated_at() == null) {
+            return false;
+        }
+        boolean added = !counted.get(bit);
+        if (added) {
+            counted.set(bit);
+            total++;
+            long day = todo.getCreated_at().toLocalDate().toEpochDay();
+            moveWindow(LocalDate.now());
+            if (day >= windowStart) {
+                createdByDay.merge(day, 1, Integer::sum);
+                createdInWindow.put(id, day);
+            }
+        }
+        boolean changed = added;
+        String parentId = todo.getParent_id();
+        if (!same(parents.get(id), parentId)) {
+            unlink(id);
+            if (parentId != null) {
+                parents.put(id, parentId);
+                children.computeIfAbsent(parentId, key -> new HashSet<>()).add(id);
+            }
+        }
+
+        boolean wasCompleted = completedIds.get(bit);
+        if (todo.isCompleted() && !wasCompleted) {
+            // Seen open before, so it was completed just now; otherwise all we have is its last update
+            LocalDateTime completedAt = live && !added ? LocalDateTime.now() : todo.getUpdated_at();
+            completedIds.set(bit);
+            completed++;
+            completionSeconds += completedAt == null ? 0
+                    : Math.max(0, completedAt.toEpochSecond(ZoneOffset.UTC)
+                            - todo.getCreated_at().toEpochSecond(ZoneOffset.UTC));
+            changed = true;
+        } else if (!todo.isCompleted() && wasCompleted) {
+            uncomplete(bit);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean delete(String id) {
+        if (deletedWhileLoading != null) {
+            deletedWhileLoading.add(id);
+        }
+        int bit = bit(id);
+        if (bit < 0 || !counted.get(bit)) {
+            return false;
+        }
+        counted.clear(bit);
+        total--;
+        if (completedIds.get(bit)) {
+            uncomplete(bit);
+        }
+        Long day = createdInWindow.remove(id);
+        if (day != null) {
+            createdByDay.computeIfPresent(day, (key, count) -> count == 1 ? null : count - 1);
+        }
+        unlink(id);
+        Set<String> subtasks = children.remove(id);
+        if (subtasks != null) {
+            for (String child : new ArrayList<>(subtasks)) {
+                delete(child);
+            }
+        }
+        return true;
+    }
+
+    // The todo's own time to complete is not kept, so it leaves the average where it was
+    private void uncomplete(int bit) {
+        completedIds.clear(bit);
+        completionSeconds -= completionSeconds / completed;
+        completed--;
+    }
+
+    private void unlink(String id) {
+        String parentId = parents.remove(id);
+        if (parentId == null) {
+            return;
+        }
+        Set<String> siblings = children.get(parentId);
+        if (siblings != null) {
+            siblings.remove(id);
+            if (siblings.isEmpty()) {
+                children.remove(parentId);
+            }
+        }
+    }
+
+    // Forgets created days that have left the window; does the work once a day
+    private void moveWindow(LocalDate today) {
+        long start = today.toEpochDay() - (DAYS - 1);
+        if (start <= windowStart) {
+            return;
+        }
+        windowStart = start;
+        createdByDay.keySet().removeIf(day -> day < start);
+        createdInWindow.values().removeIf(day -> day < start);
+    }
+
+    // Ids are database-assigned non-negative integers; -1 for anything else, which is not counted
+    private static int bit(String id) {
+        if (id == null) {
+            return -1;
+        }
+        try {
+            int bit = Integer.parseInt(id);
+            return bit >= 0 ? bit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void fireChanged() {
+        if (!isLoaded()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onStatisticsChanged();
+        }
+    }
+
+    private synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -1,115 +1,823 @@
 package com.todo.dao;
 
 import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
 import com.todo.util.DatabaseConnection;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class TodoappDAOImpl {
+// MySQL implementation of TodoRepository
+public class TodoappDAOImpl implements TodoRepository {
 
     // ===== SQL QUERIES =====
-    private static final String SQL_SELECT_BASE = "SELECT id, tittle, description, completed, created_at, updated_at FROM todos";
+    private static final String SQL_SELECT_BASE = "SELECT id, title, description, completed, created_at, updated_at, version,"
+            + " parent_id, due_at, recurrence FROM todos";
     private static final String SQL_SELECT_ORDER_BY_CREATED_DESC = " ORDER BY created_at DESC";
-    private static final String SQL_INSERT_TODO = "INSERT INTO todos (tittle, description, completed) VALUES (?, ?, ?)";
-    private static final String SQL_UPDATE_TODO = "UPDATE todos SET tittle = ?, description = ?, completed = ?, updated_at = ? WHERE id = ?";
+    private static final String SQL_INSERT_TODO = "INSERT INTO todos (title, description, completed, parent_id,"
+            + " due_at, recurrence) VALUES (?, ?, ?, ?, ?, ?)";
     private static final String SQL_DELETE_TODO_BY_ID = "DELETE FROM todos WHERE id = ?";
-    private static final String SQL_WHERE_COMPLETED = " WHERE completed = 1";
-    private static final String SQL_WHERE_INCOMPLETE = " WHERE completed = 0";
+
+    // Imports keep the rows' own timestamps. LOAD DATA reads tab-separated rows streamed
+    // from memory (see loadData); the file name is only a placeholder for the driver.
+    private static final String SQL_IMPORT_TODO = "INSERT INTO todos (title, description, completed, created_at, updated_at,"
+            + " due_at, recurrence) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_LOAD_DATA = "LOAD DATA LOCAL INFILE 'import.tsv' INTO TABLE todos"
+            + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'"
+            + " (title, description, completed, created_at, updated_at, due_at, recurrence)";
+
+    // Optimistic concurrency: writes name the version they were based on and match no
+    // row if another client got there first. No locks are held between read and write.
+    private static final String SQL_UPDATE_TODO = "UPDATE todos SET title = ?, description = ?, completed = ?, updated_at = ?,"
+            + " due_at = ?, recurrence = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String SQL_DELETE_TODO_IF_VERSION = "DELETE FROM todos WHERE id = ? AND version = ?";
+    private static final String SQL_SELECT_EXISTING_IDS = "SELECT id FROM todos WHERE id IN ";
+
+    // Keyset (seek) pagination on (created_at, id): each page starts strictly after the
+    // last row of the previous one, so deep pages cost the same as the first
+    private static final String SQL_ORDER_BY_CREATED_ID_DESC = " ORDER BY created_at DESC, id DESC";
+    private static final String SQL_SEEK_AFTER = "(created_at < ? OR (created_at = ? AND id < ?))";
+    private static final String SQL_LIMIT = " LIMIT ?";
+
+    private static final String SQL_WHERE_ID = " WHERE id = ?";
+    private static final String SQL_WHERE_UPDATED_SINCE = " WHERE updated_at >= ?";
+    // The leading range keeps the read on idx_todos_updated, whose entries end in the id
+    private static final String SQL_WHERE_UPDATED_AFTER = " WHERE updated_at >= ? AND (updated_at > ? OR id > ?)";
+    private static final String SQL_ORDER_BY_UPDATED_ID = " ORDER BY updated_at, id";
+    private static final String SQL_SELECT_MAX_UPDATED_AT = "SELECT MAX(updated_at) FROM todos";
+
+    // Reminders: open todos in due order, a range read on idx_todos_due (completed, due_at, id)
+    private static final String SQL_WHERE_DUE_SINCE = " WHERE completed = FALSE AND due_at >= ?";
+    private static final String SQL_WHERE_DUE_AFTER = " WHERE completed = FALSE AND due_at >= ? AND (due_at > ? OR id > ?)";
+    private static final String SQL_ORDER_BY_DUE_ID = " ORDER BY due_at, id";
+
+    // Change feed: todo_changes is filled by triggers (see TodoSchema); the current row is
+    // joined in so a poll needs no follow-up reads. Deleted rows come back as NULLs.
+    private static final String SQL_SELECT_CHANGES_SINCE = "SELECT c.seq, c.todo_id, c.op,"
+            + " t.id, t.title, t.description, t.completed, t.created_at, t.updated_at, t.version, t.parent_id,"
+            + " t.due_at, t.recurrence FROM todo_changes c LEFT JOIN todos t ON t.id = c.todo_id"
+            + " WHERE c.seq > ? ORDER BY c.seq LIMIT ?";
+    private static final String SQL_SELECT_MAX_CHANGE_SEQ = "SELECT COALESCE(MAX(seq), 0) FROM todo_changes";
+
+    // Hierarchy: todo_tree is the closure of parent_id, kept current by triggers (see
+    // TodoSchema). Deletes take the sub-tasks along; the deleted todo's own closure rows
+    // are still there right after the delete, so one statement finds and removes them.
+    private static final String SQL_SELECT_SUBTREE = "SELECT t.id, t.title, t.description, t.completed,"
+            + " t.created_at, t.updated_at, t.version, t.parent_id, t.due_at, t.recurrence"
+            + " FROM todo_tree p JOIN todos t ON t.id = p.descendant_id"
+            + " WHERE p.ancestor_id = ? ORDER BY p.depth, t.created_at DESC, t.id DESC";
+    private static final String SQL_MOVE_TODO = "UPDATE todos SET parent_id = ?, updated_at = ?, version = version + 1"
+            + " WHERE id = ? AND version = ?";
+    private static final String SQL_SELECT_PROGRESS = "SELECT p.ancestor_id, COUNT(*), SUM(t.completed)"
+            + " FROM todo_tree p JOIN todos t ON t.id = p.descendant_id"
+            + " WHERE p.depth > 0 AND p.ancestor_id IN ";
+    private static final String SQL_DELETE_DESCENDANTS = "DELETE FROM todos WHERE id IN"
+            + " (SELECT descendant_id FROM todo_tree WHERE depth > 0 AND ancestor_id IN ";
+    // Every closure row of the deleted subtrees, run after SQL_DELETE_DESCENDANTS has read
+    // them. The derived table is materialized first, which is what lets MySQL delete from
+    // the table the subquery reads.
+    private static final String SQL_DELETE_SUBTREE_LINKS = "DELETE FROM todo_tree WHERE descendant_id IN"
+            + " (SELECT descendant_id FROM (SELECT descendant_id FROM todo_tree WHERE ancestor_id IN ";
+
+    // ===== STATEMENTS =====
+    // Fixed shapes; the ones that depend on a TodoQuery or an IN list are named where built
+    private static final SqlStatement ALL = SqlStatement.named("todos.all",
+            SQL_SELECT_BASE + SQL_SELECT_ORDER_BY_CREATED_DESC);
+    private static final SqlStatement BY_ID = SqlStatement.named("todos.by-id", SQL_SELECT_BASE + SQL_WHERE_ID);
+    private static final SqlStatement INSERT = SqlStatement.named("todos.insert", SQL_INSERT_TODO);
+    private static final SqlStatement IMPORT = SqlStatement.named("todos.import", SQL_IMPORT_TODO);
+    private static final SqlStatement UPDATE = SqlStatement.named("todos.update", SQL_UPDATE_TODO);
+    private static final SqlStatement DELETE = SqlStatement.named("todos.delete", SQL_DELETE_TODO_BY_ID);
+    private static final SqlStatement DELETE_IF_VERSION = SqlStatement.named("todos.delete-versioned",
+            SQL_DELETE_TODO_IF_VERSION);
+    private static final SqlStatement UPDATED_SINCE = SqlStatement.named("todos.updated-since",
+            SQL_SELECT_BASE + SQL_WHERE_UPDATED_SINCE + SQL_ORDER_BY_CREATED_ID_DESC);
+    private static final SqlStatement UPDATED_FIRST_PAGE = SqlStatement.named("todos.updated-page",
+            SQL_SELECT_BASE + SQL_WHERE_UPDATED_SINCE + SQL_ORDER_BY_UPDATED_ID + SQL_LIMIT);
+    private static final SqlStatement UPDATED_NEXT_PAGE = SqlStatement.named("todos.updated-page-after",
+            SQL_SELECT_BASE + SQL_WHERE_UPDATED_AFTER + SQL_ORDER_BY_UPDATED_ID + SQL_LIMIT);
+    private static final SqlStatement DUE_FIRST_PAGE = SqlStatement.named("todos.due-page",
+            SQL_SELECT_BASE + SQL_WHERE_DUE_SINCE + SQL_ORDER_BY_DUE_ID + SQL_LIMIT);
+    private static final SqlStatement DUE_NEXT_PAGE = SqlStatement.named("todos.due-page-after",
+            SQL_SELECT_BASE + SQL_WHERE_DUE_AFTER + SQL_ORDER_BY_DUE_ID + SQL_LIMIT);
+    private static final SqlStatement MAX_UPDATED_AT = SqlStatement.named("todos.max-updated",
+            SQL_SELECT_MAX_UPDATED_AT);
+    private static final SqlStatement CHANGES_SINCE = SqlStatement.named("changes.since", SQL_SELECT_CHANGES_SINCE);
+    private static final SqlStatement MAX_CHANGE_SEQ = SqlStatement.named("changes.max-seq",
+            SQL_SELECT_MAX_CHANGE_SEQ);
+    private static final SqlStatement SUBTREE = SqlStatement.named("tree.subtree", SQL_SELECT_SUBTREE);
+    private static final SqlStatement MOVE = SqlStatement.named("tree.move", SQL_MOVE_TODO);
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = Integer.getInteger("todo.batch.chunkSize", 500);
+
+    // Rows per executeBatch/commit in the batch methods
+    private int batchChunkSize = DEFAULT_BATCH_CHUNK_SIZE;
+    // Cleared the first time the server refuses LOAD DATA LOCAL (local_infile=OFF)
+    private volatile boolean loadDataUsable = true;
+    // MySQL error codes for a refused LOAD DATA LOCAL: ER_NOT_ALLOWED_COMMAND (before 8.0)
+    // and ER_CLIENT_LOCAL_FILES_DISABLED
+    private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+    private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
+
+    // Binds one item of a batch to the statement parameters
+    private interface BatchBinder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    // More work for a chunk, on its connection before it commits; 'matched' says which rows the batch hit
+    private interface ChunkFollowUp<T> {
+        void run(Connection conn, List<T> chunk, boolean[] matched) throws SQLException;
+    }
 
     // ===== PUBLIC METHODS =====
+    @Override
     public List<Todo> getAllTodos() throws SQLException {
         List<Todo> todos = new ArrayList<>();
-        String sql = SQL_SELECT_BASE + SQL_SELECT_ORDER_BY_CREATED_DESC;
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                Todo todo = new Todo(
-                        String.valueOf(rs.getInt("id")),
-                        rs.getString("tittle"),
-                        rs.getString("description"),
-                        rs.getBoolean("completed"),
-                        rs.getTimestamp("created_at").toLocalDateTime(),
-                        rs.getTimestamp("updated_at").toLocalDateTime());
-                todos.add(todo);
-            }
+                PreparedStatement stmt = ALL.prepare(conn)) {
+            ALL.readTodos(stmt, TodoRowMapper.into(todos));
         }
         return todos;
     }
 
+    @Override
     public void addTodo(Todo todo) throws SQLException {
         // id, created_at and updated_at are handled by DB (auto_increment/defaults)
-        String sql = SQL_INSERT_TODO;
-
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = INSERT.prepareReturningKeys(conn)) {
 
             stmt.setString(1, todo.getTitle());
             stmt.setString(2, todo.getDescription());
             stmt.setBoolean(3, todo.isCompleted());
+            bindParent(stmt, 4, todo.getParent_id());
+            bindDue(stmt, 5, todo);
 
-            stmt.executeUpdate();
+            INSERT.update(stmt);
+
+            // Hand the generated id back to the caller
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    todo.setId(String.valueOf(keys.getInt(1)));
+                }
+            }
         }
     }
 
+    // Succeeds only if the row still has todo.getVersion(), then advances the version on
+    // the todo; otherwise throws TodoConflictException with the row as it is now
+    @Override
     public void updateTodo(Todo todo) throws SQLException {
-        String sql = SQL_UPDATE_TODO;
+        int updated;
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = UPDATE.prepare(conn)) {
+
+            bindUpdate(stmt, todo);
+            updated = UPDATE.update(stmt);
+        }
+        if (updated == 0) {
+            throw new TodoConflictException(todo.getId(), getTodoById(todo.getId()));
+        }
+        todo.setVersion(todo.getVersion() + 1);
+    }
+
+    // The todo and its sub-tasks go in one transaction, so a failure leaves no orphans
+    @Override
+    public void deleteTodo(String id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = DELETE.prepare(conn)) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.setString(1, id);
+                if (DELETE.update(stmt) > 0) {
+                    deleteDescendants(conn, Collections.singletonList(id));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void deleteTodo(Todo todo) throws SQLException {
+        int deleted;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = DELETE_IF_VERSION.prepare(conn)) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.setString(1, todo.getId());
+                stmt.setInt(2, todo.getVersion());
+                deleted = DELETE_IF_VERSION.update(stmt);
+                if (deleted > 0) {
+                    deleteDescendants(conn, Collections.singletonList(todo.getId()));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        if (deleted == 0) {
+            Todo current = getTodoById(todo.getId());
+            // Already gone is what the caller wanted
+            if (current != null) {
+                throw new TodoConflictException(todo.getId(), current);
+            }
+        }
+    }
+
+    // All todos matching the query, newest first
+    @Override
+    public List<Todo> findTodos(TodoQuery query) throws SQLException {
+        List<Todo> todos = new ArrayList<>();
+        streamTodos(query, todos::add);
+        return todos;
+    }
+
+    // Returns the page of todos that follows 'after' (null for the first page), newest first
+    @Override
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        List<Todo> todos = new ArrayList<>(pageSize);
+        List<Object> params = new ArrayList<>();
+        SqlStatement page = pageStatement(query, after, pageSize, params);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = page.prepare(conn)) {
+
+            TodoQuery.bind(stmt, params, 1);
+            page.readTodos(stmt, TodoRowMapper.into(todos));
+        }
+        return todos;
+    }
+
+    // Page query and its parameters; QueryPlanCheck explains the same statements
+    static String pageSql(TodoQuery query, Todo after, int pageSize, List<Object> params) {
+        return pageStatement(query, after, pageSize, params).getSql();
+    }
+
+    // One shape per combination of conditions, first pages and later pages apart
+    private static SqlStatement pageStatement(TodoQuery query, Todo after, int pageSize, List<Object> params) {
+        StringBuilder sql = new StringBuilder(SQL_SELECT_BASE).append(" WHERE ");
+        boolean seek = after != null;
 
+        if (seek) {
+            sql.append(SQL_SEEK_AFTER);
+            Timestamp createdAt = Timestamp.valueOf(after.getCreated_at());
+            params.add(createdAt);
+            params.add(createdAt);
+            params.add(Integer.parseInt(after.getId()));
+            sql.append(" AND ");
+        }
+        if (!query.appendConditions(sql, params)) {
+            // Drop the dangling " WHERE " / " AND "
+            sql.setLength(sql.length() - (seek ? " AND ".length() : " WHERE ".length()));
+        }
+        sql.append(SQL_ORDER_BY_CREATED_ID_DESC).append(SQL_LIMIT);
+        params.add(pageSize);
+        return SqlStatement.named("todos.page-" + query.shapeName() + (seek ? "-after" : ""), sql.toString());
+    }
+
+    static String byIdSql() {
+        return BY_ID.getSql();
+    }
+
+    static String updatedSinceSql() {
+        return UPDATED_SINCE.getSql();
+    }
+
+    // Streams every matching todo to the consumer without materializing the result.
+    // Uses the MySQL driver's row-by-row streaming mode, so the connection is held until done.
+    @Override
+    public void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_SELECT_BASE).append(" WHERE ");
+        if (!query.appendConditions(sql, params)) {
+            sql.setLength(sql.length() - " WHERE ".length());
+        }
+        sql.append(SQL_ORDER_BY_CREATED_ID_DESC);
+        SqlStatement find = SqlStatement.named("todos.find-" + query.shapeName(), sql.toString());
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = find.prepareForStreaming(conn)) {
+            stmt.setFetchSize(streamingFetchSize());
+
+            TodoQuery.bind(stmt, params, 1);
+            find.readTodos(stmt, row -> consumer.accept(row.toTodo()));
+        }
+    }
+
+    // Returns null when no todo has this id
+    @Override
+    public Todo getTodoById(String id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = BY_ID.prepare(conn)) {
+
+            stmt.setString(1, id);
+            return BY_ID.query(stmt, rs -> rs.next() ? TodoRowMapper.of(rs).toTodo() : null);
+        }
+    }
+
+    // Rows inserted or updated at or after the given time, for delta refreshes
+    @Override
+    public List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException {
+        List<Todo> todos = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = UPDATED_SINCE.prepare(conn)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            UPDATED_SINCE.readTodos(stmt, TodoRowMapper.into(todos));
+        }
+        return todos;
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException {
+        List<Todo> todos = new ArrayList<>();
+        SqlStatement page = afterId == null ? UPDATED_FIRST_PAGE : UPDATED_NEXT_PAGE;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = page.prepare(conn)) {
+
+            int index = 1;
+            stmt.setTimestamp(index++, Timestamp.valueOf(updatedAt));
+            if (afterId != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(updatedAt));
+                stmt.setInt(index++, Integer.parseInt(afterId));
+            }
+            stmt.setInt(index, limit);
+            page.readTodos(stmt, TodoRowMapper.into(todos));
+        }
+        return todos;
+    }
+
+    @Override
+    public List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException {
+        List<Todo> todos = new ArrayList<>();
+        SqlStatement page = afterId == null ? DUE_FIRST_PAGE : DUE_NEXT_PAGE;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = page.prepare(conn)) {
+
+            int index = 1;
+            stmt.setTimestamp(index++, Timestamp.valueOf(dueAt));
+            if (afterId != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(dueAt));
+                stmt.setInt(index++, Integer.parseInt(afterId));
+            }
+            stmt.setInt(index, limit);
+            page.readTodos(stmt, TodoRowMapper.into(todos));
+        }
+        return todos;
+    }
+
+    static String dueAfterSql(boolean afterKey) {
+        return (afterKey ? DUE_NEXT_PAGE : DUE_FIRST_PAGE).getSql();
+    }
+
+    // Latest updated_at in the table according to the database clock, or null when empty
+    @Override
+    public LocalDateTime getLatestUpdatedAt() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = MAX_UPDATED_AT.prepare(conn)) {
+            return MAX_UPDATED_AT.query(stmt, rs -> rs.next() ? rs.getObject(1, LocalDateTime.class) : null);
+        }
+    }
+
+    // ===== CHANGE FEED =====
+    @Override
+    public boolean supportsChangeFeed() {
+        return true;
+    }
+
+    @Override
+    public long getLatestChangeSequence() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = MAX_CHANGE_SEQ.prepare(conn)) {
+            return MAX_CHANGE_SEQ.query(stmt, rs -> rs.next() ? rs.getLong(1) : 0);
+        }
+    }
+
+    @Override
+    public List<TodoChange> getChangesSince(long sequence, int limit) throws SQLException {
+        List<TodoChange> changes = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = CHANGES_SINCE.prepare(conn)) {
+
+            stmt.setLong(1, sequence);
+            stmt.setInt(2, limit);
+            // seq, todo_id and op are the first three columns
+            CHANGES_SINCE.readTodos(stmt, row -> changes.add(new TodoChange(row.getResultSet().getLong(1),
+                    String.valueOf(row.getResultSet().getInt(2)),
+                    TodoChange.Type.fromCode(row.getResultSet().getString(3)),
+                    row.hasTodo() ? row.toTodo() : null)));
+        }
+        return changes;
+    }
+
+    // ===== BATCH METHODS =====
+    // Each chunk of rows is sent as one JDBC batch in its own transaction. A failing chunk
+    // is rolled back and its rows reported FAILED; other chunks are unaffected.
+    @Override
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        return executeBatch(INSERT, todos, true, (stmt, todo) -> {
             stmt.setString(1, todo.getTitle());
             stmt.setString(2, todo.getDescription());
             stmt.setBoolean(3, todo.isCompleted());
-            stmt.setTimestamp(4, Timestamp.valueOf(todo.getUpdated_at()));
-            stmt.setString(5, todo.getId());
+            bindParent(stmt, 4, todo.getParent_id());
+            bindDue(stmt, 5, todo);
+        });
+    }
 
-            stmt.executeUpdate();
+    // LOAD DATA LOCAL INFILE when the pool allows it (-Dtodo.db.allowLoadLocalInfile=true),
+    // else batched multi-row INSERTs. Generated ids are not read back either way. Only a
+    // server that refuses LOCAL INFILE sends the rows on to the inserts; any other
+    // failure is thrown, since the rows may be stored already.
+    @Override
+    public BatchResult importTodos(List<Todo> todos) throws SQLException {
+        if (loadDataUsable && DatabaseConnection.isMySql()
+                && DatabaseConnection.getPool().getConfig().isAllowLoadLocalInfile()) {
+            BatchResult loaded = loadData(todos);
+            if (loaded != null) {
+                return loaded;
+            }
         }
+        return executeBatch(IMPORT, todos, false, (stmt, todo) -> {
+            LocalDateTime now = LocalDateTime.now();
+            stmt.setString(1, todo.getTitle());
+            stmt.setString(2, todo.getDescription());
+            stmt.setBoolean(3, todo.isCompleted());
+            stmt.setTimestamp(4, Timestamp.valueOf(todo.getCreated_at() != null ? todo.getCreated_at() : now));
+            stmt.setTimestamp(5, Timestamp.valueOf(todo.getUpdated_at() != null ? todo.getUpdated_at() : now));
+            bindDue(stmt, 6, todo);
+        });
     }
 
-    public void deleteTodo(String id) throws SQLException {
-        String sql = SQL_DELETE_TODO_BY_ID;
+    // All rows in one statement and one transaction: all OK or an exception, in which case
+    // nothing was kept unless commit() itself failed. Null if the server refused LOCAL
+    // INFILE, which loads nothing.
+    private BatchResult loadData(List<Todo> todos) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        if (todos.isEmpty()) {
+            return result;
+        }
+        StringBuilder tsv = new StringBuilder(todos.size() * 64);
+        LocalDateTime now = LocalDateTime.now();
+        for (Todo todo : todos) {
+            appendTsvField(tsv, todo.getTitle()).append('\t');
+            appendTsvField(tsv, todo.getDescription()).append('\t');
+            tsv.append(todo.isCompleted() ? '1' : '0').append('\t');
+            tsv.append(Timestamp.valueOf(todo.getCreated_at() != null ? todo.getCreated_at() : now)).append('\t');
+            tsv.append(Timestamp.valueOf(todo.getUpdated_at() != null ? todo.getUpdated_at() : now)).append('\t');
+            appendTsvField(tsv, todo.getDue_at() != null ? Timestamp.valueOf(todo.getDue_at()).toString() : null)
+                    .append('\t');
+            appendTsvField(tsv, todo.getRecurrence()).append('\n');
+        }
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                Statement stmt = conn.createStatement()) {
+            stmt.unwrap(com.mysql.cj.jdbc.JdbcStatement.class).setLocalInfileInputStream(
+                    new java.io.ByteArrayInputStream(tsv.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+            conn.setAutoCommit(false);
+            long loaded;
+            try {
+                loaded = stmt.executeLargeUpdate(SQL_LOAD_DATA);
+            } catch (SQLException e) {
+                conn.rollback();
+                if (e.getErrorCode() == ER_NOT_ALLOWED_COMMAND || e.getErrorCode() == ER_CLIENT_LOCAL_FILES_DISABLED) {
+                    loadDataUsable = false;
+                    System.out.println("LOAD DATA LOCAL INFILE unavailable, importing with batched inserts: "
+                            + e.getMessage());
+                    return null;
+                }
+                throw e;
+            }
+            // Rows skipped with warnings would otherwise be lost silently
+            if (loaded != todos.size()) {
+                conn.rollback();
+                throw new SQLException("LOAD DATA loaded " + loaded + " of " + todos.size()
+                        + " rows; rolled back, nothing imported");
+            }
+            conn.commit();
+        }
+        for (int i = 0; i < todos.size(); i++) {
+            result.set(i, BatchResult.Status.OK, null);
+        }
+        return result;
+    }
 
-            stmt.setString(1, id);
-            stmt.executeUpdate();
+    // NULL as \N; backslash, tab and line breaks escaped as LOAD DATA expects
+    private static StringBuilder appendTsvField(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
         }
+        return out;
     }
 
-    public List<Todo> getTodosByFilter(String filter) throws SQLException {
+    // Rows whose version moved are reported CONFLICT, rows that are gone NOT_FOUND.
+    // Updated todos get their new version.
+    @Override
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = executeBatch(UPDATE, todos, false, TodoappDAOImpl::bindUpdate);
+        markConflicts(result, todos);
+        for (int i = 0; i < todos.size(); i++) {
+            if (result.isOk(i)) {
+                todos.get(i).setVersion(todos.get(i).getVersion() + 1);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        List<String> idList = new ArrayList<>(ids);
+        return executeBatch(DELETE, idList, false, (stmt, id) -> stmt.setString(1, id),
+                (conn, chunk, matched) -> deleteDescendants(conn, matched(chunk, matched, id -> id)));
+    }
+
+    @Override
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = executeBatch(DELETE_IF_VERSION, todos, false, (stmt, todo) -> {
+            stmt.setString(1, todo.getId());
+            stmt.setInt(2, todo.getVersion());
+        }, (conn, chunk, matched) -> deleteDescendants(conn, matched(chunk, matched, Todo::getId)));
+        markConflicts(result, todos);
+        return result;
+    }
+
+    // Ids of the chunk's rows the batch matched
+    private static <T> List<String> matched(List<T> chunk, boolean[] matched, Function<T, String> id) {
+        List<String> ids = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (matched[i]) {
+                ids.add(id.apply(chunk.get(i)));
+            }
+        }
+        return ids;
+    }
+
+    // Sub-tasks of the given parents, and the tree links of all of them, in the caller's
+    // transaction
+    private static void deleteDescendants(Connection conn, List<String> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        SqlStatement delete = SqlStatement.named("tree.delete-descendants-" + SqlStatement.inListSize(ids.size()),
+                SQL_DELETE_DESCENDANTS + SqlStatement.inList(ids.size()) + ")");
+        try (PreparedStatement stmt = delete.prepare(conn)) {
+            SqlStatement.bindInList(stmt, 1, ids);
+            delete.update(stmt);
+        }
+        SqlStatement unlink = SqlStatement.named("tree.delete-links-" + SqlStatement.inListSize(ids.size()),
+                SQL_DELETE_SUBTREE_LINKS + SqlStatement.inList(ids.size()) + ") subtree)");
+        try (PreparedStatement stmt = unlink.prepare(conn)) {
+            SqlStatement.bindInList(stmt, 1, ids);
+            unlink.update(stmt);
+        }
+    }
+
+    // ===== HIERARCHY =====
+    @Override
+    public List<Todo> getSubtree(String id) throws SQLException {
         List<Todo> todos = new ArrayList<>();
-        String base = SQL_SELECT_BASE;
-        String where = "";
-        if (filter != null) {
-            if ("Completed".equalsIgnoreCase(filter)) {
-                where = SQL_WHERE_COMPLETED;
-            } else if ("Incomplete".equalsIgnoreCase(filter)) {
-                where = SQL_WHERE_INCOMPLETE;
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = SUBTREE.prepare(conn)) {
+
+            stmt.setInt(1, Integer.parseInt(id));
+            SUBTREE.readTodos(stmt, TodoRowMapper.into(todos));
+        }
+        return todos;
+    }
+
+    // The triggers rewrite the closure and reject a move under the todo's own subtree
+    @Override
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        int moved;
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = MOVE.prepare(conn)) {
+
+            bindParent(stmt, 1, newParentId);
+            stmt.setTimestamp(2, Timestamp.valueOf(now));
+            stmt.setString(3, todo.getId());
+            stmt.setInt(4, todo.getVersion());
+            moved = MOVE.update(stmt);
+        }
+        if (moved == 0) {
+            throw new TodoConflictException(todo.getId(), getTodoById(todo.getId()));
+        }
+        todo.setParent_id(newParentId);
+        todo.setUpdated_at(now);
+        todo.setVersion(todo.getVersion() + 1);
+    }
+
+    @Override
+    public Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException {
+        Map<String, TodoProgress> progress = new HashMap<>();
+        if (ids.isEmpty()) {
+            return progress;
+        }
+        SqlStatement select = SqlStatement.named("tree.progress-" + SqlStatement.inListSize(ids.size()),
+                SQL_SELECT_PROGRESS + SqlStatement.inList(ids.size()) + " GROUP BY p.ancestor_id");
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = select.prepare(conn)) {
+
+            SqlStatement.bindInList(stmt, 1, new ArrayList<>(ids));
+            select.query(stmt, rs -> {
+                while (rs.next()) {
+                    progress.put(String.valueOf(rs.getInt(1)), new TodoProgress(rs.getInt(2), rs.getInt(3)));
+                }
+                return null;
+            });
+        }
+        return progress;
+    }
+
+    // A versioned write that matched nothing either lost a race (row still there) or
+    // targeted a deleted row; one IN query per batch tells them apart
+    private void markConflicts(BatchResult result, List<Todo> todos) throws SQLException {
+        List<Integer> missed = new ArrayList<>();
+        for (int i = 0; i < todos.size(); i++) {
+            if (result.getStatus(i) == BatchResult.Status.NOT_FOUND) {
+                missed.add(i);
+            }
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+
+        List<String> missedIds = new ArrayList<>(missed.size());
+        for (int index : missed) {
+            missedIds.add(todos.get(index).getId());
+        }
+        SqlStatement select = SqlStatement.named("todos.existing-" + SqlStatement.inListSize(missed.size()),
+                SQL_SELECT_EXISTING_IDS + SqlStatement.inList(missed.size()));
+
+        Set<String> existing = new HashSet<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = select.prepare(conn)) {
+            SqlStatement.bindInList(stmt, 1, missedIds);
+            select.query(stmt, rs -> {
+                while (rs.next()) {
+                    existing.add(String.valueOf(rs.getInt(1)));
+                }
+                return null;
+            });
+        }
+        for (int index : missed) {
+            if (existing.contains(todos.get(index).getId())) {
+                result.set(index, BatchResult.Status.CONFLICT, null);
             }
         }
-        String sql = base + where + SQL_SELECT_ORDER_BY_CREATED_DESC;
+    }
+
+    // Never run more calls than the pool has connections
+    @Override
+    public int getMaxConcurrency() {
+        return DatabaseConnection.getPool().getConfig().getMaxSize();
+    }
+
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    public void setBatchChunkSize(int batchChunkSize) {
+        if (batchChunkSize < 1) {
+            throw new IllegalArgumentException("batchChunkSize must be positive");
+        }
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    private <T> BatchResult executeBatch(SqlStatement statement, List<T> items, boolean generatedKeys,
+            BatchBinder<T> binder) throws SQLException {
+        return executeBatch(statement, items, generatedKeys, binder, null);
+    }
+
+    private <T> BatchResult executeBatch(SqlStatement statement, List<T> items, boolean generatedKeys,
+            BatchBinder<T> binder, ChunkFollowUp<T> followUp) throws SQLException {
+        BatchResult result = new BatchResult(items.size());
+        if (items.isEmpty()) {
+            return result;
+        }
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery()) {
+                PreparedStatement stmt = generatedKeys ? statement.prepareReturningKeys(conn)
+                        : statement.prepare(conn)) {
+            conn.setAutoCommit(false);
+
+            for (int start = 0; start < items.size(); start += batchChunkSize) {
+                int end = Math.min(start + batchChunkSize, items.size());
+                try {
+                    for (int i = start; i < end; i++) {
+                        binder.bind(stmt, items.get(i));
+                        stmt.addBatch();
+                    }
+                    int[] counts = statement.batch(stmt, end - start);
+                    if (generatedKeys) {
+                        assignGeneratedKeys(stmt, items, start, end);
+                    }
+                    boolean[] matched = new boolean[end - start];
+                    for (int i = start; i < end; i++) {
+                        int count = i - start < counts.length ? counts[i - start] : Statement.SUCCESS_NO_INFO;
+                        // Rewritten multi-row statements report SUCCESS_NO_INFO rather than per-row counts
+                        matched[i - start] = count > 0 || count == Statement.SUCCESS_NO_INFO;
+                    }
+                    if (followUp != null) {
+                        followUp.run(conn, items.subList(start, end), matched);
+                    }
+                    conn.commit();
 
-            while (rs.next()) {
-                Todo todo = new Todo(
-                        String.valueOf(rs.getInt("id")),
-                        rs.getString("tittle"),
-                        rs.getString("description"),
-                        rs.getBoolean("completed"),
-                        rs.getTimestamp("created_at").toLocalDateTime(),
-                        rs.getTimestamp("updated_at").toLocalDateTime());
-                todos.add(todo);
+                    for (int i = start; i < end; i++) {
+                        result.set(i, matched[i - start] ? BatchResult.Status.OK : BatchResult.Status.NOT_FOUND, null);
+                    }
+                } catch (SQLException e) {
+                    stmt.clearBatch();
+                    conn.rollback();
+                    for (int i = start; i < end; i++) {
+                        result.set(i, BatchResult.Status.FAILED, e.getMessage());
+                    }
+                }
             }
         }
-        return todos;
+        return result;
+    }
+
+    // Generated keys come back in insert order; only Todo items can receive them
+    private static <T> void assignGeneratedKeys(PreparedStatement stmt, List<T> items, int start, int end)
+            throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            for (int i = start; i < end && keys.next(); i++) {
+                T item = items.get(i);
+                if (item instanceof Todo) {
+                    ((Todo) item).setId(String.valueOf(keys.getInt(1)));
+                }
+            }
+        }
+    }
+
+    // ===== HELPERS =====
+    // MySQL streams row by row only with Integer.MIN_VALUE; other drivers take a plain hint
+    private static int streamingFetchSize() {
+        return DatabaseConnection.isMySql() ? Integer.MIN_VALUE : 1_000;
+    }
+
+    private static void bindUpdate(PreparedStatement stmt, Todo todo) throws SQLException {
+        stmt.setString(1, todo.getTitle());
+        stmt.setString(2, todo.getDescription());
+        stmt.setBoolean(3, todo.isCompleted());
+        stmt.setTimestamp(4, Timestamp.valueOf(todo.getUpdated_at()));
+        bindDue(stmt, 5, todo);
+        stmt.setString(7, todo.getId());
+        stmt.setInt(8, todo.getVersion());
+    }
+
+    // due_at and recurrence at index and index + 1
+    private static void bindDue(PreparedStatement stmt, int index, Todo todo) throws SQLException {
+        if (todo.getDue_at() == null) {
+            stmt.setNull(index, Types.TIMESTAMP);
+        } else {
+            stmt.setTimestamp(index, Timestamp.valueOf(todo.getDue_at()));
+        }
+        stmt.setString(index + 1, todo.getRecurrence());
+    }
+
+    private static void bindParent(PreparedStatement stmt, int index, String parentId) throws SQLException {
+        if (parentId == null) {
+            stmt.setNull(index, Types.INTEGER);
+        } else {
+            stmt.setInt(index, Integer.parseInt(parentId));
+        }
     }
 }
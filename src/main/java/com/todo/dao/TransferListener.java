@@ -0,0 +1,17 @@
+package com.todo.dao;
+
+// Progress callbacks for TodoExporter and TodoImporter. The importer calls these from
+// its worker threads, so implementations must be thread-safe (and hop to the EDT
+// themselves if they touch Swing).
+public interface TransferListener {
+    TransferListener NONE = (rows, bytes) -> {
+    };
+
+    // Rows and bytes done so far
+    void onProgress(long rows, long bytes);
+
+    // Polled between chunks; returning true stops the transfer early
+    default boolean isCancelled() {
+        return false;
+    }
+}
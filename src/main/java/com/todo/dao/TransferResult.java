@@ -0,0 +1,75 @@
+package com.todo.dao;
+
+import java.util.concurrent.TimeUnit;
+
+// Outcome of an export or import: row and byte counts and the throughput achieved
+public class TransferResult {
+    private final long rows;
+    private final long failedRows;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+    private final String firstError;
+
+    public TransferResult(long rows, long failedRows, long bytes, long elapsedNanos, boolean cancelled,
+            String firstError) {
+        this.rows = rows;
+        this.failedRows = failedRows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+        this.firstError = firstError;
+    }
+
+    // Rows written (export) or stored (import)
+    public long getRows() {
+        return rows;
+    }
+
+    // Import only: rows that could not be parsed or stored
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Null unless a row failed
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+
+    public String summary() {
+        String summary = String.format("%d rows, %.1f MB in %.1f s (%.0f rows/s, %.1f MB/s)", rows,
+                bytes / (1024.0 * 1024.0), elapsedNanos / 1e9, getRowsPerSecond(), getMegabytesPerSecond());
+        if (failedRows > 0) {
+            summary += ", " + failedRows + " failed (" + firstError + ")";
+        }
+        if (cancelled) {
+            summary += ", cancelled";
+        }
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
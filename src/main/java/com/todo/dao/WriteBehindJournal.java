@@ -0,0 +1,204 @@
+package com.todo.dao;
+
+import com.todo.model.EpochMillis;
+import com.todo.model.Todo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Local journal of write-behind mutations not yet written to the repository.
+// Every accepted mutation is appended (and fsynced unless disabled) before the caller
+// returns; after each flush the journal is rewritten to hold only what is still
+// pending. On startup the entries are read back and written again, so a crash loses
+// nothing that was acknowledged. Same record framing as the embedded store's log:
+// [int bodyLength][int crc32(body)][body]; a torn record at the tail is ignored.
+final class WriteBehindJournal implements AutoCloseable {
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long NULL_TIME = EpochMillis.NULL;
+
+    private final Path path;
+    private final boolean syncWrites;
+    private FileChannel channel;
+
+    WriteBehindJournal(Path path, boolean syncWrites) throws IOException {
+        this.path = path;
+        this.syncWrites = syncWrites;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = open(path);
+    }
+
+    // Entries in the order they were journaled
+    List<WriteBehindTodoRepository.Pending> readAll() throws IOException {
+        List<WriteBehindTodoRepository.Pending> entries = new ArrayList<>();
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + RECORD_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            entries.add(decode(body));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < size) {
+            System.out.println("Write-behind journal: ignoring " + (size - position) + " torn bytes at the end");
+            channel.truncate(position);
+        }
+        return entries;
+    }
+
+    void append(WriteBehindTodoRepository.Pending entry) throws IOException {
+        ByteBuffer record = frame(encode(entry));
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (syncWrites) {
+            channel.force(false);
+        }
+    }
+
+    // Replaces the journal with exactly these entries; atomic, so a crash leaves the old or the new one
+    void rewrite(Collection<WriteBehindTodoRepository.Pending> entries) throws IOException {
+        if (entries.isEmpty()) {
+            channel.truncate(0);
+            if (syncWrites) {
+                channel.force(false);
+            }
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (WriteBehindTodoRepository.Pending entry : entries) {
+                ByteBuffer record = frame(encode(entry));
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ===== ENCODING =====
+    // [byte op][id][int version][byte completed][long created][long updated][title][description]
+    // [long due][recurrence]; entries journaled before due dates existed end after the description
+    private static ByteBuffer encode(WriteBehindTodoRepository.Pending entry) {
+        Todo todo = entry.todo;
+        byte[] id = bytes(todo.getId());
+        byte[] title = bytes(todo.getTitle());
+        byte[] description = bytes(todo.getDescription());
+        byte[] recurrence = bytes(todo.getRecurrence());
+        ByteBuffer body = ByteBuffer.allocate(1 + length(id) + 4 + 1 + 8 + 8 + length(title) + length(description)
+                + 8 + length(recurrence));
+        body.put((byte) entry.op.ordinal());
+        writeString(body, id);
+        body.putInt(todo.getVersion())
+                .put((byte) (todo.isCompleted() ? 1 : 0))
+                .putLong(EpochMillis.toMillis(todo.getCreated_at()))
+                .putLong(EpochMillis.toMillis(todo.getUpdated_at()));
+        writeString(body, title);
+        writeString(body, description);
+        body.putLong(EpochMillis.toMillis(todo.getDue_at()));
+        writeString(body, recurrence);
+        body.flip();
+        return body;
+    }
+
+    private static WriteBehindTodoRepository.Pending decode(ByteBuffer body) throws IOException {
+        int op = body.get();
+        if (op < 0 || op >= WriteBehindTodoRepository.Op.values().length) {
+            throw new IOException("Unknown write-behind journal entry " + op);
+        }
+        String id = readString(body);
+        int version = body.getInt();
+        boolean completed = body.get() != 0;
+        LocalDateTime created = EpochMillis.fromMillis(body.getLong());
+        LocalDateTime updated = EpochMillis.fromMillis(body.getLong());
+        String title = readString(body);
+        String description = readString(body);
+        Todo todo = new Todo(id, title, description, completed, created, updated);
+        todo.setVersion(version);
+        if (body.hasRemaining()) {
+            todo.setDue_at(EpochMillis.fromMillis(body.getLong()));
+            todo.setRecurrence(readString(body));
+        }
+        return new WriteBehindTodoRepository.Pending(WriteBehindTodoRepository.Op.values()[op], todo);
+    }
+
+    private static ByteBuffer frame(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, body.limit());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.limit());
+        record.putInt(body.limit()).putInt((int) crc.getValue()).put(body).flip();
+        return record;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+        buffer.flip();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,663 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Write-behind decorator: updates and deletes are acknowledged as soon as they are
+// journaled locally and written to the wrapped repository later, in batches, by a
+// background writer. Pending mutations are keyed by todo id, so a burst of edits to the
+// same row within the flush window costs one UPDATE. Inserts stay synchronous because
+// the database assigns the id.
+//
+// Reads see pending writes: rows returned by the wrapped repository are replaced by
+// their pending state, and pending deletes are dropped. A pending row that would only
+// now match a query is not added to its results.
+//
+// Optimistic concurrency still applies, but a rejected write is only known after the
+// flush, so it is reported to listeners instead of thrown. Coalesced updates keep the
+// version of the first one, which is what the stored row still has.
+//
+// Enable with -Dtodo.writeBehind=true. Tuning: todo.writeBehind.flushMs (window),
+// batchSize, maxPending (bound before callers block) and maxBlockMs (then they fail).
+public class WriteBehindTodoRepository implements TodoRepository {
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = Long.getLong("todo.writeBehind.flushMs", 500);
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("todo.writeBehind.batchSize", 500);
+    public static final int DEFAULT_MAX_PENDING = Integer.getInteger("todo.writeBehind.maxPending", 10_000);
+    private static final long MAX_BLOCK_MS = Long.getLong("todo.writeBehind.maxBlockMs", 10_000);
+    // Rows that keep failing on their own (not because the database is down) are given up after this
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    enum Op {
+        UPDATE,
+        // Versioned delete (deleteTodo(Todo))
+        DELETE,
+        // Unconditional delete by id
+        DELETE_ANY
+    }
+
+    static final class Pending {
+        final Op op;
+        final Todo todo;
+        int attempts;
+
+        Pending(Op op, Todo todo) {
+            this.op = op;
+            this.todo = todo;
+        }
+
+        boolean isDelete() {
+            return op != Op.UPDATE;
+        }
+    }
+
+    public interface Listener {
+        // A pending write was not applied: CONFLICT or NOT_FOUND for rows someone else
+        // changed or deleted first, FAILED once retries are exhausted. Called on the writer thread.
+        void onWriteRejected(Todo todo, boolean delete, BatchResult.Status status, String error);
+    }
+
+    private final TodoRepository delegate;
+    private final WriteBehindJournal journal;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final int maxPending;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread writer;
+
+    private final OperationStats flushStats = Metrics.operation("writeBehind.flush");
+    private final OperationStats coalescedStats = Metrics.operation("writeBehind.coalesced");
+
+    // All guarded by 'this'. Waiting for a flush slot and for queue space use its monitor.
+    // id -> mutation not yet handed to the writer, in arrival order
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    // id -> mutation the writer is currently writing
+    private final Map<String, Pending> inFlight = new LinkedHashMap<>();
+    // id -> version our last flushed update produced, so an edit based on the version
+    // from before that flush is not mistaken for a conflict
+    private final LinkedHashMap<String, Integer> writtenVersions = new LinkedHashMap<String, Integer>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > maxPending;
+        }
+    };
+    private boolean closing;
+
+    public WriteBehindTodoRepository(TodoRepository delegate, Path journalFile) throws SQLException {
+        this(delegate, journalFile, Boolean.parseBoolean(System.getProperty("todo.writeBehind.syncJournal", "true")),
+                DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_BATCH_SIZE, DEFAULT_MAX_PENDING);
+    }
+
+    public WriteBehindTodoRepository(TodoRepository delegate, Path journalFile, boolean syncJournal,
+            long flushIntervalMs, int batchSize, int maxPending) throws SQLException {
+        if (batchSize < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("batchSize and maxPending must be positive");
+        }
+        this.delegate = delegate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        try {
+            this.journal = new WriteBehindJournal(journalFile, syncJournal);
+            // Writes acknowledged before a crash are replayed through the normal path
+            for (Pending entry : journal.readAll()) {
+                coalesce(entry);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to open write-behind journal " + journalFile + ": " + e.getMessage(), e);
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("Write-behind: recovered " + pending.size() + " unwritten changes");
+        }
+
+        this.writer = new Thread(this::runWriter, "todo-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public TodoRepository getDelegate() {
+        return delegate;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Mutations accepted but not yet written, including the batch being written
+    public synchronized int getPendingCount() {
+        return pending.size() + inFlight.size();
+    }
+
+    // Blocks until everything accepted so far has been written (or rejected)
+    public void flush() throws SQLException {
+        synchronized (this) {
+            notifyAll();
+            try {
+                while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                    if (closing && !writer.isAlive()) {
+                        throw new SQLException("Write-behind writer has stopped with " + getPendingCount()
+                                + " changes unwritten");
+                    }
+                    wait(flushIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while flushing write-behind queue", e);
+            }
+        }
+    }
+
+    // ===== WRITES =====
+    @Override
+    public void addTodo(Todo todo) throws SQLException {
+        delegate.addTodo(todo);
+    }
+
+    @Override
+    public BatchResult addTodos(List<Todo> todos) throws SQLException {
+        return delegate.addTodos(todos);
+    }
+
+    @Override
+    public BatchResult importTodos(List<Todo> todos) throws SQLException {
+        return delegate.importTodos(todos);
+    }
+
+    // Throws TodoConflictException only when the todo is already deleted locally;
+    // conflicts with other clients surface later through the listeners
+    @Override
+    public void updateTodo(Todo todo) throws SQLException {
+        if (enqueue(Op.UPDATE, todo) != BatchResult.Status.OK) {
+            throw new TodoConflictException(todo.getId(), null);
+        }
+    }
+
+    @Override
+    public void deleteTodo(String id) throws SQLException {
+        enqueue(Op.DELETE_ANY, new Todo(id, null, false));
+    }
+
+    @Override
+    public void deleteTodo(Todo todo) throws SQLException {
+        enqueue(Op.DELETE, todo);
+    }
+
+    @Override
+    public BatchResult updateTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            result.set(i, enqueue(Op.UPDATE, todos.get(i)), null);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteTodos(Collection<String> ids) throws SQLException {
+        BatchResult result = new BatchResult(ids.size());
+        int i = 0;
+        for (String id : ids) {
+            deleteTodo(id);
+            result.set(i++, BatchResult.Status.OK, null);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult deleteTodos(List<Todo> todos) throws SQLException {
+        BatchResult result = new BatchResult(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            result.set(i, enqueue(Op.DELETE, todos.get(i)), null);
+        }
+        return result;
+    }
+
+    // ===== READS =====
+    @Override
+    public Todo getTodoById(String id) throws SQLException {
+        Todo stored = delegate.getTodoById(id);
+        synchronized (this) {
+            Pending latest = latest(id);
+            if (latest == null) {
+                return stored;
+            }
+            return latest.isDelete() ? null : copy(latest.todo);
+        }
+    }
+
+    @Override
+    public List<Todo> getAllTodos() throws SQLException {
+        return overlay(delegate.getAllTodos());
+    }
+
+    @Override
+    public List<Todo> findTodos(TodoQuery query) throws SQLException {
+        return overlay(delegate.findTodos(query));
+    }
+
+    @Override
+    public List<Todo> getTodosPage(TodoQuery query, Todo after, int pageSize) throws SQLException {
+        return overlay(delegate.getTodosPage(query, after, pageSize));
+    }
+
+    @Override
+    public void streamTodos(TodoQuery query, Consumer<Todo> consumer) throws SQLException {
+        delegate.streamTodos(query, todo -> {
+            Todo shown;
+            synchronized (this) {
+                shown = overlay(todo);
+            }
+            if (shown != null) {
+                consumer.accept(shown);
+            }
+        });
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedSince(LocalDateTime since) throws SQLException {
+        return overlay(delegate.getTodosUpdatedSince(since));
+    }
+
+    @Override
+    public List<Todo> getTodosUpdatedAfter(LocalDateTime updatedAt, String afterId, int limit) throws SQLException {
+        return overlay(delegate.getTodosUpdatedAfter(updatedAt, afterId, limit));
+    }
+
+    // Pending edits may have moved a due date; the scheduler checks each row again before firing
+    @Override
+    public List<Todo> getTodosDueAfter(LocalDateTime dueAt, String afterId, int limit) throws SQLException {
+        return overlay(delegate.getTodosDueAfter(dueAt, afterId, limit));
+    }
+
+    @Override
+    public LocalDateTime getLatestUpdatedAt() throws SQLException {
+        return delegate.getLatestUpdatedAt();
+    }
+
+    // ===== HIERARCHY =====
+    @Override
+    public List<Todo> getSubtree(String id) throws SQLException {
+        return overlay(delegate.getSubtree(id));
+    }
+
+    // Synchronous: pending edits are written first so the move is checked against the
+    // version they produce, and the tree is never rearranged under a queued delete
+    @Override
+    public void moveTodo(Todo todo, String newParentId) throws SQLException {
+        flush();
+        Todo moved = copy(todo);
+        synchronized (this) {
+            Integer written = writtenVersions.get(todo.getId());
+            if (written != null && todo.getVersion() == written - 1) {
+                moved.setVersion(written);
+            }
+        }
+        delegate.moveTodo(moved, newParentId);
+        todo.setParent_id(moved.getParent_id());
+        todo.setUpdated_at(moved.getUpdated_at());
+        todo.setVersion(moved.getVersion());
+    }
+
+    @Override
+    public Map<String, TodoProgress> getProgress(Collection<String> ids) throws SQLException {
+        return delegate.getProgress(ids);
+    }
+
+    // ===== CHANGE FEED =====
+    @Override
+    public boolean supportsChangeFeed() {
+        return delegate.supportsChangeFeed();
+    }
+
+    @Override
+    public long getLatestChangeSequence() throws SQLException {
+        return delegate.getLatestChangeSequence();
+    }
+
+    // Changed rows with pending local edits show the pending state, like every other read
+    @Override
+    public List<TodoChange> getChangesSince(long sequence, int limit) throws SQLException {
+        List<TodoChange> changes = delegate.getChangesSince(sequence, limit);
+        List<TodoChange> shown = new ArrayList<>(changes.size());
+        synchronized (this) {
+            for (TodoChange change : changes) {
+                Pending latest = latest(change.getTodoId());
+                if (latest == null || change.isDeleted()) {
+                    shown.add(change);
+                } else if (latest.isDelete()) {
+                    shown.add(new TodoChange(change.getSequence(), change.getTodoId(), TodoChange.Type.DELETE, null));
+                } else {
+                    shown.add(new TodoChange(change.getSequence(), change.getTodoId(), change.getType(),
+                            copy(latest.todo)));
+                }
+            }
+        }
+        return shown;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return delegate.getMaxConcurrency();
+    }
+
+    // Writes out everything still pending, then closes the wrapped repository. Whatever
+    // cannot be written (database unreachable) stays in the journal for the next start.
+    @Override
+    public void close() throws SQLException {
+        synchronized (this) {
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing write-behind journal: " + e.getMessage());
+        }
+        delegate.close();
+    }
+
+    // ===== QUEUE =====
+    // Journals the mutation and merges it into the pending one for the same id.
+    // Blocks while the queue is full; fails if it stays full for MAX_BLOCK_MS.
+    private synchronized BatchResult.Status enqueue(Op op, Todo todo) throws SQLException {
+        if (closing) {
+            throw new SQLException("Write-behind queue is closed");
+        }
+        String id = todo.getId();
+        long deadline = System.currentTimeMillis() + MAX_BLOCK_MS;
+        try {
+            while (!pending.containsKey(id) && pending.size() >= maxPending) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new SQLException("Write-behind queue is full (" + maxPending + " pending changes)");
+                }
+                notifyAll();
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write-behind queue", e);
+        }
+
+        Pending latest = latest(id);
+        if (op == Op.UPDATE && latest != null && latest.isDelete()) {
+            return BatchResult.Status.NOT_FOUND;
+        }
+        Todo state = copy(todo);
+        Integer written = writtenVersions.get(id);
+        if (written != null && state.getVersion() == written - 1) {
+            state.setVersion(written);
+        }
+        Pending entry = new Pending(op, state);
+        try {
+            journal.append(entry);
+        } catch (IOException e) {
+            throw new SQLException("Failed to journal change: " + e.getMessage(), e);
+        }
+        coalesce(entry);
+        if (pending.size() >= batchSize) {
+            notifyAll();
+        }
+        return BatchResult.Status.OK;
+    }
+
+    // Only the last state per id is written. The stored row still has the version the
+    // first pending mutation was based on, so that version is kept.
+    private void coalesce(Pending entry) {
+        String id = entry.todo.getId();
+        Pending previous = pending.remove(id);
+        if (previous != null) {
+            coalescedStats.record(0, 1, 0);
+            if (previous.op == Op.DELETE_ANY) {
+                entry = previous;
+            } else if (entry.op != Op.DELETE_ANY) {
+                entry.todo.setVersion(previous.todo.getVersion());
+            }
+        }
+        pending.put(id, entry);
+    }
+
+    private Pending latest(String id) {
+        Pending latest = pending.get(id);
+        return latest != null ? latest : inFlight.get(id);
+    }
+
+    // ===== WRITER =====
+    private void runWriter() {
+        long retryDelayMs = flushIntervalMs;
+        while (true) {
+            List<Pending> batch;
+            synchronized (this) {
+                try {
+                    while (pending.isEmpty() && !closing) {
+                        wait();
+                    }
+                    // Coalescing window: let edits to the same rows pile up unless the batch is full
+                    if (!closing && pending.size() < batchSize) {
+                        wait(flushIntervalMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                Iterator<Pending> it = pending.values().iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    Pending entry = it.next();
+                    it.remove();
+                    inFlight.put(entry.todo.getId(), entry);
+                    batch.add(entry);
+                }
+                // Room for callers blocked on a full queue
+                notifyAll();
+            }
+
+            boolean written = write(batch);
+            if (written) {
+                retryDelayMs = flushIntervalMs;
+            } else {
+                if (closing) {
+                    System.out.println("Write-behind: " + getPendingCount()
+                            + " changes left in the journal for the next start");
+                    return;
+                }
+                synchronized (this) {
+                    try {
+                        wait(retryDelayMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                retryDelayMs = Math.min(MAX_RETRY_DELAY_MS, retryDelayMs * 2);
+            }
+        }
+    }
+
+    // Updates, deletes and deletes by id are three separate calls, each committed on its
+    // own. Each result is settled as soon as its call returns, so when a later call throws
+    // only the entries that never reached the repository are queued again; an update
+    // already saved is not sent a second time (its old version would come back as a
+    // conflict). Returns false if any call failed that way.
+    private boolean write(List<Pending> batch) {
+        List<Pending> updates = new ArrayList<>();
+        List<Pending> deletes = new ArrayList<>();
+        List<Pending> deletesById = new ArrayList<>();
+        for (Pending entry : batch) {
+            (entry.op == Op.UPDATE ? updates : entry.op == Op.DELETE ? deletes : deletesById).add(entry);
+        }
+
+        long start = System.nanoTime();
+        List<Pending> retry = new ArrayList<>();
+        boolean written = true;
+        try {
+            if (!updates.isEmpty()) {
+                List<Todo> updateRows = rows(updates);
+                BatchResult updateResult = delegate.updateTodos(updateRows);
+                settleNow(updates, updateRows, updateResult, retry);
+            }
+            if (!deletes.isEmpty()) {
+                settleNow(deletes, null, delegate.deleteTodos(rows(deletes)), retry);
+            }
+            if (!deletesById.isEmpty()) {
+                List<String> ids = new ArrayList<>(deletesById.size());
+                for (Pending entry : deletesById) {
+                    ids.add(entry.todo.getId());
+                }
+                settleNow(deletesById, null, delegate.deleteTodos(ids), retry);
+            }
+            flushStats.record(System.nanoTime() - start, batch.size(), 0);
+        } catch (SQLException | RuntimeException e) {
+            flushStats.recordError(System.nanoTime() - start);
+            System.out.println("Write-behind: flush failed, will retry: " + e.getMessage());
+            written = false;
+        }
+
+        synchronized (this) {
+            // Whatever is still in flight never ran
+            retry.addAll(inFlight.values());
+            requeue(retry);
+            try {
+                List<Pending> unwritten = new ArrayList<>(pending.values());
+                journal.rewrite(unwritten);
+            } catch (IOException e) {
+                // The old journal still holds these changes; replaying them is harmless
+                // for deletes and at worst reports stale updates as conflicts
+                System.out.println("Write-behind: could not rewrite journal: " + e.getMessage());
+            }
+            notifyAll();
+        }
+        return written;
+    }
+
+    private synchronized void settleNow(List<Pending> entries, List<Todo> rows, BatchResult result,
+            List<Pending> retry) {
+        settle(entries, rows, result, retry);
+        for (Pending entry : entries) {
+            inFlight.remove(entry.todo.getId());
+        }
+    }
+
+    private void settle(List<Pending> entries, List<Todo> rows, BatchResult result, List<Pending> retry) {
+        for (int i = 0; i < entries.size(); i++) {
+            Pending entry = entries.get(i);
+            String id = entry.todo.getId();
+            BatchResult.Status status = result.getStatus(i);
+            if (status == BatchResult.Status.OK) {
+                if (rows != null) {
+                    // The repository bumped the version on the row it wrote
+                    int version = rows.get(i).getVersion();
+                    writtenVersions.put(id, version);
+                    Pending next = pending.get(id);
+                    if (next != null && next.todo.getVersion() == version - 1) {
+                        next.todo.setVersion(version);
+                    }
+                }
+            } else if (status == BatchResult.Status.NOT_FOUND && entry.isDelete()) {
+                // Already gone: the delete's goal is met
+            } else if (status == BatchResult.Status.FAILED && ++entry.attempts < MAX_ATTEMPTS) {
+                retry.add(entry);
+            } else {
+                for (Listener listener : listeners) {
+                    try {
+                        listener.onWriteRejected(copy(entry.todo), entry.isDelete(), status, result.getError(i));
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    // Puts entries back ahead of newer ones; a newer mutation of the same id wins
+    private void requeue(List<Pending> entries) {
+        inFlight.clear();
+        if (entries.isEmpty()) {
+            return;
+        }
+        LinkedHashMap<String, Pending> merged = new LinkedHashMap<>();
+        for (Pending entry : entries) {
+            merged.put(entry.todo.getId(), entry);
+        }
+        for (Pending newer : pending.values()) {
+            Pending older = merged.remove(newer.todo.getId());
+            if (older != null && older.op != Op.DELETE_ANY && newer.op != Op.DELETE_ANY) {
+                newer.todo.setVersion(older.todo.getVersion());
+            }
+            merged.put(newer.todo.getId(), older != null && older.op == Op.DELETE_ANY ? older : newer);
+        }
+        pending.clear();
+        pending.putAll(merged);
+    }
+
+    // ===== HELPERS =====
+    private List<Todo> overlay(List<Todo> rows) {
+        List<Todo> shown = new ArrayList<>(rows.size());
+        synchronized (this) {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return rows;
+            }
+            for (Todo row : rows) {
+                Todo todo = overlay(row);
+                if (todo != null) {
+                    shown.add(todo);
+                }
+            }
+        }
+        return shown;
+    }
+
+    // Caller holds the lock
+    private Todo overlay(Todo row) {
+        Pending latest = latest(row.getId());
+        if (latest == null) {
+            return row;
+        }
+        return latest.isDelete() ? null : copy(latest.todo);
+    }
+
+    private static List<Todo> rows(List<Pending> entries) {
+        List<Todo> rows = new ArrayList<>(entries.size());
+        for (Pending entry : entries) {
+            rows.add(copy(entry.todo));
+        }
+        return rows;
+    }
+
+    private static Todo copy(Todo todo) {
+        Todo copy = new Todo(todo.getId(), todo.getTitle(), todo.getDescription(), todo.isCompleted(),
+                todo.getCreated_at(), todo.getUpdated_at());
+        copy.setVersion(todo.getVersion());
+        copy.setParent_id(todo.getParent_id());
+        copy.setDue_at(todo.getDue_at());
+        copy.setRecurrence(todo.getRecurrence());
+        return copy;
+    }
+}
@@ -0,0 +1,106 @@
+package com.todo.gui;
+
+import com.todo.util.LatencyHistogram;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures how long each event takes on the Event Dispatch Thread. Any handler that
+// blocks on I/O shows up here as a stall, so this is how we check the UI stays responsive.
+public class EdtMonitor extends EventQueue {
+    private static final long DEFAULT_STALL_THRESHOLD_MS = 100;
+    private static volatile EdtMonitor installed;
+
+    private final LatencyHistogram dispatchTime = Metrics.operation("edt.dispatch").getLatency();
+    private final AtomicLong stalls = new AtomicLong();
+    private final long stallThresholdNanos;
+
+    // Modal dialogs pump events from inside a handler; the outer event then spans the
+    // user's think-time, so it is excluded. Only touched on the EDT.
+    private int depth;
+    private boolean nestedLoopSeen;
+    private long nestedDispatches;
+
+    private EdtMonitor(long stallThresholdMs) {
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMs);
+    }
+
+    public static synchronized EdtMonitor install() {
+        if (installed == null) {
+            long threshold = Long.getLong("todo.edt.stallThresholdMs", DEFAULT_STALL_THRESHOLD_MS);
+            EdtMonitor monitor = new EdtMonitor(threshold);
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+            installed = monitor;
+        }
+        return installed;
+    }
+
+    // Null until install() has been called
+    public static EdtMonitor get() {
+        return installed;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        boolean parentNested = nestedLoopSeen;
+        nestedLoopSeen = false;
+        if (depth > 0) {
+            nestedDispatches++;
+        }
+        depth++;
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            depth--;
+            boolean ranNestedLoop = nestedLoopSeen;
+            nestedLoopSeen = parentNested || depth > 0;
+            if (!ranNestedLoop) {
+                record(event, elapsed);
+            }
+        }
+    }
+
+    private void record(AWTEvent event, long elapsed) {
+        dispatchTime.record(elapsed);
+        if (elapsed > stallThresholdNanos) {
+            stalls.incrementAndGet();
+            System.out.println("EDT stall: " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+                    + "ms handling " + event.getClass().getSimpleName());
+        }
+    }
+
+    // Times a GUI action under "edt.<name>". Like dispatch timing, runs that opened a
+    // modal dialog are skipped. Without an installed monitor the listener runs untimed.
+    public static ActionListener timed(String name, ActionListener listener) {
+        OperationStats stats = Metrics.operation("edt." + name);
+        return event -> {
+            EdtMonitor monitor = installed;
+            long nestedBefore = monitor != null ? monitor.nestedDispatches : 0;
+            long start = System.nanoTime();
+            listener.actionPerformed(event);
+            if (monitor != null && monitor.nestedDispatches == nestedBefore) {
+                stats.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    public LatencyHistogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    public String describe() {
+        return "stalls=" + getStallCount() + " dispatch[" + dispatchTime + "]";
+    }
+}
@@ -0,0 +1,123 @@
+package com.todo.gui;
+
+import com.todo.dao.TodoStatistics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Summary of all todos: how many, how many completed, how many were created on each of
+// the last days and how long completing one takes on average. Everything shown comes
+// from TodoStatistics snapshots, so keeping it current never queries the todos table;
+// changes arriving in a burst are shown in one repaint.
+public class StatisticsDialog extends JDialog {
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE yyyy-MM-dd");
+
+    private final TodoStatistics statistics;
+    private final TodoStatistics.Listener listener;
+    // Set while a repaint is queued on the EDT
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+
+    private final JLabel totalLabel = new JLabel();
+    private final JLabel completedLabel = new JLabel();
+    private final JLabel openLabel = new JLabel();
+    private final JLabel averageLabel = new JLabel();
+    private final DefaultTableModel perDayModel = new DefaultTableModel(new Object[] { "Day", "Created" }, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+
+    public StatisticsDialog(Frame owner, TodoStatistics statistics) {
+        super(owner, "Statistics", false);
+        this.statistics = statistics;
+
+        JPanel totals = new JPanel(new GridLayout(4, 2, 10, 5));
+        totals.add(new JLabel("Todos:"));
+        totals.add(totalLabel);
+        totals.add(new JLabel("Completed:"));
+        totals.add(completedLabel);
+        totals.add(new JLabel("Open:"));
+        totals.add(openLabel);
+        totals.add(new JLabel("Average time to complete:"));
+        totals.add(averageLabel);
+
+        JTable perDayTable = new JTable(perDayModel);
+        perDayTable.setFocusable(false);
+        JScrollPane perDayPane = new JScrollPane(perDayTable);
+        perDayPane.setBorder(BorderFactory.createTitledBorder(
+                "Created per day (last " + TodoStatistics.DAYS + " days)"));
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(closeButton);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(totals, BorderLayout.NORTH);
+        panel.add(perDayPane, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        setSize(400, 480);
+        setLocationRelativeTo(owner);
+
+        listener = () -> {
+            if (updateQueued.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::showSnapshot);
+            }
+        };
+        statistics.addListener(listener);
+        showSnapshot();
+    }
+
+    @Override
+    public void dispose() {
+        statistics.removeListener(listener);
+        super.dispose();
+    }
+
+    // ===== DISPLAY =====
+    private void showSnapshot() {
+        updateQueued.set(false);
+        TodoStatistics.Snapshot snapshot = statistics.getSnapshot();
+        if (!snapshot.isLoaded()) {
+            totalLabel.setText("Loading...");
+            completedLabel.setText("");
+            openLabel.setText("");
+            averageLabel.setText("");
+            perDayModel.setRowCount(0);
+            return;
+        }
+        totalLabel.setText(String.valueOf(snapshot.getTotal()));
+        int percent = snapshot.getTotal() == 0 ? 0 : (int) (100L * snapshot.getCompleted() / snapshot.getTotal());
+        completedLabel.setText(snapshot.getCompleted() + " (" + percent + "%)");
+        openLabel.setText(String.valueOf(snapshot.getOpen()));
+        averageLabel.setText(format(snapshot.getAverageTimeToComplete()));
+
+        // Newest day first
+        int[] perDay = snapshot.getCreatedPerDay();
+        perDayModel.setRowCount(0);
+        for (int i = perDay.length - 1; i >= 0; i--) {
+            perDayModel.addRow(new Object[] {
+                    DAY_FORMAT.format(snapshot.getLastDay().minusDays(perDay.length - 1 - i)), perDay[i] });
+        }
+    }
+
+    private static String format(Duration duration) {
+        if (duration == null) {
+            return "-";
+        }
+        if (duration.toDays() > 0) {
+            return duration.toDays() + "d " + duration.toHoursPart() + "h";
+        }
+        if (duration.toHours() > 0) {
+            return duration.toHours() + "h " + duration.toMinutesPart() + "m";
+        }
+        return duration.toMinutes() > 0 ? duration.toMinutes() + "m" : "under a minute";
+    }
+}
@@ -0,0 +1,170 @@
+package com.todo.gui;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoStore;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.Comparator;
+import java.util.List;
+
+// Table model that reads cells straight from a columnar TodoStore instead of keeping
+// Todo objects or Object[] rows. Rows arrive in pages; when the table renders a row
+// close to the end of what is loaded, the next page is requested from the owner.
+// getTodoAt/getLastTodo return copies, so callers may modify them freely.
+public class TodoTableModel extends AbstractTableModel {
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_TITLE = 1;
+    public static final int COLUMN_DESCRIPTION = 2;
+    public static final int COLUMN_COMPLETED = 3;
+    public static final int COLUMN_CREATED_AT = 4;
+    public static final int COLUMN_UPDATED_AT = 5;
+    public static final int COLUMN_DUE_AT = 6;
+
+    private static final String[] COLUMNS = { "ID", "Title", "Description", "Completed", "Created At", "Updated At",
+            "Due At" };
+
+    private final Runnable nextPageRequest;
+    private final int prefetchRows;
+
+    private TodoStore rows = new TodoStore();
+    private boolean hasMore;
+    private boolean pageRequested;
+
+    public TodoTableModel(Runnable nextPageRequest, int prefetchRows) {
+        this.nextPageRequest = nextPageRequest;
+        this.prefetchRows = prefetchRows;
+    }
+
+    // ===== TABLE MODEL =====
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table read-only
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        requestMoreIfNeeded(rowIndex);
+        switch (columnIndex) {
+            case COLUMN_ID:
+                return String.valueOf(rows.getId(rowIndex));
+            case COLUMN_TITLE:
+                return rows.getTitle(rowIndex);
+            case COLUMN_DESCRIPTION:
+                return rows.getDescription(rowIndex);
+            case COLUMN_COMPLETED:
+                return rows.isCompleted(rowIndex);
+            case COLUMN_CREATED_AT:
+                return rows.getCreatedAt(rowIndex);
+            case COLUMN_UPDATED_AT:
+                return rows.getUpdatedAt(rowIndex);
+            case COLUMN_DUE_AT:
+                return rows.getDueAt(rowIndex);
+            default:
+                throw new IndexOutOfBoundsException("No column " + columnIndex);
+        }
+    }
+
+    // ===== DATA UPDATES =====
+    // Drops all rows; swapping the store keeps this constant time regardless of size
+    public void reset() {
+        rows = new TodoStore();
+        hasMore = true;
+        pageRequested = false;
+        fireTableDataChanged();
+    }
+
+    public void appendPage(List<Todo> page, boolean morePagesAvailable) {
+        hasMore = morePagesAvailable;
+        pageRequested = false;
+        if (page.isEmpty()) {
+            return;
+        }
+        int first = rows.size();
+        for (Todo todo : page) {
+            rows.add(todo);
+        }
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    public void insertTodo(int rowIndex, Todo todo) {
+        rows.add(rowIndex, todo);
+        fireTableRowsInserted(rowIndex, rowIndex);
+    }
+
+    // Inserts at the position given by the listing order. A row that would land after the
+    // last loaded row while more pages exist is skipped; it will arrive with its page.
+    public boolean insertSorted(Todo todo, Comparator<Todo> order) {
+        int index = rows.binarySearch(todo, order);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == rows.size() && hasMore) {
+            return false;
+        }
+        insertTodo(index, todo);
+        return true;
+    }
+
+    // Replaces the row with the same id; returns false if it is not loaded
+    public boolean updateTodo(Todo todo) {
+        int index = indexOf(todo.getId());
+        if (index < 0) {
+            return false;
+        }
+        rows.set(index, todo);
+        fireTableRowsUpdated(index, index);
+        return true;
+    }
+
+    public boolean removeTodo(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        rows.remove(index);
+        fireTableRowsDeleted(index, index);
+        return true;
+    }
+
+    public Todo getTodoAt(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    // Last loaded row, used as the keyset cursor for the next page
+    public Todo getLastTodo() {
+        return rows.isEmpty() ? null : rows.get(rows.size() - 1);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public int indexOf(String id) {
+        return rows.indexOfId(id);
+    }
+
+    // Called while rendering: only rows the table actually paints drive loading
+    private void requestMoreIfNeeded(int rowIndex) {
+        if (hasMore && !pageRequested && rowIndex >= rows.size() - prefetchRows) {
+            pageRequested = true;
+            // Never mutate the model from inside a paint pass
+            SwingUtilities.invokeLater(nextPageRequest);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.todo.gui;
+
+import com.todo.dao.AsyncTodoDAO;
+import com.todo.dao.TodoCache;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.TodoRepository;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// Todos as a tree: top-level todos first, each level read one page at a time when its
+// parent is opened (or "More..." is clicked), with the roll-up progress of every row
+// from one grouped query per page. All storage calls run on the shared AsyncTodoDAO.
+public class TodoTreeDialog extends JDialog {
+    private static final int PAGE_SIZE = TodoappDAOImpl.DEFAULT_PAGE_SIZE;
+
+    private final AsyncTodoDAO asyncDAO;
+    private final TodoRepository repository;
+    // Sub-tasks are added and moved through the cache so the main list sees them on its next refresh
+    private final TodoCache todoCache;
+    private final TodoTreeTableModel treeModel = new TodoTreeTableModel();
+    private final JTable treeTable = new JTable(treeModel);
+    // Bumped on every reset so pages for a tree that is gone are dropped
+    private int generation;
+
+    private static final class Level {
+        final List<Todo> page;
+        final Map<String, TodoProgress> progress;
+
+        Level(List<Todo> page, Map<String, TodoProgress> progress) {
+            this.page = page;
+            this.progress = progress;
+        }
+    }
+
+    public TodoTreeDialog(Frame owner, AsyncTodoDAO asyncDAO, TodoCache todoCache) {
+        super(owner, "Todo Tree", false);
+        this.asyncDAO = asyncDAO;
+        this.repository = asyncDAO.getDao();
+        this.todoCache = todoCache;
+
+        treeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        treeTable.getColumnModel().getColumn(TodoTreeTableModel.COLUMN_TITLE).setPreferredWidth(320);
+        treeTable.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int row = treeTable.rowAtPoint(e.getPoint());
+                if (row >= 0) {
+                    onRowClicked(row, treeTable.columnAtPoint(e.getPoint()), e.getClickCount());
+                }
+            }
+        });
+
+        JButton addButton = new JButton("Add Sub-task...");
+        addButton.addActionListener(EdtMonitor.timed("tree.add", e -> addSubtask()));
+        JButton moveButton = new JButton("Move...");
+        moveButton.addActionListener(EdtMonitor.timed("tree.move", e -> moveSelected()));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(EdtMonitor.timed("tree.refresh", e -> reload()));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(addButton);
+        buttonPanel.add(moveButton);
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(closeButton);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(new JScrollPane(treeTable), BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        setSize(700, 500);
+        setLocationRelativeTo(owner);
+
+        reload();
+    }
+
+    // ===== LOADING =====
+    private void reload() {
+        generation++;
+        treeModel.reset();
+        loadChildren(treeModel.getRoot());
+    }
+
+    // Next page of one level plus the progress of the rows on it
+    private void loadChildren(TodoTreeTableModel.Node node) {
+        if (node.isLoading()) {
+            return;
+        }
+        int loadGeneration = generation;
+        Todo parent = node.getTodo();
+        Todo after = node.getLastChild();
+        TodoQuery query = parent == null ? TodoQuery.all().roots() : TodoQuery.all().childrenOf(parent.getId());
+        treeModel.setLoading(node, true);
+        onEdt(asyncDAO.submit(() -> {
+            List<Todo> page = repository.getTodosPage(query, after, PAGE_SIZE);
+            List<String> ids = new ArrayList<>(page.size());
+            for (Todo todo : page) {
+                ids.add(todo.getId());
+            }
+            return new Level(page, repository.getProgress(ids));
+        }), level -> {
+            if (loadGeneration == generation) {
+                treeModel.appendChildren(node, level.page, level.progress, level.page.size() == PAGE_SIZE);
+            }
+        }, ex -> {
+            if (loadGeneration == generation) {
+                treeModel.setLoading(node, false);
+                showError("Failed to load todos: " + ex.getMessage());
+            }
+        });
+    }
+
+    // A click on "More..." loads the next page; a click on the title (or a double
+    // click anywhere) opens or closes a todo with sub-tasks
+    private void onRowClicked(int row, int column, int clickCount) {
+        TodoTreeTableModel.Node node = treeModel.getNodeAt(row);
+        if (node.isMoreRow()) {
+            loadChildren(node.getParent());
+            return;
+        }
+        boolean onTitle = treeTable.convertColumnIndexToModel(column) == TodoTreeTableModel.COLUMN_TITLE;
+        if (!node.hasSubtasks() || (!onTitle && clickCount < 2)) {
+            return;
+        }
+        boolean expand = !node.isExpanded();
+        treeModel.setExpanded(node, expand);
+        if (expand && !node.isLoaded()) {
+            loadChildren(node);
+        }
+    }
+
+    // ===== ACTIONS =====
+    // Adds a sub-task under the selected todo, or a top-level todo if none is selected
+    private void addSubtask() {
+        TodoTreeTableModel.Node parentNode = selectedNode();
+        if (parentNode == null) {
+            parentNode = treeModel.getRoot();
+        }
+        String title = JOptionPane.showInputDialog(this, parentNode.getTodo() == null ? "Title of the new todo:"
+                : "Title of the new sub-task of \"" + parentNode.getTodo().getTitle() + "\":");
+        if (title == null || title.trim().isEmpty()) {
+            return;
+        }
+
+        Todo todo = new Todo(UUID.randomUUID().toString(), title.trim(), "", false, LocalDateTime.now(),
+                LocalDateTime.now());
+        if (parentNode.getTodo() != null) {
+            todo.setParent_id(parentNode.getTodo().getId());
+        }
+        TodoTreeTableModel.Node target = parentNode;
+        onEdt(asyncDAO.submit(() -> todoCache.addTodo(todo)), stored -> {
+            if (target.getTodo() == null) {
+                reload();
+                return;
+            }
+            // The new row is first in listing order, so the level is read again from the top
+            treeModel.reloadChildren(target);
+            treeModel.setExpanded(target, true);
+            loadChildren(target);
+            refreshProgress(target);
+        }, ex -> showError("Failed to add sub-task: " + ex.getMessage()));
+    }
+
+    private void moveSelected() {
+        TodoTreeTableModel.Node node = selectedNode();
+        if (node == null) {
+            showWarning("Please select a todo to move");
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this,
+                "ID of the new parent (leave empty to make it a top-level todo):",
+                node.getTodo().getParent_id() == null ? "" : node.getTodo().getParent_id());
+        if (input == null) {
+            return;
+        }
+        String newParentId = input.trim().isEmpty() ? null : input.trim();
+        Todo todo = node.getTodo();
+        // Both the old and the new branch change, so the tree is read again
+        onEdt(asyncDAO.submit(() -> {
+            todoCache.moveTodo(todo, newParentId);
+            return null;
+        }), done -> reload(), ex -> showError("Failed to move todo: " + ex.getMessage()));
+    }
+
+    // Progress of the node and every ancestor changes when a sub-task is added below them
+    private void refreshProgress(TodoTreeTableModel.Node node) {
+        List<TodoTreeTableModel.Node> chain = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (TodoTreeTableModel.Node n = node; n != null && n.getTodo() != null; n = n.getParent()) {
+            chain.add(n);
+            ids.add(n.getTodo().getId());
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        int loadGeneration = generation;
+        onEdt(asyncDAO.submit(() -> repository.getProgress(ids)), progress -> {
+            if (loadGeneration != generation) {
+                return;
+            }
+            for (TodoTreeTableModel.Node n : chain) {
+                TodoProgress p = progress.get(n.getTodo().getId());
+                if (p != null) {
+                    treeModel.setProgress(n, p);
+                }
+            }
+        }, ex -> showError("Failed to load progress: " + ex.getMessage()));
+    }
+
+    private TodoTreeTableModel.Node selectedNode() {
+        int row = treeTable.getSelectedRow();
+        if (row < 0) {
+            return null;
+        }
+        TodoTreeTableModel.Node node = treeModel.getNodeAt(row);
+        return node.isMoreRow() ? null : node;
+    }
+
+    // ===== HELPERS =====
+    private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onFailure.accept(AsyncTodoDAO.unwrap(error));
+            }
+        }));
+    }
+
+    private void showError(String message) {
+        JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void showWarning(String message) {
+        JOptionPane.showMessageDialog(this, message, "Warning", JOptionPane.WARNING_MESSAGE);
+    }
+}
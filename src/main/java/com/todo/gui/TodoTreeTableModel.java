@@ -0,0 +1,245 @@
+package com.todo.gui;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoProgress;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Flattened tree for a JTable: only the rows of expanded nodes are in the list, so a
+// huge tree costs nothing until it is opened. Children are loaded by the owner when a
+// node is first expanded, one page at a time; a trailing "more" row stands for the
+// rest of a level. Progress comes with each page, so nodes know whether they have
+// sub-tasks before any are loaded. EDT only.
+public class TodoTreeTableModel extends AbstractTableModel {
+    public static final int COLUMN_TITLE = 0;
+    public static final int COLUMN_PROGRESS = 1;
+    public static final int COLUMN_COMPLETED = 2;
+    public static final int COLUMN_CREATED_AT = 3;
+
+    private static final String[] COLUMNS = { "Title", "Sub-tasks", "Completed", "Created At" };
+    private static final String INDENT = "    ";
+
+    public static final class Node {
+        final Node parent;
+        final int depth;
+        final Todo todo;
+        TodoProgress progress;
+        boolean expanded;
+        boolean loading;
+        // Loaded children, and whether the level has more pages than that
+        final List<Node> children = new ArrayList<>();
+        boolean hasMore = true;
+        // Placeholder row for the unloaded rest of the parent's level
+        final boolean moreRow;
+
+        Node(Node parent, Todo todo, TodoProgress progress, boolean moreRow) {
+            this.parent = parent;
+            this.depth = parent == null ? -1 : parent.depth + 1;
+            this.todo = todo;
+            this.progress = progress;
+            this.moreRow = moreRow;
+        }
+
+        public Todo getTodo() {
+            return todo;
+        }
+
+        // For a "more" row, the node whose level it continues
+        public Node getParent() {
+            return parent;
+        }
+
+        public boolean isMoreRow() {
+            return moreRow;
+        }
+
+        public boolean isExpanded() {
+            return expanded;
+        }
+
+        public boolean isLoading() {
+            return loading;
+        }
+
+        public boolean isLoaded() {
+            return !children.isEmpty() || !hasMore;
+        }
+
+        public boolean hasSubtasks() {
+            return progress != null && progress.getSubtasks() > 0;
+        }
+
+        // Last loaded child, the keyset cursor for the next page of this level
+        public Todo getLastChild() {
+            return children.isEmpty() ? null : children.get(children.size() - 1).todo;
+        }
+    }
+
+    // Invisible root holding the top-level todos
+    private Node root = newRoot();
+    private final List<Node> visible = new ArrayList<>();
+
+    // ===== TABLE MODEL =====
+    @Override
+    public int getRowCount() {
+        return visible.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Node node = visible.get(rowIndex);
+        if (node.moreRow) {
+            return columnIndex == COLUMN_TITLE ? indent(node.depth) + (node.parent.loading ? "Loading..." : "More...")
+                    : null;
+        }
+        switch (columnIndex) {
+            case COLUMN_TITLE:
+                return indent(node.depth) + marker(node) + node.todo.getTitle();
+            case COLUMN_PROGRESS:
+                return node.hasSubtasks()
+                        ? node.progress + " (" + node.progress.getPercentComplete() + "%)"
+                        : "";
+            case COLUMN_COMPLETED:
+                return node.todo.isCompleted();
+            case COLUMN_CREATED_AT:
+                return node.todo.getCreated_at();
+            default:
+                throw new IndexOutOfBoundsException("No column " + columnIndex);
+        }
+    }
+
+    // ===== TREE =====
+    public Node getRoot() {
+        return root;
+    }
+
+    public Node getNodeAt(int rowIndex) {
+        return visible.get(rowIndex);
+    }
+
+    // Drops the whole tree; the owner then loads the top level again
+    public void reset() {
+        root = newRoot();
+        visible.clear();
+        fireTableDataChanged();
+    }
+
+    public void setLoading(Node node, boolean loading) {
+        node.loading = loading;
+        fireNodeChanged(node);
+        int more = moreRowIndex(node);
+        if (more >= 0) {
+            fireTableRowsUpdated(more, more);
+        }
+    }
+
+    // Adds the next page of a node's children with their progress
+    public void appendChildren(Node node, List<Todo> page, Map<String, TodoProgress> progress,
+            boolean morePagesAvailable) {
+        node.loading = false;
+        for (Todo todo : page) {
+            node.children.add(new Node(node, todo, progress.get(todo.getId()), false));
+        }
+        node.hasMore = morePagesAvailable;
+        if (node.expanded) {
+            rebuild();
+        } else {
+            fireNodeChanged(node);
+        }
+    }
+
+    public void setExpanded(Node node, boolean expanded) {
+        if (node.expanded != expanded) {
+            node.expanded = expanded;
+            rebuild();
+        }
+    }
+
+    // Forgets a node's children, e.g. after one was added or moved away
+    public void reloadChildren(Node node) {
+        node.children.clear();
+        node.hasMore = true;
+        rebuild();
+    }
+
+    public void setProgress(Node node, TodoProgress progress) {
+        node.progress = progress;
+        fireNodeChanged(node);
+    }
+
+    // ===== INTERNALS =====
+    // Cheap next to a page load: the list only holds rows of expanded nodes
+    private void rebuild() {
+        visible.clear();
+        addVisible(root);
+        fireTableDataChanged();
+    }
+
+    private void addVisible(Node node) {
+        for (Node child : node.children) {
+            visible.add(child);
+            if (child.expanded) {
+                addVisible(child);
+            }
+        }
+        if (node.hasMore && !node.children.isEmpty()) {
+            visible.add(new Node(node, null, null, true));
+        }
+    }
+
+    private static Node newRoot() {
+        Node root = new Node(null, null, null, false);
+        root.expanded = true;
+        return root;
+    }
+
+    private void fireNodeChanged(Node node) {
+        int index = visible.indexOf(node);
+        if (index >= 0) {
+            fireTableRowsUpdated(index, index);
+        }
+    }
+
+    private int moreRowIndex(Node node) {
+        for (int i = 0; i < visible.size(); i++) {
+            Node row = visible.get(i);
+            if (row.moreRow && row.parent == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String marker(Node node) {
+        if (!node.hasSubtasks()) {
+            return "   ";
+        }
+        return node.expanded ? "\u25BE " : "\u25B8 ";
+    }
+
+    private static String indent(int depth) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            text.append(INDENT);
+        }
+        return text.toString();
+    }
+}
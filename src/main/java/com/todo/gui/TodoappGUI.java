@@ -1,55 +1,163 @@
 package com.todo.gui;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import com.todo.model.Recurrence;
 import com.todo.model.Todo;
+import com.todo.model.TodoMerge;
+import com.todo.dao.AsyncTodoDAO;
+import com.todo.dao.BatchResult;
+import com.todo.dao.ChangeFeed;
+import com.todo.dao.TodoCache;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.ReminderScheduler;
+import com.todo.dao.ReplicaTodoRepository;
+import com.todo.dao.TodoChange;
+import com.todo.dao.TodoConflictException;
+import com.todo.dao.TodoExporter;
+import com.todo.dao.TodoFileFormat;
+import com.todo.dao.TodoImporter;
+import com.todo.dao.TodoRepository;
+import com.todo.dao.TodoStatistics;
 import com.todo.dao.TodoappDAOImpl;
+import com.todo.dao.TransferResult;
+import com.todo.dao.WriteBehindTodoRepository;
+import com.todo.util.StartupTrace;
 
 public class TodoappGUI extends JFrame {
-    // Database connection
-    private TodoappDAOImpl todoappDAO;
+    // Storage engine; all calls go through asyncDAO so the EDT never waits on it
+    private TodoRepository todoRepository;
+    private AsyncTodoDAO asyncDAO;
+    // Write-through cache; single changes are applied to the table without a reload
+    private TodoCache todoCache;
+    // Counters behind the statistics view, fed by the cache; counted once, when first shown
+    private TodoStatistics statistics;
+    private boolean statisticsLoaded;
 
     // Table components
     private JTable todoTable;
-    private DefaultTableModel tableModel;
+    private TodoTableModel tableModel;
 
     // Input components
     private JTextField titleField;
     private JTextArea descriptionArea;
     private JCheckBox completedCheckbox;
+    private JTextField dueField;
+    private JComboBox<String> repeatComboBox;
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String REPEAT_NEVER = "Never";
 
     // Buttons
     private JButton addButton;
     private JButton updateButton;
     private JButton deleteButton;
+    private JButton markCompleteButton;
     private JButton refreshButton;
 
-    // Filter
+    // Filter and search
     private JComboBox<String> filterComboBox;
-
-    // Data storage
-    private List<Todo> allTodos = new ArrayList<>();
+    private JTextField searchField;
+    private Timer searchDebounceTimer;
+    private static final int SEARCH_DEBOUNCE_MS = 300;
+    // Query behind the rows currently shown
+    private TodoQuery currentQuery = TodoQuery.all();
+
+    // Data storage: the table model holds only the pages loaded so far
+    private static final int PAGE_SIZE = TodoappDAOImpl.DEFAULT_PAGE_SIZE;
+    private static final int PREFETCH_ROWS = 50;
+    private static final String LOAD_REQUEST = "load";
+    private boolean loadingPage;
+    // Bumped on every reload so late pages from a superseded load are dropped
+    private int loadGeneration;
+    // Shown until open() in fast-start mode
+    private JLabel placeholder;
+    // Reminders that came in since the last one was shown; guarded by itself
+    private final List<Todo> pendingReminders = new ArrayList<>();
 
     public TodoappGUI() {
-        // Initialize database connection
-        this.todoappDAO = new TodoappDAOImpl();
+        this(new TodoappDAOImpl());
+    }
 
-        // Setup the GUI
+    public TodoappGUI(TodoRepository repository) {
+        this(repository, null);
+    }
+
+    // With a started ChangeFeed, other clients' changes are applied as they happen
+    public TodoappGUI(TodoRepository repository, ChangeFeed changeFeed) {
+        setupWindow();
+        open(new TodoCache(repository), changeFeed, null);
+    }
+
+    // Fast start: a bare frame with just a status line, cheap enough to show while
+    // storage is still opening. open() replaces it with the real UI.
+    public TodoappGUI(String status) {
         setupWindow();
+        placeholder = new JLabel(status, SwingConstants.CENTER);
+        add(placeholder, BorderLayout.CENTER);
+    }
+
+    // Only meaningful before open()
+    public void setStatus(String status) {
+        if (placeholder != null) {
+            placeholder.setText(status);
+        }
+    }
+
+    // Builds the UI on top of 'cache'. 'firstPage' is the first page of the default
+    // listing if it was already read through the cache, otherwise null to load it now.
+    public void open(TodoCache cache, ChangeFeed changeFeed, List<Todo> firstPage) {
+        // Initialize storage
+        this.todoCache = cache;
+        this.todoRepository = cache.getRepository();
+        this.asyncDAO = new AsyncTodoDAO(todoRepository);
+        this.statistics = new TodoStatistics();
+        todoCache.addListener(statistics);
+
+        // Setup the GUI
+        if (placeholder != null) {
+            remove(placeholder);
+            placeholder = null;
+        }
         createComponents();
         setupLayout();
         setupEventListeners();
+        if (changeFeed != null) {
+            subscribe(changeFeed);
+        }
+        if (todoRepository instanceof WriteBehindTodoRepository) {
+            subscribe((WriteBehindTodoRepository) todoRepository);
+        }
+        if (todoRepository instanceof ReplicaTodoRepository) {
+            subscribe((ReplicaTodoRepository) todoRepository);
+        }
+        revalidate();
+        repaint();
 
         // Load initial data
-        loadAllTodos();
+        if (firstPage != null) {
+            resetListing();
+            tableModel.appendPage(firstPage, firstPage.size() == PAGE_SIZE);
+            StartupTrace.firstPageShown();
+        } else {
+            loadAllTodos();
+        }
     }
 
     // Setup basic window properties
@@ -63,36 +171,43 @@ public class TodoappGUI extends JFrame {
     // Create all GUI components
     private void createComponents() {
         // Create table
-        String[] columns = { "ID", "Title", "Description", "Completed", "Created At", "Updated At" };
-        tableModel = new DefaultTableModel(columns, 0) {
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new TodoTableModel(this::loadNextPage, PREFETCH_ROWS);
         todoTable = new JTable(tableModel);
-        todoTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Several rows can be selected for batch delete / mark complete
+        todoTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         // Create input fields
         titleField = new JTextField(20);
         descriptionArea = new JTextArea(3, 20);
         descriptionArea.setLineWrap(true);
-        descriptionArea.setWrapStyleWord(true);0
+        descriptionArea.setWrapStyleWord(true);
         completedCheckbox = new JCheckBox("Completed");
+        dueField = new JTextField(12);
+        dueField.setToolTipText("yyyy-MM-dd HH:mm, empty for none");
+        String[] repeatOptions = { REPEAT_NEVER, "Daily", "Weekly", "Monthly", "Yearly" };
+        repeatComboBox = new JComboBox<>(repeatOptions);
 
         // Create buttons
         addButton = new JButton("Add Todo");
         updateButton = new JButton("Update Todo");
         deleteButton = new JButton("Delete Todo");
+        markCompleteButton = new JButton("Mark Complete");
         refreshButton = new JButton("Refresh");
 
         // Create filter
         String[] filterOptions = { "All", "Completed", "Incomplete" };
         filterComboBox = new JComboBox<>(filterOptions);
+
+        // Create search box; typing reloads only after a short pause
+        searchField = new JTextField(20);
+        searchDebounceTimer = new Timer(SEARCH_DEBOUNCE_MS, EdtMonitor.timed("search", e -> applyFilter()));
+        searchDebounceTimer.setRepeats(false);
     }
 
     // Setup the layout using simple BorderLayout
     private void setupLayout() {
         setLayout(new BorderLayout());
+        setJMenuBar(createMenuBar());
 
         // Top panel with form and buttons
         JPanel topPanel = createTopPanel();
@@ -103,6 +218,31 @@ public class TodoappGUI extends JFrame {
         add(tableScrollPane, BorderLayout.CENTER);
     }
 
+    // File menu with bulk import and export; View menu with the sub-task tree and statistics
+    private JMenuBar createMenuBar() {
+        JMenu fileMenu = new JMenu("File");
+        JMenuItem importItem = new JMenuItem("Import...");
+        importItem.addActionListener(EdtMonitor.timed("import", e -> importTodos()));
+        JMenuItem exportItem = new JMenuItem("Export...");
+        exportItem.addActionListener(EdtMonitor.timed("export", e -> exportTodos()));
+        fileMenu.add(importItem);
+        fileMenu.add(exportItem);
+
+        JMenu viewMenu = new JMenu("View");
+        JMenuItem treeItem = new JMenuItem("Sub-task Tree...");
+        treeItem.addActionListener(EdtMonitor.timed("tree", e -> new TodoTreeDialog(this, asyncDAO, todoCache)
+                .setVisible(true)));
+        viewMenu.add(treeItem);
+        JMenuItem statisticsItem = new JMenuItem("Statistics...");
+        statisticsItem.addActionListener(EdtMonitor.timed("statistics", e -> showStatistics()));
+        viewMenu.add(statisticsItem);
+
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileMenu);
+        menuBar.add(viewMenu);
+        return menuBar;
+    }
+
     // Create the top panel with form and buttons
     private JPanel createTopPanel() {
         JPanel topPanel = new JPanel();
@@ -171,9 +311,24 @@ public class TodoappGUI extends JFrame {
         descScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         formPanel.add(descScrollPane, gbc);
 
+        // Due date row
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        formPanel.add(new JLabel("Due:"), gbc);
+
+        gbc.gridx = 1;
+        JPanel duePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        duePanel.add(dueField);
+        duePanel.add(Box.createHorizontalStrut(10));
+        duePanel.add(new JLabel("Repeat: "));
+        duePanel.add(repeatComboBox);
+        formPanel.add(duePanel, gbc);
+
         // Completed checkbox row
         gbc.gridx = 1;
-        gbc.gridy = 2;
+        gbc.gridy = 3;
         gbc.weightx = 0;
         gbc.fill = GridBagConstraints.NONE;
         formPanel.add(completedCheckbox, gbc);
@@ -189,6 +344,7 @@ public class TodoappGUI extends JFrame {
         buttonPanel.add(addButton);
         buttonPanel.add(updateButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(markCompleteButton);
         buttonPanel.add(refreshButton);
 
         return buttonPanel;
@@ -199,19 +355,37 @@ public class TodoappGUI extends JFrame {
         JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         filterPanel.add(new JLabel("Filter:"));
         filterPanel.add(filterComboBox);
+        filterPanel.add(new JLabel("Search:"));
+        filterPanel.add(searchField);
         return filterPanel;
     }
 
     // Setup all event listeners
     private void setupEventListeners() {
         // Button listeners
-        addButton.addActionListener(e -> addNewTodo());
-        updateButton.addActionListener(e -> updateTodo());
-        deleteButton.addActionListener(e -> deleteTodo());
-        refreshButton.addActionListener(e -> loadAllTodos());
+        addButton.addActionListener(EdtMonitor.timed("add", e -> addNewTodo()));
+        updateButton.addActionListener(EdtMonitor.timed("update", e -> updateTodo()));
+        deleteButton.addActionListener(EdtMonitor.timed("delete", e -> deleteTodo()));
+        markCompleteButton.addActionListener(EdtMonitor.timed("markComplete", e -> markSelectedComplete()));
+        refreshButton.addActionListener(EdtMonitor.timed("refresh", e -> refreshChangedTodos()));
 
         // Filter listener
-        filterComboBox.addActionListener(e -> applyFilter());
+        filterComboBox.addActionListener(EdtMonitor.timed("filter", e -> applyFilter()));
+
+        // Search listener (debounced)
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+        });
 
         // Table click listener
         todoTable.addMouseListener(new MouseAdapter() {
@@ -219,61 +393,225 @@ public class TodoappGUI extends JFrame {
                 loadSelectedTodoToForm();
             }
         });
+
+        // Runs before EXIT_ON_CLOSE ends the process (and before the storage shutdown hooks),
+        // so a save still in flight gets to finish
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                asyncDAO.close();
+            }
+        });
     }
 
-    // Load all todos from database
+    // Load todos from database, starting again from the first page
     private void loadAllTodos() {
-        try {
-            allTodos = todoappDAO.getAllTodos();
-            applyFilter();
-        } catch (SQLException ex) {
-            showError("Failed to load todos: " + ex.getMessage());
-        }
+        resetListing();
+        loadNextPage();
+    }
+
+    private void resetListing() {
+        searchDebounceTimer.stop();
+        currentQuery = TodoQuery.fromFilter((String) filterComboBox.getSelectedItem())
+                .search(searchField.getText());
+        loadGeneration++;
+        loadingPage = false;
+        tableModel.reset();
     }
 
-    // Apply filter and refresh table
+    // Filtering and search happen in the database, so a change reloads from the first page
     private void applyFilter() {
-        String selectedFilter = (String) filterComboBox.getSelectedItem();
-        List<Todo> filteredTodos = new ArrayList<>();
-
-        if (selectedFilter == null || selectedFilter.equals("All")) {
-            filteredTodos = allTodos;
-        } else if (selectedFilter.equals("Completed")) {
-            for (Todo todo : allTodos) {
-                if (todo.isCompleted()) {
-                    filteredTodos.add(todo);
+        loadAllTodos();
+    }
+
+    // Fetch the page that follows the last loaded row; the table model requests this
+    // itself when it renders rows close to the end of what is loaded
+    private void loadNextPage() {
+        if (loadingPage || !tableModel.hasMore()) {
+            return;
+        }
+        loadingPage = true;
+        int generation = loadGeneration;
+        TodoQuery query = currentQuery;
+        Todo after = tableModel.getLastTodo();
+
+        // A newer load (refresh, filter change) cancels this one
+        CompletableFuture<List<Todo>> pageRequest = asyncDAO.submitLatest(LOAD_REQUEST,
+                () -> todoCache.getTodosPage(query, after, PAGE_SIZE));
+        onEdt(pageRequest, page -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            loadingPage = false;
+            tableModel.appendPage(page, page.size() == PAGE_SIZE);
+            StartupTrace.firstPageShown();
+        }, ex -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            loadingPage = false;
+            tableModel.appendPage(new ArrayList<>(), false);
+            showError("Failed to load todos: " + ex.getMessage());
+        });
+    }
+
+    // Pull only the rows changed since the last sync and patch them into the table. Not
+    // superseded like page loads: each refresh moves the watermark past the rows it read,
+    // so one whose result was dropped would hide those rows until the next full reload.
+    // Refreshes already run one at a time inside TodoCache.
+    private void refreshChangedTodos() {
+        onEdt(asyncDAO.submit(todoCache::refresh), changed -> {
+            for (Todo todo : changed) {
+                showChangedTodo(todo);
+            }
+        }, ex -> showError("Failed to refresh todos: " + ex.getMessage()));
+    }
+
+    // Feed callbacks arrive on the feed thread: the cache is updated there, the table on the EDT
+    private void subscribe(ChangeFeed changeFeed) {
+        changeFeed.addListener(new ChangeFeed.Listener() {
+            @Override
+            public void onChanges(List<TodoChange> changes) {
+                List<TodoChange> applied = todoCache.applyChanges(changes);
+                if (!applied.isEmpty()) {
+                    SwingUtilities.invokeLater(() -> showChanges(applied));
+                }
+            }
+
+            @Override
+            public void onResync() {
+                todoCache.clear();
+                SwingUtilities.invokeLater(() -> {
+                    loadAllTodos();
+                    reloadStatistics();
+                });
+            }
+        });
+    }
+
+    // With write-behind, edits are acknowledged before they reach storage; ones that are
+    // then rejected are reported here and the row is brought back in line with storage
+    private void subscribe(WriteBehindTodoRepository writeBehind) {
+        writeBehind.addListener((todo, delete, status, error) -> SwingUtilities.invokeLater(() -> {
+            String what = "\"" + (todo.getTitle() != null ? todo.getTitle() : "#" + todo.getId()) + "\"";
+            if (status == BatchResult.Status.FAILED) {
+                showError("Could not save " + what + ": " + error);
+            } else {
+                showWarning((delete ? "Delete of " : "Changes to ") + what
+                        + " were not saved: someone else changed or deleted it first");
+            }
+            refreshChangedTodos();
+        }));
+    }
+
+    // Offline-first: the title shows whether the central store is reachable and what is
+    // still waiting to be synced. Pulled rows (conflict outcomes included) reach the table
+    // through the change feed; conflicts are only announced here.
+    private void subscribe(ReplicaTodoRepository replica) {
+        replica.addListener(new ReplicaTodoRepository.Listener() {
+            @Override
+            public void onConflict(Todo discarded, String resolution) {
+                String what = "\"" + (discarded.getTitle() != null ? discarded.getTitle() : "#" + discarded.getId())
+                        + "\"";
+                SwingUtilities.invokeLater(() -> showWarning("Sync conflict on " + what + ": " + resolution));
+            }
+
+            @Override
+            public void onSyncStatus(boolean online, int unsyncedChanges) {
+                String title = "Simple Todo App";
+                if (!online) {
+                    title += " (offline" + (unsyncedChanges > 0 ? ", " + unsyncedChanges + " changes not synced" : "")
+                            + ")";
+                } else if (unsyncedChanges > 0) {
+                    title += " (" + unsyncedChanges + " changes not synced)";
                 }
+                String shown = title;
+                SwingUtilities.invokeLater(() -> {
+                    if (!shown.equals(getTitle())) {
+                        setTitle(shown);
+                    }
+                });
             }
-        } else if (selectedFilter.equals("Incomplete")) {
-            for (Todo todo : allTodos) {
-                if (!todo.isCompleted()) {
-                    filteredTodos.add(todo);
+        });
+    }
+
+    // Reminders arriving together are shown together, in one dialog that doesn't block the window
+    public void showReminders(ReminderScheduler reminders) {
+        reminders.addListener(todo -> {
+            synchronized (pendingReminders) {
+                pendingReminders.add(todo);
+                if (pendingReminders.size() > 1) {
+                    return;
                 }
             }
+            SwingUtilities.invokeLater(this::showPendingReminders);
+        });
+    }
+
+    private void showPendingReminders() {
+        List<Todo> due;
+        synchronized (pendingReminders) {
+            due = new ArrayList<>(pendingReminders);
+            pendingReminders.clear();
         }
+        StringBuilder message = new StringBuilder(due.size() == 1 ? "This todo is due:\n" : "These todos are due:\n");
+        for (Todo todo : due) {
+            message.append("\n").append(todo.getTitle()).append(" (").append(DUE_FORMAT.format(todo.getDue_at()))
+                    .append(")");
+        }
+        JDialog dialog = new JOptionPane(message.toString(), JOptionPane.INFORMATION_MESSAGE)
+                .createDialog(this, "Reminder");
+        dialog.setModal(false);
+        dialog.setVisible(true);
+    }
 
-        displayTodosInTable(filteredTodos);
+    // The first time, all todos are counted in the background; the dialog shows the counters
+    // as they are kept up to date from then on
+    private void showStatistics() {
+        if (!statisticsLoaded) {
+            statisticsLoaded = true;
+            reloadStatistics();
+        }
+        new StatisticsDialog(this, statistics).setVisible(true);
     }
 
-    // Display todos in the table
-    private void displayTodosInTable(List<Todo> todos) {
-        // Clear existing rows
-        tableModel.setRowCount(0);
+    // Counts again when changes may have been missed; nothing to do before the first showing
+    private void reloadStatistics() {
+        if (!statisticsLoaded) {
+            return;
+        }
+        onEdt(asyncDAO.submit(() -> {
+            statistics.load(todoRepository);
+            return null;
+        }), done -> {
+        }, ex -> {
+            statisticsLoaded = false;
+            showError("Failed to count todos: " + ex.getMessage());
+        });
+    }
 
-        // Add each todo as a row
-        for (Todo todo : todos) {
-            Object[] row = {
-                    todo.getId(),
-                    todo.getTitle(),
-                    todo.getDescription(),
-                    todo.isCompleted(),
-                    todo.getCreated_at(),
-                    todo.getUpdated_at()
-            };
-            tableModel.addRow(row);
+    private void showChanges(List<TodoChange> changes) {
+        for (TodoChange change : changes) {
+            if (change.isDeleted()) {
+                tableModel.removeTodo(change.getTodoId());
+            } else {
+                showChangedTodo(change.getRow());
+            }
         }
     }
 
+    // Apply one inserted or updated row to the table, respecting the current filter
+    private void showChangedTodo(Todo todo) {
+        if (!matchesSelectedFilter(todo)) {
+            tableModel.removeTodo(todo.getId());
+        } else if (!tableModel.updateTodo(todo)) {
+            tableModel.insertSorted(todo, Todo.NEWEST_FIRST);
+        }
+    }
+
+    private boolean matchesSelectedFilter(Todo todo) {
+        return currentQuery.matches(todo);
+    }
+
     // Load selected todo data into form fields
     private void loadSelectedTodoToForm() {
         int selectedRow = todoTable.getSelectedRow();
@@ -282,14 +620,48 @@ public class TodoappGUI extends JFrame {
         }
 
         // Get data from selected row
-        String title = (String) tableModel.getValueAt(selectedRow, 1);
-        String description = (String) tableModel.getValueAt(selectedRow, 2);
-        Boolean completed = (Boolean) tableModel.getValueAt(selectedRow, 3);
+        Todo todo = tableModel.getTodoAt(todoTable.convertRowIndexToModel(selectedRow));
 
         // Set form fields
-        titleField.setText(title);
-        descriptionArea.setText(description);
-        completedCheckbox.setSelected(completed != null && completed);
+        titleField.setText(todo.getTitle());
+        descriptionArea.setText(todo.getDescription());
+        completedCheckbox.setSelected(todo.isCompleted());
+        showDue(todo);
+    }
+
+    private void showDue(Todo todo) {
+        dueField.setText(todo.getDue_at() != null ? DUE_FORMAT.format(todo.getDue_at()) : "");
+        String repeat = REPEAT_NEVER;
+        if (todo.getRecurrence() != null) {
+            // Rules set elsewhere (e.g. "every 2 days") are offered as they are
+            repeat = todo.getRecurrence().substring(0, 1).toUpperCase() + todo.getRecurrence().substring(1);
+            if (((DefaultComboBoxModel<String>) repeatComboBox.getModel()).getIndexOf(repeat) < 0) {
+                repeatComboBox.addItem(repeat);
+            }
+        }
+        repeatComboBox.setSelectedItem(repeat);
+    }
+
+    // Copies the due date and repeat rule from the form into 'todo'; false (after telling
+    // the user) if they don't make sense
+    private boolean readDue(Todo todo) {
+        String due = dueField.getText().trim();
+        String repeat = (String) repeatComboBox.getSelectedItem();
+        try {
+            todo.setDue_at(due.isEmpty() ? null : LocalDateTime.parse(due, DUE_FORMAT));
+        } catch (DateTimeParseException e) {
+            showWarning("Please enter the due date as yyyy-MM-dd HH:mm");
+            return false;
+        }
+        if (REPEAT_NEVER.equals(repeat)) {
+            todo.setRecurrence(null);
+        } else if (todo.getDue_at() == null) {
+            showWarning("Please enter a due date for a repeating todo");
+            return false;
+        } else {
+            todo.setRecurrence(Recurrence.parse(repeat).toString());
+        }
+        return true;
     }
 
     // Add a new todo
@@ -312,15 +684,20 @@ public class TodoappGUI extends JFrame {
                 completed,
                 LocalDateTime.now(),
                 LocalDateTime.now());
+        if (!readDue(newTodo)) {
+            return;
+        }
 
-        try {
-            todoappDAO.addTodo(newTodo);
+        setBusy(true);
+        onEdt(asyncDAO.submit(() -> todoCache.addTodo(newTodo)), stored -> {
+            setBusy(false);
             clearForm();
-            loadAllTodos();
+            showChangedTodo(stored);
             showInfo("Todo added successfully!");
-        } catch (SQLException ex) {
+        }, ex -> {
+            setBusy(false);
             showError("Failed to add todo: " + ex.getMessage());
-        }
+        });
     }
 
     // Update selected todo
@@ -330,8 +707,12 @@ public class TodoappGUI extends JFrame {
             showWarning("Please select a todo to update");
             return;
         }
+        if (todoTable.getSelectedRowCount() > 1) {
+            showWarning("Please select a single todo to update");
+            return;
+        }
 
-        String id = (String) tableModel.getValueAt(selectedRow, 0);
+        Todo selectedTodo = tableModel.getTodoAt(todoTable.convertRowIndexToModel(selectedRow));
         String title = titleField.getText().trim();
         String description = descriptionArea.getText().trim();
         boolean completed = completedCheckbox.isSelected();
@@ -342,39 +723,103 @@ public class TodoappGUI extends JFrame {
             return;
         }
 
-        // Get original creation date
-        LocalDateTime createdDate = (LocalDateTime) tableModel.getValueAt(selectedRow, 4);
-
-        // Create updated todo
+        // Create updated todo, keeping the original creation date
         Todo updatedTodo = new Todo(
-                id,
+                selectedTodo.getId(),
                 title,
                 description,
                 completed,
-                createdDate,
+                selectedTodo.getCreated_at(),
                 LocalDateTime.now());
+        if (!readDue(updatedTodo)) {
+            return;
+        }
+        // The version we read; the update fails with a conflict if the row moved on since
+        updatedTodo.setVersion(selectedTodo.getVersion());
+        // The form does not move todos; sub-tasks keep their parent
+        updatedTodo.setParent_id(selectedTodo.getParent_id());
 
-        try {
-            todoappDAO.updateTodo(updatedTodo);
-            loadAllTodos();
+        submitUpdate(selectedTodo, updatedTodo);
+    }
+
+    // 'base' is the row the edit started from, used to merge if someone else changed it meanwhile
+    private void submitUpdate(Todo base, Todo updatedTodo) {
+        setBusy(true);
+        onEdt(asyncDAO.submit(() -> {
+            todoCache.updateTodo(updatedTodo);
+            return null;
+        }), ignored -> {
+            setBusy(false);
+            // Only this row changes, so update it in place instead of reloading
+            showChangedTodo(updatedTodo);
             showInfo("Todo updated successfully!");
-        } catch (SQLException ex) {
-            showError("Failed to update todo: " + ex.getMessage());
+        }, ex -> {
+            setBusy(false);
+            if (ex instanceof TodoConflictException) {
+                resolveConflict(base, updatedTodo, (TodoConflictException) ex);
+            } else {
+                showError("Failed to update todo: " + ex.getMessage());
+            }
+        });
+    }
+
+    // Someone else changed the todo first. Edits to different fields are merged and
+    // retried silently; edits to the same field are up to the user.
+    private void resolveConflict(Todo base, Todo mine, TodoConflictException conflict) {
+        if (conflict.isDeleted()) {
+            tableModel.removeTodo(conflict.getTodoId());
+            showWarning("This todo was deleted by someone else; your changes were not saved");
+            return;
+        }
+
+        Todo theirs = conflict.getCurrent();
+        showChangedTodo(theirs);
+        Todo merged = TodoMerge.merge(base, mine, theirs);
+        if (merged != null) {
+            submitUpdate(theirs, merged);
+            return;
+        }
+
+        Object[] options = { "Overwrite", "Keep theirs", "Cancel" };
+        int choice = JOptionPane.showOptionDialog(
+                this,
+                "Someone else changed this todo while you were editing it:\n\n"
+                        + "Title: " + theirs.getTitle() + "\n"
+                        + "Completed: " + (theirs.isCompleted() ? "Yes" : "No") + "\n\n"
+                        + "Overwrite their changes with yours?",
+                "Edit Conflict",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE,
+                null,
+                options,
+                options[2]);
+        if (choice == 0) {
+            mine.setVersion(theirs.getVersion());
+            mine.setParent_id(theirs.getParent_id());
+            submitUpdate(theirs, mine);
+        } else if (choice == 1) {
+            titleField.setText(theirs.getTitle());
+            descriptionArea.setText(theirs.getDescription());
+            completedCheckbox.setSelected(theirs.isCompleted());
+            showDue(theirs);
         }
     }
 
-    // Delete selected todo
+    // Delete selected todos in one batch
     private void deleteTodo() {
-        int selectedRow = todoTable.getSelectedRow();
-        if (selectedRow < 0) {
+        List<Todo> selectedTodos = getSelectedTodos();
+        if (selectedTodos.isEmpty()) {
             showWarning("Please select a todo to delete");
             return;
         }
 
         // Confirm deletion
+        String question = selectedTodos.size() == 1
+                ? "Are you sure you want to delete this todo?"
+                : "Are you sure you want to delete " + selectedTodos.size() + " todos?";
         int confirm = JOptionPane.showConfirmDialog(
                 this,
-                "Are you sure you want to delete this todo?",
+                question,
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION);
 
@@ -382,16 +827,146 @@ public class TodoappGUI extends JFrame {
             return;
         }
 
-        String id = (String) tableModel.getValueAt(selectedRow, 0);
-
-        try {
-            todoappDAO.deleteTodo(id);
+        // Versioned: rows someone else changed since they were loaded are kept
+        setBusy(true);
+        onEdt(asyncDAO.submit(() -> todoCache.deleteTodos(selectedTodos)), result -> {
+            setBusy(false);
             clearForm();
-            loadAllTodos();
-            showInfo("Todo deleted successfully!");
-        } catch (SQLException ex) {
+            for (int i = 0; i < selectedTodos.size(); i++) {
+                BatchResult.Status status = result.getStatus(i);
+                if (status == BatchResult.Status.OK || status == BatchResult.Status.NOT_FOUND) {
+                    tableModel.removeTodo(selectedTodos.get(i).getId());
+                }
+            }
+            showBatchResult(selectedTodos.size() == 1 ? "Todo deleted successfully!"
+                    : selectedTodos.size() + " todos deleted successfully!", "Delete", result);
+        }, ex -> {
+            setBusy(false);
             showError("Failed to delete todo: " + ex.getMessage());
+        });
+    }
+
+    // Mark every selected todo as completed in one batch
+    private void markSelectedComplete() {
+        List<Todo> updatedTodos = new ArrayList<>();
+        for (Todo todo : getSelectedTodos()) {
+            if (!todo.isCompleted()) {
+                Todo updated = new Todo(
+                        todo.getId(),
+                        todo.getTitle(),
+                        todo.getDescription(),
+                        true,
+                        todo.getCreated_at(),
+                        LocalDateTime.now());
+                updated.setDue_at(todo.getDue_at());
+                updated.setRecurrence(todo.getRecurrence());
+                updated.setVersion(todo.getVersion());
+                updated.setParent_id(todo.getParent_id());
+                updatedTodos.add(updated);
+            }
+        }
+        if (updatedTodos.isEmpty()) {
+            showWarning("Please select at least one incomplete todo");
+            return;
+        }
+
+        setBusy(true);
+        onEdt(asyncDAO.submit(() -> todoCache.updateTodos(updatedTodos)), result -> {
+            setBusy(false);
+            for (int i = 0; i < updatedTodos.size(); i++) {
+                if (result.isOk(i)) {
+                    showChangedTodo(updatedTodos.get(i));
+                }
+            }
+            showBatchResult("Todos marked complete!", "Mark complete", result);
+        }, ex -> {
+            setBusy(false);
+            showError("Failed to update todos: " + ex.getMessage());
+        });
+    }
+
+    private List<Todo> getSelectedTodos() {
+        List<Todo> selected = new ArrayList<>();
+        for (int row : todoTable.getSelectedRows()) {
+            selected.add(tableModel.getTodoAt(todoTable.convertRowIndexToModel(row)));
+        }
+        return selected;
+    }
+
+    // ===== IMPORT / EXPORT =====
+    private void importTodos() {
+        Path file = chooseFile(false);
+        if (file == null) {
+            return;
+        }
+        TransferProgressDialog progress = new TransferProgressDialog(this, "Importing " + file.getFileName(),
+                file.toFile().length());
+        runTransfer(progress, () -> new TodoImporter(todoRepository).importFile(file,
+                TodoFileFormat.forFile(file), progress), result -> {
+                    // Imported rows can land anywhere in the listing, and are not counted yet
+                    loadAllTodos();
+                    reloadStatistics();
+                    String message = "Imported " + result.summary();
+                    if (result.getFailedRows() > 0) {
+                        showWarning(message);
+                    } else {
+                        showInfo(message);
+                    }
+                });
+    }
+
+    // Exports what the current filter and search show
+    private void exportTodos() {
+        Path file = chooseFile(true);
+        if (file == null) {
+            return;
+        }
+        TodoQuery query = currentQuery;
+        TransferProgressDialog progress = new TransferProgressDialog(this, "Exporting " + file.getFileName(), 0);
+        runTransfer(progress, () -> new TodoExporter(todoRepository).export(query, file,
+                TodoFileFormat.forFile(file), progress), result -> showInfo("Exported " + result.summary()));
+    }
+
+    private interface Transfer {
+        TransferResult run() throws SQLException, IOException;
+    }
+
+    private void runTransfer(TransferProgressDialog progress, Transfer transfer, Consumer<TransferResult> onDone) {
+        progress.setVisible(true);
+        onEdt(asyncDAO.submit(() -> {
+            try {
+                return transfer.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), result -> {
+            progress.dispose();
+            onDone.accept(result);
+        }, error -> {
+            progress.dispose();
+            Throwable cause = error instanceof UncheckedIOException ? error.getCause() : error;
+            showError("Transfer failed: " + cause.getMessage());
+        });
+    }
+
+    // Null if the user cancelled; the format comes from the extension (CSV by default when saving)
+    private Path chooseFile(boolean save) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter(
+                "Todo exports (*.csv, *.jsonl, *.todos)", "csv", "jsonl", "ndjson", "todos"));
+        int choice = save ? chooser.showSaveDialog(this) : chooser.showOpenDialog(this);
+        if (choice != JFileChooser.APPROVE_OPTION) {
+            return null;
         }
+        Path file = chooser.getSelectedFile().toPath();
+        if (TodoFileFormat.forFile(file) == null) {
+            if (!save) {
+                showError("Unknown file type: " + file.getFileName() + " (use .csv, .jsonl or .todos)");
+                return null;
+            }
+            file = file.resolveSibling(file.getFileName() + TodoFileFormat.CSV.getExtension());
+        }
+        return file;
     }
 
     // Clear all form fields
@@ -399,9 +974,44 @@ public class TodoappGUI extends JFrame {
         titleField.setText("");
         descriptionArea.setText("");
         completedCheckbox.setSelected(false);
+        dueField.setText("");
+        repeatComboBox.setSelectedItem(REPEAT_NEVER);
+    }
+
+    // Prevent double submissions while a write is in flight
+    private void setBusy(boolean busy) {
+        addButton.setEnabled(!busy);
+        updateButton.setEnabled(!busy);
+        deleteButton.setEnabled(!busy);
+        markCompleteButton.setEnabled(!busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    // Run result handlers back on the EDT; cancelled (superseded) requests are ignored
+    private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onFailure.accept(AsyncTodoDAO.unwrap(error));
+            }
+        }));
     }
 
     // Helper methods for showing messages
+    private void showBatchResult(String successMessage, String action, BatchResult result) {
+        if (result.isAllSucceeded()) {
+            showInfo(successMessage);
+        } else if (result.getFailedCount() > 0) {
+            showError(action + ": " + result.summary());
+        } else {
+            showWarning(action + ": " + result.summary());
+        }
+    }
+
     private void showError(String message) {
         JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
     }
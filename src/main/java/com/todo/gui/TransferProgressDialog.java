@@ -0,0 +1,76 @@
+package com.todo.gui;
+
+import com.todo.dao.TransferListener;
+
+import javax.swing.*;
+import java.awt.*;
+
+// Non-modal progress window for an import or export. Progress arrives on transfer
+// threads and is coalesced into at most one pending EDT update; Cancel asks the
+// transfer to stop at its next chunk.
+public class TransferProgressDialog extends JDialog implements TransferListener {
+    private final long totalBytes;
+    private final JProgressBar progressBar = new JProgressBar(0, 1000);
+    private final JLabel statusLabel = new JLabel("Starting...");
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+    private volatile long latestRows;
+    private volatile long latestBytes;
+    private volatile boolean updatePending;
+
+    // totalBytes is the file size for imports, or 0 when unknown (exports)
+    public TransferProgressDialog(Frame owner, String title, long totalBytes) {
+        super(owner, title, false);
+        this.totalBytes = totalBytes;
+        progressBar.setIndeterminate(totalBytes <= 0);
+        progressBar.setStringPainted(totalBytes > 0);
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelled = true;
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Cancelling...");
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(statusLabel, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        setSize(420, 140);
+        setLocationRelativeTo(owner);
+    }
+
+    @Override
+    public void onProgress(long rows, long bytes) {
+        latestRows = rows;
+        latestBytes = bytes;
+        if (!updatePending) {
+            updatePending = true;
+            SwingUtilities.invokeLater(this::showProgress);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void showProgress() {
+        updatePending = false;
+        long rows = latestRows;
+        long bytes = latestBytes;
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        if (totalBytes > 0) {
+            progressBar.setValue((int) Math.min(1000, bytes * 1000 / totalBytes));
+        }
+        if (!cancelled) {
+            statusLabel.setText(String.format("%,d rows, %.1f MB (%,.0f rows/s)", rows,
+                    bytes / (1024.0 * 1024.0), rows / seconds));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.todo.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Timestamps as the stores, journals and binary files keep them: epoch millis of the
+// LocalDateTime read as UTC, so no time zone rules are applied either way. NULL stands
+// for a missing time.
+public final class EpochMillis {
+    public static final long NULL = Long.MIN_VALUE;
+
+    private EpochMillis() {
+    }
+
+    public static long toMillis(LocalDateTime time) {
+        return time == null ? NULL : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime fromMillis(long millis) {
+        if (millis == NULL) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
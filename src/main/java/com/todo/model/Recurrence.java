@@ -0,0 +1,96 @@
+package com.todo.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+// How a recurring todo repeats: "daily", "weekly", "monthly", "yearly", or
+// "every <n> minutes|hours|days|weeks|months|years". Stored as its text form in
+// Todo.recurrence; months and years keep the day of month where the calendar allows.
+public final class Recurrence {
+    private final int amount;
+    private final ChronoUnit unit;
+
+    private Recurrence(int amount, ChronoUnit unit) {
+        this.amount = amount;
+        this.unit = unit;
+    }
+
+    // Throws IllegalArgumentException for anything that is not one of the forms above
+    public static Recurrence parse(String text) {
+        String rule = text.trim().toLowerCase(Locale.ROOT);
+        switch (rule) {
+            case "daily":
+                return new Recurrence(1, ChronoUnit.DAYS);
+            case "weekly":
+                return new Recurrence(1, ChronoUnit.WEEKS);
+            case "monthly":
+                return new Recurrence(1, ChronoUnit.MONTHS);
+            case "yearly":
+                return new Recurrence(1, ChronoUnit.YEARS);
+            default:
+                break;
+        }
+        String[] parts = rule.split("\\s+");
+        if (parts.length != 3 || !parts[0].equals("every")) {
+            throw new IllegalArgumentException("Unknown recurrence: " + text);
+        }
+        int amount;
+        try {
+            amount = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown recurrence: " + text);
+        }
+        if (amount < 1) {
+            throw new IllegalArgumentException("Recurrence interval must be positive: " + text);
+        }
+        String unit = parts[2].endsWith("s") ? parts[2] : parts[2] + "s";
+        switch (unit) {
+            case "minutes":
+                return new Recurrence(amount, ChronoUnit.MINUTES);
+            case "hours":
+                return new Recurrence(amount, ChronoUnit.HOURS);
+            case "days":
+                return new Recurrence(amount, ChronoUnit.DAYS);
+            case "weeks":
+                return new Recurrence(amount, ChronoUnit.WEEKS);
+            case "months":
+                return new Recurrence(amount, ChronoUnit.MONTHS);
+            case "years":
+                return new Recurrence(amount, ChronoUnit.YEARS);
+            default:
+                throw new IllegalArgumentException("Unknown recurrence: " + text);
+        }
+    }
+
+    // First occurrence after 'now', counted from 'due'; occurrences missed in between are skipped
+    public LocalDateTime nextAfter(LocalDateTime due, LocalDateTime now) {
+        LocalDateTime next = due.plus(amount, unit);
+        if (!next.isAfter(now)) {
+            // Jump close in one step rather than looping over years of minutes
+            long behind = unit.between(due, now) / amount;
+            next = due.plus(behind * amount, unit);
+            while (!next.isAfter(now)) {
+                next = next.plus(amount, unit);
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        if (amount == 1 && unit != ChronoUnit.MINUTES && unit != ChronoUnit.HOURS) {
+            switch (unit) {
+                case DAYS:
+                    return "daily";
+                case WEEKS:
+                    return "weekly";
+                case MONTHS:
+                    return "monthly";
+                default:
+                    return "yearly";
+            }
+        }
+        return "every " + amount + " " + unit.toString().toLowerCase(Locale.ROOT);
+    }
+}
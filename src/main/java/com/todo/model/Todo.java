@@ -1,14 +1,28 @@
 package com.todo.model;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 
 public class Todo {
+    // Display/listing order: newest first, ties broken by the higher id
+    public static final Comparator<Todo> NEWEST_FIRST = Comparator
+            .comparing(Todo::getCreated_at, Comparator.reverseOrder())
+            .thenComparing(Todo::getId, Todo::compareIdsDescending);
+
     private String id;
     private String title;
     private String description;
     private boolean completed;
     private LocalDateTime created_at;
     private LocalDateTime updated_at;
+    // Row version for optimistic concurrency; bumped by every successful update
+    private int version;
+    // Id of the todo this is a sub-task of, null at the top level
+    private String parent_id;
+    // When the todo is due, null if never; reminders fire at this time
+    private LocalDateTime due_at;
+    // Recurrence rule text (see Recurrence), null for a one-off; due_at moves on when it fires
+    private String recurrence;
 
     public Todo() {
         this.created_at = LocalDateTime.now();
@@ -86,4 +100,44 @@ public class Todo {
     public void setUpdated_at(LocalDateTime updated_at) {
         this.updated_at = updated_at;
     }
-}
\ No newline at end of file
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public String getParent_id() {
+        return parent_id;
+    }
+
+    public void setParent_id(String parent_id) {
+        this.parent_id = parent_id;
+    }
+
+    public LocalDateTime getDue_at() {
+        return due_at;
+    }
+
+    public void setDue_at(LocalDateTime due_at) {
+        this.due_at = due_at;
+    }
+
+    public String getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(String recurrence) {
+        this.recurrence = recurrence;
+    }
+
+    // Database ids are numeric strings; compare them as numbers (descending) so "10" comes before "9"
+    private static int compareIdsDescending(String a, String b) {
+        if (a.length() != b.length()) {
+            return Integer.compare(b.length(), a.length());
+        }
+        return b.compareTo(a);
+    }
+}
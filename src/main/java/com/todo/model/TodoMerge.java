@@ -0,0 +1,45 @@
+package com.todo.model;
+
+import java.util.Objects;
+
+// Three-way merge of a todo edited locally while someone else changed it.
+// 'base' is the row the edit started from, 'mine' the local edit and 'theirs' the
+// row as it is now. A field changed on one side only takes that side's value; a
+// field changed on both sides to different values is a real conflict.
+public final class TodoMerge {
+    private TodoMerge() {
+    }
+
+    // Returns the merged todo carrying theirs' version, or null if both sides changed the same field
+    public static Todo merge(Todo base, Todo mine, Todo theirs) {
+        if (conflicts(base.getTitle(), mine.getTitle(), theirs.getTitle())
+                || conflicts(base.getDescription(), mine.getDescription(), theirs.getDescription())
+                || conflicts(base.isCompleted(), mine.isCompleted(), theirs.isCompleted())
+                || conflicts(base.getDue_at(), mine.getDue_at(), theirs.getDue_at())
+                || conflicts(base.getRecurrence(), mine.getRecurrence(), theirs.getRecurrence())) {
+            return null;
+        }
+
+        Todo merged = new Todo(theirs.getId(),
+                pick(base.getTitle(), mine.getTitle(), theirs.getTitle()),
+                pick(base.getDescription(), mine.getDescription(), theirs.getDescription()),
+                pick(base.isCompleted(), mine.isCompleted(), theirs.isCompleted()),
+                theirs.getCreated_at(),
+                mine.getUpdated_at());
+        merged.setVersion(theirs.getVersion());
+        // Edits never move a todo, so the parent is whatever it is now
+        merged.setParent_id(theirs.getParent_id());
+        merged.setDue_at(pick(base.getDue_at(), mine.getDue_at(), theirs.getDue_at()));
+        merged.setRecurrence(pick(base.getRecurrence(), mine.getRecurrence(), theirs.getRecurrence()));
+        return merged;
+    }
+
+    // ===== INTERNALS =====
+    private static boolean conflicts(Object base, Object mine, Object theirs) {
+        return !Objects.equals(mine, base) && !Objects.equals(theirs, base) && !Objects.equals(mine, theirs);
+    }
+
+    private static <T> T pick(T base, T mine, T theirs) {
+        return Objects.equals(mine, base) ? theirs : mine;
+    }
+}
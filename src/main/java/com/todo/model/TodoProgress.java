@@ -0,0 +1,30 @@
+package com.todo.model;
+
+// Roll-up of a todo's sub-tasks at every level below it
+public class TodoProgress {
+    private final int subtasks;
+    private final int completedSubtasks;
+
+    public TodoProgress(int subtasks, int completedSubtasks) {
+        this.subtasks = subtasks;
+        this.completedSubtasks = completedSubtasks;
+    }
+
+    public int getSubtasks() {
+        return subtasks;
+    }
+
+    public int getCompletedSubtasks() {
+        return completedSubtasks;
+    }
+
+    // 0-100; 100 for a todo without sub-tasks
+    public int getPercentComplete() {
+        return subtasks == 0 ? 100 : (int) (100L * completedSubtasks / subtasks);
+    }
+
+    @Override
+    public String toString() {
+        return completedSubtasks + "/" + subtasks;
+    }
+}
@@ -0,0 +1,318 @@
+package com.todo.model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+// Columnar, primitive-backed list of todos. A Todo object costs several hundred bytes
+// (String id, two LocalDateTime, object headers); here a row is an int id, an int
+// version, an int parent id (0 at the top level), three long epoch-millis timestamps,
+// one bit for completion and three references to deduplicated strings. Todo objects
+// are only built on request, either fresh (get) or by filling a caller-owned instance
+// (readInto) so scans can reuse one flyweight.
+public class TodoStore {
+    private static final int INITIAL_CAPACITY = 256;
+    // Long strings are rarely repeated; pooling them would cost more than it saves
+    private static final int MAX_POOLED_LENGTH = 64;
+    // Once this many distinct strings are pooled, new ones are only matched, not added:
+    // a pool growing with every unique title costs more than its hits save
+    private static final int MAX_POOL_SIZE = 4_096;
+    private static final long NULL_TIME = EpochMillis.NULL;
+
+    private int[] ids;
+    private int[] versions;
+    private int[] parentIds;
+    private long[] createdMillis;
+    private long[] updatedMillis;
+    private long[] dueMillis;
+    private String[] titles;
+    private String[] descriptions;
+    private String[] recurrences;
+    private final BitSet completed = new BitSet();
+    private int size;
+
+    private final Map<String, String> stringPool = new HashMap<>();
+
+    public TodoStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TodoStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new int[capacity];
+        versions = new int[capacity];
+        parentIds = new int[capacity];
+        createdMillis = new long[capacity];
+        updatedMillis = new long[capacity];
+        dueMillis = new long[capacity];
+        titles = new String[capacity];
+        descriptions = new String[capacity];
+        recurrences = new String[capacity];
+    }
+
+    // ===== ROWS =====
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(Todo todo) {
+        add(size, todo);
+    }
+
+    public void add(int index, Todo todo) {
+        checkPosition(index);
+        ensureCapacity(size + 1);
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            System.arraycopy(versions, index, versions, index + 1, moved);
+            System.arraycopy(parentIds, index, parentIds, index + 1, moved);
+            System.arraycopy(createdMillis, index, createdMillis, index + 1, moved);
+            System.arraycopy(updatedMillis, index, updatedMillis, index + 1, moved);
+            System.arraycopy(dueMillis, index, dueMillis, index + 1, moved);
+            System.arraycopy(titles, index, titles, index + 1, moved);
+            System.arraycopy(descriptions, index, descriptions, index + 1, moved);
+            System.arraycopy(recurrences, index, recurrences, index + 1, moved);
+            for (int i = size; i > index; i--) {
+                completed.set(i, completed.get(i - 1));
+            }
+        }
+        size++;
+        write(index, todo);
+    }
+
+    // Appends a row from its column values, for readers that never build a Todo; 'parentId' is 0 at the top level
+    public void add(int id, int version, int parentId, String title, String description, boolean isCompleted,
+            LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime dueAt, String recurrence) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        ids[index] = id;
+        versions[index] = version;
+        parentIds[index] = parentId;
+        createdMillis[index] = EpochMillis.toMillis(createdAt);
+        updatedMillis[index] = EpochMillis.toMillis(updatedAt);
+        dueMillis[index] = EpochMillis.toMillis(dueAt);
+        titles[index] = dedupe(title);
+        descriptions[index] = dedupe(description);
+        recurrences[index] = dedupe(recurrence);
+        completed.set(index, isCompleted);
+    }
+
+    public void set(int index, Todo todo) {
+        checkIndex(index);
+        write(index, todo);
+    }
+
+    public void remove(int index) {
+        checkIndex(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(versions, index + 1, versions, index, moved);
+            System.arraycopy(parentIds, index + 1, parentIds, index, moved);
+            System.arraycopy(createdMillis, index + 1, createdMillis, index, moved);
+            System.arraycopy(updatedMillis, index + 1, updatedMillis, index, moved);
+            System.arraycopy(dueMillis, index + 1, dueMillis, index, moved);
+            System.arraycopy(titles, index + 1, titles, index, moved);
+            System.arraycopy(descriptions, index + 1, descriptions, index, moved);
+            System.arraycopy(recurrences, index + 1, recurrences, index, moved);
+            for (int i = index; i < size - 1; i++) {
+                completed.set(i, completed.get(i + 1));
+            }
+        }
+        size--;
+        titles[size] = null;
+        descriptions[size] = null;
+        recurrences[size] = null;
+        completed.clear(size);
+    }
+
+    public void clear() {
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(descriptions, 0, size, null);
+        Arrays.fill(recurrences, 0, size, null);
+        completed.clear();
+        stringPool.clear();
+        size = 0;
+    }
+
+    // A new Todo with the row's values; changes to it do not affect the store
+    public Todo get(int index) {
+        return readInto(index, new Todo());
+    }
+
+    // Overwrites 'target' with the row's values and returns it
+    public Todo readInto(int index, Todo target) {
+        checkIndex(index);
+        target.setId(String.valueOf(ids[index]));
+        target.setVersion(versions[index]);
+        target.setParent_id(parentIds[index] == 0 ? null : String.valueOf(parentIds[index]));
+        target.setTitle(titles[index]);
+        target.setDescription(descriptions[index]);
+        target.setCompleted(completed.get(index));
+        target.setCreated_at(EpochMillis.fromMillis(createdMillis[index]));
+        target.setUpdated_at(EpochMillis.fromMillis(updatedMillis[index]));
+        target.setDue_at(EpochMillis.fromMillis(dueMillis[index]));
+        target.setRecurrence(recurrences[index]);
+        return target;
+    }
+
+    // ===== COLUMNS =====
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    // 0 at the top level
+    public int getParentId(int index) {
+        checkIndex(index);
+        return parentIds[index];
+    }
+
+    public String getTitle(int index) {
+        checkIndex(index);
+        return titles[index];
+    }
+
+    public String getDescription(int index) {
+        checkIndex(index);
+        return descriptions[index];
+    }
+
+    public boolean isCompleted(int index) {
+        checkIndex(index);
+        return completed.get(index);
+    }
+
+    public LocalDateTime getCreatedAt(int index) {
+        checkIndex(index);
+        return EpochMillis.fromMillis(createdMillis[index]);
+    }
+
+    public LocalDateTime getUpdatedAt(int index) {
+        checkIndex(index);
+        return EpochMillis.fromMillis(updatedMillis[index]);
+    }
+
+    public LocalDateTime getDueAt(int index) {
+        checkIndex(index);
+        return EpochMillis.fromMillis(dueMillis[index]);
+    }
+
+    public String getRecurrence(int index) {
+        checkIndex(index);
+        return recurrences[index];
+    }
+
+    // ===== SEARCH =====
+    // Scans the id column without building any Todo
+    public int indexOfId(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int numericId;
+        try {
+            numericId = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == numericId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same contract as Collections.binarySearch; rows are compared through one reused Todo
+    public int binarySearch(Todo key, Comparator<Todo> order) {
+        Todo cursor = new Todo();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = order.compare(readInto(mid, cursor), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // ===== INTERNALS =====
+    private void write(int index, Todo todo) {
+        ids[index] = parseId(todo.getId());
+        versions[index] = todo.getVersion();
+        parentIds[index] = todo.getParent_id() == null ? 0 : parseId(todo.getParent_id());
+        createdMillis[index] = EpochMillis.toMillis(todo.getCreated_at());
+        updatedMillis[index] = EpochMillis.toMillis(todo.getUpdated_at());
+        dueMillis[index] = EpochMillis.toMillis(todo.getDue_at());
+        titles[index] = dedupe(todo.getTitle());
+        descriptions[index] = dedupe(todo.getDescription());
+        recurrences[index] = dedupe(todo.getRecurrence());
+        completed.set(index, todo.isCompleted());
+    }
+
+    private String dedupe(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isEmpty()) {
+            return "";
+        }
+        if (value.length() > MAX_POOLED_LENGTH) {
+            return value;
+        }
+        String pooled = stringPool.size() < MAX_POOL_SIZE ? stringPool.putIfAbsent(value, value)
+                : stringPool.get(value);
+        return pooled != null ? pooled : value;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        parentIds = Arrays.copyOf(parentIds, capacity);
+        createdMillis = Arrays.copyOf(createdMillis, capacity);
+        updatedMillis = Arrays.copyOf(updatedMillis, capacity);
+        dueMillis = Arrays.copyOf(dueMillis, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        recurrences = Arrays.copyOf(recurrences, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    private void checkPosition(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    // Ids are always numeric strings from the database
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Todo id is not numeric: " + id);
+        }
+    }
+}
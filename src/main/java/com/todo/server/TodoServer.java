@@ -0,0 +1,572 @@
+package com.todo.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.todo.dao.BatchResult;
+import com.todo.dao.TodoConflictException;
+import com.todo.dao.TodoQuery;
+import com.todo.dao.TodoRepository;
+import com.todo.dao.TodoappDAOImpl;
+import com.todo.model.Recurrence;
+import com.todo.model.Todo;
+import com.todo.util.Json;
+import com.todo.util.Metrics;
+import com.todo.util.OperationStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Headless JSON API over a TodoRepository (Main --server), on the JDK's built-in HTTP server.
+//   GET    /todos?filter=All|Completed|Incomplete&search=..&limit=50&after=<cursor>
+//            -> {"todos":[..],"next":<cursor or null>}; pass "next" as 'after' for the next page
+//   GET    /todos/{id}
+//   POST   /todos                   {"title":..,"description":..,"completed":..,"due_at":..,"recurrence":..} -> 201
+//   PUT    /todos/{id}              same fields plus "version" (or If-Match) -> 200, 409 if stale;
+//                                   "due_at" / "recurrence" left out keep their stored values
+//   DELETE /todos/{id}?version=N    (or If-Match; without either the delete is unconditional)
+//   POST   /todos/batch             {"op":"add"|"update"|"delete","todos":[..]} -> per-row results
+//   GET    /health
+// GETs carry an ETag derived from each row's version and updated_at and answer
+// If-None-Match with 304, so pollers skip unchanged bodies. Handlers run on a fixed
+// pool (-Dtodo.server.threads) in front of a bounded queue; when both are full the
+// accept thread runs the request itself, which stops it accepting more (backpressure).
+public class TodoServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = Integer.getInteger("todo.server.port", 8080);
+    public static final int DEFAULT_THREADS = Integer.getInteger("todo.server.threads",
+            Runtime.getRuntime().availableProcessors() * 4);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("todo.server.queue", 1_000);
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final Pattern TODO_PATH = Pattern.compile("/todos/([0-9]+)");
+    private static final Pattern TODO_ETAG = Pattern.compile("\"v(\\d+)-[0-9-]+\"");
+
+    private final TodoRepository repository;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    public TodoServer(TodoRepository repository, int port) throws IOException {
+        this(repository, port, DEFAULT_THREADS);
+    }
+
+    public TodoServer(TodoRepository repository, int port, int threads) throws IOException {
+        this.repository = repository;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "todo-http-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        server.createContext("/todos", timed("todos", this::handleTodos));
+        server.createContext("/health", timed("health", exchange -> send(exchange, 200, "{\"status\":\"ok\"}")));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Todo API listening on port " + getPort());
+    }
+
+    // The bound port, useful when started on port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting, gives in-flight requests a second to finish; the repository stays open
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // ===== ROUTING =====
+    private void handleTodos(HttpExchange exchange) throws IOException, SQLException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals("/todos") || path.equals("/todos/")) {
+            if (method.equals("GET")) {
+                listTodos(exchange);
+            } else if (method.equals("POST")) {
+                addTodo(exchange);
+            } else {
+                throw new HttpError(405, "Use GET or POST on /todos");
+            }
+            return;
+        }
+        if (path.equals("/todos/batch")) {
+            if (!method.equals("POST")) {
+                throw new HttpError(405, "Use POST on /todos/batch");
+            }
+            batch(exchange);
+            return;
+        }
+        Matcher matcher = TODO_PATH.matcher(path);
+        if (!matcher.matches()) {
+            throw new HttpError(404, "No such resource: " + path);
+        }
+        String id = matcher.group(1);
+        switch (method) {
+            case "GET":
+                getTodo(exchange, id);
+                break;
+            case "PUT":
+                updateTodo(exchange, id);
+                break;
+            case "DELETE":
+                deleteTodo(exchange, id);
+                break;
+            default:
+                throw new HttpError(405, "Use GET, PUT or DELETE on /todos/{id}");
+        }
+    }
+
+    // ===== HANDLERS =====
+    private void listTodos(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> params = queryParams(exchange);
+        TodoQuery query = TodoQuery.fromFilter(params.getOrDefault("filter", "All")).search(params.get("search"));
+        int limit = Math.min(MAX_PAGE_SIZE, intParam(params, "limit", TodoappDAOImpl.DEFAULT_PAGE_SIZE));
+        if (limit < 1) {
+            throw new HttpError(400, "limit must be at least 1");
+        }
+        Todo after = params.containsKey("after") ? decodeCursor(params.get("after")) : null;
+
+        List<Todo> page = repository.getTodosPage(query, after, limit);
+        String next = page.size() == limit ? encodeCursor(page.get(page.size() - 1)) : null;
+
+        StringBuilder tag = new StringBuilder(page.size() * 24).append(next);
+        for (Todo todo : page) {
+            tag.append(todo.getId()).append(':').append(todo.getVersion()).append(':')
+                    .append(millis(todo.getUpdated_at())).append(';');
+        }
+        String etag = "\"l-" + UUID.nameUUIDFromBytes(tag.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
+
+        StringBuilder body = new StringBuilder(page.size() * 160 + 32).append("{\"todos\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            appendTodo(body, page.get(i));
+        }
+        body.append("],\"next\":");
+        Json.appendString(body, next).append('}');
+        exchange.getResponseHeaders().set("ETag", etag);
+        send(exchange, 200, body.toString());
+    }
+
+    private void getTodo(HttpExchange exchange, String id) throws IOException, SQLException {
+        Todo todo = repository.getTodoById(id);
+        if (todo == null) {
+            throw new HttpError(404, "No todo with id " + id);
+        }
+        String etag = etag(todo);
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        send(exchange, 200, appendTodo(new StringBuilder(), todo).toString());
+    }
+
+    private void addTodo(HttpExchange exchange) throws IOException, SQLException {
+        Todo todo = todoFromJson(readObject(exchange), null);
+        repository.addTodo(todo);
+        exchange.getResponseHeaders().set("Location", "/todos/" + todo.getId());
+        exchange.getResponseHeaders().set("ETag", etag(todo));
+        send(exchange, 201, appendTodo(new StringBuilder(), todo).toString());
+    }
+
+    private void updateTodo(HttpExchange exchange, String id) throws IOException, SQLException {
+        Map<String, Object> json = readObject(exchange);
+        Integer version = version(exchange, json.get("version"));
+        if (version == null) {
+            throw new HttpError(428, "Updates need the todo's version, in the body or as If-Match");
+        }
+        Todo todo = todoFromJson(json, id);
+        todo.setVersion(version);
+        keepStoredSchedule(todo, json);
+        try {
+            repository.updateTodo(todo);
+        } catch (TodoConflictException e) {
+            sendConflict(exchange, e);
+            return;
+        }
+        Todo stored = repository.getTodoById(id);
+        Todo result = stored != null ? stored : todo;
+        exchange.getResponseHeaders().set("ETag", etag(result));
+        send(exchange, 200, appendTodo(new StringBuilder(), result).toString());
+    }
+
+    private void deleteTodo(HttpExchange exchange, String id) throws IOException, SQLException {
+        Integer version = version(exchange, queryParams(exchange).get("version"));
+        if (version == null) {
+            repository.deleteTodo(id);
+        } else {
+            Todo todo = new Todo(id, null, false);
+            todo.setVersion(version);
+            try {
+                repository.deleteTodo(todo);
+            } catch (TodoConflictException e) {
+                sendConflict(exchange, e);
+                return;
+            }
+        }
+        sendEmpty(exchange, 204);
+    }
+
+    // One repository batch call; the response lists each row's status in request order
+    private void batch(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> json = readObject(exchange);
+        Object rows = json.get("todos");
+        if (!(rows instanceof List)) {
+            throw new HttpError(400, "Expected a \"todos\" array");
+        }
+        String op = String.valueOf(json.get("op"));
+        List<Todo> todos = new ArrayList<>();
+        for (Object row : (List<?>) rows) {
+            if (op.equals("delete") && !(row instanceof Map)) {
+                // Bare ids delete unconditionally
+                todos.add(new Todo(String.valueOf(row), null, false));
+                continue;
+            }
+            if (!(row instanceof Map)) {
+                throw new HttpError(400, "Every element of \"todos\" must be an object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> fields = (Map<String, Object>) row;
+            Object id = fields.get("id");
+            Todo todo = op.equals("delete") ? new Todo(String.valueOf(id), null, false)
+                    : todoFromJson(fields, op.equals("add") ? null : String.valueOf(id));
+            Integer version = version(null, fields.get("version"));
+            if (!op.equals("add") && (id == null || (op.equals("update") && version == null))) {
+                throw new HttpError(400, op + " needs \"id\"" + (op.equals("update") ? " and \"version\"" : ""));
+            }
+            if (version != null) {
+                todo.setVersion(version);
+            }
+            if (op.equals("update")) {
+                keepStoredSchedule(todo, fields);
+            }
+            todos.add(todo);
+        }
+
+        BatchResult result;
+        switch (op) {
+            case "add":
+                result = repository.addTodos(todos);
+                break;
+            case "update":
+                result = repository.updateTodos(todos);
+                break;
+            case "delete":
+                result = deleteBatch(todos, (List<?>) rows);
+                break;
+            default:
+                throw new HttpError(400, "op must be add, update or delete");
+        }
+
+        StringBuilder body = new StringBuilder(todos.size() * 48 + 64).append("{\"results\":[");
+        for (int i = 0; i < result.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"id\":");
+            Json.appendString(body, todos.get(i).getId()).append(",\"status\":\"").append(result.getStatus(i))
+                    .append("\",\"version\":").append(todos.get(i).getVersion()).append(",\"error\":");
+            Json.appendString(body, result.getError(i)).append('}');
+        }
+        body.append("],\"summary\":");
+        Json.appendString(body, result.summary()).append('}');
+        send(exchange, 200, body.toString());
+    }
+
+    // Rows given with a version are deleted only if unchanged; bare ids unconditionally
+    private BatchResult deleteBatch(List<Todo> todos, List<?> rows) throws SQLException {
+        boolean versioned = !rows.isEmpty() && rows.get(0) instanceof Map
+                && ((Map<?, ?>) rows.get(0)).get("version") != null;
+        for (Object row : rows) {
+            boolean rowVersioned = row instanceof Map && ((Map<?, ?>) row).get("version") != null;
+            if (rowVersioned != versioned) {
+                throw new HttpError(400, "Either every row of a delete batch has a version or none does");
+            }
+        }
+        if (versioned) {
+            return repository.deleteTodos(todos);
+        }
+        List<String> ids = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            ids.add(todo.getId());
+        }
+        return repository.deleteTodos(ids);
+    }
+
+    // Updates write every column, so a due date or recurrence the client left out is
+    // taken from the stored row rather than cleared. Costs a read only when one is missing.
+    private void keepStoredSchedule(Todo todo, Map<String, Object> json) throws SQLException {
+        boolean hasDue = json.containsKey("due_at");
+        boolean hasRecurrence = json.containsKey("recurrence");
+        if (hasDue && hasRecurrence) {
+            return;
+        }
+        Todo stored = repository.getTodoById(todo.getId());
+        if (stored == null) {
+            return;
+        }
+        if (!hasDue) {
+            todo.setDue_at(stored.getDue_at());
+        }
+        if (!hasRecurrence) {
+            todo.setRecurrence(stored.getRecurrence());
+        }
+    }
+
+    // ===== JSON =====
+    private static StringBuilder appendTodo(StringBuilder out, Todo todo) {
+        out.append("{\"id\":");
+        Json.appendString(out, todo.getId()).append(",\"title\":");
+        Json.appendString(out, todo.getTitle()).append(",\"description\":");
+        Json.appendString(out, todo.getDescription()).append(",\"completed\":").append(todo.isCompleted())
+                .append(",\"created_at\":");
+        Json.appendString(out, format(todo.getCreated_at())).append(",\"updated_at\":");
+        Json.appendString(out, format(todo.getUpdated_at())).append(",\"due_at\":");
+        Json.appendString(out, format(todo.getDue_at())).append(",\"recurrence\":");
+        Json.appendString(out, todo.getRecurrence()).append(",\"version\":").append(todo.getVersion());
+        return out.append('}');
+    }
+
+    private static Todo todoFromJson(Map<String, Object> json, String id) {
+        Object title = json.get("title");
+        if (!(title instanceof String) || ((String) title).trim().isEmpty()) {
+            throw new HttpError(400, "\"title\" is required");
+        }
+        Object description = json.get("description");
+        Object completed = json.get("completed");
+        if (completed != null && !(completed instanceof Boolean)) {
+            throw new HttpError(400, "\"completed\" must be true or false");
+        }
+        Todo todo = new Todo((String) title, description == null ? null : description.toString());
+        todo.setId(id);
+        todo.setCompleted(Boolean.TRUE.equals(completed));
+        todo.setUpdated_at(LocalDateTime.now());
+        Object dueAt = json.get("due_at");
+        if (dueAt != null) {
+            try {
+                todo.setDue_at(LocalDateTime.parse(dueAt.toString()));
+            } catch (DateTimeParseException e) {
+                throw new HttpError(400, "\"due_at\" must be a date-time like 2024-05-01T09:00");
+            }
+        }
+        Object recurrence = json.get("recurrence");
+        if (recurrence != null) {
+            try {
+                todo.setRecurrence(Recurrence.parse(recurrence.toString()).toString());
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, e.getMessage());
+            }
+        }
+        return todo;
+    }
+
+    private static Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    // ===== CONDITIONAL REQUESTS =====
+    private static String etag(Todo todo) {
+        return "\"v" + todo.getVersion() + "-" + millis(todo.getUpdated_at()) + "\"";
+    }
+
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !(ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag))) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        sendEmpty(exchange, 304);
+        return true;
+    }
+
+    // From an explicit value, else from an If-Match carrying one of our ETags; null if neither
+    private static Integer version(HttpExchange exchange, Object explicit) {
+        if (explicit != null) {
+            try {
+                return explicit instanceof Number ? ((Number) explicit).intValue() : Integer.parseInt(explicit.toString());
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "version must be a number");
+            }
+        }
+        String ifMatch = exchange == null ? null : exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) {
+            return null;
+        }
+        Matcher matcher = TODO_ETAG.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new HttpError(400, "If-Match must be an ETag returned by this API");
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private void sendConflict(HttpExchange exchange, TodoConflictException conflict) throws IOException {
+        if (conflict.isDeleted()) {
+            throw new HttpError(404, "Todo " + conflict.getTodoId() + " was deleted");
+        }
+        Todo current = conflict.getCurrent();
+        exchange.getResponseHeaders().set("ETag", etag(current));
+        send(exchange, 409, appendTodo(new StringBuilder("{\"error\":\"Changed by someone else\",\"current\":"),
+                current).append('}').toString());
+    }
+
+    // ===== CURSORS =====
+    // Opaque to clients: base64url of "<created_at>|<id>", the keyset position getTodosPage resumes from
+    private static String encodeCursor(Todo last) {
+        String position = format(last.getCreated_at()) + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Todo decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            Todo after = new Todo(position.substring(separator + 1), null, false);
+            after.setCreated_at(LocalDateTime.parse(position.substring(0, separator)));
+            return after;
+        } catch (RuntimeException e) {
+            throw new HttpError(400, "Invalid cursor");
+        }
+    }
+
+    // ===== PLUMBING =====
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, SQLException;
+    }
+
+    // Errors become JSON responses; every request is timed as http.<name>
+    private static HttpHandler timed(String name, Handler handler) {
+        OperationStats stats = Metrics.operation("http." + name);
+        return exchange -> {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                handler.handle(exchange);
+            } catch (HttpError e) {
+                failed = e.status >= 500;
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                // Malformed JSON, or an id the storage engine cannot parse
+                sendError(exchange, 400, e.getMessage());
+            } catch (SQLException e) {
+                failed = true;
+                sendError(exchange, 503, "Storage error: " + e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                e.printStackTrace();
+                sendError(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+                if (failed) {
+                    stats.recordError(System.nanoTime() - start);
+                } else {
+                    stats.record(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            StringBuilder body = new StringBuilder("{\"error\":");
+            send(exchange, status, Json.appendString(body, message).append('}').toString());
+        } catch (IOException | RuntimeException e) {
+            // Headers already sent or the client went away; nothing left to tell it
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // The JDK server finishes a body-less exchange as soon as the headers are out and drops
+    // the connection if the request was not read to the end, so drain it first to keep
+    // the connection alive for the client's next request
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + " must be a number");
+        }
+    }
+
+    private static String format(LocalDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time == null ? 0 : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // Becomes a JSON error response with this status
+    private static final class HttpError extends RuntimeException {
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.todo.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A small JDBC connection pool. Connections handed out are proxies whose close()
+// returns the physical connection to the pool instead of closing the socket.
+public class ConnectionPool implements AutoCloseable {
+    private final PoolConfig config;
+    private final Properties driverProperties;
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    // Idle connections, most recently used first so hot connections stay warm
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> active = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config) {
+        config.validate();
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.driverProperties = buildDriverProperties(config);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // ===== BORROW / RETURN =====
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                metrics.recordTimeout();
+                throw new SQLTransientConnectionException("Timed out after " + config.getConnectionTimeoutMs()
+                        + "ms waiting for a connection (active=" + getActiveCount()
+                        + ", max=" + config.getMaxSize() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        long waited = System.nanoTime() - start;
+
+        PooledEntry entry;
+        try {
+            entry = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        entry.borrowedAtNanos = System.nanoTime();
+        entry.leakReported = false;
+        entry.borrowSite = config.getLeakDetectionThresholdMs() > 0
+                ? new Throwable("Connection borrowed here")
+                : null;
+        active.add(entry);
+        metrics.recordBorrow(waited, System.nanoTime() - start);
+        return wrap(entry);
+    }
+
+    private PooledEntry takeIdleOrCreate() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isAlive(entry)) {
+                return entry;
+            }
+            metrics.recordFailedValidation();
+            destroy(entry);
+        }
+        return createEntry();
+    }
+
+    private void release(PooledEntry entry, boolean broken) {
+        active.remove(entry);
+        try {
+            if (broken || closed || entry.connection.isClosed()) {
+                destroy(entry);
+                return;
+            }
+            // Undo anything a caller may have left behind
+            if (!entry.connection.getAutoCommit()) {
+                entry.connection.rollback();
+                entry.connection.setAutoCommit(true);
+            }
+            entry.connection.clearWarnings();
+            entry.lastUsedNanos = System.nanoTime();
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Skip the validation round-trip for connections that were used very recently
+    private boolean isAlive(PooledEntry entry) {
+        long sinceUse = System.nanoTime() - entry.lastUsedNanos;
+        if (sinceUse < TimeUnit.MILLISECONDS.toNanos(config.getValidationIntervalMs())) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection connection = DriverManager.getConnection(config.getUrl(), driverProperties);
+        totalConnections.incrementAndGet();
+        metrics.recordCreated();
+        return new PooledEntry(connection);
+    }
+
+    private void destroy(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        metrics.recordDestroyed();
+        try {
+            entry.connection.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    private Connection wrap(PooledEntry entry) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(entry));
+    }
+
+    // ===== HOUSEKEEPING =====
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        try {
+            evictIdle();
+            fillToMinimum();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        long idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMs());
+        long now = System.nanoTime();
+        for (PooledEntry entry : idle) {
+            if (totalConnections.get() <= config.getMinSize()) {
+                return;
+            }
+            if (now - entry.lastUsedNanos > idleTimeout && idle.remove(entry)) {
+                metrics.recordIdleEviction();
+                destroy(entry);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        // Hold a permit while creating so warm-up never pushes the pool past maxSize
+        while (!closed && totalConnections.get() < config.getMinSize() && permits.tryAcquire()) {
+            try {
+                idle.offerLast(createEntry());
+            } catch (SQLException e) {
+                System.out.println("Connection pool warm-up failed: " + e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.getLeakDetectionThresholdMs();
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (PooledEntry entry : active) {
+            long heldMs = TimeUnit.NANOSECONDS.toMillis(now - entry.borrowedAtNanos);
+            if (!entry.leakReported && heldMs > threshold) {
+                entry.leakReported = true;
+                metrics.recordLeak();
+                System.out.println("Possible connection leak: connection held for " + heldMs + "ms");
+                if (entry.borrowSite != null) {
+                    entry.borrowSite.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // ===== STATS =====
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public String describe() {
+        return "active=" + getActiveCount()
+                + " idle=" + getIdleCount()
+                + " total=" + getTotalCount()
+                + " waiting=" + getWaitingThreads()
+                + " wait[" + metrics.getWaitTime() + "]"
+                + " borrow[" + metrics.getBorrowLatency() + "]";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+        // Active connections are destroyed as their borrowers close them
+    }
+
+    private static Properties buildDriverProperties(PoolConfig config) {
+        Properties props = new Properties();
+        props.setProperty("user", config.getUsername());
+        props.setProperty("password", config.getPassword());
+        if (config.isMySql()) {
+            // Let the driver keep parsed statements per physical connection. With server-side
+            // statements, closing one returns it to this cache still prepared on the server;
+            // statements the server can't prepare (LOAD DATA) fall back to client-side.
+            props.setProperty("cachePrepStmts", "true");
+            props.setProperty("prepStmtCacheSize", String.valueOf(config.getPrepStmtCacheSize()));
+            props.setProperty("prepStmtCacheSqlLimit", String.valueOf(config.getPrepStmtCacheSqlLimit()));
+            props.setProperty("useServerPrepStmts", String.valueOf(config.isServerPrepStmts()));
+            // Send JDBC batches as multi-row INSERTs / multi-statement packets instead of one round-trip per row
+            props.setProperty("rewriteBatchedStatements", "true");
+            if (config.isAllowLoadLocalInfile()) {
+                props.setProperty("allowLoadLocalInfile", "true");
+            }
+        }
+        return props;
+    }
+
+    // ===== INTERNALS =====
+    private static class PooledEntry {
+        final Connection connection;
+        volatile long lastUsedNanos;
+        volatile long borrowedAtNanos;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledEntry(Connection connection) {
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed;
+        private boolean broken;
+
+        ConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + entry.connection + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(entry.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLState class 08 = connection exception; don't hand this connection out again
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.todo.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
@@ -17,8 +16,42 @@ public class DatabaseConnection {
         }
     }
 
+    // Pool is created on first use; callers still close() connections as before,
+    // which now hands them back to the pool instead of tearing down the socket.
+    private static volatile ConnectionPool pool;
+
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(PoolConfig.fromSystemProperties(URL, USERNAME, PASSWORD));
+                    pool = current;
+                    Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConnection::shutdown, "todo-pool-shutdown"));
+                }
+            }
+        }
+        return current;
+    }
+
+    public static boolean isMySql() {
+        return getPool().getConfig().isMySql();
+    }
+
+    public static void shutdown() {
+        ConnectionPool current;
+        synchronized (DatabaseConnection.class) {
+            current = pool;
+            pool = null;
+        }
+        if (current != null) {
+            current.close();
+        }
     }
 
 }
@@ -0,0 +1,81 @@
+package com.todo.util;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Process-wide registry of operation stats. Names are dotted by layer:
+//   dao.*   repository calls (InstrumentedTodoRepository)
+//   sql.*   statement executions by query shape (SqlStatement)
+//   pool.*  connection acquire/wait time (ConnectionPool)
+//   edt.*   Event Dispatch Thread dispatch and handler time (EdtMonitor)
+//   http.*  API requests in server mode (TodoServer)
+//   stats.* full counts behind the statistics view (TodoStatistics)
+// Once registerJmx() has been called every operation is also published as
+// com.todo:type=Operation,name=<name>.
+public class Metrics {
+    private static final String JMX_DOMAIN = "com.todo";
+
+    private static final ConcurrentMap<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static volatile boolean jmxEnabled;
+
+    private Metrics() {
+    }
+
+    public static OperationStats operation(String name) {
+        OperationStats stats = OPERATIONS.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        OperationStats created = new OperationStats(name);
+        stats = OPERATIONS.putIfAbsent(name, created);
+        if (stats == null) {
+            stats = created;
+            if (jmxEnabled) {
+                register(stats);
+            }
+        }
+        return stats;
+    }
+
+    // Sorted by name
+    public static List<OperationStats> snapshot() {
+        List<OperationStats> all = new ArrayList<>(OPERATIONS.values());
+        all.sort(Comparator.comparing(OperationStats::getName));
+        return all;
+    }
+
+    public static synchronized void registerJmx() {
+        if (jmxEnabled) {
+            return;
+        }
+        jmxEnabled = true;
+        for (OperationStats stats : OPERATIONS.values()) {
+            register(stats);
+        }
+    }
+
+    public static void resetAll() {
+        for (OperationStats stats : OPERATIONS.values()) {
+            stats.reset();
+        }
+    }
+
+    private static void register(OperationStats stats) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(stats, new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + stats.getName()));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by an earlier call; nothing to do
+        } catch (JMException e) {
+            System.out.println("Warning: could not register JMX bean for " + stats.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.todo.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodically writes every operation in Metrics to the log and/or a CSV file.
+// Values are cumulative since startup (or the last reset over JMX), so consecutive CSV
+// rows of one operation can be diffed to get per-interval counts.
+//   -Dtodo.metrics.logIntervalSec  log to stdout every N seconds (0 = off, default)
+//   -Dtodo.metrics.csv             CSV file to append to (off by default)
+//   -Dtodo.metrics.csvIntervalSec  CSV interval, default 60
+public class MetricsReporter implements AutoCloseable {
+    private static final String CSV_HEADER =
+            "timestamp,operation,count,errors,rows,bytes,mean_ms,p50_ms,p99_ms,p999_ms,max_ms";
+
+    private final ScheduledExecutorService scheduler;
+    private final Path csvFile;
+
+    public MetricsReporter(long logIntervalSeconds, Path csvFile, long csvIntervalSeconds) {
+        this.csvFile = csvFile;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (logIntervalSeconds > 0) {
+            scheduler.scheduleAtFixedRate(this::logReport, logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+        }
+        if (csvFile != null && csvIntervalSeconds > 0) {
+            scheduler.scheduleAtFixedRate(this::writeCsvSafely, csvIntervalSeconds, csvIntervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    public static MetricsReporter fromSystemProperties() {
+        String csv = System.getProperty("todo.metrics.csv");
+        return new MetricsReporter(
+                Long.getLong("todo.metrics.logIntervalSec", 0),
+                csv == null || csv.isEmpty() ? null : Paths.get(csv),
+                Long.getLong("todo.metrics.csvIntervalSec", 60));
+    }
+
+    public void logReport() {
+        System.out.println("===== Metrics " + LocalDateTime.now() + " =====");
+        for (OperationStats stats : Metrics.snapshot()) {
+            if (stats.getCount() > 0) {
+                System.out.println("  " + stats);
+            }
+        }
+    }
+
+    public void writeCsv() throws IOException {
+        boolean newFile = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (newFile) {
+                out.println(CSV_HEADER);
+            }
+            String timestamp = LocalDateTime.now().toString();
+            for (OperationStats stats : Metrics.snapshot()) {
+                out.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        timestamp, stats.getName(), stats.getCount(), stats.getErrorCount(),
+                        stats.getRowCount(), stats.getBytesFetched(), stats.getMeanMillis(),
+                        stats.getP50Millis(), stats.getP99Millis(), stats.getP999Millis(), stats.getMaxMillis()));
+            }
+        }
+    }
+
+    private void writeCsvSafely() {
+        try {
+            writeCsv();
+        } catch (IOException e) {
+            // Keep the schedule alive; a full disk should not stop later reports
+            System.out.println("Warning: could not write metrics to " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    // Flushes a final CSV row so short runs still leave data behind
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (csvFile != null) {
+            writeCsvSafely();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.todo.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Latency, error, row and byte counters for one named operation. Obtained from Metrics.
+public class OperationStats implements OperationStatsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    // rows/bytes are what the call returned to its caller
+    public void record(long nanos, long rowCount, long byteCount) {
+        latency.record(nanos);
+        rows.addAndGet(rowCount);
+        bytes.addAndGet(byteCount);
+    }
+
+    // Failed calls count towards latency too; a slow timeout is still a slow call
+    public void recordError(long nanos) {
+        latency.record(nanos);
+        errors.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.get();
+    }
+
+    @Override
+    public long getBytesFetched() {
+        return bytes.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return LatencyHistogram.toMillis(latency.getPercentileNanos(50));
+    }
+
+    @Override
+    public double getP99Millis() {
+        return LatencyHistogram.toMillis(latency.getPercentileNanos(99));
+    }
+
+    @Override
+    public double getP999Millis() {
+        return LatencyHistogram.toMillis(latency.getPercentileNanos(99.9));
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return LatencyHistogram.toMillis(latency.getMaxNanos());
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+        rows.set(0);
+        bytes.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return name + " errors=" + getErrorCount() + " rows=" + getRowCount() + " bytes=" + getBytesFetched()
+                + " " + latency;
+    }
+}
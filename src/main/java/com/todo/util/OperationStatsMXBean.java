@@ -0,0 +1,26 @@
+package com.todo.util;
+
+// JMX view of one instrumented operation (com.todo:type=Operation,name=...)
+public interface OperationStatsMXBean {
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowCount();
+
+    long getBytesFetched();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -0,0 +1,191 @@
+package com.todo.util;
+
+// Connection pool settings. Defaults can be overridden with -Dtodo.db.* / -Dtodo.pool.* system properties.
+public class PoolConfig {
+    private String url;
+    private String username;
+    private String password;
+    private int minSize = 2;
+    private int maxSize = 10;
+    private long connectionTimeoutMs = 30_000;
+    private long idleTimeoutMs = 600_000;
+    private long validationIntervalMs = 5_000;
+    private int validationTimeoutSeconds = 2;
+    private long leakDetectionThresholdMs = 60_000;
+    private long housekeepingIntervalMs = 30_000;
+    private int prepStmtCacheSize = 250;
+    private int prepStmtCacheSqlLimit = 2048;
+    // Prepare statements on the server, so the per-connection cache keeps parsed server-side
+    // statements and executions send only parameters (binary protocol)
+    private boolean serverPrepStmts = true;
+    // Lets imports use LOAD DATA LOCAL INFILE. Off by default: with it on, the driver
+    // sends local files the server asks for, so only enable it against a trusted server.
+    private boolean allowLoadLocalInfile;
+
+    public PoolConfig(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    public static PoolConfig fromSystemProperties(String defaultUrl, String defaultUsername, String defaultPassword) {
+        PoolConfig config = new PoolConfig(
+                System.getProperty("todo.db.url", defaultUrl),
+                System.getProperty("todo.db.user", defaultUsername),
+                System.getProperty("todo.db.password", defaultPassword));
+        config.setMinSize(Integer.getInteger("todo.pool.minSize", config.getMinSize()));
+        config.setMaxSize(Integer.getInteger("todo.pool.maxSize", config.getMaxSize()));
+        config.setConnectionTimeoutMs(Long.getLong("todo.pool.connectionTimeoutMs", config.getConnectionTimeoutMs()));
+        config.setIdleTimeoutMs(Long.getLong("todo.pool.idleTimeoutMs", config.getIdleTimeoutMs()));
+        config.setValidationIntervalMs(Long.getLong("todo.pool.validationIntervalMs", config.getValidationIntervalMs()));
+        config.setValidationTimeoutSeconds(
+                Integer.getInteger("todo.pool.validationTimeoutSeconds", config.getValidationTimeoutSeconds()));
+        config.setLeakDetectionThresholdMs(
+                Long.getLong("todo.pool.leakDetectionThresholdMs", config.getLeakDetectionThresholdMs()));
+        config.setHousekeepingIntervalMs(
+                Long.getLong("todo.pool.housekeepingIntervalMs", config.getHousekeepingIntervalMs()));
+        config.setPrepStmtCacheSize(Integer.getInteger("todo.pool.prepStmtCacheSize", config.getPrepStmtCacheSize()));
+        config.setPrepStmtCacheSqlLimit(
+                Integer.getInteger("todo.pool.prepStmtCacheSqlLimit", config.getPrepStmtCacheSqlLimit()));
+        config.setServerPrepStmts(Boolean.parseBoolean(
+                System.getProperty("todo.pool.serverPrepStmts", String.valueOf(config.isServerPrepStmts()))));
+        config.setAllowLoadLocalInfile(Boolean.getBoolean("todo.db.allowLoadLocalInfile"));
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        if (connectionTimeoutMs <= 0) {
+            throw new IllegalArgumentException("connectionTimeoutMs must be positive");
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    // Driver tuning properties are MySQL-specific; other JDBC URLs (e.g. an embedded
+    // stand-in for benchmarks) get plain user/password
+    public boolean isMySql() {
+        return url != null && url.startsWith("jdbc:mysql:");
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public boolean isAllowLoadLocalInfile() {
+        return allowLoadLocalInfile;
+    }
+
+    public void setAllowLoadLocalInfile(boolean allowLoadLocalInfile) {
+        this.allowLoadLocalInfile = allowLoadLocalInfile;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getConnectionTimeoutMs() {
+        return connectionTimeoutMs;
+    }
+
+    public void setConnectionTimeoutMs(long connectionTimeoutMs) {
+        this.connectionTimeoutMs = connectionTimeoutMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public long getValidationIntervalMs() {
+        return validationIntervalMs;
+    }
+
+    public void setValidationIntervalMs(long validationIntervalMs) {
+        this.validationIntervalMs = validationIntervalMs;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getLeakDetectionThresholdMs() {
+        return leakDetectionThresholdMs;
+    }
+
+    public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) {
+        this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+    }
+
+    public long getHousekeepingIntervalMs() {
+        return housekeepingIntervalMs;
+    }
+
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) {
+        this.housekeepingIntervalMs = housekeepingIntervalMs;
+    }
+
+    public int getPrepStmtCacheSize() {
+        return prepStmtCacheSize;
+    }
+
+    public void setPrepStmtCacheSize(int prepStmtCacheSize) {
+        this.prepStmtCacheSize = prepStmtCacheSize;
+    }
+
+    public int getPrepStmtCacheSqlLimit() {
+        return prepStmtCacheSqlLimit;
+    }
+
+    public void setPrepStmtCacheSqlLimit(int prepStmtCacheSqlLimit) {
+        this.prepStmtCacheSqlLimit = prepStmtCacheSqlLimit;
+    }
+
+    public boolean isServerPrepStmts() {
+        return serverPrepStmts;
+    }
+
+    public void setServerPrepStmts(boolean serverPrepStmts) {
+        this.serverPrepStmts = serverPrepStmts;
+    }
+}
@@ -0,0 +1,85 @@
+package com.todo.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and latency histograms collected by ConnectionPool
+public class PoolMetrics {
+    // Shared with Metrics so connection acquire time shows up in JMX and the reporter
+    private final LatencyHistogram waitTime = Metrics.operation("pool.wait").getLatency();
+    private final LatencyHistogram borrowLatency = Metrics.operation("pool.acquire").getLatency();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong evictedIdle = new AtomicLong();
+    private final AtomicLong failedValidations = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    // Time spent waiting for a free slot (pool exhausted)
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    // Total time of getConnection(), including validation and connection setup
+    public LatencyHistogram getBorrowLatency() {
+        return borrowLatency;
+    }
+
+    public long getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getEvictedIdleCount() {
+        return evictedIdle.get();
+    }
+
+    public long getFailedValidationCount() {
+        return failedValidations.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    void recordBorrow(long waitNanos, long borrowNanos) {
+        borrowed.incrementAndGet();
+        waitTime.record(waitNanos);
+        borrowLatency.record(borrowNanos);
+    }
+
+    void recordCreated() {
+        created.incrementAndGet();
+    }
+
+    void recordDestroyed() {
+        destroyed.incrementAndGet();
+    }
+
+    void recordIdleEviction() {
+        evictedIdle.incrementAndGet();
+    }
+
+    void recordFailedValidation() {
+        failedValidations.incrementAndGet();
+    }
+
+    void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    void recordLeak() {
+        leaks.incrementAndGet();
+    }
+}
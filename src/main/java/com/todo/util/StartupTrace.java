@@ -0,0 +1,41 @@
+package com.todo.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Startup milestones, measured from JVM process start so class loading before main()
+// counts too. Printed with -Dtodo.startup.trace=true; -Dtodo.startup.exitAfterLoad=true
+// exits once the first page is on screen, which is what the startup benchmark times.
+public class StartupTrace {
+    private static final boolean TRACE = Boolean.getBoolean("todo.startup.trace");
+    private static final boolean EXIT_AFTER_LOAD = Boolean.getBoolean("todo.startup.exitAfterLoad");
+    private static final long START_MILLIS = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static final AtomicBoolean firstPageShown = new AtomicBoolean();
+
+    private StartupTrace() {
+    }
+
+    public static long elapsedMillis() {
+        return System.currentTimeMillis() - START_MILLIS;
+    }
+
+    public static void mark(String milestone) {
+        if (TRACE || EXIT_AFTER_LOAD) {
+            System.out.println("Startup: " + milestone + " at " + elapsedMillis() + " ms");
+        }
+    }
+
+    // Called by the GUI every time a page lands; only the first one counts
+    public static void firstPageShown() {
+        if (!firstPageShown.compareAndSet(false, true)) {
+            return;
+        }
+        mark("first page shown");
+        if (EXIT_AFTER_LOAD) {
+            System.exit(0);
+        }
+    }
+}
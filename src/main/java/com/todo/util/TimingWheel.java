@@ -0,0 +1,224 @@
+package com.todo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: O(1) schedule and cancel for any number of timeouts, all
+// driven by one thread calling advanceTo(). Level 0 has 'wheelSize' buckets of one tick
+// each; every further level covers wheelSize times the span of the one below and is
+// created the first time a deadline needs it. When time enters a bucket of a higher
+// level, its timeouts are re-filed into the levels below, so each one is touched once
+// per level on its way down. Timeouts fire within one tick of their deadline, never
+// late by more than a tick after advanceTo() passes it. Not thread-safe.
+public final class TimingWheel<T> {
+    public static final class Timeout<T> {
+        final long deadline;
+        final T payload;
+        Timeout<T> prev;
+        Timeout<T> next;
+        Bucket<T> bucket;
+
+        Timeout(long deadline, T payload) {
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isPending() {
+            return bucket != null;
+        }
+    }
+
+    // Intrusive doubly-linked list, so a cancel needs no search
+    private static final class Bucket<T> {
+        Timeout<T> head;
+        Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // Empties the bucket and returns its timeouts
+        Timeout<T> drain() {
+            Timeout<T> first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final int mask;
+    // levels.get(i) holds the buckets of level i; tick of level i is tickMs * wheelSize^i
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private final List<Long> levelTicks = new ArrayList<>();
+    // Start of the current level-0 tick; deadlines before currentTime + tickMs are due
+    private long currentTime;
+    // Due before the next advance, e.g. scheduled in the past
+    private final Bucket<T> expired = new Bucket<>();
+    private int size;
+
+    // wheelSize must be a power of two
+    public TimingWheel(long tickMs, int wheelSize, long startMillis) {
+        if (tickMs < 1 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize a power of two");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.mask = wheelSize - 1;
+        this.currentTime = Math.floorDiv(startMillis, tickMs) * tickMs;
+        addLevel();
+    }
+
+    public Timeout<T> schedule(long deadlineMillis, T payload) {
+        Timeout<T> timeout = new Timeout<>(deadlineMillis, payload);
+        file(timeout);
+        size++;
+        return timeout;
+    }
+
+    // False if it already fired or was cancelled
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    // Moves time forward to 'nowMillis' and hands every timeout that came due to 'fire'
+    public void advanceTo(long nowMillis, Consumer<T> fire) {
+        fireExpired(fire);
+        long target = Math.floorDiv(nowMillis, tickMs) * tickMs;
+        while (currentTime < target) {
+            if (size == 0) {
+                // Nothing to cascade or fire: skip the empty ticks
+                currentTime = target;
+                break;
+            }
+            currentTime += tickMs;
+            // Highest level first, so re-filed timeouts land in the bucket drained below it
+            for (int level = levels.size() - 1; level >= 0; level--) {
+                long tick = levelTicks.get(level);
+                if (Math.floorMod(currentTime, tick) == 0) {
+                    refile(levels.get(level)[bucketIndex(currentTime, tick)]);
+                }
+            }
+            fireExpired(fire);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    // Start of the current tick: everything due before currentTime + tickMs has fired
+    public long getCurrentTime() {
+        return currentTime;
+    }
+
+    // ===== INTERNALS =====
+    private void file(Timeout<T> timeout) {
+        long deadline = timeout.deadline;
+        if (deadline < currentTime + tickMs) {
+            expired.add(timeout);
+            return;
+        }
+        for (int level = 0; ; level++) {
+            if (level == levels.size()) {
+                addLevel();
+            }
+            long tick = levelTicks.get(level);
+            // The current bucket of a level is the one being drained, so a level only takes
+            // deadlines past its current tick and within wheelSize ticks of its start
+            long levelStart = Math.floorDiv(currentTime, tick) * tick;
+            if (deadline < levelStart + tick * wheelSize) {
+                levels.get(level)[bucketIndex(deadline, tick)].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private void refile(Bucket<T> bucket) {
+        Timeout<T> timeout = bucket.drain();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            file(timeout);
+            timeout = next;
+        }
+    }
+
+    private void fireExpired(Consumer<T> fire) {
+        Timeout<T> timeout = expired.drain();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+            fire.accept(timeout.payload);
+            timeout = next;
+        }
+    }
+
+    private void addLevel() {
+        Bucket<T>[] buckets = newBuckets(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        long tick = levelTicks.isEmpty() ? tickMs : levelTicks.get(levelTicks.size() - 1) * wheelSize;
+        levels.add(buckets);
+        levelTicks.add(tick);
+    }
+
+    // Generic arrays cannot be created directly; each slot only ever holds a Bucket<T>
+    @SuppressWarnings("unchecked")
+    private static <T> Bucket<T>[] newBuckets(int size) {
+        return (Bucket<T>[]) new Bucket<?>[size];
+    }
+
+    private int bucketIndex(long time, long tick) {
+        return (int) (Math.floorDiv(time, tick) & mask);
+    }
+}